@@ -0,0 +1,216 @@
+"""Wire formats of the OpenFlow GUI protocol's structures and message bodies.
+
+Each struct (and message body) has a struct FORMAT string for its fields
+(nested structs are flattened and arrays are left to the caller), its SIZE,
+and pack and unpack functions.  Run this module to round-trip random values
+through each of them.
+
+Generated from ofg.schema by CodecGenerator; do not edit."""
+
+import struct
+
+# Node: a node (switch, host, ...)
+NODE_FORMAT = '> HQ'
+NODE_SIZE = 10
+NODE_FIELDS = ('type', 'id')
+
+def pack_node(type, id):
+    return struct.pack(NODE_FORMAT, type, id)
+
+def unpack_node(buf, off=0):
+    """Returns the fields of the Node at off in buf (see NODE_FIELDS)."""
+    return struct.unpack_from(NODE_FORMAT, buf, off)
+
+# Link: a directed link between two nodes' ports
+LINK_FORMAT = '> HHQHHQH'
+LINK_SIZE = 26
+LINK_FIELDS = ('type', 'src_type', 'src_id', 'src_port', 'dst_type', 'dst_id', 'dst_port')
+
+def pack_link(type, src_type, src_id, src_port, dst_type, dst_id, dst_port):
+    return struct.pack(LINK_FORMAT, type, src_type, src_id, src_port, dst_type, dst_id, dst_port)
+
+def unpack_link(buf, off=0):
+    """Returns the fields of the Link at off in buf (see LINK_FIELDS)."""
+    return struct.unpack_from(LINK_FORMAT, buf, off)
+
+# LinkSpec: a link and its capacity
+LINK_SPEC_FORMAT = '> HHQHHQHQ'
+LINK_SPEC_SIZE = 34
+LINK_SPEC_FIELDS = ('type', 'src_type', 'src_id', 'src_port', 'dst_type', 'dst_id', 'dst_port', 'capacity')
+
+def pack_link_spec(type, src_type, src_id, src_port, dst_type, dst_id, dst_port, capacity):
+    return struct.pack(LINK_SPEC_FORMAT, type, src_type, src_id, src_port, dst_type, dst_id, dst_port, capacity)
+
+def unpack_link_spec(buf, off=0):
+    """Returns the fields of the LinkSpec at off in buf (see LINK_SPEC_FIELDS)."""
+    return struct.unpack_from(LINK_SPEC_FORMAT, buf, off)
+
+# FlowHop: a hop on a flow's path
+FLOW_HOP_FORMAT = '> HHQH'
+FLOW_HOP_SIZE = 14
+FLOW_HOP_FIELDS = ('inport', 'node_type', 'node_id', 'outport')
+
+def pack_flow_hop(inport, node_type, node_id, outport):
+    return struct.pack(FLOW_HOP_FORMAT, inport, node_type, node_id, outport)
+
+def unpack_flow_hop(buf, off=0):
+    """Returns the fields of the FlowHop at off in buf (see FLOW_HOP_FIELDS)."""
+    return struct.unpack_from(FLOW_HOP_FORMAT, buf, off)
+
+# Flow: a flow and its path
+FLOW_FORMAT = '> HIHQHHQHH'
+FLOW_SIZE = 32
+FLOW_FIELDS = ('type', 'id', 'src_type', 'src_id', 'src_port', 'dst_type', 'dst_id', 'dst_port', 'path_len')
+# the path entries (FlowHop) follow (path_len of them)
+
+def pack_flow(type, id, src_type, src_id, src_port, dst_type, dst_id, dst_port, path_len):
+    return struct.pack(FLOW_FORMAT, type, id, src_type, src_id, src_port, dst_type, dst_id, dst_port, path_len)
+
+def unpack_flow(buf, off=0):
+    """Returns the fields of the Flow at off in buf (see FLOW_FIELDS)."""
+    return struct.unpack_from(FLOW_FORMAT, buf, off)
+
+# PortStats: the counters of one port (ofp_port_stats)
+PORT_STATS_FORMAT = '> H6xQQQQQQQQQQQQ'
+PORT_STATS_SIZE = 104
+PORT_STATS_FIELDS = ('port_no', 'rx_packets', 'tx_packets', 'rx_bytes', 'tx_bytes', 'rx_dropped', 'tx_dropped', 'rx_errors', 'tx_errors', 'rx_frame_err', 'rx_over_err', 'rx_crc_err', 'collisions')
+
+def pack_port_stats(port_no, rx_packets, tx_packets, rx_bytes, tx_bytes, rx_dropped, tx_dropped, rx_errors, tx_errors, rx_frame_err, rx_over_err, rx_crc_err, collisions):
+    return struct.pack(PORT_STATS_FORMAT, port_no, rx_packets, tx_packets, rx_bytes, tx_bytes, rx_dropped, tx_dropped, rx_errors, tx_errors, rx_frame_err, rx_over_err, rx_crc_err, collisions)
+
+def unpack_port_stats(buf, off=0):
+    """Returns the fields of the PortStats at off in buf (see PORT_STATS_FIELDS)."""
+    return struct.unpack_from(PORT_STATS_FORMAT, buf, off)
+
+# Hello: protocol version and supported optional features
+HELLO_TYPE = 0x06
+HELLO_FORMAT = '> HI'
+HELLO_SIZE = 6
+HELLO_FIELDS = ('version', 'features')
+
+def pack_hello(version, features):
+    return struct.pack(HELLO_FORMAT, version, features)
+
+def unpack_hello(buf, off=0):
+    """Returns the fields of the Hello at off in buf (see HELLO_FIELDS)."""
+    return struct.unpack_from(HELLO_FORMAT, buf, off)
+
+# NodesAdd: nodes which were added
+NODES_ADD_TYPE = 0x11
+NODES_ADD_FORMAT = '>'
+NODES_ADD_SIZE = 0
+NODES_ADD_FIELDS = ()
+# the nodes entries (Node) fill the rest of the body
+
+# NodesDel: nodes which were deleted
+NODES_DEL_TYPE = 0x12
+NODES_DEL_FORMAT = '>'
+NODES_DEL_SIZE = 0
+NODES_DEL_FIELDS = ()
+# the nodes entries (Node) fill the rest of the body
+
+# LinksAdd: links which were added
+LINKS_ADD_TYPE = 0x14
+LINKS_ADD_FORMAT = '>'
+LINKS_ADD_SIZE = 0
+LINKS_ADD_FIELDS = ()
+# the links entries (LinkSpec) fill the rest of the body
+
+# LinksDel: links which were deleted
+LINKS_DEL_TYPE = 0x15
+LINKS_DEL_FORMAT = '>'
+LINKS_DEL_SIZE = 0
+LINKS_DEL_FIELDS = ()
+# the links entries (Link) fill the rest of the body
+
+# FlowsAdd: flows which were added
+FLOWS_ADD_TYPE = 0x17
+FLOWS_ADD_FORMAT = '> I'
+FLOWS_ADD_SIZE = 4
+FLOWS_ADD_FIELDS = ('count',)
+# the flows entries (Flow) follow (count of them)
+
+def pack_flows_add(count):
+    return struct.pack(FLOWS_ADD_FORMAT, count)
+
+def unpack_flows_add(buf, off=0):
+    """Returns the fields of the FlowsAdd at off in buf (see FLOWS_ADD_FIELDS)."""
+    return struct.unpack_from(FLOWS_ADD_FORMAT, buf, off)
+
+# FlowsDel: flows which were deleted
+FLOWS_DEL_TYPE = 0x18
+FLOWS_DEL_FORMAT = '> I'
+FLOWS_DEL_SIZE = 4
+FLOWS_DEL_FIELDS = ('count',)
+# the flows entries (Flow) follow (count of them)
+
+def pack_flows_del(count):
+    return struct.pack(FLOWS_DEL_FORMAT, count)
+
+def unpack_flows_del(buf, off=0):
+    """Returns the fields of the FlowsDel at off in buf (see FLOWS_DEL_FIELDS)."""
+    return struct.unpack_from(FLOWS_DEL_FORMAT, buf, off)
+
+# PortStatsReply: the counters of some or all of a switch's ports
+PORT_STATS_REPLY_TYPE = 0x21
+PORT_STATS_REPLY_FORMAT = '> QHH'
+PORT_STATS_REPLY_SIZE = 12
+PORT_STATS_REPLY_FIELDS = ('dpid', 'stats_type', 'flags')
+PORT_STATS_REPLY_STATS_TYPE = 4
+# the ports entries (PortStats) fill the rest of the body
+
+def pack_port_stats_reply(dpid, flags):
+    return struct.pack(PORT_STATS_REPLY_FORMAT, dpid, PORT_STATS_REPLY_STATS_TYPE, flags)
+
+def unpack_port_stats_reply(buf, off=0):
+    """Returns the fields of the PortStatsReply at off in buf (see PORT_STATS_REPLY_FIELDS)."""
+    return struct.unpack_from(PORT_STATS_REPLY_FORMAT, buf, off)
+
+def _fuzz(iterations=1000):
+    """Round-trips random values through each pack and unpack function."""
+    import random
+    for _ in range(iterations):
+        a = (random.getrandbits(16), random.getrandbits(64))
+        buf = pack_node(*a)
+        assert len(buf) == NODE_SIZE, 'Node packed to %uB' % len(buf)
+        assert unpack_node(buf) == (a[0], a[1]), 'Node did not round trip'
+        a = (random.getrandbits(16), random.getrandbits(16), random.getrandbits(64), random.getrandbits(16), random.getrandbits(16), random.getrandbits(64), random.getrandbits(16))
+        buf = pack_link(*a)
+        assert len(buf) == LINK_SIZE, 'Link packed to %uB' % len(buf)
+        assert unpack_link(buf) == (a[0], a[1], a[2], a[3], a[4], a[5], a[6]), 'Link did not round trip'
+        a = (random.getrandbits(16), random.getrandbits(16), random.getrandbits(64), random.getrandbits(16), random.getrandbits(16), random.getrandbits(64), random.getrandbits(16), random.getrandbits(64))
+        buf = pack_link_spec(*a)
+        assert len(buf) == LINK_SPEC_SIZE, 'LinkSpec packed to %uB' % len(buf)
+        assert unpack_link_spec(buf) == (a[0], a[1], a[2], a[3], a[4], a[5], a[6], a[7]), 'LinkSpec did not round trip'
+        a = (random.getrandbits(16), random.getrandbits(16), random.getrandbits(64), random.getrandbits(16))
+        buf = pack_flow_hop(*a)
+        assert len(buf) == FLOW_HOP_SIZE, 'FlowHop packed to %uB' % len(buf)
+        assert unpack_flow_hop(buf) == (a[0], a[1], a[2], a[3]), 'FlowHop did not round trip'
+        a = (random.getrandbits(16), random.getrandbits(32), random.getrandbits(16), random.getrandbits(64), random.getrandbits(16), random.getrandbits(16), random.getrandbits(64), random.getrandbits(16), random.getrandbits(16))
+        buf = pack_flow(*a)
+        assert len(buf) == FLOW_SIZE, 'Flow packed to %uB' % len(buf)
+        assert unpack_flow(buf) == (a[0], a[1], a[2], a[3], a[4], a[5], a[6], a[7], a[8]), 'Flow did not round trip'
+        a = (random.getrandbits(16), random.getrandbits(64), random.getrandbits(64), random.getrandbits(64), random.getrandbits(64), random.getrandbits(64), random.getrandbits(64), random.getrandbits(64), random.getrandbits(64), random.getrandbits(64), random.getrandbits(64), random.getrandbits(64), random.getrandbits(64))
+        buf = pack_port_stats(*a)
+        assert len(buf) == PORT_STATS_SIZE, 'PortStats packed to %uB' % len(buf)
+        assert unpack_port_stats(buf) == (a[0], a[1], a[2], a[3], a[4], a[5], a[6], a[7], a[8], a[9], a[10], a[11], a[12]), 'PortStats did not round trip'
+        a = (random.getrandbits(16), random.getrandbits(32))
+        buf = pack_hello(*a)
+        assert len(buf) == HELLO_SIZE, 'Hello packed to %uB' % len(buf)
+        assert unpack_hello(buf) == (a[0], a[1]), 'Hello did not round trip'
+        a = (random.getrandbits(32),)
+        buf = pack_flows_add(*a)
+        assert len(buf) == FLOWS_ADD_SIZE, 'FlowsAdd packed to %uB' % len(buf)
+        assert unpack_flows_add(buf) == (a[0],), 'FlowsAdd did not round trip'
+        a = (random.getrandbits(32),)
+        buf = pack_flows_del(*a)
+        assert len(buf) == FLOWS_DEL_SIZE, 'FlowsDel packed to %uB' % len(buf)
+        assert unpack_flows_del(buf) == (a[0],), 'FlowsDel did not round trip'
+        a = (random.getrandbits(64), random.getrandbits(16))
+        buf = pack_port_stats_reply(*a)
+        assert len(buf) == PORT_STATS_REPLY_SIZE, 'PortStatsReply packed to %uB' % len(buf)
+        assert unpack_port_stats_reply(buf) == (a[0], PORT_STATS_REPLY_STATS_TYPE, a[1]), 'PortStatsReply did not round trip'
+    print 'OFGCodecs: %u round trips of each struct OK' % iterations
+
+if __name__ == '__main__':
+    _fuzz()
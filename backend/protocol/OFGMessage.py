@@ -4,12 +4,15 @@ import array
 import hashlib
 import struct
 import sys
+import zlib
 from os import urandom
 
 from twisted.internet import reactor
 
 from ltprotocol.ltprotocol import LTMessage, LTProtocol
 
+import OFGCodecs
+
 OFG_DEFAULT_PORT = 2503
 
 def array_to_octstr(arr):
@@ -161,6 +164,52 @@ class AuthStatus(OFGMessage):
         return 'AUTH_STATUS: ' + OFGMessage.__str__(self) + ' auth_ok=%s msg=%s' % (str(self.auth_ok), self.msg)
 OFG_MESSAGES.append(AuthStatus)
 
+class Hello(OFGMessage):
+    """Tells the other side which protocol version and optional features the
+    sender supports.  The GUI sends one when it connects; the backend replies
+    with its own (with the same xid).  A feature is only used if both sides
+    support it."""
+    VERSION = 1
+
+    # optional feature bits
+    FEATURE_EXTENDED_LENGTH   = 0x00000001
+    FEATURE_TOPOLOGY_SNAPSHOT = 0x00000002
+    FEATURE_PORT_STATS        = 0x00000004
+    FEATURE_FLOW_STATS        = 0x00000008
+
+    # every feature this implementation supports (not EXTENDED_LENGTH: the
+    # 16-bit length field LTProtocol reads cannot carry extended frames)
+    FEATURES_SUPPORTED = FEATURE_TOPOLOGY_SNAPSHOT | FEATURE_PORT_STATS | FEATURE_FLOW_STATS
+
+    @staticmethod
+    def get_type():
+        return 0x06
+
+    def __init__(self, version=VERSION, features=FEATURES_SUPPORTED, xid=0):
+        OFGMessage.__init__(self, xid)
+        self.version = version
+        self.features = features
+
+    def length(self):
+        return OFGMessage.SIZE + OFGCodecs.HELLO_SIZE
+
+    def pack(self):
+        return OFGMessage.pack(self) + OFGCodecs.pack_hello(self.version, self.features)
+
+    def supports(self, feature):
+        return (self.features & feature) != 0
+
+    @staticmethod
+    def unpack(body):
+        # anything after the feature bitmap is ignored (later versions may add fields)
+        xid = struct.unpack('> I', body[:4])[0]
+        version, features = OFGCodecs.unpack_hello(body, 4)
+        return Hello(version, features, xid)
+
+    def __str__(self):
+        return 'HELLO: ' + OFGMessage.__str__(self) + ' version=%u features=0x%08x' % (self.version, self.features)
+OFG_MESSAGES.append(Hello)
+
 class PollStart(OFGMessage):
     @staticmethod
     def get_type():
@@ -224,7 +273,7 @@ class PollStop(OFGMessage):
 OFG_MESSAGES.append(PollStop)
 
 class Node:
-    SIZE = 10
+    SIZE = OFGCodecs.NODE_SIZE
 
     # default types
     TYPE_UNKNOWN = 0
@@ -237,11 +286,11 @@ class Node:
         self.id = long(node_id)
 
     def pack(self):
-        return struct.pack('> HQ', self.node_type, self.id)
+        return OFGCodecs.pack_node(self.node_type, self.id)
 
     @staticmethod
-    def unpack(buf):
-        t = struct.unpack('> HQ', buf[:Node.SIZE])
+    def unpack(buf, off=0):
+        t = OFGCodecs.unpack_node(buf, off)
         return Node(t[0], t[1])
 
     @staticmethod
@@ -274,10 +323,7 @@ class NodesList(OFGMessage):
         xid = struct.unpack('> I', body[:4])[0]
         body = body[4:]
         num_nodes = len(body) / Node.SIZE
-        nodes = []
-        for _ in range(num_nodes):
-            nodes.append(Node.unpack(body[Node.SIZE:]))
-            body = body[:Node.SIZE]
+        nodes = [Node.unpack(body, i * Node.SIZE) for i in range(num_nodes)]
         return clz(nodes, xid)
 
     def __str__(self):
@@ -316,7 +362,7 @@ class NodesDel(NodesList):
 OFG_MESSAGES.append(NodesDel)
 
 class Link:
-    SIZE = 2 + (2 * (Node.SIZE + 2))
+    SIZE = OFGCodecs.LINK_SIZE
 
     TYPE_UNKNOWN = 0
     TYPE_WIRE = 1
@@ -331,22 +377,13 @@ class Link:
         self.dst_port = dst_port
 
     def pack(self):
-        src = self.src_node.pack() + struct.pack('> H', self.src_port)
-        dst = self.dst_node.pack() + struct.pack('> H', self.dst_port)
-        return struct.pack('> H', self.link_type) + src + dst
+        return OFGCodecs.pack_link(self.link_type, self.src_node.node_type, self.src_node.id, self.src_port,
+                                   self.dst_node.node_type, self.dst_node.id, self.dst_port)
 
     @staticmethod
-    def unpack(buf):
-        link_type = struct.unpack('> H', buf[:2])[0]
-        buf = buf[2:]
-        src_node = Node.unpack(buf[:Node.SIZE])
-        buf = buf[Node.SIZE:]
-        src_port = struct.unpack('> H', buf[:2])[0]
-        buf = buf[2:]
-        dst_node = Node.unpack(buf[:Node.SIZE])
-        buf = buf[Node.SIZE:]
-        dst_port = struct.unpack('> H', buf[:2])[0]
-        return Link(link_type, src_node, src_port, dst_node, dst_port)
+    def unpack(buf, off=0):
+        t = OFGCodecs.unpack_link(buf, off)
+        return Link(t[0], Node(t[1], t[2]), t[3], Node(t[4], t[5]), t[6])
 
     @staticmethod
     def type_to_str(link_type):
@@ -365,21 +402,20 @@ class Link:
                                          str(self.dst_node), self.dst_port)
 
 class LinkSpec(Link):
-    SIZE = Link.SIZE + 8
+    SIZE = OFGCodecs.LINK_SPEC_SIZE
 
     def __init__(self, link_type, src_node, src_port, dst_node, dst_port, capacity_bps):
         Link.__init__(self, link_type, src_node, src_port, dst_node, dst_port)
         self.capacity_bps = int(capacity_bps)
 
     def pack(self):
-        return Link.pack(self) + struct.pack('> Q', self.capacity_bps)
+        return OFGCodecs.pack_link_spec(self.link_type, self.src_node.node_type, self.src_node.id, self.src_port,
+                                        self.dst_node.node_type, self.dst_node.id, self.dst_port, self.capacity_bps)
 
     @staticmethod
-    def unpack(buf):
-        link = Link.unpack(buf)
-        buf = buf[Link.SIZE:]
-        capacity_bps = struct.unpack('> Q', buf)[0]
-        return LinkSpec(link.link_type, link.src_node, link.src_port, link.dst_node, link.dst_port, capacity_bps)
+    def unpack(buf, off=0):
+        t = OFGCodecs.unpack_link_spec(buf, off)
+        return LinkSpec(t[0], Node(t[1], t[2]), t[3], Node(t[4], t[5]), t[6], t[7])
 
     def __str__(self):
         return Link.__str__(self) + ':' + str(int(self.capacity_bps)/(1000*1000)) + 'Mbps'
@@ -400,11 +436,8 @@ class LinksList(OFGMessage):
     def unpack_child(clz, link_clz, body):
         xid = struct.unpack('> I', body[:4])[0]
         body = body[4:]
-        num_links = len(body) / Link.SIZE
-        links = []
-        for _ in range(num_links):
-            links.append(link_clz.unpack(body[:link_clz.SIZE]))
-            body = body[link_clz.SIZE:]
+        num_links = len(body) / link_clz.SIZE
+        links = [link_clz.unpack(body, i * link_clz.SIZE) for i in range(num_links)]
         return clz(links, xid)
 
     def links_to_string(self):
@@ -453,7 +486,7 @@ class LinksDel(LinksList):
 OFG_MESSAGES.append(LinksDel)
 
 class FlowHop:
-    SIZE = 2 + Node.SIZE + 2
+    SIZE = OFGCodecs.FLOW_HOP_SIZE
 
     def __init__(self, inport, node, outport):
         self.inport = int(inport)
@@ -461,16 +494,12 @@ class FlowHop:
         self.outport = int(outport)
 
     def pack(self):
-        return struct.pack('> H', self.inport) + self.node.pack() + struct.pack('> H', self.outport)
+        return OFGCodecs.pack_flow_hop(self.inport, self.node.node_type, self.node.id, self.outport)
 
     @staticmethod
-    def unpack(buf):
-        inport = struct.unpack('> H', buf[:2])[0]
-        buf = buf[2:]
-        node = Node.unpack(buf[:Node.SIZE])
-        buf = buf[Node.SIZE:]
-        outport = struct.unpack('> H', buf[:2])[0]
-        return FlowHop(inport, node, outport)
+    def unpack(buf, off=0):
+        t = OFGCodecs.unpack_flow_hop(buf, off)
+        return FlowHop(t[0], Node(t[1], t[2]), t[3])
 
     def __str__(self):
         return '%s:%u:%u' % (str(self.node), self.inport, self.outport)
@@ -488,35 +517,20 @@ class Flow:
         self.path = path
 
     def pack(self):
-        src = self.src_node.pack() + struct.pack('> H', self.src_port)
-        dst = self.dst_node.pack() + struct.pack('> H', self.dst_port)
-        header = struct.pack('> H I', self.flow_type, self.flow_id) + src + dst + struct.pack('> H', len(self.path))
-        body = ''.join(hop.pack() for hop in self.path)
-        return header + body
+        header = OFGCodecs.pack_flow(self.flow_type, self.flow_id,
+                                     self.src_node.node_type, self.src_node.id, self.src_port,
+                                     self.dst_node.node_type, self.dst_node.id, self.dst_port, len(self.path))
+        return header + ''.join(hop.pack() for hop in self.path)
 
     @staticmethod
-    def unpack(buf):
-        flow_type, flow_id = struct.unpack('> H I', buf[:6])
-        buf = buf[6:]
-        src_node = Node.unpack(buf[:Node.SIZE])
-        buf = buf[Node.SIZE:]
-        src_port = struct.unpack('> H', buf[:2])[0]
-        buf = buf[2:]
-        dst_node = Node.unpack(buf[:Node.SIZE])
-        dst_port = struct.unpack('> H', buf[:2])[0]
-        buf = buf[2:]
-        num_hops = struct.unpack('> H', buf[:2])[0]
-        buf = buf[2:]
-
-        path = []
-        for _ in range(num_hops):
-            path.append(FlowHop.unpack(buf[:FlowHop.SIZE]))
-            buf = buf[FlowHop.SIZE:]
-
-        return Flow(flow_type, flow_id, src_node, src_port, dst_node, dst_port, path)
+    def unpack(buf, off=0):
+        t = OFGCodecs.unpack_flow(buf, off)
+        off += OFGCodecs.FLOW_SIZE
+        path = [FlowHop.unpack(buf, off + i * FlowHop.SIZE) for i in range(t[8])]
+        return Flow(t[0], t[1], Node(t[2], t[3]), t[4], Node(t[5], t[6]), t[7], path)
 
     def length(self):
-        return 8 + 2*(2+Node.SIZE) + FlowHop.SIZE * len(self.path)
+        return OFGCodecs.FLOW_SIZE + FlowHop.SIZE * len(self.path)
 
     @staticmethod
     def type_to_str(flow_type):
@@ -537,20 +551,20 @@ class FlowsList(OFGMessage):
         return OFGMessage.SIZE + 4 + sum(flow.length() for flow in self.flows)
 
     def pack(self):
-        hdr = OFGMessage.pack(self) + struct.pack('> I', len(self.flows))
+        hdr = OFGMessage.pack(self) + OFGCodecs.pack_flows_add(len(self.flows))
         return hdr + ''.join([flow.pack() for flow in self.flows])
 
     @staticmethod
     def unpack_child(clz, body):
         xid = struct.unpack('> I', body[:4])[0]
-        body = body[4:]
-        num_flows = struct.unpack('> I', body)[0]
-        body = body[4:]
+        off = 4
+        num_flows = OFGCodecs.unpack_flows_add(body, off)[0]
+        off += OFGCodecs.FLOWS_ADD_SIZE
         flows = []
         for _ in range(num_flows):
-            f = Flow.unpack(body)
+            f = Flow.unpack(body, off)
             flows.append(f)
-            body = body[f.length():]
+            off += f.length()
         return clz(flows, xid)
 
     def flows_to_string(self):
@@ -700,20 +714,387 @@ class FlowsRequest(Request):
         return 'REQUEST for Flows: ' + Request.__str__(self)
 OFG_MESSAGES.append(FlowsRequest)
 
+class TopologyRequest(Request):
+    """Asks for a TopologySnapshot of the whole topology."""
+    @staticmethod
+    def get_type():
+        return 0x19
+
+    def __init__(self, request_type=Request.TYPE_ONETIME, otype=0, xid=0):
+        Request.__init__(self, request_type, otype, xid)
+
+    @staticmethod
+    def unpack(body):
+        return Request.unpack_child(TopologyRequest, body)
+
+    def __str__(self):
+        return 'REQUEST for Topology: ' + Request.__str__(self)
+OFG_MESSAGES.append(TopologyRequest)
+
+def pack_varint(v):
+    """Packs a non-negative integer 7 bits per byte, least significant first."""
+    ret = []
+    while v > 0x7F:
+        ret.append(chr((v & 0x7F) | 0x80))
+        v >>= 7
+    ret.append(chr(v))
+    return ''.join(ret)
+
+def unpack_varint(buf, off):
+    """Returns the varint at offset off in buf and the offset just past it."""
+    v = 0
+    shift = 0
+    while True:
+        b = ord(buf[off])
+        off += 1
+        v |= (b & 0x7F) << shift
+        if b < 0x80:
+            return (v, off)
+        shift += 7
+
+class TopologySnapshot(OFGMessage):
+    """All nodes and links in one deflate-compressed message.  Nodes are sorted
+    by ID and sent as the delta from the previous ID; links refer to nodes by
+    their index in the sorted list."""
+    @staticmethod
+    def get_type():
+        return 0x1A
+
+    def __init__(self, nodes, links, xid=0):
+        OFGMessage.__init__(self, xid)
+        self.nodes = sorted(nodes, key=lambda n: n.id)
+        self.links = links
+        self.packed_body = None
+
+    def pack_body(self):
+        if self.packed_body is None:
+            index = {}
+            raw = [struct.pack('> I', len(self.nodes))]
+            prev = 0
+            for i, n in enumerate(self.nodes):
+                raw.append(struct.pack('> H', n.node_type) + pack_varint((n.id - prev) & 0xFFFFFFFFFFFFFFFF))
+                prev = n.id
+                index[n.id] = i
+            raw.append(struct.pack('> I', len(self.links)))
+            for l in self.links:
+                raw.append(struct.pack('> H', l.link_type) +
+                           pack_varint(index[l.src_node.id]) + struct.pack('> H', l.src_port) +
+                           pack_varint(index[l.dst_node.id]) + struct.pack('> H', l.dst_port) +
+                           struct.pack('> Q', l.capacity_bps))
+            raw = ''.join(raw)
+            self.packed_body = struct.pack('> I', len(raw)) + zlib.compress(raw)
+        return self.packed_body
+
+    def length(self):
+        return OFGMessage.SIZE + len(self.pack_body())
+
+    def pack(self):
+        return OFGMessage.pack(self) + self.pack_body()
+
+    @staticmethod
+    def unpack(body):
+        xid, raw_len = struct.unpack('> II', body[:8])
+        raw = zlib.decompress(body[8:])
+        if len(raw) != raw_len:
+            raise ValueError('topology snapshot decompressed to %uB but should be %uB' % (len(raw), raw_len))
+
+        num_nodes = struct.unpack('> I', raw[:4])[0]
+        off = 4
+        nodes = []
+        node_id = 0
+        for _ in range(num_nodes):
+            node_type = struct.unpack('> H', raw[off:off+2])[0]
+            delta, off = unpack_varint(raw, off + 2)
+            node_id = (node_id + delta) & 0xFFFFFFFFFFFFFFFF
+            nodes.append(Node(node_type, node_id))
+
+        num_links = struct.unpack('> I', raw[off:off+4])[0]
+        off += 4
+        links = []
+        for _ in range(num_links):
+            link_type = struct.unpack('> H', raw[off:off+2])[0]
+            src, off = unpack_varint(raw, off + 2)
+            src_port = struct.unpack('> H', raw[off:off+2])[0]
+            dst, off = unpack_varint(raw, off + 2)
+            dst_port, capacity_bps = struct.unpack('> HQ', raw[off:off+10])
+            off += 10
+            links.append(LinkSpec(link_type, nodes[src], src_port, nodes[dst], dst_port, capacity_bps))
+        return TopologySnapshot(nodes, links, xid)
+
+    def __str__(self):
+        return 'TOPOLOGY_SNAPSHOT: ' + OFGMessage.__str__(self) + ' #nodes=%u #links=%u' % (len(self.nodes), len(self.links))
+OFG_MESSAGES.append(TopologySnapshot)
+
+class StatsHeader(OFGMessage):
+    SIZE = OFGMessage.SIZE + 12
+
+    # stats types (OFPST_*)
+    TYPE_DESC = 0x0000
+    TYPE_FLOW = 0x0001
+    TYPE_AGGREGATE = 0x0002
+    TYPE_TABLE = 0x0003
+    TYPE_PORT = 0x0004
+    TYPE_VENDOR = 0xFFFF
+
+    # stats flags
+    FLAG_NONE = 0x0000
+    FLAG_REPLY_MORE = 0x0001
+
+    def __init__(self, dpid, stats_type, flags=0, xid=0):
+        OFGMessage.__init__(self, xid)
+        self.dpid = long(dpid)
+        self.stats_type = int(stats_type)
+        self.flags = int(flags)
+
+    def length(self):
+        return StatsHeader.SIZE
+
+    def pack(self):
+        return OFGMessage.pack(self) + struct.pack('> QHH', self.dpid, self.stats_type, self.flags)
+
+    @staticmethod
+    def unpack_header(body):
+        """Returns (xid, dpid, stats_type, flags, rest of body)."""
+        xid, dpid, stats_type, flags = struct.unpack('> IQHH', body[:StatsHeader.SIZE])
+        return (xid, dpid, stats_type, flags, body[StatsHeader.SIZE:])
+
+    @staticmethod
+    def type_to_str(stats_type):
+        if stats_type == StatsHeader.TYPE_DESC:
+            return 'DESC'
+        elif stats_type == StatsHeader.TYPE_FLOW:
+            return 'FLOW'
+        elif stats_type == StatsHeader.TYPE_AGGREGATE:
+            return 'AGGREGATE'
+        elif stats_type == StatsHeader.TYPE_TABLE:
+            return 'TABLE'
+        elif stats_type == StatsHeader.TYPE_PORT:
+            return 'PORT'
+        elif stats_type == StatsHeader.TYPE_VENDOR:
+            return 'VENDOR'
+        else:
+            return 'unknown'
+
+    def __str__(self):
+        return OFGMessage.__str__(self) + ' type=%s switch=%s flags=%u' % (StatsHeader.type_to_str(self.stats_type), dpidstr(self.dpid), self.flags)
+
+class StatsRequest(StatsHeader):
+    """A stats request whose type-specific body is kept as is (see PortStatsRequest)."""
+    @staticmethod
+    def get_type():
+        return 0x20
+
+    def __init__(self, dpid, stats_type, body='', flags=0, xid=0):
+        StatsHeader.__init__(self, dpid, stats_type, flags, xid)
+        self.body = body
+
+    def length(self):
+        return StatsHeader.SIZE + len(self.body)
+
+    def pack(self):
+        return StatsHeader.pack(self) + self.body
+
+    @staticmethod
+    def unpack(body):
+        xid, dpid, stats_type, flags, body = StatsHeader.unpack_header(body)
+        if stats_type == StatsHeader.TYPE_PORT:
+            port_no = struct.unpack('> H', body[:2])[0]
+            return PortStatsRequest(dpid, port_no, flags, xid)
+        return StatsRequest(dpid, stats_type, body, flags, xid)
+
+    def __str__(self):
+        return 'STAT_REQUEST: ' + StatsHeader.__str__(self)
+OFG_MESSAGES.append(StatsRequest)
+
+class PortStatsRequest(StatsRequest):
+    """Requests the stats of one port, or all ports if port_no is OFPP_NONE."""
+    OFPP_NONE = 0xFFFF
+
+    def __init__(self, dpid, port_no=OFPP_NONE, flags=0, xid=0):
+        StatsRequest.__init__(self, dpid, StatsHeader.TYPE_PORT, struct.pack('> H6x', port_no), flags, xid)
+        self.port_no = port_no
+
+    def __str__(self):
+        return StatsRequest.__str__(self) + ' port=%s' % ('all' if self.port_no == PortStatsRequest.OFPP_NONE else str(self.port_no))
+
+class PortStats:
+    """The counters for one port (ofp_port_stats)."""
+    SIZE = OFGCodecs.PORT_STATS_SIZE
+    NUM_COUNTERS = 12
+
+    def __init__(self, port_no, rx_packets=0, tx_packets=0, rx_bytes=0, tx_bytes=0,
+                 rx_dropped=0, tx_dropped=0, rx_errors=0, tx_errors=0,
+                 rx_frame_err=0, rx_over_err=0, rx_crc_err=0, collisions=0):
+        self.port_no = int(port_no)
+        self.rx_packets = long(rx_packets)
+        self.tx_packets = long(tx_packets)
+        self.rx_bytes = long(rx_bytes)
+        self.tx_bytes = long(tx_bytes)
+        self.rx_dropped = long(rx_dropped)
+        self.tx_dropped = long(tx_dropped)
+        self.rx_errors = long(rx_errors)
+        self.tx_errors = long(tx_errors)
+        self.rx_frame_err = long(rx_frame_err)
+        self.rx_over_err = long(rx_over_err)
+        self.rx_crc_err = long(rx_crc_err)
+        self.collisions = long(collisions)
+
+    def pack(self):
+        return OFGCodecs.pack_port_stats(self.port_no,
+                                         self.rx_packets, self.tx_packets, self.rx_bytes, self.tx_bytes,
+                                         self.rx_dropped, self.tx_dropped, self.rx_errors, self.tx_errors,
+                                         self.rx_frame_err, self.rx_over_err, self.rx_crc_err, self.collisions)
+
+    @staticmethod
+    def unpack(buf, off=0):
+        return PortStats(*OFGCodecs.unpack_port_stats(buf, off))
+
+    def __str__(self):
+        return 'port%u{rx=%upkts/%uB tx=%upkts/%uB}' % (self.port_no, self.rx_packets, self.rx_bytes,
+                                                       self.tx_packets, self.tx_bytes)
+
+class StatsReply(StatsHeader):
+    """A stats reply whose type-specific body is kept as is (see PortStatsReply)."""
+    @staticmethod
+    def get_type():
+        return 0x21
+
+    def __init__(self, dpid, stats_type, body='', flags=0, xid=0):
+        StatsHeader.__init__(self, dpid, stats_type, flags, xid)
+        self.body = body
+
+    def length(self):
+        return StatsHeader.SIZE + len(self.body)
+
+    def pack(self):
+        return StatsHeader.pack(self) + self.body
+
+    @staticmethod
+    def unpack(body):
+        xid, dpid, stats_type, flags, body = StatsHeader.unpack_header(body)
+        if stats_type == StatsHeader.TYPE_PORT:
+            ports = [PortStats.unpack(body, i * PortStats.SIZE) for i in range(len(body) / PortStats.SIZE)]
+            return PortStatsReply(dpid, ports, flags, xid)
+        elif stats_type == StatsHeader.TYPE_FLOW:
+            flows = []
+            while len(body) > 0:
+                fs = FlowStats.unpack(body)
+                flows.append(fs)
+                body = body[fs.length():]
+            return FlowStatsReply(dpid, flows, flags, xid)
+        return StatsReply(dpid, stats_type, body, flags, xid)
+
+    def __str__(self):
+        return 'STAT_REPLY: ' + StatsHeader.__str__(self)
+OFG_MESSAGES.append(StatsReply)
+
+class PortStatsReply(StatsReply):
+    """Reply with the counters of one or more of a switch's ports."""
+    def __init__(self, dpid, ports, flags=0, xid=0):
+        StatsReply.__init__(self, dpid, StatsHeader.TYPE_PORT, '', flags, xid)
+        self.ports = ports
+
+    def length(self):
+        return StatsHeader.SIZE + len(self.ports) * PortStats.SIZE
+
+    def pack(self):
+        return StatsHeader.pack(self) + ''.join([p.pack() for p in self.ports])
+
+    def __str__(self):
+        return StatsReply.__str__(self) + ' ports=[%s]' % ', '.join([str(p) for p in self.ports])
+
+class FlowStats:
+    """The counters for one flow entry (ofp_flow_stats).  The match and actions are kept packed."""
+    SIZE = 88
+    MATCH_SIZE = 40
+
+    def __init__(self, cookie, packet_count=0, byte_count=0, table_id=0, priority=0,
+                 duration_sec=0, match='\0' * MATCH_SIZE, actions=''):
+        self.cookie = long(cookie)
+        self.packet_count = long(packet_count)
+        self.byte_count = long(byte_count)
+        self.table_id = int(table_id)
+        self.priority = int(priority)
+        self.duration_sec = int(duration_sec)
+        self.match = match
+        self.actions = actions
+
+    def length(self):
+        return FlowStats.SIZE + len(self.actions)
+
+    def pack(self):
+        return struct.pack('> HBx', self.length(), self.table_id) + self.match + \
+               struct.pack('> IIHHH6xQQQ', self.duration_sec, 0, self.priority, 0, 0,
+                           self.cookie, self.packet_count, self.byte_count) + self.actions
+
+    @staticmethod
+    def unpack(buf):
+        length, table_id = struct.unpack('> HBx', buf[:4])
+        match = buf[4:4+FlowStats.MATCH_SIZE]
+        t = struct.unpack('> IIHHH6xQQQ', buf[4+FlowStats.MATCH_SIZE:FlowStats.SIZE])
+        return FlowStats(t[5], t[6], t[7], table_id, t[2], t[0], match, buf[FlowStats.SIZE:length])
+
+    def __str__(self):
+        return 'cookie%u{%upkts/%uB}' % (self.cookie, self.packet_count, self.byte_count)
+
+class FlowStatsReply(StatsReply):
+    """Reply with the counters of one or more of a switch's flow entries."""
+    def __init__(self, dpid, flows, flags=0, xid=0):
+        StatsReply.__init__(self, dpid, StatsHeader.TYPE_FLOW, '', flags, xid)
+        self.flows = flows
+
+    def length(self):
+        return StatsHeader.SIZE + sum([f.length() for f in self.flows])
+
+    def pack(self):
+        return StatsHeader.pack(self) + ''.join([f.pack() for f in self.flows])
+
+    def __str__(self):
+        return StatsReply.__str__(self) + ' flows=[%s]' % ', '.join([str(f) for f in self.flows])
+
 OFG_PROTOCOL = LTProtocol(OFG_MESSAGES, 'H', 'B')
 
-def create_ofg_server(port, recv_callback):
+# LTProtocol only reads and writes 16-bit length fields, so this backend does
+# not support the extended-length form (see Hello.FEATURE_EXTENDED_LENGTH):
+# only the GUI (and any backend which frames its own messages) can send or
+# receive messages of 64KB or more.  Messages this backend sends must fit in
+# OFG_MAX_LENGTH bytes.
+OFG_MAX_LENGTH = 0xFFFF
+
+# bytes which LTProtocol puts before each message's body (length and type)
+OFG_HEADER_SIZE = 3
+
+def fits_in_one_message(msg):
+    """Returns True if msg is small enough for this backend to send."""
+    return OFG_HEADER_SIZE + msg.length() <= OFG_MAX_LENGTH
+
+def split_into_messages(clz, items, item_size):
+    """Returns a list of clz messages which together carry all of items, each
+    small enough for this backend to send.
+
+    @param clz  the list message class to construct (e.g. NodesAdd)
+    @param items  the nodes, links, etc. to send
+    @param item_size  the packed size of each item
+    """
+    per_msg = (OFG_MAX_LENGTH - OFG_HEADER_SIZE - OFGMessage.SIZE) // item_size
+    return [clz(items[i:i+per_msg]) for i in range(0, len(items), per_msg)]
+
+def create_ofg_server(port, recv_callback, unix_path=None):
     """Starts a server which listens for OFG clients on the specified port.
 
     @param port  the port to listen on
     @param recv_callback  the function to call with received message content
                          (takes two arguments: transport, msg)
+    @param unix_path  if specified, also listen on a Unix domain socket at this
+                      path (a co-located GUI connects to it as "unix:PATH")
 
     @return returns the new LTTwistedServer
     """
     from ltprotocol.ltprotocol import LTTwistedServer
     server = LTTwistedServer(OFG_PROTOCOL, recv_callback)
     server.listen(port)
+    if unix_path is not None:
+        reactor.listenUNIX(unix_path, server)
     return server
 
 def run_ofg_server(port, recv_callback):
@@ -753,6 +1134,14 @@ class _Test():
         self.salt_db = {}
         self.user_db = {}
 
+        # port stats requests being polled (keyed by the PollStart's xid)
+        self.polls = {}
+        self.port_stats_sent = 0
+        self.flow_stats_sent = 0
+
+        # optional features both we and the client support (none until it says hello)
+        self.features = 0
+
     def add_user(self, username, pw):
         """Adds a user to the database"""
         self.user_db[username] = sha1(pw)
@@ -761,7 +1150,8 @@ class _Test():
     def print_ltm(self, _, ltm):
         if ltm is not None:
             print 'recv: %s' % str(ltm)
-            if ltm.get_type() == NodesRequest.get_type() and ltm.request_type == Request.TYPE_ONETIME:
+            is_topology_request = (ltm.get_type() == TopologyRequest.get_type())
+            if (ltm.get_type() == NodesRequest.get_type() or is_topology_request) and ltm.request_type == Request.TYPE_ONETIME:
                 nodes = [Node(Node.TYPE_OPENFLOW_SWITCH, i+1) for i in range(self.num_nodes)]
                 c = 1000*1000*1000
                 links = [LinkSpec(i % 2 + 1, nodes[i], 0, nodes[i+1], 1, c) for i in range(self.num_nodes-1)]
@@ -775,8 +1165,15 @@ class _Test():
                     links.append(LinkSpec(0, nodes[n], 2, nodes[n+1], 3, c))  # 10000 to 10001
                     links.append(LinkSpec(0, nodes[n+1], 2, nodes[2], 3, c))  # 10001 to 3
 
-                self.server.send(NodesAdd(nodes))
-                self.server.send(LinksAdd(links))
+                # a snapshot too big for one message is sent as node and link adds instead
+                snapshot = TopologySnapshot(nodes, links) if is_topology_request else None
+                if snapshot is not None and fits_in_one_message(snapshot):
+                    self.server.send(snapshot)
+                else:
+                    for msg in split_into_messages(NodesAdd, nodes, Node.SIZE):
+                        self.server.send(msg)
+                    for msg in split_into_messages(LinksAdd, links, LinkSpec.SIZE):
+                        self.server.send(msg)
 
                 if self.test_flow:
                     hops = [FlowHop(0, nodes[i+1], 1) for i in range(2)]
@@ -796,6 +1193,19 @@ class _Test():
 
                 if self.test_flow:
                     self.server.send(FlowsAdd(flows))
+            elif ltm.get_type() == Hello.get_type():
+                self.features = ltm.features & Hello.FEATURES_SUPPORTED
+                self.server.send(Hello(xid=ltm.xid))
+            elif ltm.get_type() == StatsRequest.get_type():
+                self.reply_to_stats_request(ltm)
+            elif ltm.get_type() == PollStart.get_type():
+                if ltm.lm.get_type() == StatsRequest.get_type():
+                    self.polls[ltm.xid] = ltm
+                    self.poll(ltm.xid)
+            elif ltm.get_type() == PollStop.get_type():
+                for xid, ps in self.polls.items():
+                    if ps.lm.xid == ltm.xid_to_stop_polling or xid == ltm.xid_to_stop_polling:
+                        del self.polls[xid]
             elif ltm.get_type() == AuthReply.get_type():
                 # get the salt associated with this transaction
                 if not self.salt_db.has_key(ltm.xid):
@@ -816,8 +1226,39 @@ class _Test():
                 else:
                     self.server.send(AuthStatus(True, 'login as %s successful' % ltm.username, ltm.xid))
 
+    def reply_to_stats_request(self, req):
+        """Replies to port and flow stats requests with made up, steadily increasing counters"""
+        if req.stats_type == StatsHeader.TYPE_FLOW:
+            # the test flow's entry uses its flow ID (44) as its cookie
+            self.flow_stats_sent += 1
+            n = self.flow_stats_sent
+            flows = [FlowStats(44, packet_count=n*1000, byte_count=n*1500000)]
+            self.server.send(FlowStatsReply(req.dpid, flows, xid=req.xid))
+            return
+        elif req.stats_type != StatsHeader.TYPE_PORT:
+            return
+
+        self.port_stats_sent += 1
+        n = self.port_stats_sent
+        if req.port_no == PortStatsRequest.OFPP_NONE:
+            port_nums = range(4)
+        else:
+            port_nums = [req.port_no]
+        ports = [PortStats(p, rx_packets=n*100, tx_packets=n*100*(p+1), rx_bytes=n*150000, tx_bytes=n*150000*(p+1)) for p in port_nums]
+        self.server.send(PortStatsReply(req.dpid, ports, xid=req.xid))
+
+    def poll(self, xid):
+        """Sends the reply to a polled request and schedules the next one until it is stopped"""
+        ps = self.polls.get(xid)
+        if ps is None:
+            return
+
+        self.reply_to_stats_request(ps.lm)
+        reactor.callLater(max(ps.interval, 1) / 10.0, self.poll, xid)
+
     # when the gui connects, ask it to authenticate
     def new_conn_callback(self, conn):
+        self.features = 0
         if self.test_auth:
             ar = AuthRequest(urandom(20), self.salt_id_on)
             self.salt_db[self.salt_id_on] = ar.salt
@@ -840,6 +1281,9 @@ def test(argv=sys.argv[1:]):
     parser.add_option("-p", "--port",
                       type="int", default=OFG_DEFAULT_PORT,
                       help="port number to listen on [default: %default]")
+    parser.add_option("-u", "--unix",
+                      default=None,
+                      help="also listen on a Unix domain socket at this path")
 
     (options, args) = parser.parse_args(argv)
     if len(args) > 1:
@@ -847,7 +1291,7 @@ def test(argv=sys.argv[1:]):
 
     t = _Test(options.num_nodes, options.auth_test, not options.bicast_test_off)
     t.add_user('dgu', 'envi')
-    server = create_ofg_server(options.port, lambda a,b : t.print_ltm(a,b))
+    server = create_ofg_server(options.port, lambda a,b : t.print_ltm(a,b), options.unix)
     server.new_conn_callback = lambda a : t.new_conn_callback(a)
     t.server = server
     reactor.run()
@@ -0,0 +1,127 @@
+package org.openflow.util;
+
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Compares a ConcurrentLongMap against the ConcurrentHashMap<Long, ...> it
+ * replaced as an index of NUM_KEYS random datapath IDs: how long a lookup
+ * takes (with the ID starting out as a primitive long, as it does when it is
+ * read off the wire) and how much memory each entry of the index costs.
+ *
+ * Usage: ConcurrentLongMapBench [RUN_MSEC] [THREADS]
+ *
+ * @author David Underhill
+ */
+public final class ConcurrentLongMapBench {
+    /** number of DPIDs in the index */
+    public static final int NUM_KEYS = 100 * 1000;
+
+    /** how long to run each lookup loop before measuring it */
+    public static final long WARMUP_MSEC = 1000;
+
+    /** the value every key is mapped to (so only the index itself is measured) */
+    private static final Object VALUE = new Object();
+
+    /** a way to look up a DPID */
+    private interface Lookup {
+        boolean has(long dpid);
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        long runMsec = (args.length > 0) ? Long.parseLong(args[0]) : 2000;
+        int numThreads = (args.length > 1) ? Integer.parseInt(args[1]) : 1;
+
+        Random rand = new Random(1);
+        final long[] dpids = new long[NUM_KEYS];
+        for(int i=0; i<NUM_KEYS; i++)
+            dpids[i] = rand.nextLong();
+
+        long before = usedMemory();
+        final ConcurrentHashMap<Long, Object> chm = new ConcurrentHashMap<Long, Object>();
+        for(long dpid : dpids)
+            chm.put(dpid, VALUE);
+        long chmBytes = usedMemory() - before;
+
+        before = usedMemory();
+        final ConcurrentLongMap<Object> clm = new ConcurrentLongMap<Object>();
+        for(long dpid : dpids)
+            clm.put(dpid, VALUE);
+        long clmBytes = usedMemory() - before;
+
+        System.out.println(NUM_KEYS + " DPIDs, " + numThreads + " thread(s)");
+        System.out.println(String.format("%-24s %14s %14s", "index", "lookup ns", "bytes/entry"));
+        report("ConcurrentHashMap<Long>", new Lookup() {
+            public boolean has(long dpid) {
+                return chm.get(dpid) != null;
+            }
+        }, dpids, chmBytes, runMsec, numThreads);
+        report("ConcurrentLongMap", new Lookup() {
+            public boolean has(long dpid) {
+                return clm.get(dpid) != null;
+            }
+        }, dpids, clmBytes, runMsec, numThreads);
+
+        // keep both maps reachable until both have been measured
+        System.out.println("(ignore: " + (chm.size() + clm.size()) + ")");
+    }
+
+    /** measures lookups and prints a line of results */
+    private static void report(String name, Lookup l, long[] dpids, long bytes, long runMsec, int numThreads) throws InterruptedException {
+        measure(l, dpids, WARMUP_MSEC, numThreads);
+        double ns = measure(l, dpids, runMsec, numThreads);
+        System.out.println(String.format("%-24s %14.1f %14.1f", name, ns, bytes / (double)dpids.length));
+    }
+
+    /** returns the average time (ns) of a lookup while numThreads threads look up dpids for runMsec */
+    private static double measure(final Lookup l, final long[] dpids, final long runMsec, int numThreads) throws InterruptedException {
+        final long[] lookups = new long[numThreads];
+        final long[] elapsed = new long[numThreads];
+        Thread[] threads = new Thread[numThreads];
+        for(int t=0; t<numThreads; t++) {
+            final int me = t;
+            threads[t] = new Thread() {
+                public void run() {
+                    long start = System.nanoTime();
+                    long end = start + runMsec * 1000 * 1000;
+                    long n = 0;
+                    int i = me * 7919;
+                    do {
+                        for(int j=0; j<1024; j++) {
+                            if(!l.has(dpids[i]))
+                                throw new IllegalStateException("lost DPID " + dpids[i]);
+                            i = (i + 1 == dpids.length) ? 0 : i + 1;
+                        }
+                        n += 1024;
+                    }
+                    while(System.nanoTime() < end);
+                    lookups[me] = n;
+                    elapsed[me] = System.nanoTime() - start;
+                }
+            };
+            threads[t].start();
+        }
+
+        double total = 0;
+        for(int t=0; t<numThreads; t++) {
+            threads[t].join();
+            total += elapsed[t] / (double)lookups[t];
+        }
+        return total / numThreads;
+    }
+
+    /** returns the heap in use after collecting garbage */
+    private static long usedMemory() {
+        Runtime r = Runtime.getRuntime();
+        for(int i=0; i<4; i++) {
+            System.gc();
+            try {
+                Thread.sleep(50);
+            }
+            catch(InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return r.totalMemory() - r.freeMemory();
+    }
+}
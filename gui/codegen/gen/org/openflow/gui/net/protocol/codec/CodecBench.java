@@ -0,0 +1,97 @@
+package org.openflow.gui.net.protocol.codec;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Random;
+
+import org.openflow.gui.net.FrameBuffer;
+import org.openflow.gui.net.protocol.OFGMessage;
+import org.openflow.gui.net.protocol.OFGMessageType;
+
+/**
+ * Measures how long the message decoders and encoders take on random
+ * messages of about TARGET_SIZE bytes.  Each is run for WARMUP_MSEC before
+ * it is measured for RUN_MSEC.
+ *
+ * Usage: CodecBench [RUN_MSEC]
+ *
+ * Generated from ofg.schema by CodecGenerator; do not edit.
+ *
+ * @author David Underhill
+ */
+public final class CodecBench {
+    /** approximate size of each message */
+    public static final int TARGET_SIZE = 32 * 1024;
+
+    /** how long to run each operation before measuring it */
+    public static final long WARMUP_MSEC = 500;
+
+    /** keeps the JIT from discarding results */
+    private static long sink = 0;
+
+    /** an operation to measure */
+    private interface Op {
+        void run() throws IOException;
+    }
+
+    public static void main(String[] args) throws IOException {
+        long runMsec = (args.length > 0) ? Long.parseLong(args[0]) : 2000;
+        CodecFuzz gen = new CodecFuzz(new Random(1));
+        System.out.println(String.format("%-16s %8s %12s %12s %10s %10s", "message", "bytes", "decode ns", "encode ns", "dec MB/s", "enc MB/s"));
+        run("Hello", CodecFuzz.frame(HelloCodec.TYPE_ID, 1, gen.randomHello(0)), runMsec);
+        run("NodesAdd", CodecFuzz.frame(NodesAddCodec.TYPE_ID, 1, gen.randomNodesAdd((TARGET_SIZE - NodesAddCodec.SIZEOF) / NodeCodec.SIZEOF)), runMsec);
+        run("NodesDel", CodecFuzz.frame(NodesDelCodec.TYPE_ID, 1, gen.randomNodesDel((TARGET_SIZE - NodesDelCodec.SIZEOF) / NodeCodec.SIZEOF)), runMsec);
+        run("LinksAdd", CodecFuzz.frame(LinksAddCodec.TYPE_ID, 1, gen.randomLinksAdd((TARGET_SIZE - LinksAddCodec.SIZEOF) / LinkSpecCodec.SIZEOF)), runMsec);
+        run("LinksDel", CodecFuzz.frame(LinksDelCodec.TYPE_ID, 1, gen.randomLinksDel((TARGET_SIZE - LinksDelCodec.SIZEOF) / LinkCodec.SIZEOF)), runMsec);
+        run("FlowsAdd", CodecFuzz.frame(FlowsAddCodec.TYPE_ID, 1, gen.randomFlowsAdd(TARGET_SIZE / (FlowCodec.SIZEOF + CodecFuzz.MAX_ENTRIES / 2 * FlowHopCodec.SIZEOF))), runMsec);
+        run("FlowsDel", CodecFuzz.frame(FlowsDelCodec.TYPE_ID, 1, gen.randomFlowsDel(TARGET_SIZE / (FlowCodec.SIZEOF + CodecFuzz.MAX_ENTRIES / 2 * FlowHopCodec.SIZEOF))), runMsec);
+        run("PortStatsReply", CodecFuzz.frame(PortStatsReplyCodec.TYPE_ID, 1, gen.randomPortStatsReply((TARGET_SIZE - PortStatsReplyCodec.SIZEOF) / PortStatsCodec.SIZEOF)), runMsec);
+        System.out.println("(ignore: " + sink + ")");
+    }
+
+    /** measures decoding and encoding frame */
+    private static void run(String name, final byte[] frame, long runMsec) throws IOException {
+        final FrameBuffer fb = new FrameBuffer(frame.length);
+        final OFGMessage[] decoded = new OFGMessage[1];
+        double decode_ns = measure(new Op() {
+            public void run() throws IOException {
+                int len = CodecFuzz.load(fb, frame);
+                decoded[0] = OFGMessageType.decode(len, fb);
+                sink += decoded[0].xid;
+            }
+        }, runMsec);
+
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream(frame.length);
+        final DataOutputStream out = new DataOutputStream(bytes);
+        double encode_ns = measure(new Op() {
+            public void run() throws IOException {
+                bytes.reset();
+                decoded[0].write(out);
+                sink += bytes.size();
+            }
+        }, runMsec);
+
+        System.out.println(String.format("%-16s %8d %12.0f %12.0f %10.1f %10.1f", name, frame.length, decode_ns, encode_ns,
+                                         frame.length * 1000.0 / decode_ns, frame.length * 1000.0 / encode_ns));
+    }
+
+    /** returns the average time (ns) op takes after it has been warmed up */
+    private static double measure(Op op, long runMsec) throws IOException {
+        long end = System.nanoTime() + WARMUP_MSEC * 1000L * 1000L;
+        while(System.nanoTime() < end)
+            op.run();
+
+        long n = 0;
+        long start = System.nanoTime();
+        end = start + runMsec * 1000L * 1000L;
+        long now;
+        do {
+            for(int i=0; i<64; i++)
+                op.run();
+            n += 64;
+        }
+        while((now = System.nanoTime()) < end);
+        return (now - start) / (double)n;
+    }
+}
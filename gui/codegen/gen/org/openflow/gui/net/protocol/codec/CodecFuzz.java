@@ -0,0 +1,806 @@
+package org.openflow.gui.net.protocol.codec;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.openflow.gui.net.FrameBuffer;
+import org.openflow.gui.net.StreamingMessageProcessor;
+import org.openflow.gui.net.protocol.*;
+import org.openflow.protocol.*;
+
+/**
+ * Round-trips random values through each codec and random message bodies
+ * through the hand-written message decoders and encoders.  Each decoded
+ * message must consume exactly its frame and encode back to the same bytes
+ * (also when rebuilt from the objects it decodes to), streamed decoding
+ * must consume exactly the frame, and truncated frames must be rejected
+ * with an IOException rather than a RuntimeException.
+ *
+ * Usage: CodecFuzz [ITERATIONS [SEED]]
+ *
+ * Generated from ofg.schema by CodecGenerator; do not edit.
+ *
+ * @author David Underhill
+ */
+public final class CodecFuzz {
+    /** largest number of entries in a random array */
+    public static final int MAX_ENTRIES = 8;
+
+    /** where random values come from */
+    private final Random r;
+
+    /** number of checks which failed */
+    private int failures = 0;
+
+    /** number of checks which were run */
+    private long checks = 0;
+
+    public CodecFuzz(Random r) {
+        this.r = r;
+    }
+
+    public static void main(String[] args) throws IOException {
+        int iterations = (args.length > 0) ? Integer.parseInt(args[0]) : 10000;
+        long seed = (args.length > 1) ? Long.parseLong(args[1]) : System.currentTimeMillis();
+        System.out.println("CodecFuzz: " + iterations + " iterations with seed " + seed);
+
+        CodecFuzz fuzz = new CodecFuzz(new Random(seed));
+        for(int i=0; i<iterations && fuzz.failures<20; i++)
+            fuzz.runOnce();
+
+        System.out.println("CodecFuzz: " + fuzz.checks + " checks, " + fuzz.failures + " failures");
+        if(fuzz.failures > 0)
+            System.exit(1);
+    }
+
+    /** runs each check once */
+    public void runOnce() throws IOException {
+        checkNodeCodec();
+        checkLinkCodec();
+        checkLinkSpecCodec();
+        checkFlowHopCodec();
+        checkFlowCodec();
+        checkPortStatsCodec();
+        checkHelloCodec();
+        checkNodesAddCodec();
+        checkNodesDelCodec();
+        checkLinksAddCodec();
+        checkLinksDelCodec();
+        checkFlowsAddCodec();
+        checkFlowsDelCodec();
+        checkPortStatsReplyCodec();
+        checkHello();
+        checkNodesAdd();
+        checkNodesDel();
+        checkLinksAdd();
+        checkLinksDel();
+        checkFlowsAdd();
+        checkFlowsDel();
+        checkPortStatsReply();
+    }
+
+    /** notes a failed check */
+    private void fail(String what) {
+        failures += 1;
+        System.err.println("FAILED: " + what);
+    }
+
+    /** notes a check */
+    private void check(boolean ok, String what) {
+        checks += 1;
+        if(!ok)
+            fail(what);
+    }
+
+    /** returns the type ID of a random NodeType */
+    private short randomNodeType() {
+        NodeType[] v = NodeType.values();
+        return v[r.nextInt(v.length)].getTypeID();
+    }
+
+    /** returns the type ID of a random LinkType */
+    private short randomLinkType() {
+        LinkType[] v = LinkType.values();
+        return v[r.nextInt(v.length)].getTypeID();
+    }
+
+    /** returns the type ID of a random FlowType */
+    private short randomFlowType() {
+        FlowType[] v = FlowType.values();
+        return v[r.nextInt(v.length)].getTypeID();
+    }
+
+    /** returns the type ID of a random StatsFlag */
+    private short randomStatsFlag() {
+        StatsFlag[] v = StatsFlag.values();
+        return v[r.nextInt(v.length)].getTypeID();
+    }
+
+    /** round-trips random field values through NodeCodec */
+    private void checkNodeCodec() throws IOException {
+        short type = randomNodeType();
+        long id = r.nextLong();
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        NodeCodec.write(out, type, id);
+        ByteBuffer b = ByteBuffer.wrap(bytes.toByteArray());
+        check(b.remaining() == NodeCodec.SIZEOF, "Node: wrote " + b.remaining() + "B");
+        check(NodeCodec.getType(b, 0) == type, "Node.type");
+        check(NodeCodec.getId(b, 0) == id, "Node.id");
+
+        ByteBuffer p = ByteBuffer.allocate(NodeCodec.SIZEOF + 3);
+        NodeCodec.put(p, 3, type, id);
+        p.position(3);
+        b.limit(NodeCodec.SIZEOF);
+        check(p.equals(b), "Node: put() and write() disagree");
+    }
+
+    /** round-trips random field values through LinkCodec */
+    private void checkLinkCodec() throws IOException {
+        short type = randomLinkType();
+        short srcType = randomNodeType();
+        long srcId = r.nextLong();
+        short srcPort = (short)r.nextInt();
+        short dstType = randomNodeType();
+        long dstId = r.nextLong();
+        short dstPort = (short)r.nextInt();
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        LinkCodec.write(out, type, srcType, srcId, srcPort, dstType, dstId, dstPort);
+        ByteBuffer b = ByteBuffer.wrap(bytes.toByteArray());
+        check(b.remaining() == LinkCodec.SIZEOF, "Link: wrote " + b.remaining() + "B");
+        check(LinkCodec.getType(b, 0) == type, "Link.type");
+        check(LinkCodec.getSrcType(b, 0) == srcType, "Link.src_type");
+        check(LinkCodec.getSrcId(b, 0) == srcId, "Link.src_id");
+        check(LinkCodec.getSrcPort(b, 0) == srcPort, "Link.src_port");
+        check(LinkCodec.getDstType(b, 0) == dstType, "Link.dst_type");
+        check(LinkCodec.getDstId(b, 0) == dstId, "Link.dst_id");
+        check(LinkCodec.getDstPort(b, 0) == dstPort, "Link.dst_port");
+
+        ByteBuffer p = ByteBuffer.allocate(LinkCodec.SIZEOF + 3);
+        LinkCodec.put(p, 3, type, srcType, srcId, srcPort, dstType, dstId, dstPort);
+        p.position(3);
+        b.limit(LinkCodec.SIZEOF);
+        check(p.equals(b), "Link: put() and write() disagree");
+    }
+
+    /** round-trips random field values through LinkSpecCodec */
+    private void checkLinkSpecCodec() throws IOException {
+        short type = randomLinkType();
+        short srcType = randomNodeType();
+        long srcId = r.nextLong();
+        short srcPort = (short)r.nextInt();
+        short dstType = randomNodeType();
+        long dstId = r.nextLong();
+        short dstPort = (short)r.nextInt();
+        long capacity = r.nextLong();
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        LinkSpecCodec.write(out, type, srcType, srcId, srcPort, dstType, dstId, dstPort, capacity);
+        ByteBuffer b = ByteBuffer.wrap(bytes.toByteArray());
+        check(b.remaining() == LinkSpecCodec.SIZEOF, "LinkSpec: wrote " + b.remaining() + "B");
+        check(LinkSpecCodec.getType(b, 0) == type, "LinkSpec.type");
+        check(LinkSpecCodec.getSrcType(b, 0) == srcType, "LinkSpec.src_type");
+        check(LinkSpecCodec.getSrcId(b, 0) == srcId, "LinkSpec.src_id");
+        check(LinkSpecCodec.getSrcPort(b, 0) == srcPort, "LinkSpec.src_port");
+        check(LinkSpecCodec.getDstType(b, 0) == dstType, "LinkSpec.dst_type");
+        check(LinkSpecCodec.getDstId(b, 0) == dstId, "LinkSpec.dst_id");
+        check(LinkSpecCodec.getDstPort(b, 0) == dstPort, "LinkSpec.dst_port");
+        check(LinkSpecCodec.getCapacity(b, 0) == capacity, "LinkSpec.capacity");
+
+        ByteBuffer p = ByteBuffer.allocate(LinkSpecCodec.SIZEOF + 3);
+        LinkSpecCodec.put(p, 3, type, srcType, srcId, srcPort, dstType, dstId, dstPort, capacity);
+        p.position(3);
+        b.limit(LinkSpecCodec.SIZEOF);
+        check(p.equals(b), "LinkSpec: put() and write() disagree");
+    }
+
+    /** round-trips random field values through FlowHopCodec */
+    private void checkFlowHopCodec() throws IOException {
+        short inport = (short)r.nextInt();
+        short nodeType = randomNodeType();
+        long nodeId = r.nextLong();
+        short outport = (short)r.nextInt();
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        FlowHopCodec.write(out, inport, nodeType, nodeId, outport);
+        ByteBuffer b = ByteBuffer.wrap(bytes.toByteArray());
+        check(b.remaining() == FlowHopCodec.SIZEOF, "FlowHop: wrote " + b.remaining() + "B");
+        check(FlowHopCodec.getInport(b, 0) == inport, "FlowHop.inport");
+        check(FlowHopCodec.getNodeType(b, 0) == nodeType, "FlowHop.node_type");
+        check(FlowHopCodec.getNodeId(b, 0) == nodeId, "FlowHop.node_id");
+        check(FlowHopCodec.getOutport(b, 0) == outport, "FlowHop.outport");
+
+        ByteBuffer p = ByteBuffer.allocate(FlowHopCodec.SIZEOF + 3);
+        FlowHopCodec.put(p, 3, inport, nodeType, nodeId, outport);
+        p.position(3);
+        b.limit(FlowHopCodec.SIZEOF);
+        check(p.equals(b), "FlowHop: put() and write() disagree");
+    }
+
+    /** round-trips random field values through FlowCodec */
+    private void checkFlowCodec() throws IOException {
+        short type = randomFlowType();
+        int id = r.nextInt();
+        short srcType = randomNodeType();
+        long srcId = r.nextLong();
+        short srcPort = (short)r.nextInt();
+        short dstType = randomNodeType();
+        long dstId = r.nextLong();
+        short dstPort = (short)r.nextInt();
+        short pathLen = (short)r.nextInt(MAX_ENTRIES + 1);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        FlowCodec.write(out, type, id, srcType, srcId, srcPort, dstType, dstId, dstPort, pathLen);
+        for(int i=0; i<pathLen; i++)
+            writeFlowHop(out);
+        ByteBuffer b = ByteBuffer.wrap(bytes.toByteArray());
+        check(b.remaining() == FlowCodec.sizeOf(b, 0), "Flow: wrote " + b.remaining() + "B but sizeOf() is " + FlowCodec.sizeOf(b, 0));
+        check(FlowCodec.getType(b, 0) == type, "Flow.type");
+        check(FlowCodec.getId(b, 0) == id, "Flow.id");
+        check(FlowCodec.getSrcType(b, 0) == srcType, "Flow.src_type");
+        check(FlowCodec.getSrcId(b, 0) == srcId, "Flow.src_id");
+        check(FlowCodec.getSrcPort(b, 0) == srcPort, "Flow.src_port");
+        check(FlowCodec.getDstType(b, 0) == dstType, "Flow.dst_type");
+        check(FlowCodec.getDstId(b, 0) == dstId, "Flow.dst_id");
+        check(FlowCodec.getDstPort(b, 0) == dstPort, "Flow.dst_port");
+        check(FlowCodec.getPathLen(b, 0) == pathLen, "Flow.path_len");
+
+        ByteBuffer p = ByteBuffer.allocate(FlowCodec.SIZEOF + 3);
+        FlowCodec.put(p, 3, type, id, srcType, srcId, srcPort, dstType, dstId, dstPort, pathLen);
+        p.position(3);
+        b.limit(FlowCodec.SIZEOF);
+        check(p.equals(b), "Flow: put() and write() disagree");
+    }
+
+    /** round-trips random field values through PortStatsCodec */
+    private void checkPortStatsCodec() throws IOException {
+        short portNo = (short)r.nextInt();
+        long rxPackets = r.nextLong();
+        long txPackets = r.nextLong();
+        long rxBytes = r.nextLong();
+        long txBytes = r.nextLong();
+        long rxDropped = r.nextLong();
+        long txDropped = r.nextLong();
+        long rxErrors = r.nextLong();
+        long txErrors = r.nextLong();
+        long rxFrameErr = r.nextLong();
+        long rxOverErr = r.nextLong();
+        long rxCrcErr = r.nextLong();
+        long collisions = r.nextLong();
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        PortStatsCodec.write(out, portNo, rxPackets, txPackets, rxBytes, txBytes, rxDropped, txDropped, rxErrors, txErrors, rxFrameErr, rxOverErr, rxCrcErr, collisions);
+        ByteBuffer b = ByteBuffer.wrap(bytes.toByteArray());
+        check(b.remaining() == PortStatsCodec.SIZEOF, "PortStats: wrote " + b.remaining() + "B");
+        check(PortStatsCodec.getPortNo(b, 0) == portNo, "PortStats.port_no");
+        check(PortStatsCodec.getRxPackets(b, 0) == rxPackets, "PortStats.rx_packets");
+        check(PortStatsCodec.getTxPackets(b, 0) == txPackets, "PortStats.tx_packets");
+        check(PortStatsCodec.getRxBytes(b, 0) == rxBytes, "PortStats.rx_bytes");
+        check(PortStatsCodec.getTxBytes(b, 0) == txBytes, "PortStats.tx_bytes");
+        check(PortStatsCodec.getRxDropped(b, 0) == rxDropped, "PortStats.rx_dropped");
+        check(PortStatsCodec.getTxDropped(b, 0) == txDropped, "PortStats.tx_dropped");
+        check(PortStatsCodec.getRxErrors(b, 0) == rxErrors, "PortStats.rx_errors");
+        check(PortStatsCodec.getTxErrors(b, 0) == txErrors, "PortStats.tx_errors");
+        check(PortStatsCodec.getRxFrameErr(b, 0) == rxFrameErr, "PortStats.rx_frame_err");
+        check(PortStatsCodec.getRxOverErr(b, 0) == rxOverErr, "PortStats.rx_over_err");
+        check(PortStatsCodec.getRxCrcErr(b, 0) == rxCrcErr, "PortStats.rx_crc_err");
+        check(PortStatsCodec.getCollisions(b, 0) == collisions, "PortStats.collisions");
+
+        ByteBuffer p = ByteBuffer.allocate(PortStatsCodec.SIZEOF + 3);
+        PortStatsCodec.put(p, 3, portNo, rxPackets, txPackets, rxBytes, txBytes, rxDropped, txDropped, rxErrors, txErrors, rxFrameErr, rxOverErr, rxCrcErr, collisions);
+        p.position(3);
+        b.limit(PortStatsCodec.SIZEOF);
+        check(p.equals(b), "PortStats: put() and write() disagree");
+    }
+
+    /** round-trips random field values through HelloCodec */
+    private void checkHelloCodec() throws IOException {
+        short version = (short)r.nextInt();
+        int features = r.nextInt();
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        HelloCodec.write(out, version, features);
+        ByteBuffer b = ByteBuffer.wrap(bytes.toByteArray());
+        check(b.remaining() == HelloCodec.SIZEOF, "Hello: wrote " + b.remaining() + "B");
+        check(HelloCodec.getVersion(b, 0) == version, "Hello.version");
+        check(HelloCodec.getFeatures(b, 0) == features, "Hello.features");
+
+        ByteBuffer p = ByteBuffer.allocate(HelloCodec.SIZEOF + 3);
+        HelloCodec.put(p, 3, version, features);
+        p.position(3);
+        b.limit(HelloCodec.SIZEOF);
+        check(p.equals(b), "Hello: put() and write() disagree");
+    }
+
+    /** round-trips random field values through NodesAddCodec */
+    private void checkNodesAddCodec() throws IOException {
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        NodesAddCodec.write(out);
+        ByteBuffer b = ByteBuffer.wrap(bytes.toByteArray());
+        check(b.remaining() == NodesAddCodec.SIZEOF, "NodesAdd: wrote " + b.remaining() + "B");
+
+        ByteBuffer p = ByteBuffer.allocate(NodesAddCodec.SIZEOF + 3);
+        NodesAddCodec.put(p, 3);
+        p.position(3);
+        b.limit(NodesAddCodec.SIZEOF);
+        check(p.equals(b), "NodesAdd: put() and write() disagree");
+    }
+
+    /** round-trips random field values through NodesDelCodec */
+    private void checkNodesDelCodec() throws IOException {
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        NodesDelCodec.write(out);
+        ByteBuffer b = ByteBuffer.wrap(bytes.toByteArray());
+        check(b.remaining() == NodesDelCodec.SIZEOF, "NodesDel: wrote " + b.remaining() + "B");
+
+        ByteBuffer p = ByteBuffer.allocate(NodesDelCodec.SIZEOF + 3);
+        NodesDelCodec.put(p, 3);
+        p.position(3);
+        b.limit(NodesDelCodec.SIZEOF);
+        check(p.equals(b), "NodesDel: put() and write() disagree");
+    }
+
+    /** round-trips random field values through LinksAddCodec */
+    private void checkLinksAddCodec() throws IOException {
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        LinksAddCodec.write(out);
+        ByteBuffer b = ByteBuffer.wrap(bytes.toByteArray());
+        check(b.remaining() == LinksAddCodec.SIZEOF, "LinksAdd: wrote " + b.remaining() + "B");
+
+        ByteBuffer p = ByteBuffer.allocate(LinksAddCodec.SIZEOF + 3);
+        LinksAddCodec.put(p, 3);
+        p.position(3);
+        b.limit(LinksAddCodec.SIZEOF);
+        check(p.equals(b), "LinksAdd: put() and write() disagree");
+    }
+
+    /** round-trips random field values through LinksDelCodec */
+    private void checkLinksDelCodec() throws IOException {
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        LinksDelCodec.write(out);
+        ByteBuffer b = ByteBuffer.wrap(bytes.toByteArray());
+        check(b.remaining() == LinksDelCodec.SIZEOF, "LinksDel: wrote " + b.remaining() + "B");
+
+        ByteBuffer p = ByteBuffer.allocate(LinksDelCodec.SIZEOF + 3);
+        LinksDelCodec.put(p, 3);
+        p.position(3);
+        b.limit(LinksDelCodec.SIZEOF);
+        check(p.equals(b), "LinksDel: put() and write() disagree");
+    }
+
+    /** round-trips random field values through FlowsAddCodec */
+    private void checkFlowsAddCodec() throws IOException {
+        int count = r.nextInt(MAX_ENTRIES + 1);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        FlowsAddCodec.write(out, count);
+        for(int i=0; i<count; i++)
+            writeFlow(out);
+        ByteBuffer b = ByteBuffer.wrap(bytes.toByteArray());
+        check(b.remaining() == FlowsAddCodec.sizeOf(b, 0), "FlowsAdd: wrote " + b.remaining() + "B but sizeOf() is " + FlowsAddCodec.sizeOf(b, 0));
+        check(FlowsAddCodec.getCount(b, 0) == count, "FlowsAdd.count");
+
+        ByteBuffer p = ByteBuffer.allocate(FlowsAddCodec.SIZEOF + 3);
+        FlowsAddCodec.put(p, 3, count);
+        p.position(3);
+        b.limit(FlowsAddCodec.SIZEOF);
+        check(p.equals(b), "FlowsAdd: put() and write() disagree");
+    }
+
+    /** round-trips random field values through FlowsDelCodec */
+    private void checkFlowsDelCodec() throws IOException {
+        int count = r.nextInt(MAX_ENTRIES + 1);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        FlowsDelCodec.write(out, count);
+        for(int i=0; i<count; i++)
+            writeFlow(out);
+        ByteBuffer b = ByteBuffer.wrap(bytes.toByteArray());
+        check(b.remaining() == FlowsDelCodec.sizeOf(b, 0), "FlowsDel: wrote " + b.remaining() + "B but sizeOf() is " + FlowsDelCodec.sizeOf(b, 0));
+        check(FlowsDelCodec.getCount(b, 0) == count, "FlowsDel.count");
+
+        ByteBuffer p = ByteBuffer.allocate(FlowsDelCodec.SIZEOF + 3);
+        FlowsDelCodec.put(p, 3, count);
+        p.position(3);
+        b.limit(FlowsDelCodec.SIZEOF);
+        check(p.equals(b), "FlowsDel: put() and write() disagree");
+    }
+
+    /** round-trips random field values through PortStatsReplyCodec */
+    private void checkPortStatsReplyCodec() throws IOException {
+        long dpid = r.nextLong();
+        short flags = randomStatsFlag();
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        PortStatsReplyCodec.write(out, dpid, flags);
+        ByteBuffer b = ByteBuffer.wrap(bytes.toByteArray());
+        check(b.remaining() == PortStatsReplyCodec.SIZEOF, "PortStatsReply: wrote " + b.remaining() + "B");
+        check(PortStatsReplyCodec.getDpid(b, 0) == dpid, "PortStatsReply.dpid");
+        check(PortStatsReplyCodec.getStatsType(b, 0) == PortStatsReplyCodec.STATS_TYPE, "PortStatsReply.stats_type");
+        check(PortStatsReplyCodec.getFlags(b, 0) == flags, "PortStatsReply.flags");
+
+        ByteBuffer p = ByteBuffer.allocate(PortStatsReplyCodec.SIZEOF + 3);
+        PortStatsReplyCodec.put(p, 3, dpid, flags);
+        p.position(3);
+        b.limit(PortStatsReplyCodec.SIZEOF);
+        check(p.equals(b), "PortStatsReply: put() and write() disagree");
+    }
+
+    /** writes a random Node to out */
+    void writeNode(DataOutputStream out) throws IOException {
+        out.writeShort(randomNodeType());
+        out.writeLong(r.nextLong());
+    }
+
+    /** writes a random Link to out */
+    void writeLink(DataOutputStream out) throws IOException {
+        out.writeShort(randomLinkType());
+        writeNode(out);
+        out.writeShort((short)r.nextInt());
+        writeNode(out);
+        out.writeShort((short)r.nextInt());
+    }
+
+    /** writes a random LinkSpec to out */
+    void writeLinkSpec(DataOutputStream out) throws IOException {
+        out.writeShort(randomLinkType());
+        writeNode(out);
+        out.writeShort((short)r.nextInt());
+        writeNode(out);
+        out.writeShort((short)r.nextInt());
+        out.writeLong(r.nextLong());
+    }
+
+    /** writes a random FlowHop to out */
+    void writeFlowHop(DataOutputStream out) throws IOException {
+        out.writeShort((short)r.nextInt());
+        writeNode(out);
+        out.writeShort((short)r.nextInt());
+    }
+
+    /** writes a random Flow to out */
+    void writeFlow(DataOutputStream out) throws IOException {
+        int n = r.nextInt(MAX_ENTRIES + 1);
+        out.writeShort(randomFlowType());
+        out.writeInt(r.nextInt());
+        writeNode(out);
+        out.writeShort((short)r.nextInt());
+        writeNode(out);
+        out.writeShort((short)r.nextInt());
+        out.writeShort((short)n);
+        for(int i=0; i<n; i++)
+            writeFlowHop(out);
+    }
+
+    /** writes a random PortStats to out */
+    void writePortStats(DataOutputStream out) throws IOException {
+        out.writeShort((short)r.nextInt());
+        out.write(new byte[6]);
+        out.writeLong(r.nextLong());
+        out.writeLong(r.nextLong());
+        out.writeLong(r.nextLong());
+        out.writeLong(r.nextLong());
+        out.writeLong(r.nextLong());
+        out.writeLong(r.nextLong());
+        out.writeLong(r.nextLong());
+        out.writeLong(r.nextLong());
+        out.writeLong(r.nextLong());
+        out.writeLong(r.nextLong());
+        out.writeLong(r.nextLong());
+        out.writeLong(r.nextLong());
+    }
+
+    /** returns the body of a random Hello message (with n entries if it has an array) */
+    byte[] randomHello(int n) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeShort((short)r.nextInt());
+        out.writeInt(r.nextInt());
+        return bytes.toByteArray();
+    }
+
+    /** returns the body of a random NodesAdd message (with n entries if it has an array) */
+    byte[] randomNodesAdd(int n) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        for(int i=0; i<n; i++)
+            writeNode(out);
+        return bytes.toByteArray();
+    }
+
+    /** returns the body of a random NodesDel message (with n entries if it has an array) */
+    byte[] randomNodesDel(int n) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        for(int i=0; i<n; i++)
+            writeNode(out);
+        return bytes.toByteArray();
+    }
+
+    /** returns the body of a random LinksAdd message (with n entries if it has an array) */
+    byte[] randomLinksAdd(int n) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        for(int i=0; i<n; i++)
+            writeLinkSpec(out);
+        return bytes.toByteArray();
+    }
+
+    /** returns the body of a random LinksDel message (with n entries if it has an array) */
+    byte[] randomLinksDel(int n) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        for(int i=0; i<n; i++)
+            writeLink(out);
+        return bytes.toByteArray();
+    }
+
+    /** returns the body of a random FlowsAdd message (with n entries if it has an array) */
+    byte[] randomFlowsAdd(int n) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(n);
+        for(int i=0; i<n; i++)
+            writeFlow(out);
+        return bytes.toByteArray();
+    }
+
+    /** returns the body of a random FlowsDel message (with n entries if it has an array) */
+    byte[] randomFlowsDel(int n) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(n);
+        for(int i=0; i<n; i++)
+            writeFlow(out);
+        return bytes.toByteArray();
+    }
+
+    /** returns the body of a random PortStatsReply message (with n entries if it has an array) */
+    byte[] randomPortStatsReply(int n) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeLong(r.nextLong());
+        out.writeShort((short)4);
+        out.writeShort(randomStatsFlag());
+        for(int i=0; i<n; i++)
+            writePortStats(out);
+        return bytes.toByteArray();
+    }
+
+    /** checks that a random Hello message survives decoding and encoding */
+    private void checkHello() throws IOException {
+        byte[] frame = frame(HelloCodec.TYPE_ID, r.nextInt(), randomHello(0));
+        OFGMessage decoded = checkFrame("Hello", frame);
+        if(decoded == null)
+            return;
+        if(!(decoded instanceof Hello)) {
+            fail("Hello: decoded to " + decoded.getClass().getSimpleName());
+            return;
+        }
+    }
+
+    /** checks that a random NodesAdd message survives decoding and encoding */
+    private void checkNodesAdd() throws IOException {
+        byte[] frame = frame(NodesAddCodec.TYPE_ID, r.nextInt(), randomNodesAdd(r.nextInt(MAX_ENTRIES + 1)));
+        OFGMessage decoded = checkFrame("NodesAdd", frame);
+        if(decoded == null)
+            return;
+        if(!(decoded instanceof NodesAdd)) {
+            fail("NodesAdd: decoded to " + decoded.getClass().getSimpleName());
+            return;
+        }
+
+        NodesAdd m = (NodesAdd)decoded;
+        checkEncoding("NodesAdd (rebuilt)", new NodesAdd(m.xid, m.getNodes()), frame);
+    }
+
+    /** checks that a random NodesDel message survives decoding and encoding */
+    private void checkNodesDel() throws IOException {
+        byte[] frame = frame(NodesDelCodec.TYPE_ID, r.nextInt(), randomNodesDel(r.nextInt(MAX_ENTRIES + 1)));
+        OFGMessage decoded = checkFrame("NodesDel", frame);
+        if(decoded == null)
+            return;
+        if(!(decoded instanceof NodesDel)) {
+            fail("NodesDel: decoded to " + decoded.getClass().getSimpleName());
+            return;
+        }
+
+        NodesDel m = (NodesDel)decoded;
+        checkEncoding("NodesDel (rebuilt)", new NodesDel(m.xid, m.getNodes()), frame);
+    }
+
+    /** checks that a random LinksAdd message survives decoding and encoding */
+    private void checkLinksAdd() throws IOException {
+        byte[] frame = frame(LinksAddCodec.TYPE_ID, r.nextInt(), randomLinksAdd(r.nextInt(MAX_ENTRIES + 1)));
+        OFGMessage decoded = checkFrame("LinksAdd", frame);
+        if(decoded == null)
+            return;
+        if(!(decoded instanceof LinksAdd)) {
+            fail("LinksAdd: decoded to " + decoded.getClass().getSimpleName());
+            return;
+        }
+
+        LinksAdd m = (LinksAdd)decoded;
+        checkEncoding("LinksAdd (rebuilt)", new LinksAdd(m.xid, m.getLinks()), frame);
+    }
+
+    /** checks that a random LinksDel message survives decoding and encoding */
+    private void checkLinksDel() throws IOException {
+        byte[] frame = frame(LinksDelCodec.TYPE_ID, r.nextInt(), randomLinksDel(r.nextInt(MAX_ENTRIES + 1)));
+        OFGMessage decoded = checkFrame("LinksDel", frame);
+        if(decoded == null)
+            return;
+        if(!(decoded instanceof LinksDel)) {
+            fail("LinksDel: decoded to " + decoded.getClass().getSimpleName());
+            return;
+        }
+
+        LinksDel m = (LinksDel)decoded;
+        checkEncoding("LinksDel (rebuilt)", new LinksDel(m.xid, m.links), frame);
+    }
+
+    /** checks that a random FlowsAdd message survives decoding and encoding */
+    private void checkFlowsAdd() throws IOException {
+        byte[] frame = frame(FlowsAddCodec.TYPE_ID, r.nextInt(), randomFlowsAdd(r.nextInt(MAX_ENTRIES + 1)));
+        OFGMessage decoded = checkFrame("FlowsAdd", frame);
+        if(decoded == null)
+            return;
+        if(!(decoded instanceof FlowsAdd)) {
+            fail("FlowsAdd: decoded to " + decoded.getClass().getSimpleName());
+            return;
+        }
+
+        FlowsAdd m = (FlowsAdd)decoded;
+        checkEncoding("FlowsAdd (rebuilt)", new FlowsAdd(m.xid, m.getFlows()), frame);
+    }
+
+    /** checks that a random FlowsDel message survives decoding and encoding */
+    private void checkFlowsDel() throws IOException {
+        byte[] frame = frame(FlowsDelCodec.TYPE_ID, r.nextInt(), randomFlowsDel(r.nextInt(MAX_ENTRIES + 1)));
+        OFGMessage decoded = checkFrame("FlowsDel", frame);
+        if(decoded == null)
+            return;
+        if(!(decoded instanceof FlowsDel)) {
+            fail("FlowsDel: decoded to " + decoded.getClass().getSimpleName());
+            return;
+        }
+
+        FlowsDel m = (FlowsDel)decoded;
+        checkEncoding("FlowsDel (rebuilt)", new FlowsDel(m.xid, m.getFlows()), frame);
+    }
+
+    /** checks that a random PortStatsReply message survives decoding and encoding */
+    private void checkPortStatsReply() throws IOException {
+        byte[] frame = frame(PortStatsReplyCodec.TYPE_ID, r.nextInt(), randomPortStatsReply(r.nextInt(MAX_ENTRIES + 1)));
+        OFGMessage decoded = checkFrame("PortStatsReply", frame);
+        if(decoded == null)
+            return;
+        if(!(decoded instanceof PortStatsReply)) {
+            fail("PortStatsReply: decoded to " + decoded.getClass().getSimpleName());
+            return;
+        }
+    }
+
+    /** returns the frame (length, type, and transaction ID) with the specified body */
+    static byte[] frame(int typeID, int xid, byte[] body) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(body.length + OFGMessage.SIZEOF);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeShort(body.length + OFGMessage.SIZEOF);
+        out.writeByte(typeID);
+        out.writeInt(xid);
+        out.write(body);
+        return bytes.toByteArray();
+    }
+
+    /** returns m's wire format */
+    static byte[] encode(OFGMessage m) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        m.write(new DataOutputStream(bytes));
+        return bytes.toByteArray();
+    }
+
+    /** loads the frame (after its length field) into fb and returns the frame's length */
+    static int load(FrameBuffer fb, byte[] frame) {
+        ByteBuffer src = ByteBuffer.wrap(frame);
+        int len = src.getShort() & 0xFFFF;
+        fb.fill(src, frame.length - 2);
+        return len;
+    }
+
+    /**
+     * Decodes frame and checks that its decoder consumed exactly the frame,
+     * that the message encodes back to frame, that streamed decoding also
+     * consumes exactly the frame, and that truncated copies of it are rejected
+     * cleanly.
+     *
+     * @return the decoded message, or null if it could not be decoded
+     */
+    private OFGMessage checkFrame(String what, byte[] frame) throws IOException {
+        FrameBuffer fb = new FrameBuffer();
+        int len = load(fb, frame);
+        OFGMessage m;
+        try {
+            m = OFGMessageType.decode(len, fb);
+        }
+        catch(IOException e) {
+            fail(what + ": valid frame was rejected: " + e);
+            return null;
+        }
+        catch(RuntimeException e) {
+            fail(what + ": decoding threw " + e);
+            return null;
+        }
+        check(fb.remaining() == 0, what + ": decoding left " + fb.remaining() + "B of the frame unread");
+        checkEncoding(what, m, frame);
+
+        // streamed decoding must consume the same bytes
+        len = load(fb, frame);
+        final int[] delivered = new int[1];
+        try {
+            OFGMessageType.decodeStreaming(len, fb, new StreamingMessageProcessor.Sink<OFGMessage>() {
+                public void deliver(OFGMessage msg) {
+                    delivered[0] += 1;
+                }
+            });
+            check(fb.remaining() == 0, what + ": streamed decoding left " + fb.remaining() + "B of the frame unread");
+            check(delivered[0] > 0, what + ": streamed decoding delivered nothing");
+        }
+        catch(Exception e) {
+            fail(what + ": streamed decoding threw " + e);
+        }
+
+        // a truncated frame must be rejected with an IOException (or decode to
+        // a shorter, still valid message)
+        if(frame.length > OFGMessage.SIZEOF) {
+            int cut = 1 + r.nextInt(frame.length - OFGMessage.SIZEOF);
+            byte[] truncated = Arrays.copyOf(frame, frame.length - cut);
+            ByteBuffer.wrap(truncated).putShort((short)truncated.length);
+            len = load(fb, truncated);
+            try {
+                OFGMessage t = OFGMessageType.decode(len, fb);
+                check(fb.remaining() == 0, what + ": decoding a frame truncated by " + cut + "B left " + fb.remaining() + "B unread");
+                checkEncoding(what + " truncated by " + cut + "B", t, truncated);
+            }
+            catch(EOFException e) {
+                fail(what + ": decoding a frame truncated by " + cut + "B read past the end of the frame");
+            }
+            catch(IOException e) {
+                checks += 1; /* rejected cleanly */
+            }
+            catch(RuntimeException e) {
+                fail(what + ": decoding a frame truncated by " + cut + "B threw " + e);
+            }
+        }
+        return m;
+    }
+
+    /** checks that m's length is frame's length and that it encodes to frame */
+    private void checkEncoding(String what, OFGMessage m, byte[] frame) throws IOException {
+        check(m.length() == frame.length, what + ": length() is " + m.length() + "B but the frame is " + frame.length + "B");
+        check(Arrays.equals(encode(m), frame), what + ": does not encode back to the same bytes");
+    }
+}
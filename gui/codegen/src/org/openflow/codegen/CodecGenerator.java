@@ -0,0 +1,1244 @@
+package org.openflow.codegen;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Generates the codecs for the structures and message bodies described in a
+ * schema (see gui/codegen/ofg.schema for the format):
+ *
+ *   - a Java codec class per struct and message (constants for its size and
+ *     field offsets, getters which read fields in place from a ByteBuffer, and
+ *     methods which write or put its fields),
+ *   - a Python module with a struct format string and pack/unpack functions
+ *     for each of them (plus a round-trip self check),
+ *   - CodecFuzz, which round-trips random structs through the Java codecs and
+ *     random message bodies through the hand-written message decoders and
+ *     encoders, and
+ *   - CodecBench, which measures how fast the message decoders and encoders
+ *     are.
+ *
+ * Files are only rewritten when their content changes.
+ *
+ * Usage: CodecGenerator SCHEMA JAVA_SRC_DIR JAVA_GEN_DIR PYTHON_FILE
+ *
+ * @author David Underhill
+ */
+public class CodecGenerator {
+    /** package the generated Java classes go in */
+    public static final String PACKAGE = "org.openflow.gui.net.protocol.codec";
+
+    /** note put at the top of every generated file */
+    private static final String GENERATED = "Generated from ofg.schema by CodecGenerator; do not edit.";
+
+    /** largest number of pad bytes in one pad field */
+    private static final int MAX_PAD = 64;
+
+
+    // ----------------------------- Schema ----------------------------- //
+
+    /** a primitive field type */
+    enum Prim {
+        U8 (1, "byte",  "Byte",  "B", "get",      "put",      "writeByte"),
+        U16(2, "short", "Short", "H", "getShort", "putShort", "writeShort"),
+        U32(4, "int",   "Int",   "I", "getInt",   "putInt",   "writeInt"),
+        U64(8, "long",  "Long",  "Q", "getLong",  "putLong",  "writeLong");
+
+        final int size;
+        final String java, boxed, python, getter, putter, writer;
+
+        Prim(int size, String java, String boxed, String python, String getter, String putter, String writer) {
+            this.size = size;
+            this.java = java;
+            this.boxed = boxed;
+            this.python = python;
+            this.getter = getter;
+            this.putter = putter;
+            this.writer = writer;
+        }
+
+        static Prim parse(String s) {
+            for(Prim p : values())
+                if(p.name().equalsIgnoreCase(s))
+                    return p;
+            return null;
+        }
+    }
+
+    /** a field as written in the schema */
+    static class Field {
+        String name;
+        Prim prim;          // primitive fields
+        String enumType;    // primitive fields which hold an enum's type ID
+        Long constant;      // primitive fields which always have the same value
+        int pad;            // pad fields (prim and struct are null)
+        Block struct;       // nested structs and arrays of structs
+        boolean array;      // whether this is an array of struct
+        String countField;  // name of the field which holds the array's length (null => rest of body)
+    }
+
+    /** a primitive field of a block with nested structs flattened */
+    static class Flat {
+        String name;
+        Prim prim;
+        String enumType;
+        Long constant;
+        int offset;
+    }
+
+    /** a struct or message */
+    static class Block {
+        String name;
+        String description;
+        boolean message;
+        int typeID;
+        String direction;
+        String rebuild;
+        final List<Field> fields = new ArrayList<Field>();
+
+        /** the primitive fields (nested structs flattened, pads omitted) */
+        final List<Flat> flats = new ArrayList<Flat>();
+
+        /** size of the fields before the array (if any) */
+        int fixedSize;
+
+        /** the trailing array of structs, if any */
+        Field array;
+
+        boolean decodedByGUI() {
+            return message && !direction.equals("to-backend");
+        }
+
+        boolean isFixedSize() {
+            return array == null;
+        }
+    }
+
+    /** the blocks in the order they appear in the schema */
+    private final Map<String, Block> blocks = new LinkedHashMap<String, Block>();
+
+    /** the enums which fields refer to */
+    private final Set<String> enums = new LinkedHashSet<String>();
+
+    /** parses the schema in file */
+    private void parse(File file) throws IOException {
+        BufferedReader in = new BufferedReader(new InputStreamReader(new FileInputStream(file), "UTF-8"));
+        try {
+            Block b = null;
+            String line;
+            int lineNum = 0;
+            while((line = in.readLine()) != null) {
+                lineNum += 1;
+                int hash = line.indexOf('#');
+                if(hash >= 0)
+                    line = line.substring(0, hash);
+                if(line.trim().length() == 0)
+                    continue;
+
+                try {
+                    if(!Character.isWhitespace(line.charAt(0)))
+                        b = parseBlock(line.trim());
+                    else if(b == null)
+                        throw new IOException("field outside of a struct or message");
+                    else
+                        parseField(b, line.trim());
+                }
+                catch(IOException e) {
+                    throw new IOException(file + ":" + lineNum + ": " + e.getMessage());
+                }
+            }
+        }
+        finally {
+            in.close();
+        }
+
+        for(Block b : blocks.values())
+            layout(b);
+    }
+
+    /** parses the line which starts a block */
+    private Block parseBlock(String line) throws IOException {
+        String[] w = line.split("\\s+");
+        Block b = new Block();
+        int descStart;
+        if(w[0].equals("struct") && w.length >= 2) {
+            b.name = w[1];
+            descStart = 2;
+        }
+        else if(w[0].equals("message") && w.length >= 4) {
+            b.name = w[1];
+            b.message = true;
+            b.typeID = Integer.decode(w[2]);
+            b.direction = w[3];
+            if(!Arrays.asList("to-gui", "to-backend", "both").contains(b.direction))
+                throw new IOException("unknown direction: " + b.direction);
+            descStart = 4;
+        }
+        else
+            throw new IOException("expected 'struct NAME ...' or 'message NAME TYPE_ID DIRECTION ...'");
+
+        StringBuilder desc = new StringBuilder();
+        for(int i=descStart; i<w.length; i++)
+            desc.append(i > descStart ? " " : "").append(w[i]);
+        b.description = (desc.length() > 0) ? desc.toString() : b.name;
+
+        if(blocks.put(b.name, b) != null)
+            throw new IOException(b.name + " is defined twice");
+        return b;
+    }
+
+    /** parses a field (or rebuild) line of block b */
+    private void parseField(Block b, String line) throws IOException {
+        if(line.startsWith("rebuild ")) {
+            b.rebuild = line.substring("rebuild ".length()).trim();
+            return;
+        }
+
+        String[] w = line.split("\\s+");
+        if(w.length < 2)
+            throw new IOException("expected 'TYPE NAME'");
+        if(!b.fields.isEmpty() && b.fields.get(b.fields.size() - 1).array)
+            throw new IOException("no fields may follow an array");
+
+        Field f = new Field();
+        if(w[0].equals("pad")) {
+            f.pad = Integer.parseInt(w[1]);
+            if(f.pad <= 0 || f.pad > MAX_PAD)
+                throw new IOException("pad must be 1-" + MAX_PAD + " bytes");
+            b.fields.add(f);
+            return;
+        }
+
+        f.name = w[1];
+        f.prim = Prim.parse(w[0]);
+        if(f.prim != null) {
+            for(int i=2; i<w.length; i+=2) {
+                if(i + 1 >= w.length)
+                    throw new IOException("expected a value after '" + w[i] + "'");
+                else if(w[i].equals(":"))
+                    enums.add(f.enumType = w[i+1]);
+                else if(w[i].equals("="))
+                    f.constant = Long.decode(w[i+1]);
+                else
+                    throw new IOException("unexpected '" + w[i] + "'");
+            }
+        }
+        else {
+            String type = w[0];
+            int bracket = type.indexOf('[');
+            if(bracket >= 0) {
+                if(!type.endsWith("]"))
+                    throw new IOException("expected ']' in " + type);
+                f.array = true;
+                String count = type.substring(bracket + 1, type.length() - 1);
+                f.countField = (count.length() == 0) ? null : count;
+                type = type.substring(0, bracket);
+            }
+
+            f.struct = blocks.get(type);
+            if(f.struct == null || f.struct.message)
+                throw new IOException("unknown type: " + type);
+            if(!f.array && !f.struct.isFixedSize())
+                throw new IOException(type + " has an array so it can only be used in an array");
+            if(w.length > 2)
+                throw new IOException("unexpected '" + w[2] + "'");
+        }
+        b.fields.add(f);
+    }
+
+    /** computes b's flattened fields and their offsets */
+    private void layout(Block b) throws IOException {
+        int off = flatten(b, b.fields, "", 0);
+        b.fixedSize = off;
+        for(Field f : b.fields) {
+            if(!f.array)
+                continue;
+
+            b.array = f;
+            if(f.countField != null) {
+                Flat count = findFlat(b, f.countField);
+                if(count == null || count.constant != null)
+                    throw new IOException(b.name + ": " + f.name + "'s count field " + f.countField + " is not a field");
+            }
+            else if(!b.message)
+                throw new IOException(b.name + ": only a message's array may fill the rest of its body");
+            else if(!f.struct.isFixedSize())
+                throw new IOException(b.name + ": an array which fills the rest of the body must have fixed size entries");
+        }
+    }
+
+    /** adds the primitive fields in fields to b's flattened fields */
+    private int flatten(Block b, List<Field> fields, String prefix, int off) {
+        for(Field f : fields) {
+            if(f.array)
+                continue;
+            else if(f.pad > 0)
+                off += f.pad;
+            else if(f.struct != null)
+                off = flatten(b, f.struct.fields, prefix + f.name + "_", off);
+            else {
+                Flat flat = new Flat();
+                flat.name = prefix + f.name;
+                flat.prim = f.prim;
+                flat.enumType = f.enumType;
+                flat.constant = f.constant;
+                flat.offset = off;
+                b.flats.add(flat);
+                off += f.prim.size;
+            }
+        }
+        return off;
+    }
+
+    /** returns b's flattened field with the specified name, if any */
+    private static Flat findFlat(Block b, String name) {
+        for(Flat f : b.flats)
+            if(f.name.equals(name))
+                return f;
+        return null;
+    }
+
+
+    // ----------------------------- Naming ----------------------------- //
+
+    /** snake_case => SnakeCase */
+    static String camel(String s) {
+        StringBuilder sb = new StringBuilder();
+        for(String part : s.split("_"))
+            if(part.length() > 0)
+                sb.append(Character.toUpperCase(part.charAt(0))).append(part.substring(1));
+        return sb.toString();
+    }
+
+    /** snake_case => snakeCase */
+    static String lowerCamel(String s) {
+        String c = camel(s);
+        return Character.toLowerCase(c.charAt(0)) + c.substring(1);
+    }
+
+    /** CamelCase => CAMEL_CASE */
+    static String upperSnake(String s) {
+        StringBuilder sb = new StringBuilder();
+        for(int i=0; i<s.length(); i++) {
+            char c = s.charAt(i);
+            if(Character.isUpperCase(c) && i > 0 && !Character.isUpperCase(s.charAt(i - 1)))
+                sb.append('_');
+            sb.append(Character.toUpperCase(c));
+        }
+        return sb.toString();
+    }
+
+    /** returns the name of the codec class for b */
+    static String codec(Block b) {
+        return b.name + "Codec";
+    }
+
+    /** returns the Java literal for v in a field of type p */
+    static String literal(Prim p, long v) {
+        switch(p) {
+            case U8:  return "(byte)" + v;
+            case U16: return "(short)" + v;
+            case U32: return Integer.toString((int)v);
+            default:  return v + "L";
+        }
+    }
+
+
+    // ----------------------------- Java Codecs ----------------------------- //
+
+    /** returns the Java codec class for b */
+    private String javaCodec(Block b) {
+        J j = new J();
+        j.line("package " + PACKAGE + ";");
+        j.line();
+        j.line("import java.io.DataOutput;");
+        j.line("import java.io.IOException;");
+        j.line("import java.nio.ByteBuffer;");
+        j.line();
+        j.line("/**");
+        if(b.message)
+            j.line(" * Wire format of the body of a " + b.name + " message (" + b.description + ").");
+        else
+            j.line(" * Wire format of a " + b.name + " (" + b.description + ").");
+        if(b.array != null) {
+            String count = (b.array.countField == null) ? "fill the rest of the body" : "follow (" + b.array.countField + " of them)";
+            j.line(" * The " + b.array.name + " entries (see " + codec(b.array.struct) + ") " + count + ".");
+        }
+        j.line(" * Offsets are relative to the start of the " + (b.message ? "body." : b.name + "."));
+        j.line(" *");
+        j.line(" * " + GENERATED);
+        j.line(" *");
+        j.line(" * @author David Underhill");
+        j.line(" */");
+        j.line("public final class " + codec(b) + " {");
+        j.indent();
+
+        if(b.message) {
+            j.line("/** type ID of " + b.name + " messages */");
+            j.line("public static final byte TYPE_ID = " + String.format("0x%02X", b.typeID) + ";");
+            j.line();
+        }
+
+        if(b.array == null)
+            j.line("/** size of a " + b.name + " in bytes */");
+        else
+            j.line("/** number of bytes before the " + b.array.name + " entries */");
+        j.line("public static final int SIZEOF = " + b.fixedSize + ";");
+        j.line();
+
+        for(Flat f : b.flats) {
+            if(f.constant == null)
+                continue;
+            j.line("/** value of the " + f.name + " field */");
+            j.line("public static final " + f.prim.java + " " + f.name.toUpperCase() + " = " + literal(f.prim, f.constant) + ";");
+            j.line();
+        }
+
+        for(Flat f : b.flats) {
+            j.line("/** offset of the " + f.name + " field */");
+            j.line("public static final int OFFSET_" + f.name.toUpperCase() + " = " + f.offset + ";");
+            j.line();
+        }
+
+        if(b.array != null) {
+            j.line("/** offset of the first " + b.array.name + " entry */");
+            j.line("public static final int OFFSET_" + b.array.name.toUpperCase() + " = SIZEOF;");
+            j.line();
+        }
+
+        if(hasPad(b)) {
+            j.line("/** zeros for pad fields */");
+            j.line("private static final byte[] PAD = new byte[" + maxPad(b.fields) + "];");
+            j.line();
+        }
+
+        j.line("private " + codec(b) + "() { /* static helpers only */ }");
+
+        for(Flat f : b.flats) {
+            j.line();
+            j.line("/** Returns the " + f.name + " field of the " + b.name + " at off in b. */");
+            j.line("public static " + f.prim.java + " get" + camel(f.name) + "(ByteBuffer b, int off) {");
+            j.line("    return b." + f.prim.getter + "(off + OFFSET_" + f.name.toUpperCase() + ");");
+            j.line("}");
+        }
+
+        Block entry = (b.array == null) ? null : b.array.struct;
+        if(entry != null && b.array.countField != null) {
+            String getCount = "get" + camel(b.array.countField) + "(b, off)";
+            j.line();
+            j.line("/** Returns the number of bytes in the " + b.name + " at off in b (including its " + b.array.name + "). */");
+            j.line("public static int sizeOf(ByteBuffer b, int off) {");
+            if(entry.isFixedSize())
+                j.line("    return SIZEOF + " + getCount + " * " + codec(entry) + ".SIZEOF;");
+            else {
+                j.line("    int n = " + getCount + ";");
+                j.line("    int len = SIZEOF;");
+                j.line("    for(int i=0; i<n; i++)");
+                j.line("        len += " + codec(entry) + ".sizeOf(b, off + len);");
+                j.line("    return len;");
+            }
+            j.line("}");
+        }
+        else if(entry != null) {
+            j.line();
+            j.line("/**");
+            j.line(" * Returns the number of " + b.array.name + " entries in a len byte " + b.name + " body.");
+            j.line(" *");
+            j.line(" * @throws IOException  if len is not a valid length for a " + b.name + " body");
+            j.line(" */");
+            j.line("public static int count(int len) throws IOException {");
+            j.line("    int left = len - SIZEOF;");
+            j.line("    if(left < 0 || left % " + codec(entry) + ".SIZEOF != 0)");
+            j.line("        throw new IOException(\"Body of " + b.name + " is not " + b.fixedSize + "B plus a multiple of \" + "
+                   + codec(entry) + ".SIZEOF + \"B (length of body is \" + len + \" bytes)\");");
+            j.line("    return left / " + codec(entry) + ".SIZEOF;");
+            j.line("}");
+        }
+
+        List<Flat> params = params(b);
+        String paramList = javaParams(params);
+        String after = (b.array == null) ? "" : " (the " + b.array.name + " entries must be written after them)";
+        j.line();
+        j.line("/** Writes the " + (b.array == null ? "" : "fixed ") + "fields of a " + b.name + after + ". */");
+        j.line("public static void write(DataOutput out" + paramList + ") throws IOException {");
+        j.indent();
+        writeFields(j, b.fields, "");
+        j.outdent();
+        j.line("}");
+
+        j.line();
+        j.line("/** Puts the " + (b.array == null ? "" : "fixed ") + "fields of a " + b.name + " at off in b. */");
+        j.line("public static void put(ByteBuffer b, int off" + paramList + ") {");
+        j.indent();
+        for(Flat f : b.flats) {
+            String v = (f.constant == null) ? lowerCamel(f.name) : f.name.toUpperCase();
+            j.line("b." + f.prim.putter + "(off + OFFSET_" + f.name.toUpperCase() + ", " + v + ");");
+        }
+        for(int[] pad : pads(b.fields, 0, new ArrayList<int[]>()))
+        {
+            j.line("for(int i=0; i<" + pad[1] + "; i++)");
+            j.line("    b.put(off + " + pad[0] + " + i, (byte)0);");
+        }
+        j.outdent();
+        j.line("}");
+
+        j.outdent();
+        j.line("}");
+        return j.toString();
+    }
+
+    /** writes code which writes fields (whose flattened names start with prefix) to out */
+    private void writeFields(J j, List<Field> fields, String prefix) {
+        for(Field f : fields) {
+            if(f.array)
+                continue;
+            else if(f.pad > 0)
+                j.line("out.write(PAD, 0, " + f.pad + ");");
+            else if(f.struct != null)
+                writeFields(j, f.struct.fields, prefix + f.name + "_");
+            else if(f.constant != null)
+                j.line("out." + f.prim.writer + "(" + (prefix + f.name).toUpperCase() + ");");
+            else
+                j.line("out." + f.prim.writer + "(" + lowerCamel(prefix + f.name) + ");");
+        }
+    }
+
+    /** returns the [offset, length] of each pad in fields */
+    private static List<int[]> pads(List<Field> fields, int off, List<int[]> ret) {
+        for(Field f : fields) {
+            if(f.array)
+                continue;
+            else if(f.pad > 0) {
+                ret.add(new int[] {off, f.pad});
+                off += f.pad;
+            }
+            else if(f.struct != null) {
+                pads(f.struct.fields, off, ret);
+                off += f.struct.fixedSize;
+            }
+            else
+                off += f.prim.size;
+        }
+        return ret;
+    }
+
+    /** returns whether b (or a struct nested in it) has a pad field */
+    private static boolean hasPad(Block b) {
+        return maxPad(b.fields) > 0;
+    }
+
+    /** returns the largest pad in fields (or a struct nested in them) */
+    private static int maxPad(List<Field> fields) {
+        int max = 0;
+        for(Field f : fields) {
+            if(f.pad > max)
+                max = f.pad;
+            else if(f.struct != null && !f.array)
+                max = Math.max(max, maxPad(f.struct.fields));
+        }
+        return max;
+    }
+
+    /** returns b's flattened fields which are not constants */
+    private static List<Flat> params(Block b) {
+        List<Flat> ret = new ArrayList<Flat>();
+        for(Flat f : b.flats)
+            if(f.constant == null)
+                ret.add(f);
+        return ret;
+    }
+
+    /** returns ", type name, ..." for params */
+    private static String javaParams(List<Flat> params) {
+        StringBuilder sb = new StringBuilder();
+        for(Flat f : params)
+            sb.append(", ").append(f.prim.java).append(' ').append(lowerCamel(f.name));
+        return sb.toString();
+    }
+
+
+    // ----------------------------- Java Fuzzer ----------------------------- //
+
+    /** returns the CodecFuzz program */
+    private String javaFuzz() {
+        J j = new J();
+        j.line("package " + PACKAGE + ";");
+        j.line();
+        j.line("import java.io.ByteArrayOutputStream;");
+        j.line("import java.io.DataOutputStream;");
+        j.line("import java.io.EOFException;");
+        j.line("import java.io.IOException;");
+        j.line("import java.nio.ByteBuffer;");
+        j.line("import java.util.Arrays;");
+        j.line("import java.util.Random;");
+        j.line();
+        j.line("import org.openflow.gui.net.FrameBuffer;");
+        j.line("import org.openflow.gui.net.StreamingMessageProcessor;");
+        j.line("import org.openflow.gui.net.protocol.*;");
+        j.line("import org.openflow.protocol.*;");
+        j.line();
+        j.line("/**");
+        j.line(" * Round-trips random values through each codec and random message bodies");
+        j.line(" * through the hand-written message decoders and encoders.  Each decoded");
+        j.line(" * message must consume exactly its frame and encode back to the same bytes");
+        j.line(" * (also when rebuilt from the objects it decodes to), streamed decoding");
+        j.line(" * must consume exactly the frame, and truncated frames must be rejected");
+        j.line(" * with an IOException rather than a RuntimeException.");
+        j.line(" *");
+        j.line(" * Usage: CodecFuzz [ITERATIONS [SEED]]");
+        j.line(" *");
+        j.line(" * " + GENERATED);
+        j.line(" *");
+        j.line(" * @author David Underhill");
+        j.line(" */");
+        j.line("public final class CodecFuzz {");
+        j.indent();
+        j.line("/** largest number of entries in a random array */");
+        j.line("public static final int MAX_ENTRIES = 8;");
+        j.line();
+        j.line("/** where random values come from */");
+        j.line("private final Random r;");
+        j.line();
+        j.line("/** number of checks which failed */");
+        j.line("private int failures = 0;");
+        j.line();
+        j.line("/** number of checks which were run */");
+        j.line("private long checks = 0;");
+        j.line();
+        j.line("public CodecFuzz(Random r) {");
+        j.line("    this.r = r;");
+        j.line("}");
+        j.line();
+        j.line("public static void main(String[] args) throws IOException {");
+        j.line("    int iterations = (args.length > 0) ? Integer.parseInt(args[0]) : 10000;");
+        j.line("    long seed = (args.length > 1) ? Long.parseLong(args[1]) : System.currentTimeMillis();");
+        j.line("    System.out.println(\"CodecFuzz: \" + iterations + \" iterations with seed \" + seed);");
+        j.line();
+        j.line("    CodecFuzz fuzz = new CodecFuzz(new Random(seed));");
+        j.line("    for(int i=0; i<iterations && fuzz.failures<20; i++)");
+        j.line("        fuzz.runOnce();");
+        j.line();
+        j.line("    System.out.println(\"CodecFuzz: \" + fuzz.checks + \" checks, \" + fuzz.failures + \" failures\");");
+        j.line("    if(fuzz.failures > 0)");
+        j.line("        System.exit(1);");
+        j.line("}");
+        j.line();
+        j.line("/** runs each check once */");
+        j.line("public void runOnce() throws IOException {");
+        j.indent();
+        for(Block b : blocks.values())
+            j.line("check" + b.name + "Codec();");
+        for(Block b : blocks.values())
+            if(b.decodedByGUI())
+                j.line("check" + b.name + "();");
+        j.outdent();
+        j.line("}");
+
+        j.line();
+        j.line("/** notes a failed check */");
+        j.line("private void fail(String what) {");
+        j.line("    failures += 1;");
+        j.line("    System.err.println(\"FAILED: \" + what);");
+        j.line("}");
+        j.line();
+        j.line("/** notes a check */");
+        j.line("private void check(boolean ok, String what) {");
+        j.line("    checks += 1;");
+        j.line("    if(!ok)");
+        j.line("        fail(what);");
+        j.line("}");
+
+        for(String e : enums) {
+            j.line();
+            j.line("/** returns the type ID of a random " + e + " */");
+            j.line("private short random" + e + "() {");
+            j.line("    " + e + "[] v = " + e + ".values();");
+            j.line("    return v[r.nextInt(v.length)].getTypeID();");
+            j.line("}");
+        }
+
+        for(Block b : blocks.values())
+            fuzzCodecCheck(j, b);
+        for(Block b : blocks.values())
+            fuzzRandomWriter(j, b);
+        for(Block b : blocks.values())
+            if(b.decodedByGUI())
+                fuzzMessageCheck(j, b);
+
+        j.line();
+        j.line("/** returns the frame (length, type, and transaction ID) with the specified body */");
+        j.line("static byte[] frame(int typeID, int xid, byte[] body) throws IOException {");
+        j.line("    ByteArrayOutputStream bytes = new ByteArrayOutputStream(body.length + OFGMessage.SIZEOF);");
+        j.line("    DataOutputStream out = new DataOutputStream(bytes);");
+        j.line("    out.writeShort(body.length + OFGMessage.SIZEOF);");
+        j.line("    out.writeByte(typeID);");
+        j.line("    out.writeInt(xid);");
+        j.line("    out.write(body);");
+        j.line("    return bytes.toByteArray();");
+        j.line("}");
+        j.line();
+        j.line("/** returns m's wire format */");
+        j.line("static byte[] encode(OFGMessage m) throws IOException {");
+        j.line("    ByteArrayOutputStream bytes = new ByteArrayOutputStream();");
+        j.line("    m.write(new DataOutputStream(bytes));");
+        j.line("    return bytes.toByteArray();");
+        j.line("}");
+        j.line();
+        j.line("/** loads the frame (after its length field) into fb and returns the frame's length */");
+        j.line("static int load(FrameBuffer fb, byte[] frame) {");
+        j.line("    ByteBuffer src = ByteBuffer.wrap(frame);");
+        j.line("    int len = src.getShort() & 0xFFFF;");
+        j.line("    fb.fill(src, frame.length - 2);");
+        j.line("    return len;");
+        j.line("}");
+        j.line();
+        j.line("/**");
+        j.line(" * Decodes frame and checks that its decoder consumed exactly the frame,");
+        j.line(" * that the message encodes back to frame, that streamed decoding also");
+        j.line(" * consumes exactly the frame, and that truncated copies of it are rejected");
+        j.line(" * cleanly.");
+        j.line(" *");
+        j.line(" * @return the decoded message, or null if it could not be decoded");
+        j.line(" */");
+        j.line("private OFGMessage checkFrame(String what, byte[] frame) throws IOException {");
+        j.indent();
+        j.line("FrameBuffer fb = new FrameBuffer();");
+        j.line("int len = load(fb, frame);");
+        j.line("OFGMessage m;");
+        j.line("try {");
+        j.line("    m = OFGMessageType.decode(len, fb);");
+        j.line("}");
+        j.line("catch(IOException e) {");
+        j.line("    fail(what + \": valid frame was rejected: \" + e);");
+        j.line("    return null;");
+        j.line("}");
+        j.line("catch(RuntimeException e) {");
+        j.line("    fail(what + \": decoding threw \" + e);");
+        j.line("    return null;");
+        j.line("}");
+        j.line("check(fb.remaining() == 0, what + \": decoding left \" + fb.remaining() + \"B of the frame unread\");");
+        j.line("checkEncoding(what, m, frame);");
+        j.line();
+        j.line("// streamed decoding must consume the same bytes");
+        j.line("len = load(fb, frame);");
+        j.line("final int[] delivered = new int[1];");
+        j.line("try {");
+        j.line("    OFGMessageType.decodeStreaming(len, fb, new StreamingMessageProcessor.Sink<OFGMessage>() {");
+        j.line("        public void deliver(OFGMessage msg) {");
+        j.line("            delivered[0] += 1;");
+        j.line("        }");
+        j.line("    });");
+        j.line("    check(fb.remaining() == 0, what + \": streamed decoding left \" + fb.remaining() + \"B of the frame unread\");");
+        j.line("    check(delivered[0] > 0, what + \": streamed decoding delivered nothing\");");
+        j.line("}");
+        j.line("catch(Exception e) {");
+        j.line("    fail(what + \": streamed decoding threw \" + e);");
+        j.line("}");
+        j.line();
+        j.line("// a truncated frame must be rejected with an IOException (or decode to");
+        j.line("// a shorter, still valid message)");
+        j.line("if(frame.length > OFGMessage.SIZEOF) {");
+        j.line("    int cut = 1 + r.nextInt(frame.length - OFGMessage.SIZEOF);");
+        j.line("    byte[] truncated = Arrays.copyOf(frame, frame.length - cut);");
+        j.line("    ByteBuffer.wrap(truncated).putShort((short)truncated.length);");
+        j.line("    len = load(fb, truncated);");
+        j.line("    try {");
+        j.line("        OFGMessage t = OFGMessageType.decode(len, fb);");
+        j.line("        check(fb.remaining() == 0, what + \": decoding a frame truncated by \" + cut + \"B left \" + fb.remaining() + \"B unread\");");
+        j.line("        checkEncoding(what + \" truncated by \" + cut + \"B\", t, truncated);");
+        j.line("    }");
+        j.line("    catch(EOFException e) {");
+        j.line("        fail(what + \": decoding a frame truncated by \" + cut + \"B read past the end of the frame\");");
+        j.line("    }");
+        j.line("    catch(IOException e) {");
+        j.line("        checks += 1; /* rejected cleanly */");
+        j.line("    }");
+        j.line("    catch(RuntimeException e) {");
+        j.line("        fail(what + \": decoding a frame truncated by \" + cut + \"B threw \" + e);");
+        j.line("    }");
+        j.line("}");
+        j.line("return m;");
+        j.outdent();
+        j.line("}");
+        j.line();
+        j.line("/** checks that m's length is frame's length and that it encodes to frame */");
+        j.line("private void checkEncoding(String what, OFGMessage m, byte[] frame) throws IOException {");
+        j.line("    check(m.length() == frame.length, what + \": length() is \" + m.length() + \"B but the frame is \" + frame.length + \"B\");");
+        j.line("    check(Arrays.equals(encode(m), frame), what + \": does not encode back to the same bytes\");");
+        j.line("}");
+
+        j.outdent();
+        j.line("}");
+        return j.toString();
+    }
+
+    /** emits a check which round-trips random field values through b's codec */
+    private void fuzzCodecCheck(J j, Block b) {
+        List<Flat> params = params(b);
+        j.line();
+        j.line("/** round-trips random field values through " + codec(b) + " */");
+        j.line("private void check" + b.name + "Codec() throws IOException {");
+        j.indent();
+        StringBuilder args = new StringBuilder();
+        for(Flat f : params) {
+            String v = lowerCamel(f.name);
+            String arrayCount = (b.array != null && f.name.equals(b.array.countField)) ? "r.nextInt(MAX_ENTRIES + 1)" : null;
+            j.line(f.prim.java + " " + v + " = " + randomValue(f, arrayCount) + ";");
+            args.append(", ").append(v);
+        }
+        j.line();
+        j.line("ByteArrayOutputStream bytes = new ByteArrayOutputStream();");
+        j.line("DataOutputStream out = new DataOutputStream(bytes);");
+        j.line(codec(b) + ".write(out" + args + ");");
+        if(b.array != null && b.array.countField != null) {
+            j.line("for(int i=0; i<" + lowerCamel(b.array.countField) + "; i++)");
+            j.line("    write" + b.array.struct.name + "(out);");
+        }
+        j.line("ByteBuffer b = ByteBuffer.wrap(bytes.toByteArray());");
+        if(b.array == null)
+            j.line("check(b.remaining() == " + codec(b) + ".SIZEOF, \"" + b.name + ": wrote \" + b.remaining() + \"B\");");
+        else if(b.array.countField != null)
+            j.line("check(b.remaining() == " + codec(b) + ".sizeOf(b, 0), \"" + b.name + ": wrote \" + b.remaining() + \"B but sizeOf() is \" + " + codec(b) + ".sizeOf(b, 0));");
+        else
+            j.line("check(b.remaining() == " + codec(b) + ".SIZEOF, \"" + b.name + ": wrote \" + b.remaining() + \"B\");");
+        for(Flat f : b.flats) {
+            String v = (f.constant == null) ? lowerCamel(f.name) : codec(b) + "." + f.name.toUpperCase();
+            j.line("check(" + codec(b) + ".get" + camel(f.name) + "(b, 0) == " + v + ", \"" + b.name + "." + f.name + "\");");
+        }
+        j.line();
+        j.line("ByteBuffer p = ByteBuffer.allocate(" + codec(b) + ".SIZEOF + 3);");
+        j.line(codec(b) + ".put(p, 3" + args + ");");
+        j.line("p.position(3);");
+        j.line("b.limit(" + codec(b) + ".SIZEOF);");
+        j.line("check(p.equals(b), \"" + b.name + ": put() and write() disagree\");");
+        j.outdent();
+        j.line("}");
+    }
+
+    /** returns the expression for a random value of f (or count if it is an array's count) */
+    private static String randomValue(Flat f, String count) {
+        if(f.constant != null)
+            return literal(f.prim, f.constant);
+        else if(count != null)
+            return f.prim.java.equals("int") ? count : "(" + f.prim.java + ")" + count;
+        else if(f.enumType != null)
+            return (f.prim == Prim.U16) ? "random" + f.enumType + "()" : "(" + f.prim.java + ")random" + f.enumType + "()";
+        else switch(f.prim) {
+            case U8:  return "(byte)r.nextInt()";
+            case U16: return "(short)r.nextInt()";
+            case U32: return "r.nextInt()";
+            default:  return "r.nextLong()";
+        }
+    }
+
+    /** emits a method which writes a random b to out */
+    private void fuzzRandomWriter(J j, Block b) {
+        j.line();
+        if(b.message) {
+            j.line("/** returns the body of a random " + b.name + " message (with n entries if it has an array) */");
+            j.line("byte[] random" + b.name + "(int n) throws IOException {");
+            j.indent();
+            j.line("ByteArrayOutputStream bytes = new ByteArrayOutputStream();");
+            j.line("DataOutputStream out = new DataOutputStream(bytes);");
+        }
+        else {
+            j.line("/** writes a random " + b.name + " to out */");
+            j.line("void write" + b.name + "(DataOutputStream out) throws IOException {");
+            j.indent();
+            if(b.array != null)
+                j.line("int n = r.nextInt(MAX_ENTRIES + 1);");
+        }
+        fuzzWriteFields(j, b, b.fields, "");
+        if(b.array != null) {
+            j.line("for(int i=0; i<n; i++)");
+            j.line("    write" + b.array.struct.name + "(out);");
+        }
+        if(b.message)
+            j.line("return bytes.toByteArray();");
+        j.outdent();
+        j.line("}");
+    }
+
+    /** emits code which writes random values for fields to out */
+    private void fuzzWriteFields(J j, Block b, List<Field> fields, String prefix) {
+        for(Field f : fields) {
+            if(f.array)
+                continue;
+            else if(f.pad > 0)
+                j.line("out.write(new byte[" + f.pad + "]);");
+            else if(f.struct != null)
+                j.line("write" + f.struct.name + "(out);");
+            else {
+                Flat flat = findFlat(b, prefix + f.name);
+                String count = (b.array != null && flat.name.equals(b.array.countField)) ? "n" : null;
+                j.line("out." + f.prim.writer + "(" + randomValue(flat, count) + ");");
+            }
+        }
+    }
+
+    /** emits a check which decodes and re-encodes a random b message */
+    private void fuzzMessageCheck(J j, Block b) {
+        j.line();
+        j.line("/** checks that a random " + b.name + " message survives decoding and encoding */");
+        j.line("private void check" + b.name + "() throws IOException {");
+        j.indent();
+        String n = (b.array == null) ? "0" : "r.nextInt(MAX_ENTRIES + 1)";
+        j.line("byte[] frame = frame(" + codec(b) + ".TYPE_ID, r.nextInt(), random" + b.name + "(" + n + "));");
+        j.line("OFGMessage decoded = checkFrame(\"" + b.name + "\", frame);");
+        j.line("if(decoded == null)");
+        j.line("    return;");
+        j.line("if(!(decoded instanceof " + b.name + ")) {");
+        j.line("    fail(\"" + b.name + ": decoded to \" + decoded.getClass().getSimpleName());");
+        j.line("    return;");
+        j.line("}");
+        if(b.rebuild != null) {
+            j.line();
+            j.line(b.name + " m = (" + b.name + ")decoded;");
+            j.line("checkEncoding(\"" + b.name + " (rebuilt)\", " + b.rebuild + ", frame);");
+        }
+        j.outdent();
+        j.line("}");
+    }
+
+
+    // ----------------------------- Java Benchmark ----------------------------- //
+
+    /** returns the CodecBench program */
+    private String javaBench() {
+        J j = new J();
+        j.line("package " + PACKAGE + ";");
+        j.line();
+        j.line("import java.io.ByteArrayOutputStream;");
+        j.line("import java.io.DataOutputStream;");
+        j.line("import java.io.IOException;");
+        j.line("import java.util.Random;");
+        j.line();
+        j.line("import org.openflow.gui.net.FrameBuffer;");
+        j.line("import org.openflow.gui.net.protocol.OFGMessage;");
+        j.line("import org.openflow.gui.net.protocol.OFGMessageType;");
+        j.line();
+        j.line("/**");
+        j.line(" * Measures how long the message decoders and encoders take on random");
+        j.line(" * messages of about TARGET_SIZE bytes.  Each is run for WARMUP_MSEC before");
+        j.line(" * it is measured for RUN_MSEC.");
+        j.line(" *");
+        j.line(" * Usage: CodecBench [RUN_MSEC]");
+        j.line(" *");
+        j.line(" * " + GENERATED);
+        j.line(" *");
+        j.line(" * @author David Underhill");
+        j.line(" */");
+        j.line("public final class CodecBench {");
+        j.indent();
+        j.line("/** approximate size of each message */");
+        j.line("public static final int TARGET_SIZE = 32 * 1024;");
+        j.line();
+        j.line("/** how long to run each operation before measuring it */");
+        j.line("public static final long WARMUP_MSEC = 500;");
+        j.line();
+        j.line("/** keeps the JIT from discarding results */");
+        j.line("private static long sink = 0;");
+        j.line();
+        j.line("/** an operation to measure */");
+        j.line("private interface Op {");
+        j.line("    void run() throws IOException;");
+        j.line("}");
+        j.line();
+        j.line("public static void main(String[] args) throws IOException {");
+        j.indent();
+        j.line("long runMsec = (args.length > 0) ? Long.parseLong(args[0]) : 2000;");
+        j.line("CodecFuzz gen = new CodecFuzz(new Random(1));");
+        j.line("System.out.println(String.format(\"%-16s %8s %12s %12s %10s %10s\", \"message\", \"bytes\", \"decode ns\", \"encode ns\", \"dec MB/s\", \"enc MB/s\"));");
+        for(Block b : blocks.values()) {
+            if(!b.decodedByGUI())
+                continue;
+            String entries;
+            if(b.array == null)
+                entries = "0";
+            else if(b.array.struct.isFixedSize())
+                entries = "(TARGET_SIZE - " + codec(b) + ".SIZEOF) / " + codec(b.array.struct) + ".SIZEOF";
+            else
+                entries = "TARGET_SIZE / (" + codec(b.array.struct) + ".SIZEOF + CodecFuzz.MAX_ENTRIES / 2 * " + codec(b.array.struct.array.struct) + ".SIZEOF)";
+            j.line("run(\"" + b.name + "\", CodecFuzz.frame(" + codec(b) + ".TYPE_ID, 1, gen.random" + b.name + "(" + entries + ")), runMsec);");
+        }
+        j.line("System.out.println(\"(ignore: \" + sink + \")\");");
+        j.outdent();
+        j.line("}");
+        j.line();
+        j.line("/** measures decoding and encoding frame */");
+        j.line("private static void run(String name, final byte[] frame, long runMsec) throws IOException {");
+        j.indent();
+        j.line("final FrameBuffer fb = new FrameBuffer(frame.length);");
+        j.line("final OFGMessage[] decoded = new OFGMessage[1];");
+        j.line("double decode_ns = measure(new Op() {");
+        j.line("    public void run() throws IOException {");
+        j.line("        int len = CodecFuzz.load(fb, frame);");
+        j.line("        decoded[0] = OFGMessageType.decode(len, fb);");
+        j.line("        sink += decoded[0].xid;");
+        j.line("    }");
+        j.line("}, runMsec);");
+        j.line();
+        j.line("final ByteArrayOutputStream bytes = new ByteArrayOutputStream(frame.length);");
+        j.line("final DataOutputStream out = new DataOutputStream(bytes);");
+        j.line("double encode_ns = measure(new Op() {");
+        j.line("    public void run() throws IOException {");
+        j.line("        bytes.reset();");
+        j.line("        decoded[0].write(out);");
+        j.line("        sink += bytes.size();");
+        j.line("    }");
+        j.line("}, runMsec);");
+        j.line();
+        j.line("System.out.println(String.format(\"%-16s %8d %12.0f %12.0f %10.1f %10.1f\", name, frame.length, decode_ns, encode_ns,");
+        j.line("                                 frame.length * 1000.0 / decode_ns, frame.length * 1000.0 / encode_ns));");
+        j.outdent();
+        j.line("}");
+        j.line();
+        j.line("/** returns the average time (ns) op takes after it has been warmed up */");
+        j.line("private static double measure(Op op, long runMsec) throws IOException {");
+        j.indent();
+        j.line("long end = System.nanoTime() + WARMUP_MSEC * 1000L * 1000L;");
+        j.line("while(System.nanoTime() < end)");
+        j.line("    op.run();");
+        j.line();
+        j.line("long n = 0;");
+        j.line("long start = System.nanoTime();");
+        j.line("end = start + runMsec * 1000L * 1000L;");
+        j.line("long now;");
+        j.line("do {");
+        j.line("    for(int i=0; i<64; i++)");
+        j.line("        op.run();");
+        j.line("    n += 64;");
+        j.line("}");
+        j.line("while((now = System.nanoTime()) < end);");
+        j.line("return (now - start) / (double)n;");
+        j.outdent();
+        j.line("}");
+        j.outdent();
+        j.line("}");
+        return j.toString();
+    }
+
+
+    // ----------------------------- Python ----------------------------- //
+
+    /** returns the Python module */
+    private String python() {
+        J p = new J("    ");
+        p.line("\"\"\"Wire formats of the OpenFlow GUI protocol's structures and message bodies.");
+        p.line();
+        p.line("Each struct (and message body) has a struct FORMAT string for its fields");
+        p.line("(nested structs are flattened and arrays are left to the caller), its SIZE,");
+        p.line("and pack and unpack functions.  Run this module to round-trip random values");
+        p.line("through each of them.");
+        p.line();
+        p.line(GENERATED + "\"\"\"");
+        p.line();
+        p.line("import struct");
+        for(Block b : blocks.values()) {
+            String up = upperSnake(b.name);
+            String lower = up.toLowerCase();
+            List<Flat> params = params(b);
+            p.line();
+            p.line("# " + b.name + ": " + b.description);
+            if(b.message)
+                p.line(up + "_TYPE = " + String.format("0x%02X", b.typeID));
+            p.line(up + "_FORMAT = '" + pythonFormat(b) + "'");
+            p.line(up + "_SIZE = " + b.fixedSize);
+            StringBuilder names = new StringBuilder();
+            for(Flat f : b.flats)
+                names.append("'").append(f.name).append("', ");
+            p.line(up + "_FIELDS = (" + (b.flats.size() == 1 ? names.toString().trim() : names.toString().replaceAll(", $", "")) + ")");
+            for(Flat f : b.flats)
+                if(f.constant != null)
+                    p.line(up + "_" + f.name.toUpperCase() + " = " + f.constant);
+            if(b.array != null) {
+                String entries = (b.array.countField == null) ? "fill the rest of the body" : "follow (" + b.array.countField + " of them)";
+                p.line("# the " + b.array.name + " entries (" + b.array.struct.name + ") " + entries);
+            }
+            if(b.flats.isEmpty())
+                continue;
+
+            StringBuilder paramList = new StringBuilder();
+            StringBuilder packArgs = new StringBuilder();
+            for(Flat f : params)
+                paramList.append(paramList.length() > 0 ? ", " : "").append(f.name);
+            for(Flat f : b.flats)
+                packArgs.append(", ").append(f.constant == null ? f.name : up + "_" + f.name.toUpperCase());
+
+            p.line();
+            p.line("def pack_" + lower + "(" + paramList + "):");
+            p.line("    return struct.pack(" + up + "_FORMAT" + packArgs + ")");
+            p.line();
+            p.line("def unpack_" + lower + "(buf, off=0):");
+            p.line("    \"\"\"Returns the fields of the " + b.name + " at off in buf (see " + up + "_FIELDS).\"\"\"");
+            p.line("    return struct.unpack_from(" + up + "_FORMAT, buf, off)");
+        }
+
+        p.line();
+        p.line("def _fuzz(iterations=1000):");
+        p.line("    \"\"\"Round-trips random values through each pack and unpack function.\"\"\"");
+        p.line("    import random");
+        p.line("    for _ in range(iterations):");
+        for(Block b : blocks.values()) {
+            if(b.flats.isEmpty())
+                continue;
+            String up = upperSnake(b.name);
+            String lower = up.toLowerCase();
+            StringBuilder args = new StringBuilder();
+            StringBuilder expected = new StringBuilder();
+            int i = 0;
+            for(Flat f : b.flats) {
+                if(f.constant == null) {
+                    args.append("random.getrandbits(").append(f.prim.size * 8).append("), ");
+                    expected.append("a[").append(i++).append("], ");
+                }
+                else
+                    expected.append(up).append('_').append(f.name.toUpperCase()).append(", ");
+            }
+            p.line("        a = (" + tuple(args) + ")");
+            p.line("        buf = pack_" + lower + "(*a)");
+            p.line("        assert len(buf) == " + up + "_SIZE, '" + b.name + " packed to %uB' % len(buf)");
+            p.line("        assert unpack_" + lower + "(buf) == (" + tuple(expected) + "), '" + b.name + " did not round trip'");
+        }
+        p.line("    print 'OFGCodecs: %u round trips of each struct OK' % iterations");
+        p.line();
+        p.line("if __name__ == '__main__':");
+        p.line("    _fuzz()");
+        return p.toString();
+    }
+
+    /** returns the items in sb (each followed by ", ") as the body of a Python tuple */
+    private static String tuple(StringBuilder sb) {
+        String items = sb.toString().trim();
+        return (items.indexOf(", ") < 0) ? items : items.substring(0, items.length() - 1);
+    }
+
+    /** returns the struct format string for b's fixed fields */
+    private static String pythonFormat(Block b) {
+        StringBuilder sb = new StringBuilder("> ");
+        pythonFormat(b.fields, sb);
+        return sb.toString().trim();
+    }
+
+    private static void pythonFormat(List<Field> fields, StringBuilder sb) {
+        for(Field f : fields) {
+            if(f.array)
+                continue;
+            else if(f.pad > 0)
+                sb.append(f.pad).append('x');
+            else if(f.struct != null)
+                pythonFormat(f.struct.fields, sb);
+            else
+                sb.append(f.prim.python);
+        }
+    }
+
+
+    // ----------------------------- Output ----------------------------- //
+
+    /** accumulates indented lines of code */
+    static class J {
+        private final StringBuilder sb = new StringBuilder();
+        private final String unit;
+        private String indent = "";
+
+        J() {
+            this("    ");
+        }
+
+        J(String unit) {
+            this.unit = unit;
+        }
+
+        void indent() {
+            indent += unit;
+        }
+
+        void outdent() {
+            indent = indent.substring(unit.length());
+        }
+
+        void line() {
+            sb.append('\n');
+        }
+
+        void line(String s) {
+            sb.append(indent).append(s).append('\n');
+        }
+
+        public String toString() {
+            return sb.toString();
+        }
+    }
+
+    /** number of files which were rewritten */
+    private int written = 0;
+
+    /** writes content to f unless f already has exactly that content */
+    private void write(File f, String content) throws IOException {
+        byte[] bytes = content.getBytes("UTF-8");
+        if(f.exists() && f.length() == bytes.length) {
+            byte[] old = new byte[bytes.length];
+            FileInputStream in = new FileInputStream(f);
+            try {
+                int n = 0;
+                while(n < old.length) {
+                    int got = in.read(old, n, old.length - n);
+                    if(got < 0)
+                        break;
+                    n += got;
+                }
+            }
+            finally {
+                in.close();
+            }
+            if(Arrays.equals(old, bytes))
+                return;
+        }
+
+        f.getParentFile().mkdirs();
+        Writer out = new OutputStreamWriter(new FileOutputStream(f), "UTF-8");
+        try {
+            out.write(content);
+        }
+        finally {
+            out.close();
+        }
+        written += 1;
+        System.out.println("CodecGenerator: wrote " + f);
+    }
+
+    public static void main(String[] args) throws IOException {
+        if(args.length != 4) {
+            System.err.println("usage: CodecGenerator SCHEMA JAVA_SRC_DIR JAVA_GEN_DIR PYTHON_FILE");
+            System.exit(2);
+        }
+
+        CodecGenerator g = new CodecGenerator();
+        g.parse(new File(args[0]));
+
+        String pkgPath = PACKAGE.replace('.', File.separatorChar);
+        File srcDir = new File(args[1], pkgPath);
+        File genDir = new File(args[2], pkgPath);
+        for(Block b : g.blocks.values())
+            g.write(new File(srcDir, codec(b) + ".java"), g.javaCodec(b));
+        g.write(new File(genDir, "CodecFuzz.java"), g.javaFuzz());
+        g.write(new File(genDir, "CodecBench.java"), g.javaBench());
+        g.write(new File(args[3]), g.python());
+
+        System.out.println("CodecGenerator: " + g.blocks.size() + " structs and messages, " + g.written + " files updated");
+    }
+}
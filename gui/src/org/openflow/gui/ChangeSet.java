@@ -0,0 +1,192 @@
+package org.openflow.gui;
+
+import java.util.ArrayList;
+
+import org.openflow.gui.drawables.Flow;
+import org.openflow.gui.drawables.Link;
+import org.openflow.gui.drawables.NodeWithPorts;
+import org.openflow.gui.net.protocol.LinkType;
+
+/**
+ * A batch of changes to a Topology which are staged and then applied all at
+ * once by Topology.apply().  Applying a batch has the same effect as making
+ * each change individually, but the topology's locks are acquired once per
+ * batch and its manager is notified once per batch rather than once per
+ * change.  The result of each change is available after the batch has been
+ * applied.
+ *
+ * Changes are applied in this order: node adds, link adds, flow adds, flow
+ * removes, link removes, and then node removes (each in the order they were
+ * staged).
+ *
+ * @author David Underhill
+ */
+public class ChangeSet {
+    /** a staged link add */
+    static class LinkAdd {
+        final LinkType type;
+        final NodeWithPorts dst, src;
+        final short dstPort, srcPort;
+
+        LinkAdd(LinkType type, NodeWithPorts dst, short dstPort, NodeWithPorts src, short srcPort) {
+            this.type = type;
+            this.dst = dst;
+            this.dstPort = dstPort;
+            this.src = src;
+            this.srcPort = srcPort;
+        }
+    }
+
+    /** a staged link remove */
+    static class LinkRemove {
+        final long dstID, srcID;
+        final short dstPort, srcPort;
+
+        LinkRemove(long dstID, short dstPort, long srcID, short srcPort) {
+            this.dstID = dstID;
+            this.dstPort = dstPort;
+            this.srcID = srcID;
+            this.srcPort = srcPort;
+        }
+    }
+
+    /** nodes to add */
+    final ArrayList<NodeWithPorts> nodeAdds = new ArrayList<NodeWithPorts>();
+
+    /** IDs of nodes to remove (the first numNodeRemoves are used) */
+    long[] nodeRemoves = new long[8];
+    int numNodeRemoves = 0;
+
+    /** links to add */
+    final ArrayList<LinkAdd> linkAdds = new ArrayList<LinkAdd>();
+
+    /** links to remove */
+    final ArrayList<LinkRemove> linkRemoves = new ArrayList<LinkRemove>();
+
+    /** flows to add */
+    final ArrayList<Flow> flowAdds = new ArrayList<Flow>();
+
+    /** IDs of flows to remove (the first numFlowRemoves are used) */
+    int[] flowRemoves = new int[8];
+    int numFlowRemoves = 0;
+
+    /** results of applying the changes (null until they are applied) */
+    int[] nodeAddResults = null;
+    int[] nodeRemoveResults = null;
+    Link[] linkAddResults = null;
+    int[] linkRemoveResults = null;
+
+    /**
+     * Stages adding a node (see Topology.addNode()).
+     *
+     * @return the index of this change among the node adds
+     */
+    public int addNode(NodeWithPorts n) {
+        checkNotApplied();
+        nodeAdds.add(n);
+        return nodeAdds.size() - 1;
+    }
+
+    /**
+     * Stages removing a node (see Topology.removeNode()).
+     *
+     * @return the index of this change among the node removes
+     */
+    public int removeNode(long id) {
+        checkNotApplied();
+        if(numNodeRemoves == nodeRemoves.length) {
+            long[] bigger = new long[nodeRemoves.length * 2];
+            System.arraycopy(nodeRemoves, 0, bigger, 0, numNodeRemoves);
+            nodeRemoves = bigger;
+        }
+        nodeRemoves[numNodeRemoves] = id;
+        return numNodeRemoves++;
+    }
+
+    /**
+     * Stages adding a link (see Topology.addLink()).  Each endpoint is 
+     * replaced by the topology's node with the same ID, if any, when the 
+     * change is applied; so dst and src may be nodes staged in this change 
+     * set even if an equivalent node already exists.
+     *
+     * @return the index of this change among the link adds
+     */
+    public int addLink(LinkType linkType, NodeWithPorts dst, short dstPort, NodeWithPorts src, short srcPort) {
+        checkNotApplied();
+        linkAdds.add(new LinkAdd(linkType, dst, dstPort, src, srcPort));
+        return linkAdds.size() - 1;
+    }
+
+    /**
+     * Stages removing a link (see Topology.disconnectLink()).
+     *
+     * @return the index of this change among the link removes
+     */
+    public int removeLink(long dstDPID, short dstPort, long srcDPID, short srcPort) {
+        checkNotApplied();
+        linkRemoves.add(new LinkRemove(dstDPID, dstPort, srcDPID, srcPort));
+        return linkRemoves.size() - 1;
+    }
+
+    /** Stages adding a flow (see Topology.addFlow()). */
+    public void addFlow(Flow f) {
+        checkNotApplied();
+        flowAdds.add(f);
+    }
+
+    /** Stages removing the flow(s) with the specified ID (see Topology.removeFlowByID()). */
+    public void removeFlow(int id) {
+        checkNotApplied();
+        if(numFlowRemoves == flowRemoves.length) {
+            int[] bigger = new int[flowRemoves.length * 2];
+            System.arraycopy(flowRemoves, 0, bigger, 0, numFlowRemoves);
+            flowRemoves = bigger;
+        }
+        flowRemoves[numFlowRemoves++] = id;
+    }
+
+    /** Returns true if no changes have been staged. */
+    public boolean isEmpty() {
+        return nodeAdds.isEmpty() && numNodeRemoves == 0 && linkAdds.isEmpty()
+            && linkRemoves.isEmpty() && flowAdds.isEmpty() && numFlowRemoves == 0;
+    }
+
+    /** Returns true if this change set has been applied to a topology. */
+    public boolean isApplied() {
+        return nodeAddResults != null;
+    }
+
+    /** Returns what Topology.addNode() returned for the i'th node add. */
+    public int getNodeAddResult(int i) {
+        checkApplied();
+        return nodeAddResults[i];
+    }
+
+    /** Returns what Topology.removeNode() returned for the i'th node remove. */
+    public int getNodeRemoveResult(int i) {
+        checkApplied();
+        return nodeRemoveResults[i];
+    }
+
+    /** Returns what Topology.addLink() returned for the i'th link add. */
+    public Link getAddedLink(int i) {
+        checkApplied();
+        return linkAddResults[i];
+    }
+
+    /** Returns what Topology.disconnectLink() returned for the i'th link remove. */
+    public int getLinkRemoveResult(int i) {
+        checkApplied();
+        return linkRemoveResults[i];
+    }
+
+    private void checkNotApplied() {
+        if(isApplied())
+            throw new IllegalStateException("this change set has already been applied");
+    }
+
+    private void checkApplied() {
+        if(!isApplied())
+            throw new IllegalStateException("this change set has not been applied yet");
+    }
+}
@@ -2,6 +2,8 @@ package org.openflow.gui;
 
 import java.io.DataInput;
 import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.openflow.gui.drawables.Flow;
 import org.openflow.gui.drawables.Host;
@@ -10,19 +12,26 @@ import org.openflow.gui.drawables.Node;
 import org.openflow.gui.drawables.NodeWithPorts;
 import org.openflow.gui.drawables.OpenFlowSwitch;
 import org.openflow.gui.net.BackendConnection;
-import org.openflow.gui.net.MessageProcessor;
+import org.openflow.gui.net.PendingRequest;
+import org.openflow.gui.net.SelectorLoop;
+import org.openflow.gui.net.StreamingMessageProcessor;
+import org.openflow.gui.net.protocol.Feature;
 import org.openflow.gui.net.protocol.FlowsAdd;
 import org.openflow.gui.net.protocol.FlowsDel;
+import org.openflow.gui.net.protocol.Hello;
 import org.openflow.gui.net.protocol.LinksAdd;
 import org.openflow.gui.net.protocol.LinksDel;
 import org.openflow.gui.net.protocol.NodeType;
 import org.openflow.gui.net.protocol.OFGMessage;
 import org.openflow.gui.net.protocol.OFGMessageType;
+import org.openflow.gui.net.protocol.PollStart;
+import org.openflow.gui.net.protocol.PollStop;
 import org.openflow.gui.net.protocol.Request;
 import org.openflow.gui.net.protocol.RequestLinks;
 import org.openflow.gui.net.protocol.RequestType;
 import org.openflow.gui.net.protocol.StatsHeader;
 import org.openflow.gui.net.protocol.SwitchDescriptionRequest;
+import org.openflow.gui.net.protocol.TopologySnapshot;
 import org.openflow.gui.net.protocol.NodesAdd;
 import org.openflow.gui.net.protocol.NodesDel;
 import org.openflow.gui.net.protocol.auth.AuthReply;
@@ -30,7 +39,12 @@ import org.openflow.gui.net.protocol.auth.AuthRequest;
 import org.openflow.gui.net.protocol.auth.AuthStatus;
 import org.openflow.protocol.AggregateStatsReply;
 import org.openflow.protocol.AggregateStatsRequest;
+import org.openflow.protocol.FlowStatsReply;
+import org.openflow.protocol.FlowStatsRequest;
+import org.openflow.protocol.FlowStatsSink;
 import org.openflow.protocol.Match;
+import org.openflow.protocol.PortStatsReply;
+import org.openflow.protocol.PortStatsRequest;
 import org.openflow.protocol.SwitchDescriptionStats;
 import org.openflow.util.FlowHop;
 import org.openflow.util.string.DPIDUtil;
@@ -48,7 +62,8 @@ import org.pzgui.PZManager;
  * 
  * @author David Underhill
  */
-public class ConnectionHandler implements MessageProcessor<OFGMessage>,
+public class ConnectionHandler implements StreamingMessageProcessor<OFGMessage>,
+                                          FlowStatsSink,
                                           PZClosing {
     /** the connection being managed */
     private final BackendConnection<OFGMessage> connection;
@@ -59,12 +74,37 @@ public class ConnectionHandler implements MessageProcessor<OFGMessage>,
     /** whether the connection is being shut down */
     private boolean shutting_down = false;
     
+    /** port stats requests being polled, keyed by the DPID of the switch they poll */
+    private final ConcurrentHashMap<Long, PortStatsRequest> polledPortStats = new ConcurrentHashMap<Long, PortStatsRequest>();
+    
+    /** flow stats requests being polled, keyed by the DPID of the switch they poll */
+    private final ConcurrentHashMap<Long, FlowStatsRequest> polledFlowStats = new ConcurrentHashMap<Long, FlowStatsRequest>();
+    
+    /** starts polling the stats of each flow this connection adds to the topology */
+    private final TopologyListener flowStatsPoller = new TopologyListener() {
+        public void topologyChanged(Topology t, List<TopologyEvent> batch) {
+            for(TopologyEvent e : batch)
+                if(e.type == TopologyEvent.Type.FLOW_ADDED && e.owner == connection)
+                    pollFlowStats(e.flow);
+        }
+    };
+    
     /** whether to subscribe to switch updates */
     private boolean subscribeToSwitchChanges;
     
     /** whether to subscribe to link updates */
     private boolean subscribeToLinkChanges;
     
+    /** whether to get the initial topology as a snapshot (vs lists of nodes and links) */
+    private boolean requestTopologySnapshot = Options.REQUEST_TOPOLOGY_SNAPSHOT;
+    
+    /** 
+     * whether the connection was lost before the backend replied to our last
+     * HELLO (older backends may drop clients which send messages they do not
+     * know), in which case the next connection does not send one
+     */
+    private volatile boolean skipHello = false;
+    
     /**
      * Create a connection bound to the server at the specified address and port
      * which will be used to populate the specified topology.
@@ -79,8 +119,15 @@ public class ConnectionHandler implements MessageProcessor<OFGMessage>,
                              boolean subscribeSwitches, boolean subscribeLinks) {
         topology = topo;
         connection = new BackendConnection<OFGMessage>(this, ip, port);
+        connection.setEchoInterval(Options.ECHO_PROBE_INTERVAL_MSEC);
+        if(Options.USE_SHARED_SELECTOR_LOOP)
+            connection.setSelectorLoop(SelectorLoop.getDefault());
+        connection.setPipelinedProcessing(Options.USE_PIPELINED_PROCESSING);
         subscribeToSwitchChanges = subscribeSwitches;
         subscribeToLinkChanges = subscribeLinks;
+        
+        if(Options.USE_FLOW_STATS)
+            topology.addTopologyListener(flowStatsPoller);
     }
     
     public BackendConnection<OFGMessage> getConnection() {
@@ -101,35 +148,140 @@ public class ConnectionHandler implements MessageProcessor<OFGMessage>,
     
     /** Called when the backend has been disconnected or reconnected */
     public void connectionStateChange(boolean connected) {
-        if(!connection.isConnected()) {
+        if(!connected) {
+            // the backend stops polling when the connection is lost
+            polledPortStats.clear();
+            polledFlowStats.clear();
             topology.removeAll(connection);
         }
         else {
-            // ask the backend for a list of switches and links
-            try {
-                if(isSubscribeToSwitchChanges()) {
-                    connection.sendMessage(new Request(OFGMessageType.NODES_REQUEST, RequestType.ONETIME));
-                    connection.sendMessage(new Request(OFGMessageType.NODES_REQUEST, RequestType.SUBSCRIBE));
-                }
-                
-                if(subscribeToLinkChanges) {
-                    connection.sendMessage(new RequestLinks(RequestType.ONETIME));
-                    connection.sendMessage(new RequestLinks(RequestType.SUBSCRIBE));
+            // find out which optional features the backend supports before
+            // asking it for anything
+            if(skipHello) {
+                skipHello = false;
+                startSession(0);
+            }
+            else
+                sendHello();
+        }
+    }
+    
+    /** 
+     * Sends a HELLO and starts the session once the backend replies to it.  A
+     * backend which does not reply in time (e.g., one which predates HELLO) is
+     * assumed to support no optional features.
+     */
+    private void sendHello() {
+        PendingRequest p;
+        try {
+            p = connection.sendRequest(new Hello());
+        }
+        catch(IOException e) {
+            System.err.println("Warning: unable to send HELLO: " + e.getMessage());
+            startSession(0);
+            return;
+        }
+        
+        // the connection was lost again before the HELLO could be sent
+        if(p == null)
+            return;
+        
+        p.addListener(new PendingRequest.Listener() {
+            public void requestCompleted(PendingRequest r) {
+                switch(r.getStatus()) {
+                case REPLIED:
+                    if(r.getReply() instanceof Hello)
+                        startSession(((Hello)r.getReply()).features & Feature.SUPPORTED);
+                    else
+                        startSession(0);
+                    break;
+                    
+                case TIMED_OUT:
+                    System.out.println("Backend did not reply to HELLO; assuming it supports no optional features");
+                    startSession(0);
+                    break;
+                    
+                default:
+                    // the backend may have dropped us because it does not know HELLO
+                    skipHello = true;
                 }
             }
-            catch(IOException e) {
-                System.err.println("Error: unable to setup subscriptions");
+        });
+    }
+    
+    /** 
+     * Notes which optional features both sides support and then subscribes 
+     * to switch and link updates, using the fastest mechanisms both sides 
+     * support.
+     */
+    private void startSession(int features) {
+        connection.setFeatures(features);
+        System.out.println("Using optional protocol features: " + Feature.toString(features));
+        
+        // ask the backend for a list of switches and links
+        try {
+            boolean snapshot = requestTopologySnapshot && connection.hasFeature(Feature.TOPOLOGY_SNAPSHOT)
+                               && (isSubscribeToSwitchChanges() || subscribeToLinkChanges);
+            if(snapshot)
+                connection.sendMessage(new Request(OFGMessageType.TOPOLOGY_REQUEST, RequestType.ONETIME));
+            
+            if(isSubscribeToSwitchChanges()) {
+                if(!snapshot)
+                    connection.sendMessage(new Request(OFGMessageType.NODES_REQUEST, RequestType.ONETIME));
+                connection.sendMessage(new Request(OFGMessageType.NODES_REQUEST, RequestType.SUBSCRIBE));
+            }
+            
+            if(subscribeToLinkChanges) {
+                if(!snapshot)
+                    connection.sendMessage(new RequestLinks(RequestType.ONETIME));
+                connection.sendMessage(new RequestLinks(RequestType.SUBSCRIBE));
             }
         }
+        catch(IOException e) {
+            System.err.println("Error: unable to setup subscriptions");
+        }
     }
     
     /** 
      * Constructs the object representing the received message.  The message is 
      * known to be of length len and len - 4 bytes representing the rest of the 
-     * message should be extracted from buf.
+     * message should be extracted from buf.  Replies to polled aggregate 
+     * stats requests are decoded straight into the stats of the link they are
+     * for, and flow stats replies straight into the flows they are for (null 
+     * is returned for them).
      */
     public OFGMessage decode(int len, DataInput in) throws IOException {
-        return OFGMessageType.decode(len, in);
+        return OFGMessageType.decode(len, in, connection.getAggregateStatsSinks(), getFlowStatsSink());
+    }
+    
+    /** 
+     * Decodes a large message.  Long lists of nodes, links, or flows are split
+     * into smaller messages which are each processed as soon as they are read.
+     * Flow stats replies are streamed into the flows they are for.
+     */
+    public void decodeStreaming(int len, DataInput in, Sink<OFGMessage> sink) throws IOException {
+        OFGMessageType.decodeStreaming(len, in, sink, getFlowStatsSink());
+    }
+    
+    /** returns the sink flow stats are decoded into, or null if they are not tracked */
+    private FlowStatsSink getFlowStatsSink() {
+        return Options.USE_FLOW_STATS ? this : null;
+    }
+    
+    /** 
+     * Updates the rates of the flow(s) whose ID is the cookie of the flow 
+     * entry the stats are for.
+     */
+    public void updateFlowStats(long dpid, long cookie, long packetCount, long byteCount, long when) {
+        if(cookie != (int)cookie)
+            return;
+        
+        Flow[] flows = topology.getFlow((int)cookie);
+        if(flows == null)
+            return;
+        
+        for(Flow f : flows)
+            f.updateStats(dpid, packetCount, byteCount, when);
     }
 
     /** Handles messages received from the backend */
@@ -154,6 +306,10 @@ public class ConnectionHandler implements MessageProcessor<OFGMessage>,
             processEchoReply(msg.xid);
 	    break;
             
+        case HELLO:
+            processHello((Hello)msg);
+            break;
+            
         case NODES_ADD:
             processNodesAdd((NodesAdd)msg);
             break;
@@ -174,6 +330,10 @@ public class ConnectionHandler implements MessageProcessor<OFGMessage>,
             processFlowsAdd((FlowsAdd)msg);
             break;
             
+        case TOPOLOGY_SNAPSHOT:
+            processTopologySnapshot((TopologySnapshot)msg);
+            break;
+            
         case FLOWS_DELETE:
             processFlowsDel((FlowsDel)msg);
             break;
@@ -193,6 +353,22 @@ public class ConnectionHandler implements MessageProcessor<OFGMessage>,
         }
     }
 
+    /** completes the HELLO this is a reply to (see sendHello()) */
+    private void processHello(Hello msg) {
+        if(connection.popAssociatedStatefulRequest(msg) == null)
+            System.err.println("Ignoring unsolicited (or late) HELLO: " + msg);
+    }
+    
+    /** returns whether link stats are tracked by polling port stats */
+    private boolean usePortStats() {
+        return Options.USE_PORT_STATS && connection.hasFeature(Feature.PORT_STATS);
+    }
+    
+    /** returns whether flow rates are tracked by polling flow stats */
+    private boolean useFlowStats() {
+        return Options.USE_FLOW_STATS && connection.hasFeature(Feature.FLOW_STATS);
+    }
+    
     /** 
      * Query the user for login credentials and send them to the backend.  If
      * msg does not supply a salt of at least 20B then a message is instead
@@ -242,7 +418,9 @@ public class ConnectionHandler implements MessageProcessor<OFGMessage>,
     }
     
     /** 
-     * Handles the echo reply by simply printing a message to stdout.
+     * Handles an echo reply by simply printing a message to stdout.  Replies
+     * to the connection's own echo probes never get here; their round-trip
+     * times are recorded in the connection's NetStats instead.
      */
     protected void processEchoReply(int xid) {
         System.out.println("received echo reply (xid=" + xid + ")");
@@ -281,7 +459,12 @@ public class ConnectionHandler implements MessageProcessor<OFGMessage>,
 
         if(linksOnly)
             return;
-            
+        
+        requestSwitchDescription(dpid);
+    }
+    
+    /** asks the backend for the description of the switch with the specified DPID */
+    private void requestSwitchDescription(long dpid) {
         try {
             getConnection().sendMessage(new SwitchDescriptionRequest(dpid));
         } catch (IOException e) {
@@ -289,13 +472,31 @@ public class ConnectionHandler implements MessageProcessor<OFGMessage>,
         }
     }
     
-    /** add new nodes to the topology */
+    /** add new nodes to the topology (as one batch) */
     private void processNodesAdd(NodesAdd msg) {
-        for(org.openflow.gui.net.protocol.Node msgNode : msg.nodes)
-            processDrawableNodeAdd(processNodeAdd(msgNode));
+        ChangeSet cs = new ChangeSet();
+        NodeWithPorts[] nodes = new NodeWithPorts[msg.size()];
+        int[] index = new int[msg.size()];
+        for(int i=0; i<msg.size(); i++) {
+            Node n = processNodeAdd(msg.getNodeType(i), msg.getNodeID(i));
+            if(n instanceof NodeWithPorts) {
+                nodes[i] = (NodeWithPorts)n;
+                index[i] = cs.addNode(nodes[i]);
+            }
+        }
+        topology.apply(connection, cs);
+        
+        for(int i=0; i<nodes.length; i++) {
+            if(nodes[i] == null)
+                continue;
+            
+            int ret = cs.getNodeAddResult(index[i]);
+            if(ret>=0 && nodes[i] instanceof OpenFlowSwitch)
+                handleNewSwitch((OpenFlowSwitch)nodes[i], ret!=0 /* if locally new, only request links */);
+        }
     }
     
-    /** add new node to the topology */
+    /** add a single new node to the topology */
     protected void processDrawableNodeAdd(Node n) {
         if(n instanceof NodeWithPorts) {
             int ret = topology.addNode(connection, (NodeWithPorts)n);
@@ -312,57 +513,171 @@ public class ConnectionHandler implements MessageProcessor<OFGMessage>,
      * NodeWithPorts.  The default caller will also call handleNewSwitch() if 
      * an OpenFlowSwitch is returned.
      */
-    protected Node processNodeAdd(org.openflow.gui.net.protocol.Node n) {
-        if(n.nodeType == NodeType.HOST)
-            return new Host(n.id);
+    protected Node processNodeAdd(NodeType nodeType, long id) {
+        if(nodeType == NodeType.HOST)
+            return new Host(id);
         else
-            return new OpenFlowSwitch(n.id, n.nodeType);
+            return new OpenFlowSwitch(id, nodeType);
     }
 
-    /** remove nodes from the topology */
+    /** remove nodes from the topology (as one batch) */
     private void processNodesDel(NodesDel msg) {
-        for(org.openflow.gui.net.protocol.Node n : msg.nodes)
-            if(topology.removeNode(connection, n.id) < 0)
-                System.err.println("Ignoring switch delete message for non-existant switch: " + DPIDUtil.toString(n.id));
+        ChangeSet cs = new ChangeSet();
+        for(int i=0; i<msg.size(); i++) {
+            stopPolling(polledPortStats, msg.getNodeID(i));
+            stopPolling(polledFlowStats, msg.getNodeID(i));
+            cs.removeNode(msg.getNodeID(i));
+        }
+        topology.apply(connection, cs);
+        
+        for(int i=0; i<msg.size(); i++)
+            if(cs.getNodeRemoveResult(i) < 0)
+                System.err.println("Ignoring switch delete message for non-existant switch: " + DPIDUtil.toString(msg.getNodeID(i)));
     }
     
+    /** add new links to the topology (as one batch) */
     private void processLinksAdd(LinksAdd msg) {
-        for(org.openflow.gui.net.protocol.LinkSpec x : msg.links) {
-            NodeWithPorts dst = topology.getNode(x.dstNode.id);
+        ChangeSet cs = new ChangeSet();
+        int[] index = new int[msg.size()];
+        for(int i=0; i<msg.size(); i++) {
+            index[i] = -1;
+            long dstID = msg.getDstID(i);
+            NodeWithPorts dst = topology.getNode(dstID);
             if(dst == null) {
-                logNodeMissing("LinkAdd", "dst", x.dstNode.id);
+                logNodeMissing("LinkAdd", "dst", dstID);
                 continue;
             }
             
-            NodeWithPorts src = topology.getNode(x.srcNode.id);
+            long srcID = msg.getSrcID(i);
+            NodeWithPorts src = topology.getNode(srcID);
             if(src == null) {
-                logNodeMissing("LinkAdd", "src", x.srcNode.id);
+                logNodeMissing("LinkAdd", "src", srcID);
                 continue;
             }
             
-                Link l = topology.addLink(x.linkType, dst, x.dstPort, src, x.srcPort);
-                if(l == null)
-                    continue;
-                l.setMaximumDataRate(x.capacity_bps);
-                
-                if(!Options.AUTO_TRACK_STATS_FOR_NEW_LINK)
-                    continue;
-                
-                // tell the backend to keep us updated on the link's utilization
-                try {
-                    l.trackStats(Options.STATS_REFRESH_RATE_MSEC, Match.MATCH_ALL, getConnection());
-                }
-                catch (IOException e) {
-                    System.err.println("Warning: unable to setup link utilization polling for switch " + 
-                            DPIDUtil.toString(x.dstNode.id) + " port " + l.getMyPort(dst));
-                }
+            index[i] = cs.addLink(msg.getLinkType(i), dst, msg.getDstPort(i), src, msg.getSrcPort(i));
+        }
+        topology.apply(connection, cs);
+        
+        for(int i=0; i<msg.size(); i++)
+            if(index[i] >= 0)
+                processAddedLink(cs.getAddedLink(index[i]), msg.getCapacity(i));
+    }
+    
+    /** sets the capacity of a link which was just added (if any) and starts tracking its utilization */
+    private void processAddedLink(Link l, long capacity) {
+        if(l == null)
+            return;
+        l.setMaximumDataRate(capacity);
+        
+        if(!Options.AUTO_TRACK_STATS_FOR_NEW_LINK)
+            return;
+        
+        // tell the backend to keep us updated on the link's utilization
+        try {
+            if(usePortStats()) {
+                l.trackStats(Match.MATCH_ALL);
+                startPolling(polledPortStats, new PortStatsRequest(l.getSource().getID()));
+            }
+            else
+                l.trackStats(Options.STATS_REFRESH_RATE_MSEC, Match.MATCH_ALL, getConnection());
+        }
+        catch (IOException e) {
+            System.err.println("Warning: unable to setup link utilization polling for switch " + 
+                    DPIDUtil.toString(l.getDestination().getID()) + " port " + l.getMyPort(l.getDestination()));
+        }
+    }
+    
+    /** 
+     * Adds the nodes and links in a topology snapshot to the topology as one
+     * batch.
+     */
+    private void processTopologySnapshot(TopologySnapshot msg) {
+        ChangeSet cs = new ChangeSet();
+        int numNodes = msg.getNumNodes();
+        NodeWithPorts[] nodes = new NodeWithPorts[numNodes];
+        int[] nodeIndex = new int[numNodes];
+        for(int i=0; i<numNodes; i++) {
+            Node n = processNodeAdd(msg.getNodeType(i), msg.getNodeID(i));
+            if(n instanceof NodeWithPorts) {
+                nodes[i] = (NodeWithPorts)n;
+                nodeIndex[i] = cs.addNode(nodes[i]);
+            }
         }
+        
+        // the topology resolves each link's endpoints to the nodes it holds
+        int numLinks = msg.getNumLinks();
+        int[] linkIndex = new int[numLinks];
+        for(int i=0; i<numLinks; i++) {
+            linkIndex[i] = -1;
+            NodeWithPorts dst = nodes[msg.getDstIndex(i)];
+            if(dst == null) {
+                logNodeMissing("TopologySnapshot", "dst", msg.getDstID(i));
+                continue;
+            }
+            
+            NodeWithPorts src = nodes[msg.getSrcIndex(i)];
+            if(src == null) {
+                logNodeMissing("TopologySnapshot", "src", msg.getSrcID(i));
+                continue;
+            }
+            
+            linkIndex[i] = cs.addLink(msg.getLinkType(i), dst, msg.getDstPort(i), src, msg.getSrcPort(i));
+        }
+        topology.apply(connection, cs);
+        
+        // the snapshot includes the links, so only new switches' descriptions are needed
+        for(int i=0; i<numNodes; i++)
+            if(nodes[i] instanceof OpenFlowSwitch && cs.getNodeAddResult(nodeIndex[i]) == 0 && Options.AUTO_REQUEST_LINK_INFO_FOR_NEW_SWITCH)
+                requestSwitchDescription(nodes[i].getID());
+        
+        for(int i=0; i<numLinks; i++)
+            if(linkIndex[i] >= 0)
+                processAddedLink(cs.getAddedLink(linkIndex[i]), msg.getCapacity(i));
     }
     
+    /** 
+     * Asks the backend to poll req (unless a request is already being polled
+     * for req's switch in polled).
+     */
+    private <T extends StatsHeader> void startPolling(ConcurrentHashMap<Long, T> polled, T req) throws IOException {
+        if(polled.putIfAbsent(req.dpid, req) != null)
+            return;
+        
+        short pollInterval = (short)((Options.STATS_REFRESH_RATE_MSEC + 99) / 100);
+        try {
+            connection.sendMessage(new PollStart(pollInterval, req));
+        }
+        catch(IOException e) {
+            polled.remove(req.dpid);
+            throw e;
+        }
+    }
+    
+    /** tells the backend to stop polling the request in polled for switch dpid, if any */
+    private void stopPolling(ConcurrentHashMap<Long, ? extends StatsHeader> polled, long dpid) {
+        StatsHeader req = polled.remove(dpid);
+        if(req == null)
+            return;
+        
+        try {
+            connection.sendMessage(new PollStop(req.xid));
+        }
+        catch(IOException e) {
+            System.err.println("Warning: unable to stop " + req.statsType + " stats polling for switch " + DPIDUtil.toString(dpid));
+        }
+    }
+    
+    /** remove links from the topology (as one batch) */
     private void processLinksDel(LinksDel msg) {
+        ChangeSet cs = new ChangeSet();
+        for(org.openflow.gui.net.protocol.Link x : msg.links)
+            cs.removeLink(x.dstNode.id, x.dstPort, x.srcNode.id, x.srcPort);
+        topology.apply(connection, cs);
+        
+        int i = 0;
         for(org.openflow.gui.net.protocol.Link x : msg.links) {
-            int ret = topology.disconnectLink(connection, x.dstNode.id, x.dstPort, x.srcNode.id, x.srcPort);
-            switch(ret) {
+            switch(cs.getLinkRemoveResult(i++)) {
             case  0: /* success */ break;
             case -1: logLinkMissing("delete", "src node", x.dstNode.id, x.dstPort, x.srcNode.id, x.srcPort); break;
             case -2: logLinkMissing("delete", "dst node", x.dstNode.id, x.dstPort, x.srcNode.id, x.srcPort); break;
@@ -371,42 +686,67 @@ public class ConnectionHandler implements MessageProcessor<OFGMessage>,
         }
     }
     
+    /** add new flows to the topology (as one batch) */
     private void processFlowsAdd(FlowsAdd msg) {
-        for(org.openflow.gui.net.protocol.Flow x : msg.flows) {
-            NodeWithPorts src = topology.getNode(x.srcNode.id);
+        ChangeSet cs = new ChangeSet();
+        for(int f=0; f<msg.size(); f++) {
+            long srcID = msg.getSrcID(f);
+            NodeWithPorts src = topology.getNode(srcID);
             if(src == null) {
-                logNodeMissing("FlowAdd", "src", x.srcNode.id);
+                logNodeMissing("FlowAdd", "src", srcID);
                 continue;
             }
             
-            NodeWithPorts dst = topology.getNode(x.dstNode.id);
+            long dstID = msg.getDstID(f);
+            NodeWithPorts dst = topology.getNode(dstID);
             if(dst == null) {
-                logNodeMissing("FlowAdd", "dst", x.dstNode.id);
+                logNodeMissing("FlowAdd", "dst", dstID);
                 continue;
             }
             
-            FlowHop[] hops = new FlowHop[x.path.length + 2];
-            hops[0] = new FlowHop((short)-1, src, x.srcPort);
-            hops[hops.length-1] = new FlowHop(x.dstPort, dst, (short)-1);
+            int pathLen = msg.getPathLength(f);
+            FlowHop[] hops = new FlowHop[pathLen + 2];
+            hops[0] = new FlowHop((short)-1, src, msg.getSrcPort(f));
+            hops[hops.length-1] = new FlowHop(msg.getDstPort(f), dst, (short)-1);
             
             int i = 1;
-            for(org.openflow.gui.net.protocol.FlowHop fh : x.path) {
-                NodeWithPorts hop = topology.getNode(fh.node.id);
+            for(int h=0; h<pathLen; h++) {
+                long hopID = msg.getHopID(f, h);
+                NodeWithPorts hop = topology.getNode(hopID);
                 if(hop == null) {
-                    logNodeMissing("FlowAdd", "hop" + i, fh.node.id);
+                    logNodeMissing("FlowAdd", "hop" + i, hopID);
                     continue;
                 }
-                hops[i++] = new FlowHop(fh.inport, hop, fh.outport);
+                hops[i++] = new FlowHop(msg.getHopInport(f, h), hop, msg.getHopOutport(f, h));
             }
             
-            Flow flow = new Flow(x.type, x.id, hops);
-            topology.addFlow(flow);
+            Flow flow = new Flow(msg.getFlowType(f), msg.getFlowID(f), hops);
+            cs.addFlow(flow);
+        }
+        
+        // flowStatsPoller starts polling their stats once they are added
+        topology.apply(connection, cs);
+    }
+    
+    /** tells the backend to keep us updated on flow's rate (if flow stats are used) */
+    private void pollFlowStats(Flow flow) {
+        if(useFlowStats() && flow.getStatsSwitch() != null) {
+            long dpid = flow.getStatsSwitch().getID();
+            try {
+                startPolling(polledFlowStats, new FlowStatsRequest(dpid));
+            }
+            catch(IOException e) {
+                System.err.println("Warning: unable to setup flow stats polling for switch " + DPIDUtil.toString(dpid));
+            }
         }
     }
     
+    /** remove flows from the topology (as one batch) */
     private void processFlowsDel(FlowsDel msg) {
-        for(org.openflow.gui.net.protocol.Flow x : msg.flows)
-            topology.removeFlowByID(x.id);
+        ChangeSet cs = new ChangeSet();
+        for(int i=0; i<msg.size(); i++)
+            cs.removeFlow(msg.getFlowID(i));
+        topology.apply(connection, cs);
     }
     
     private void processStatReply(StatsHeader msg) {
@@ -418,6 +758,14 @@ public class ConnectionHandler implements MessageProcessor<OFGMessage>,
         case AGGREGATE:
             processStatReplyAggregate((AggregateStatsReply)msg);
             break;
+            
+        case PORT:
+            processStatReplyPort((PortStatsReply)msg);
+            break;
+        
+        case FLOW:
+            processStatReplyFlow((FlowStatsReply)msg);
+            break;
         
         default:
             System.err.println("Unhandled stats type received: " + msg.statsType.toString());
@@ -426,7 +774,7 @@ public class ConnectionHandler implements MessageProcessor<OFGMessage>,
 
     private void processStatReplyAggregate(AggregateStatsReply reply) {
         // get the request which solicited this reply
-        OFGMessage msg = getConnection().popAssociatedStatefulRequest(reply.xid);
+        OFGMessage msg = getConnection().popAssociatedStatefulRequest(reply);
         AggregateStatsRequest req;
         if(msg==null || !(msg instanceof AggregateStatsRequest)) {
             System.err.println("Warning: matching stateful request for " +
@@ -451,6 +799,31 @@ public class ConnectionHandler implements MessageProcessor<OFGMessage>,
         l.updateStats(req.match, reply);
     }
 
+    /** updates the stats of each link connected to a port in the reply */
+    private void processStatReplyPort(PortStatsReply reply) {
+        // completes the request's handle (if it was not polled)
+        getConnection().popAssociatedStatefulRequest(reply);
+        
+        NodeWithPorts n = topology.getNode(reply.dpid);
+        if(n == null) {
+            System.err.println("Warning: received port stats reply for unknown switch " + DPIDUtil.toString(reply.dpid));
+            return;
+        }
+        
+        for(Link l : n.getLinks()) {
+            int i = reply.indexOfPort(l.getMyPort(n));
+            if(i >= 0)
+                l.updatePortStats(reply.dpid, reply.getTxPackets(i), reply.getTxBytes(i), reply.timeCreated);
+        }
+    }
+    
+    /** updates the rates of each flow in the reply */
+    private void processStatReplyFlow(FlowStatsReply reply) {
+        // completes the request's handle (if it was not polled)
+        getConnection().popAssociatedStatefulRequest(reply);
+        reply.updateSink(this);
+    }
+    
     private void processStatReplyDesc(SwitchDescriptionStats msg) {
         NodeWithPorts n = topology.getNode(msg.dpid);
         if(n != null) {
@@ -481,6 +854,7 @@ public class ConnectionHandler implements MessageProcessor<OFGMessage>,
 
     public void shutdown() {
         shutting_down = true;
+        topology.removeTopologyListener(flowStatsPoller);
         connection.shutdown();
     }
 
@@ -502,6 +876,20 @@ public class ConnectionHandler implements MessageProcessor<OFGMessage>,
         subscribeToSwitchChanges = b;
     }
 
+    /** Returns whether the initial topology is requested as a single snapshot */
+    public boolean isRequestTopologySnapshot() {
+        return requestTopologySnapshot;
+    }
+    
+    /** 
+     * Sets whether the initial topology is requested as a single snapshot 
+     * when the backend supports it (takes effect the next time the connection
+     * is established).
+     */
+    public void setRequestTopologySnapshot(boolean b) {
+        requestTopologySnapshot = b;
+    }
+
     /** Returns whether the connection is subscribed to link changes */
     public boolean isSubscribeToLinkChanges() {
         return subscribeToSwitchChanges;
@@ -524,6 +912,7 @@ public class ConnectionHandler implements MessageProcessor<OFGMessage>,
      * Sends a goodbye message to the backend and then shutsdown the connection.
      */
     public void pzClosing(PZManager manager) {
+        topology.removeTopologyListener(flowStatsPoller);
         try {
             connection.sendMessage(new OFGMessage(OFGMessageType.DISCONNECT, 0));
             connection.shutdown();
@@ -72,7 +72,7 @@ public class MultipleConnectionAndTopologyHandler<CH extends ConnectionHandler>
     /** 
      * Removes and shuts down the specified connection.  If it was the only 
      * connection populating a topology, then that topology is discarded from 
-     * the list.
+     * the list (and its event thread is stopped).
      * 
      * @param index  the index of the connection to remove
      */
@@ -85,6 +85,7 @@ public class MultipleConnectionAndTopologyHandler<CH extends ConnectionHandler>
             if(cm.getTopology()== conn.getTopology())
                 return;
         topologies.remove(conn.getTopology());
+        conn.getTopology().shutdownEvents();
     }
     
     /** 
@@ -0,0 +1,94 @@
+package org.openflow.gui;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics2D;
+
+import org.openflow.gui.net.BackendConnection;
+import org.openflow.gui.net.LatencyHistogram;
+import org.pzgui.Constants;
+import org.pzgui.PZOverlay;
+import org.pzgui.PZWindow;
+
+/**
+ * A small overlay which shows a connection's NetStats: echo round-trip times,
+ * throughput in each direction, and how far message processing lags behind
+ * decoding.
+ *
+ * @author David Underhill
+ */
+public class NetStatsOverlay implements PZOverlay {
+    /** font the stats are drawn in */
+    private static final Font FONT = new Font("Monospaced", Font.PLAIN, 11);
+
+    /** background behind the stats */
+    private static final Color BG = new Color(0, 0, 0, 160);
+
+    /** color of the stats */
+    private static final Color FG = Color.WHITE;
+
+    /** space between the edge of the box and the text */
+    private static final int PADDING = 4;
+
+    /** the connection whose stats are shown */
+    private final BackendConnection<?> connection;
+
+    /** Creates an overlay which shows the stats for conn. */
+    public NetStatsOverlay(BackendConnection<?> conn) {
+        connection = conn;
+    }
+
+    public int drawOverlay(Graphics2D gfx, PZWindow window, int y) {
+        BackendConnection<?>.NetStats stats = connection.getStats();
+        LatencyHistogram rtt = stats.getEchoRTTHistogram();
+        LatencyHistogram lag = stats.getApplyLagHistogram();
+
+        String[] lines = new String[] {
+            connection.getServerName()
+                + (connection.isConnected() ? "  up " : "  down ")
+                + Math.abs(stats.getTimeConnected_ms()) / 1000 + "s",
+            "rtt   p50 " + ms(rtt.getValueAtPercentile(50))
+                + "  p99 " + ms(rtt.getValueAtPercentile(99))
+                + "  max " + ms(rtt.getMax()) + "  (" + rtt.getCount() + " probes)",
+            "in    " + kb(stats.getBytesReceivedPerSec()) + "  "
+                + (int)stats.getMessagesReceivedPerSec() + " msg/s",
+            "out   " + kb(stats.getBytesSentPerSec()) + "  "
+                + (int)stats.getMessagesSentPerSec() + " msg/s",
+            "apply p50 " + ms(lag.getValueAtPercentile(50))
+                + "  p99 " + ms(lag.getValueAtPercentile(99))
+                + "  queued " + stats.getProcessQueueOccupancy()
+        };
+
+        Font oldFont = gfx.getFont();
+        gfx.setFont(FONT);
+        FontMetrics fm = gfx.getFontMetrics();
+        int w = 0;
+        for(String s : lines)
+            w = Math.max(w, fm.stringWidth(s));
+        int h = lines.length * fm.getHeight() + 2 * PADDING;
+
+        gfx.setPaint(BG);
+        gfx.fillRect(0, y, w + 2 * PADDING, h);
+        gfx.setPaint(FG);
+        int ty = y + PADDING + fm.getAscent();
+        for(String s : lines) {
+            gfx.drawString(s, PADDING, ty);
+            ty += fm.getHeight();
+        }
+
+        gfx.setFont(oldFont);
+        gfx.setPaint(Constants.PAINT_DEFAULT);
+        return y + h;
+    }
+
+    /** formats a value in microseconds as milliseconds */
+    private static String ms(long us) {
+        return String.format("%.2fms", us / 1000.0);
+    }
+
+    /** formats a rate in bytes/sec as KB/s */
+    private static String kb(double bytesPerSec) {
+        return String.format("%.1fKB/s", bytesPerSec / 1024);
+    }
+}
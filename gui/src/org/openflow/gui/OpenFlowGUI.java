@@ -1,8 +1,18 @@
 package org.openflow.gui;
 
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.PrintStream;
 import java.util.ArrayList;
 
 import org.openflow.gui.drawables.OpenFlowSwitch;
+import org.openflow.gui.net.MessageTrace;
+import org.openflow.gui.net.Transport;
+import org.openflow.gui.net.WireJournal;
+import org.openflow.gui.net.WireJournalReplayer;
+import org.openflow.gui.net.protocol.OFGMessage;
+import org.openflow.gui.net.protocol.OFGMessageType;
 import org.openflow.util.Pair;
 import org.pzgui.DialogHelper;
 import org.pzgui.PZManager;
@@ -20,12 +30,63 @@ public final class OpenFlowGUI {
     
     /** 
      * Run a simple version of the GUI by starting a single connection which 
-     * will populate a single topology drawn by a PZLayoutManager.
+     * will populate a single topology drawn by a PZLayoutManager.  Besides the
+     * server, these options are accepted:
+     *   --capture PREFIX    record the connection's messages to a WireJournal
+     *   --replay PREFIX     populate the topology from a WireJournal instead of
+     *                       connecting to a server
+     *   --replay-speed N    replay N times faster than real-time ("max" for as
+     *                       fast as possible; default 1)
+     *   --trace FILE        trace the connection's message headers to a 
+     *                       MessageTrace
+     *   --trace-bytes N     also trace the first N bytes of each message body
+     *   --print-trace FILE  pretty-print a MessageTrace and exit
      */
     public static void main(String args[]) {
-        Pair<String, Short> serverPort = getServer(args);
-        String server = serverPort.a;
-        short port = serverPort.b;
+        String capturePrefix = null;
+        String replayPrefix = null;
+        double replaySpeed = 1.0;
+        String tracePath = null;
+        int traceBytes = 0;
+        ArrayList<String> serverArgs = new ArrayList<String>();
+        for(int i=0; i<args.length; i++) {
+            if(args[i].equals("--capture") && i+1 < args.length)
+                capturePrefix = args[++i];
+            else if(args[i].equals("--trace") && i+1 < args.length)
+                tracePath = args[++i];
+            else if(args[i].equals("--trace-bytes") && i+1 < args.length)
+                traceBytes = Integer.parseInt(args[++i]);
+            else if(args[i].equals("--print-trace") && i+1 < args.length) {
+                try {
+                    printTrace(args[++i], System.out);
+                }
+                catch(IOException e) {
+                    System.err.println("Error: unable to read trace " + args[i] + ": " + e.getMessage());
+                }
+                return;
+            }
+            else if(args[i].equals("--replay") && i+1 < args.length)
+                replayPrefix = args[++i];
+            else if(args[i].equals("--replay-speed") && i+1 < args.length) {
+                String speed = args[++i];
+                replaySpeed = speed.equals("max") ? WireJournalReplayer.MAX_SPEED : Double.parseDouble(speed);
+            }
+            else
+                serverArgs.add(args[i]);
+        }
+        
+        String server;
+        short port;
+        if(replayPrefix != null) {
+            // nothing is actually connected to when replaying
+            server = Options.DEFAULT_SERVER_IP;
+            port = Options.DEFAULT_PORT;
+        }
+        else {
+            Pair<String, Short> serverPort = getServer(serverArgs.toArray(new String[serverArgs.size()]));
+            server = serverPort.a;
+            port = serverPort.b;
+        }
         
         // create a manager to handle drawing the topology info received by the connection
         PZLayoutManager gm = new PZLayoutManager();
@@ -41,9 +102,72 @@ public final class OpenFlowGUI {
         
         // start our managers
         gm.start();
+        if(replayPrefix != null) {
+            new WireJournalReplayer<OFGMessage>(replayPrefix, cm, replaySpeed).start();
+            return;
+        }
+        
+        if(capturePrefix != null) {
+            try {
+                cm.getConnection().setJournal(new WireJournal(capturePrefix));
+            }
+            catch(IOException e) {
+                System.err.println("Error: unable to capture to " + capturePrefix + ": " + e.getMessage());
+            }
+        }
+        if(tracePath != null) {
+            try {
+                cm.getConnection().setTrace(new MessageTrace(tracePath, MessageTrace.DEFAULT_CAPACITY, traceBytes));
+            }
+            catch(IOException e) {
+                System.err.println("Error: unable to trace to " + tracePath + ": " + e.getMessage());
+            }
+        }
         cm.getConnection().start();
     }
     
+    /**
+     * Prints each record in the MessageTrace at path to out, one per line.  A
+     * message whose whole body was captured is decoded and printed in full;
+     * otherwise whatever bytes were captured are printed in hex.
+     */
+    public static void printTrace(String path, PrintStream out) throws IOException {
+        MessageTrace.Reader r = new MessageTrace.Reader(path);
+        try {
+            out.println("# trace started at " + new java.util.Date(r.getStartTime_ms()));
+            StringBuilder sb = new StringBuilder();
+            while(r.next()) {
+                sb.setLength(0);
+                OFGMessageType t = OFGMessageType.typeValToMessageType(r.getType());
+                sb.append(String.format("%12.6f ", r.getTime_ns() / 1e9));
+                sb.append(r.getDirection() == WireJournal.Direction.SENT ? "send " : "recv ");
+                sb.append(t == null ? "type=" + (r.getType() & 0xFF) : t.toString());
+                sb.append(" xid=").append(r.getXID()).append(" len=").append(r.getLength());
+                
+                byte[] body = r.getBody();
+                if(body.length > 0) {
+                    sb.append(' ');
+                    String msg = null;
+                    if(r.isComplete()) {
+                        try {
+                            msg = OFGMessageType.decode(r.getLength(), new DataInputStream(new ByteArrayInputStream(body))).toString();
+                        }
+                        catch(Exception e) { /* fall back to printing the bytes */ }
+                    }
+                    if(msg != null)
+                        sb.append(msg);
+                    else
+                        for(byte b : body)
+                            sb.append(String.format("%02x", b));
+                }
+                out.println(sb);
+            }
+        }
+        finally {
+            r.close();
+        }
+    }
+    
     /**
      * Creates a connection which will populate a new topology.  The connection
      * handler is registered as a closing listener with manager so that it can
@@ -61,6 +185,7 @@ public final class OpenFlowGUI {
                                                           boolean subscribeLinks) {
         ConnectionHandler ch = new ConnectionHandler(new Topology(manager), server, port, subscribeSwitches, subscribeLinks);
         manager.addClosingListener(ch);
+        manager.addOverlay(new NetStatsOverlay(ch.getConnection()));
         return ch;
     }
     
@@ -119,11 +244,16 @@ public final class OpenFlowGUI {
     
     /**
      * Returns the parse of a IP[:PORT].  If PORT is omitted, the 
-     * Options.DEFAULT_PORT is returned for the port value.
+     * Options.DEFAULT_PORT is returned for the port value.  A local transport
+     * ("unix:PATH" for a Unix domain socket or "pipe:NAME" for an in-process 
+     * pipe; see Transport) is returned whole with a port of 0.
      * 
      * @return IP-port pair
      */
     public static Pair<String, Short> parseServerIdentifier(String s) {
+        if(Transport.isLocal(s))
+            return new Pair<String, Short>(s, (short)0);
+        
         int indexOfColon = s.indexOf(':');
         
         String server;
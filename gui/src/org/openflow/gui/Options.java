@@ -20,9 +20,48 @@ public final class Options {
     /** whether to automatically request that link stats be periodically sent for all new links */
     public static final boolean AUTO_TRACK_STATS_FOR_NEW_LINK = true;
     
+    /**
+     * whether link stats are tracked by polling each switch for the stats of 
+     * all its ports (one request per switch) rather than polling aggregate 
+     * stats for each link (one request per link); only used if the backend 
+     * supports port stats (see Feature)
+     */
+    public static final boolean USE_PORT_STATS = true;
+    
+    /**
+     * whether each flow's packet and byte rates are tracked by polling the
+     * flow stats of the first switch on its path (the backend must set each
+     * flow entry's cookie to the ID of the flow it belongs to); only used if 
+     * the backend supports flow stats (see Feature)
+     */
+    public static final boolean USE_FLOW_STATS = true;
+    
+    /**
+     * whether to ask for the initial topology as a single compressed snapshot
+     * rather than as lists of nodes and links; only used if the backend 
+     * supports snapshots (see Feature)
+     */
+    public static final boolean REQUEST_TOPOLOGY_SNAPSHOT = true;
+    
+    /**
+     * whether connections to the backend are serviced by the shared 
+     * SelectorLoop (non-blocking I/O) rather than each by its own thread
+     */
+    public static final boolean USE_SHARED_SELECTOR_LOOP = false;
+    
+    /**
+     * whether messages from the backend are processed by a separate thread
+     * rather than by the thread which reads them (so slow processing does not
+     * stall reading)
+     */
+    public static final boolean USE_PIPELINED_PROCESSING = false;
+    
     /** how often to refresh basic port statistics */
     public static final int STATS_REFRESH_RATE_MSEC = 2000;
     
+    /** how often to probe the backend with an echo request to measure latency */
+    public static final int ECHO_PROBE_INTERVAL_MSEC = 5000;
+    
     /**
      * Whether links between nodes should be represented using one undirected
      * or two directed links.
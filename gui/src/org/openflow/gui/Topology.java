@@ -1,6 +1,10 @@
 package org.openflow.gui;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
@@ -12,9 +16,11 @@ import org.openflow.gui.drawables.Link.LinkExistsException;
 import org.openflow.gui.net.BackendConnection;
 import org.openflow.gui.net.protocol.LinkType;
 import org.openflow.gui.net.protocol.OFGMessage;
+import org.openflow.util.ConcurrentLongMap;
 import org.openflow.util.FlowHop;
 import org.openflow.util.Pair;
 import org.openflow.util.RefTrack;
+import org.pzgui.Drawable;
 import org.pzgui.PZManager;
 
 /**
@@ -26,11 +32,12 @@ import org.pzgui.PZManager;
 public class Topology {
     /** Construct a new, empty Topology. */
     public Topology(final PZManager manager) {
-        nodesMap = new ConcurrentHashMap<Long, NodeRefTrack>();
+        nodesMap = new ConcurrentLongMap<NodeRefTrack>();
         linksMap = new ConcurrentHashMap<Link, Boolean>();
         nodesList = new CopyOnWriteArrayList<Long>();
-        virtualNodes = new ConcurrentHashMap<Long, VirtualSwitchSpecification>();
+        virtualNodes = new ConcurrentLongMap<VirtualSwitchSpecification>();
         this.manager = manager;
+        events = new TopologyEventDispatcher(this);
     }
     
     
@@ -51,8 +58,8 @@ public class Topology {
      * The values are DrawableRefTrack objects which is simply a node 
      * and the list of connections which supply information about it.
      */
-    private static final ConcurrentHashMap<Long, NodeRefTrack> globalNodes;
-    static { globalNodes = new ConcurrentHashMap<Long, NodeRefTrack>(); }
+    private static final ConcurrentLongMap<NodeRefTrack> globalNodes;
+    static { globalNodes = new ConcurrentLongMap<NodeRefTrack>(); }
     
     /** 
      * A lock to prevent a race condition between remove old NodeRefTrack and
@@ -62,23 +69,19 @@ public class Topology {
     
     /**
      * A global list of all links in all topologies as keys (values of this map
-     * are reference counts) 
+     * are reference counts).  A link's count is only read and updated while 
+     * holding Link.getPairLock() for its endpoints, so links between 
+     * different nodes can be added and removed in parallel.
      */
     private static final ConcurrentHashMap<Link, Integer> globalLinks;
     static { globalLinks = new ConcurrentHashMap<Link, Integer>(); }
     
-    /** 
-     * A lock to prevent a race condition between remove old NodeRefTrack and
-     * adding new ones.  
-     */
-    private static final Object globalLinksWriterLock = new Object();
-    
     
     
     // ---------------- Node Tracking --------------- //
     
-    /** nodes in this topology */
-    private final ConcurrentHashMap<Long, NodeRefTrack> nodesMap;
+    /** nodes in this topology (keyed by datapath ID without boxing it) */
+    private final ConcurrentLongMap<NodeRefTrack> nodesMap;
     
     /** IDs of nodes in this topology */
     private final CopyOnWriteArrayList<Long> nodesList;
@@ -93,8 +96,9 @@ public class Topology {
      *           1 if the node was added (locally new, but not globally new)
      */
     public int addNode(BackendConnection<OFGMessage> owner, NodeWithPorts n) {
+        List<TopologyEvent> batch = events.newBatch();
         int ret = -1;
-        Long id = n.getID();
+        long id = n.getID();
         NodeRefTrack localR = nodesMap.get(id);
         if(localR == null) {
             synchronized(globalNodesWriterLock) {
@@ -113,50 +117,140 @@ public class Topology {
             
             nodesMap.put(id, new NodeRefTrack(n, owner));
             nodesList.add(id);
+            if(batch != null)
+                batch.add(TopologyEvent.forNode(TopologyEvent.Type.NODE_ADDED, n, owner));
         }
         else
             localR.addRef(owner);
         
+        events.publish(batch);
+        return ret;
+    }
+    
+    /**
+     * Adds a batch of nodes to this topology.  This is equivalent to calling
+     * addNode() on each node except that the global lock is only acquired
+     * once and the list of node IDs is only copied once.
+     * 
+     * @param owner  the connection which supplies information about the nodes 
+     * @param nodes  the nodes to add (null entries are skipped)
+     * @return  what addNode() would have returned for each node (-1 for null entries)
+     */
+    public int[] addAll(BackendConnection<OFGMessage> owner, NodeWithPorts[] nodes) {
+        int[] ret = new int[nodes.length];
+        List<TopologyEvent> batch = events.newBatch();
+        addNodes(owner, Arrays.asList(nodes), ret, batch);
+        events.publish(batch);
         return ret;
     }
     
+    /** 
+     * Adds nodes like addAll() but only notifies the manager once; stores what 
+     * addNode() would have returned for nodes[i] in ret[i].  Events are
+     * appended to batch unless it is null.
+     */
+    private void addNodes(BackendConnection<OFGMessage> owner, List<NodeWithPorts> nodes, int[] ret, List<TopologyEvent> batch) {
+        ArrayList<Long> newIDs = new ArrayList<Long>(nodes.size());
+        ArrayList<Drawable> newDrawables = new ArrayList<Drawable>(nodes.size());
+        synchronized(globalNodesWriterLock) {
+            for(int i=0; i<nodes.size(); i++) {
+                ret[i] = -1;
+                NodeWithPorts n = nodes.get(i);
+                if(n == null)
+                    continue;
+                
+                long id = n.getID();
+                NodeRefTrack localR = nodesMap.get(id);
+                if(localR != null) {
+                    localR.addRef(owner);
+                    continue;
+                }
+                
+                NodeRefTrack r = globalNodes.get(id);
+                if(r == null) {
+                    globalNodes.put(id, new NodeRefTrack(n, owner));
+                    getNodeDrawables(n, newDrawables);
+                    ret[i] = 0; // globally new
+                }
+                else {
+                    r.addRef(owner);
+                    n = r.obj; // use the existing node
+                    ret[i] = 1; // locally new but not globally new
+                }
+                
+                nodesMap.put(id, new NodeRefTrack(n, owner));
+                newIDs.add(id);
+                if(batch != null)
+                    batch.add(TopologyEvent.forNode(TopologyEvent.Type.NODE_ADDED, n, owner));
+            }
+            
+            if(!newDrawables.isEmpty())
+                manager.addDrawables(newDrawables);
+        }
+        
+        nodesList.addAll(newIDs);
+    }
+    
     /**
      * Gets the node with the specified ID, if any such node exists in this
      * topology.
      * 
      * @return the NodeWithPorts with the requested ID, or null if no such node exists
      */
-    public NodeWithPorts getNode(Long id) {
+    public NodeWithPorts getNode(long id) {
         NodeRefTrack r = nodesMap.get(id);
         return r==null ? null : r.obj;
     }
     
-    /** Gets the set of IDs currently in the topology */
+    /** Same as getNode(long). */
+    public NodeWithPorts getNode(Long id) {
+        return getNode(id.longValue());
+    }
+    
+    /** Gets the set of IDs currently in the topology (a snapshot) */
     public Set<Long> getNodeIDs() {
-        return nodesMap.keySet();
+        return toSet(nodesMap.keys());
     }
 
     /**
      * Gets whether this topology has a node with the specified ID.
      */
-    public boolean hasNode(Long id) {
+    public boolean hasNode(long id) {
         return getNode(id) != null;
     }
     
+    /** Same as hasNode(long). */
+    public boolean hasNode(Long id) {
+        return hasNode(id.longValue());
+    }
+    
     /**
      * Gets the node with the specified ID, if any such node exists in this
      * topology.
      * 
      * @return the NodeWithPorts with the requested ID, or null if no such node exists
      */
-    public static NodeWithPorts globalGetNode(Long id) {
+    public static NodeWithPorts globalGetNode(long id) {
         NodeRefTrack r = globalNodes.get(id);
         return r==null ? null : r.obj;
     }
     
-    /** Gets the set of IDs from all nodes in all topologies */
+    /** Same as globalGetNode(long). */
+    public static NodeWithPorts globalGetNode(Long id) {
+        return globalGetNode(id.longValue());
+    }
+    
+    /** Gets the set of IDs from all nodes in all topologies (a snapshot) */
     public Set<Long> globalGetNodeIDs() {
-        return globalNodes.keySet();
+        return toSet(globalNodes.keys());
+    }
+    
+    /** returns the IDs in ids as a set */
+    private static Set<Long> toSet(long[] ids) {
+        HashSet<Long> ret = new HashSet<Long>(ids.length * 2);
+        for(long id : ids)
+            ret.add(id);
+        return ret;
     }
     
     /**
@@ -168,20 +262,18 @@ public class Topology {
      */
     public void removeAll(BackendConnection<OFGMessage> owner) {
         // remove all nodes, links, and flows associated with this topology
-        
-        // remove links first
+        ChangeSet cs = new ChangeSet();
         for(Link l : linksMap.keySet())
-            disconnectLink(owner,
-                           l.getDestination().getID(), l.getMyPort(l.getDestination()),
-                           l.getSource().getID(),      l.getMyPort(l.getSource()));
+            cs.removeLink(l.getDestination().getID(), l.getMyPort(l.getDestination()),
+                          l.getSource().getID(),      l.getMyPort(l.getSource()));
         
-        // next remove nodes
         for(Long d : nodesList)
-            removeNode(owner, d);
+            cs.removeNode(d);
         
-        // finally remove flows
         for(int id : flowsMap.keySet())
-            removeFlowByID(id);
+            cs.removeFlow(id);
+        
+        apply(owner, cs);
     }
     
     /**
@@ -196,42 +288,78 @@ public class Topology {
      *          1 if it has been removed from this topology (but still exists globally)
      *          2 if it has been removed from all topologies
      */
-    public int removeNode(BackendConnection<OFGMessage> owner, Long id) {
-        // determine whether this is the last reference and remove it safely if so
-        NodeRefTrack localR = nodesMap.get(id);
-        if(localR == null)
-            return -1; // not in this topology
-        
-        // remove it from this topology
-        int ret = 0; // remains in local topologies (others refer to it)
-        if(localR.removeRef(owner)) {
-            nodesList.remove(id);
-            nodesMap.remove(id);
-            ret = 1; // no referants remain in the local topology
+    public int removeNode(BackendConnection<OFGMessage> owner, long id) {
+        int[] ret = new int[1];
+        List<TopologyEvent> batch = events.newBatch();
+        removeNodes(owner, new long[]{id}, 1, ret, batch);
+        events.publish(batch);
+        return ret[0];
+    }
+    
+    /**
+     * Removes nodes like removeNode() but only notifies the manager once; 
+     * stores what removeNode() would have returned for ids[i] in ret[i].
+     * Events are appended to batch unless it is null.
+     */
+    private void removeNodes(BackendConnection<OFGMessage> owner, long[] ids, int numIDs, int[] ret, List<TopologyEvent> batch) {
+        // remove them from this topology
+        NodeRefTrack[] locals = new NodeRefTrack[numIDs];
+        ArrayList<Long> removedIDs = new ArrayList<Long>(numIDs);
+        for(int i=0; i<numIDs; i++) {
+            locals[i] = nodesMap.get(ids[i]);
+            if(locals[i] == null) {
+                ret[i] = -1; // not in this topology
+                continue;
+            }
+            
+            ret[i] = 0; // remains in local topologies (others refer to it)
+            if(locals[i].removeRef(owner)) {
+                removedIDs.add(ids[i]);
+                nodesMap.remove(ids[i]);
+                ret[i] = 1; // no referants remain in the local topology
+            }
         }
+        if(removedIDs.size() == 1)
+            nodesList.remove(removedIDs.get(0));
+        else if(!removedIDs.isEmpty())
+            nodesList.removeAll(removedIDs);
         
-        // remove the reference from the global topology list too
+        // remove the references from the global topology list too
+        ArrayList<Drawable> oldDrawables = new ArrayList<Drawable>();
         synchronized(globalNodesWriterLock) {
-            NodeRefTrack r = globalNodes.get(id);
-            if(r.removeRef(owner)) {
-                globalNodes.remove(id);
-                removeNodeFromManager(localR.obj);
+            for(int i=0; i<numIDs; i++) {
+                if(locals[i] == null)
+                    continue;
                 
-                // disconnect all links associated with the switch too
-                for(Link l : r.obj.getLinks()) {
-                    try {
-                        l.disconnect(owner);
-                    } 
-                    catch(IOException e) {
-                        // ignore: connection down => polling messages cleared on the backend already
+                NodeRefTrack r = globalNodes.get(ids[i]);
+                if(r.removeRef(owner)) {
+                    globalNodes.remove(ids[i]);
+                    getNodeDrawables(locals[i].obj, oldDrawables);
+                    
+                    // disconnect all links associated with the switch too
+                    for(Link l : r.obj.getLinks()) {
+                        try {
+                            l.disconnect(owner);
+                        } 
+                        catch(IOException e) {
+                            // ignore: connection down => polling messages cleared on the backend already
+                        }
                     }
+                    
+                    ret[i] = 2; // removed from all topologies
                 }
-                
-                return 2; // removed from all topologies
             }
-            else
-                return ret;
+            
+            if(oldDrawables.size() == 1)
+                manager.removeDrawable(oldDrawables.get(0)); // cheaper than rebuilding the manager's list
+            else if(!oldDrawables.isEmpty())
+                manager.removeDrawables(oldDrawables);
         }
+        
+        if(batch != null)
+            for(int i=0; i<numIDs; i++)
+                if(ret[i] > 0)
+                    batch.add(TopologyEvent.forNode(TopologyEvent.Type.NODE_REMOVED, locals[i].obj, owner));
     }
     
     
@@ -241,6 +369,14 @@ public class Topology {
     private final ConcurrentHashMap<Link, Boolean> linksMap;
     
     public Link addLink(LinkType linkType, NodeWithPorts dst, short dstPort, NodeWithPorts src, short srcPort) {
+        List<TopologyEvent> batch = events.newBatch();
+        Link l = addLink(null, linkType, dst, dstPort, src, srcPort, batch);
+        events.publish(batch);
+        return l;
+    }
+    
+    /** adds a link like addLink() on behalf of owner and appends the resulting event to batch (unless it is null) */
+    private Link addLink(BackendConnection<OFGMessage> owner, LinkType linkType, NodeWithPorts dst, short dstPort, NodeWithPorts src, short srcPort, List<TopologyEvent> batch) {
         VirtualSwitchSpecification vDst = virtualNodes.get(dst.getID());
         if(vDst != null) {
             dst = vDst.getVirtualSwitchByPort(dstPort);
@@ -256,26 +392,26 @@ public class Topology {
         }
         
         Link l;
-        try {
-            l = new Link(linkType, dst, dstPort, src, srcPort);
-            
-            // no exception, so the link must be new: add it to the global list
-            synchronized(globalLinksWriterLock) {
-                globalLinks.put(l, 1);
+        boolean added;
+        synchronized(Link.getPairLock(dst, src)) {
+            try {
+                l = new Link(linkType, dst, dstPort, src, srcPort);
+            }
+            catch(LinkExistsException e) {
+                l = e.getPreExistingLink();
             }
-        }
-        catch(LinkExistsException e) {
-            l = e.getPreExistingLink();
             
-            // increment the reference count (one more ref to this link)
-            int count = globalLinks.get(l);
-            synchronized(globalLinksWriterLock) {
-                globalLinks.put(l, count + 1);
+            // track that the link is in this local topology; each topology 
+            // which has the link holds one reference to it
+            added = (linksMap.put(l, Boolean.TRUE) == null);
+            if(added) {
+                Integer count = globalLinks.get(l);
+                globalLinks.put(l, (count == null) ? 1 : count + 1);
             }
         }
         
-        // track that the link is in this local topology
-        linksMap.put(l, Boolean.TRUE);
+        if(added && batch != null)
+            batch.add(TopologyEvent.forLink(TopologyEvent.Type.LINK_ADDED, l, owner));
         
         return l;
     }
@@ -286,10 +422,21 @@ public class Topology {
      * @return   0 on success
      *          -1 if the source node does not exist
      *          -2 if the destination node does not exist
-     *          -3 if the nodes are found but the link does not exist
+     *          -3 if the nodes are found but the link does not exist (or 
+     *             is not in this topology)
      */
     public int disconnectLink(BackendConnection<OFGMessage> conn,
                               long dstDPID, short dstPort, long srcDPID, short srcPort) {
+        List<TopologyEvent> batch = events.newBatch();
+        int ret = disconnectLink(conn, dstDPID, dstPort, srcDPID, srcPort, batch);
+        events.publish(batch);
+        return ret;
+    }
+    
+    /** removes a link like disconnectLink() and appends the resulting event to batch (unless it is null) */
+    private int disconnectLink(BackendConnection<OFGMessage> conn,
+                               long dstDPID, short dstPort, long srcDPID, short srcPort,
+                               List<TopologyEvent> batch) {
         NodeWithPorts srcNode = getNode(srcDPID);
         if(srcNode == null)
             return -1; // missing src node
@@ -298,31 +445,41 @@ public class Topology {
         if(dstNode == null)
             return -2; // missing dst node
         
-        Link existingLink = dstNode.getLinkTo(dstPort, srcNode, srcPort);
-        if(existingLink != null) {
-            int count = globalLinks.get(existingLink);
-            count -= 1;  // subtract the link being removed from the count 
-            synchronized(globalLinksWriterLock) {
-                if(count == 0)
-                    globalLinks.remove(existingLink);
-                else
-                    globalLinks.put(existingLink, count);
-            }
+        Link existingLink;
+        int count;
+        synchronized(Link.getPairLock(dstNode, srcNode)) {
+            // look it up the way addLink() found it (a link and its reverse 
+            // may share the same ports when links are directed)
+            existingLink = srcNode.getDirectedLinkTo(srcPort, dstNode, dstPort, true);
+            if(existingLink == null)
+                return -3;
             
-            linksMap.remove(existingLink);
+            // only release this topology's reference if it actually has one
+            if(linksMap.remove(existingLink) == null)
+                return -3;
             
-            try {
-                if(count == 0)
+            // subtract the link being removed from the count 
+            Integer c = globalLinks.get(existingLink);
+            count = (c == null) ? 0 : c - 1;
+            if(count <= 0) {
+                globalLinks.remove(existingLink);
+                
+                // detach it while still holding the lock so a concurrent add
+                // of the same link creates a new one rather than reusing it
+                try {
                     existingLink.disconnect(conn);
-            } 
-            catch(IOException e) {
-                // ignore: connection down => polling messages cleared on the backend already
+                } 
+                catch(IOException e) {
+                    // ignore: connection down => polling messages cleared on the backend already
+                }
             }
-            
-            return 0;
+            else
+                globalLinks.put(existingLink, count);
         }
-        else
-            return -3;
+        
+        if(batch != null)
+            batch.add(TopologyEvent.forLink(TopologyEvent.Type.LINK_REMOVED, existingLink, conn));
+        return 0;
     }
     
     /**
@@ -350,6 +507,18 @@ public class Topology {
         }
     }
     
+    /** Appends the drawables which represent s (its virtualized switches if it is virtualized) to out. */
+    private void getNodeDrawables(NodeWithPorts s, List<Drawable> out) {
+        VirtualSwitchSpecification v = virtualNodes.get(s.getID());
+        if(v == null) {
+            out.add(s);
+        }
+        else {
+            for(int i=0; i<v.getNumVirtualSwitches(); i++)
+                out.add(v.getVirtualSwitch(i).v);
+        }
+    }
+    
     /** Tells the manager to stop drawing a node (or its virtualized switches if it is virtualized). */
     private void removeNodeFromManager(NodeWithPorts s) {
         VirtualSwitchSpecification v = virtualNodes.get(s.getID());
@@ -366,7 +535,7 @@ public class Topology {
     //  Gfx Virtualization  (draw many nodes as one)  //
     
     /** list of switches which should be displayed as one or more virtual switches */
-    private final ConcurrentHashMap<Long, VirtualSwitchSpecification> virtualNodes;
+    private final ConcurrentLongMap<VirtualSwitchSpecification> virtualNodes;
     
     /** add a new display virtualization scheme for a node */
     public void addVirtualizedDisplay(VirtualSwitchSpecification v) {
@@ -375,8 +544,10 @@ public class Topology {
             removeNodeFromManager(r.obj);
         
         virtualNodes.put(v.getParentDPID(), v);
-        if(r != null)
+        if(r != null) {
             addNodeToManager(r.obj);
+            publishNodeUpdated(r.obj);
+        }
     }
     
     /** remove an existing display virtualization scheme for a node; returns true if such a scheme existed */
@@ -385,7 +556,19 @@ public class Topology {
         if(r != null)
             removeNodeFromManager(r.obj);
         
-        return virtualNodes.remove(dpid) != null;
+        boolean ret = virtualNodes.remove(dpid) != null;
+        if(r != null)
+            publishNodeUpdated(r.obj);
+        return ret;
+    }
+    
+    /** tells listeners that how n is displayed has changed */
+    private void publishNodeUpdated(NodeWithPorts n) {
+        List<TopologyEvent> batch = events.newBatch();
+        if(batch != null) {
+            batch.add(TopologyEvent.forNode(TopologyEvent.Type.NODE_UPDATED, n, null));
+            events.publish(batch);
+        }
     }
 
     
@@ -394,6 +577,18 @@ public class Topology {
     
     /** add a flow to the topology */
     public void addFlow(Flow newFlow) {
+        trackFlow(newFlow);
+        manager.addDrawable(newFlow);
+        
+        List<TopologyEvent> batch = events.newBatch();
+        if(batch != null) {
+            batch.add(TopologyEvent.forFlow(TopologyEvent.Type.FLOW_ADDED, newFlow, null));
+            events.publish(batch);
+        }
+    }
+    
+    /** adds a flow to flowsMap (but does not tell the manager to draw it) */
+    private void trackFlow(Flow newFlow) {
         Flow[] flows = flowsMap.get(newFlow.getID());
         if(flows == null)
             flowsMap.put(newFlow.getID(), new Flow[]{newFlow});
@@ -413,7 +608,6 @@ public class Topology {
                 }
             }
         }
-        manager.addDrawable(newFlow);
     }
     
     /**
@@ -441,8 +635,123 @@ public class Topology {
     /** remove a flow from the topology */
     public void removeFlowByID(int id) {
         Flow[] flows = flowsMap.remove(id);
-        if(flows != null)
-            for(Flow f : flows)
-                manager.removeDrawable(f);
+        if(flows == null)
+            return;
+        
+        List<TopologyEvent> batch = events.newBatch();
+        for(Flow f : flows) {
+            manager.removeDrawable(f);
+            if(batch != null)
+                batch.add(TopologyEvent.forFlow(TopologyEvent.Type.FLOW_REMOVED, f, null));
+        }
+        events.publish(batch);
+    }
+    
+    
+    // --------------- Batched Changes -------------- //
+    
+    /**
+     * Applies a batch of changes to this topology.  This is equivalent to 
+     * making each change individually (in the order described by ChangeSet)
+     * except that the global node lock is acquired once for all node adds and
+     * once for all node removes, and the manager is notified once for each 
+     * kind of change rather than once per node or flow.  Listeners are told
+     * about all of the changes as one batch.
+     * 
+     * @param owner  the connection which supplies information about the changes
+     * @param cs     the changes to apply (the result of each is stored in cs)
+     */
+    public void apply(BackendConnection<OFGMessage> owner, ChangeSet cs) {
+        if(cs.isApplied())
+            throw new IllegalStateException("this change set has already been applied");
+        
+        List<TopologyEvent> batch = events.newBatch();
+        int[] nodeAddResults = new int[cs.nodeAdds.size()];
+        if(!cs.nodeAdds.isEmpty())
+            addNodes(owner, cs.nodeAdds, nodeAddResults, batch);
+        
+        Link[] linkAddResults = new Link[cs.linkAdds.size()];
+        for(int i=0; i<linkAddResults.length; i++) {
+            ChangeSet.LinkAdd a = cs.linkAdds.get(i);
+            linkAddResults[i] = addLink(owner, a.type, inTopology(a.dst), a.dstPort, inTopology(a.src), a.srcPort, batch);
+        }
+        
+        if(!cs.flowAdds.isEmpty()) {
+            for(Flow f : cs.flowAdds) {
+                trackFlow(f);
+                if(batch != null)
+                    batch.add(TopologyEvent.forFlow(TopologyEvent.Type.FLOW_ADDED, f, owner));
+            }
+            manager.addDrawables(cs.flowAdds);
+        }
+        
+        if(cs.numFlowRemoves > 0) {
+            ArrayList<Drawable> oldFlows = new ArrayList<Drawable>();
+            for(int i=0; i<cs.numFlowRemoves; i++) {
+                Flow[] flows = flowsMap.remove(cs.flowRemoves[i]);
+                if(flows == null)
+                    continue;
+                
+                for(Flow f : flows) {
+                    oldFlows.add(f);
+                    if(batch != null)
+                        batch.add(TopologyEvent.forFlow(TopologyEvent.Type.FLOW_REMOVED, f, owner));
+                }
+            }
+            if(!oldFlows.isEmpty())
+                manager.removeDrawables(oldFlows);
+        }
+        
+        int[] linkRemoveResults = new int[cs.linkRemoves.size()];
+        for(int i=0; i<linkRemoveResults.length; i++) {
+            ChangeSet.LinkRemove r = cs.linkRemoves.get(i);
+            linkRemoveResults[i] = disconnectLink(owner, r.dstID, r.dstPort, r.srcID, r.srcPort, batch);
+        }
+        
+        int[] nodeRemoveResults = new int[cs.numNodeRemoves];
+        if(cs.numNodeRemoves > 0)
+            removeNodes(owner, cs.nodeRemoves, cs.numNodeRemoves, nodeRemoveResults, batch);
+        
+        cs.linkAddResults = linkAddResults;
+        cs.linkRemoveResults = linkRemoveResults;
+        cs.nodeRemoveResults = nodeRemoveResults;
+        cs.nodeAddResults = nodeAddResults; // marks cs as applied
+        events.publish(batch);
+    }
+    
+    
+    /** returns the node in this topology with n's ID, or n if there is no such node */
+    private NodeWithPorts inTopology(NodeWithPorts n) {
+        NodeWithPorts ret = getNode(n.getID());
+        return (ret == null) ? n : ret;
+    }
+    
+    
+    // ---------------- Change Events --------------- //
+    
+    /** delivers change events to listeners */
+    private final TopologyEventDispatcher events;
+    
+    /** 
+     * Tells l about each subsequent batch of changes to this topology.  It is
+     * called on this topology's event thread rather than the thread which
+     * made the change.
+     */
+    public void addTopologyListener(TopologyListener l) {
+        events.addListener(l);
+    }
+    
+    /** Stops telling l about changes; returns true if l was listening. */
+    public boolean removeTopologyListener(TopologyListener l) {
+        return events.removeListener(l);
+    }
+    
+    /** 
+     * Stops telling listeners about changes and stops this topology's event
+     * thread.  Call it once the topology is no longer used; listeners may not
+     * be added afterward.
+     */
+    public void shutdownEvents() {
+        events.shutdown();
     }
 }
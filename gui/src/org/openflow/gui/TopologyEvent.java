@@ -0,0 +1,82 @@
+package org.openflow.gui;
+
+import org.openflow.gui.drawables.Flow;
+import org.openflow.gui.drawables.Link;
+import org.openflow.gui.drawables.NodeWithPorts;
+import org.openflow.gui.net.BackendConnection;
+import org.openflow.gui.net.protocol.OFGMessage;
+
+/**
+ * Describes one change to a Topology.  Exactly one of node, link, and flow is
+ * set, depending on what kind of object changed.
+ *
+ * @author David Underhill
+ */
+public class TopologyEvent {
+    /** what happened */
+    public enum Type {
+        /** a node was added to the topology */
+        NODE_ADDED,
+
+        /** a node was removed from the topology */
+        NODE_REMOVED,
+
+        /** how a node is displayed changed (e.g., it was display virtualized) */
+        NODE_UPDATED,
+
+        /** a link was added to the topology */
+        LINK_ADDED,
+
+        /** a link was removed from the topology */
+        LINK_REMOVED,
+
+        /** a flow was added to the topology */
+        FLOW_ADDED,
+
+        /** a flow was removed from the topology */
+        FLOW_REMOVED
+    }
+
+    /** what happened */
+    public final Type type;
+
+    /** the node which changed, if any */
+    public final NodeWithPorts node;
+
+    /** the link which changed, if any */
+    public final Link link;
+
+    /** the flow which changed, if any */
+    public final Flow flow;
+
+    /** the connection the change was made for (null if it was not made for one) */
+    public final BackendConnection<OFGMessage> owner;
+
+    private TopologyEvent(Type type, NodeWithPorts node, Link link, Flow flow, BackendConnection<OFGMessage> owner) {
+        this.type = type;
+        this.node = node;
+        this.link = link;
+        this.flow = flow;
+        this.owner = owner;
+    }
+
+    /** Creates a NODE_* event. */
+    public static TopologyEvent forNode(Type type, NodeWithPorts n, BackendConnection<OFGMessage> owner) {
+        return new TopologyEvent(type, n, null, null, owner);
+    }
+
+    /** Creates a LINK_* event. */
+    public static TopologyEvent forLink(Type type, Link l, BackendConnection<OFGMessage> owner) {
+        return new TopologyEvent(type, null, l, null, owner);
+    }
+
+    /** Creates a FLOW_* event. */
+    public static TopologyEvent forFlow(Type type, Flow f, BackendConnection<OFGMessage> owner) {
+        return new TopologyEvent(type, null, null, f, owner);
+    }
+
+    public String toString() {
+        Object o = (node != null) ? node : ((link != null) ? link : flow);
+        return type + ":" + o;
+    }
+}
@@ -0,0 +1,123 @@
+package org.openflow.gui;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Delivers batches of TopologyEvents to a topology's listeners on its own
+ * thread so that the threads which change the topology never wait on them.
+ * The thread is started when the first listener is added and stops when the
+ * dispatcher is shut down.  If the listeners fall more than 
+ * MAX_PENDING_BATCHES batches behind, the queued batches are merged into one
+ * (so listeners then get fewer, larger batches).
+ *
+ * @author David Underhill
+ */
+class TopologyEventDispatcher {
+    /** most batches which are queued separately for delivery */
+    static final int MAX_PENDING_BATCHES = 1024;
+
+    /** the topology whose events are delivered */
+    private final Topology topology;
+
+    /** listeners to tell about changes */
+    private final CopyOnWriteArrayList<TopologyListener> listeners = new CopyOnWriteArrayList<TopologyListener>();
+
+    /** batches which have not been delivered yet */
+    private final LinkedBlockingQueue<List<TopologyEvent>> pending = new LinkedBlockingQueue<List<TopologyEvent>>(MAX_PENDING_BATCHES);
+
+    /** delivers batches to the listeners (null until the first listener is added) */
+    private Thread dispatcher = null;
+
+    /** whether events are no longer delivered */
+    private volatile boolean shutdown = false;
+
+    TopologyEventDispatcher(Topology topology) {
+        this.topology = topology;
+    }
+
+    synchronized void addListener(TopologyListener l) {
+        if(shutdown)
+            throw new IllegalStateException("topology events have been shut down");
+
+        listeners.add(l);
+        if(dispatcher == null) {
+            dispatcher = new Thread("TopologyEvents") {
+                public void run() {
+                    dispatch();
+                }
+            };
+            dispatcher.setDaemon(true);
+            dispatcher.start();
+        }
+    }
+
+    boolean removeListener(TopologyListener l) {
+        return listeners.remove(l);
+    }
+
+    /**
+     * Returns a list to collect the events of a new batch in, or null if
+     * there are no listeners (so the events need not be created at all).
+     */
+    List<TopologyEvent> newBatch() {
+        return listeners.isEmpty() ? null : new ArrayList<TopologyEvent>();
+    }
+
+    /** queues a batch from newBatch() for delivery (null and empty batches are ignored) */
+    synchronized void publish(List<TopologyEvent> batch) {
+        if(batch == null || batch.isEmpty() || shutdown)
+            return;
+
+        if(pending.offer(Collections.unmodifiableList(batch)))
+            return;
+
+        // the listeners are behind: merge everything queued (in order) into one batch
+        ArrayList<List<TopologyEvent>> queued = new ArrayList<List<TopologyEvent>>(MAX_PENDING_BATCHES);
+        pending.drainTo(queued);
+        ArrayList<TopologyEvent> merged = new ArrayList<TopologyEvent>();
+        for(List<TopologyEvent> q : queued)
+            merged.addAll(q);
+        merged.addAll(batch);
+        pending.add(Collections.unmodifiableList(merged));
+    }
+
+    /**
+     * Stops delivering events for good: listeners are dropped, queued batches
+     * are discarded, and the dispatch thread exits (after the batch it is 
+     * delivering, if any).
+     */
+    synchronized void shutdown() {
+        shutdown = true;
+        listeners.clear();
+        pending.clear();
+        if(dispatcher != null) {
+            dispatcher.interrupt();
+            dispatcher = null;
+        }
+    }
+
+    /** delivers queued batches to the listeners until interrupted */
+    private void dispatch() {
+        try {
+            while(!shutdown) {
+                List<TopologyEvent> batch = pending.take();
+                for(TopologyListener l : listeners) {
+                    try {
+                        l.topologyChanged(topology, batch);
+                    }
+                    catch(RuntimeException e) {
+                        System.err.println("Warning: topology listener " + l + " failed: " + e);
+                        e.printStackTrace();
+                    }
+                }
+            }
+        }
+        catch(InterruptedException e) {
+            // exit
+        }
+    }
+}
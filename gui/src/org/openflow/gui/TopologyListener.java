@@ -0,0 +1,20 @@
+package org.openflow.gui;
+
+import java.util.List;
+
+/**
+ * Is told about changes to a Topology.  Listeners are called on the
+ * topology's event thread (never on a network thread), one batch at a time,
+ * in the order the batches were published.  Batches made concurrently by
+ * different connections may be published in either order.
+ *
+ * @author David Underhill
+ */
+public interface TopologyListener {
+    /**
+     * Called once for each batch of changes made to t.  A batch holds the
+     * changes from one ChangeSet (or from one single-item method call like
+     * Topology.addNode()).
+     */
+    public void topologyChanged(Topology t, List<TopologyEvent> batch);
+}
@@ -41,7 +41,7 @@ public class DSClient extends BackendConnection<DSMessage>
      * disconnecting. 
      */
     public void connectionStateChange(boolean connected) {
-        String suffix = "to the DisplayShare server at " + getServerAddr() + ":" + getServerPort();
+        String suffix = "to the DisplayShare server at " + getServerName();
         if(connected) {
             System.out.println("now connected " + suffix);
             try {
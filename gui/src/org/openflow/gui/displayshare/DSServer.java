@@ -8,6 +8,7 @@ import java.net.Socket;
 import org.openflow.gui.displayshare.protocol.DSFrame;
 import org.openflow.gui.displayshare.protocol.DSParams;
 import org.openflow.gui.net.CountingDataInputStream;
+import org.openflow.gui.net.MessageLength;
 import org.pzgui.PZManager;
 import org.pzgui.PZWindow;
 import org.pzgui.math.Vector2i;
@@ -110,7 +111,7 @@ public class DSServer extends PZWindow {
         private DSParams readParams() {
             try {
                 final CountingDataInputStream in = new CountingDataInputStream(s.getInputStream());
-                in.readShort(); // ignore the length field
+                MessageLength.read(in); // ignore the length field
                 in.readByte(); // ignore the type field
                 return new DSParams(in);
             } catch(IOException e) {
@@ -19,7 +19,7 @@ public abstract class DSMessage implements org.openflow.gui.net.Message<DSMessag
     
     /** sends the message over the specified output stream */
     public void write(DataOutput out) throws IOException {
-        out.writeShort(length());
+        org.openflow.gui.net.MessageLength.write(out, length());
         out.writeByte(getType().getTypeID());
     }
     
@@ -0,0 +1,19 @@
+package org.openflow.gui.displayshare.protocol;
+
+import java.io.DataInput;
+import java.io.IOException;
+
+/**
+ * Decodes the body of one type of DisplayShare message.  Decoders are 
+ * registered with DSMessageType.registerDecoder().
+ * 
+ * @author David Underhill
+ */
+public interface DSMessageDecoder {
+    /**
+     * Constructs the object representing a received message of type t.  The
+     * message is known to be of length len.  Its header (length and type) has
+     * been read, but the remainder is still on in.
+     */
+    public DSMessage decode(int len, DSMessageType t, DataInput in) throws IOException;
+}
@@ -3,6 +3,8 @@ package org.openflow.gui.displayshare.protocol;
 import java.io.DataInput;
 import java.io.IOException;
 
+import org.openflow.gui.net.CodecRegistry;
+
 /**
  * Enumerates what types of messages are in the DisplayShare protocol.
  * 
@@ -29,13 +31,38 @@ public enum DSMessageType {
         return typeID;
     }
 
-    /** Returns the OFGMessageType constant associated with typeID, if any */
-    public static DSMessageType typeValToMessageType(byte typeID) {
-        for(DSMessageType t : DSMessageType.values())
-            if(t.getTypeID() == typeID)
-                return t;
+    /** maps each type ID to its type and decoder */
+    private static final CodecRegistry<DSMessageType, DSMessageDecoder> CODECS = new CodecRegistry<DSMessageType, DSMessageDecoder>();
+    
+    static {
+        registerDecoder(PARAMS, new DSMessageDecoder() {
+            public DSMessage decode(int len, DSMessageType t, DataInput in) throws IOException {
+                return new DSParams(in);
+            }
+        });
+        registerDecoder(FRAME, new DSMessageDecoder() {
+            public DSMessage decode(int len, DSMessageType t, DataInput in) throws IOException {
+                return new DSFrame(len, in);
+            }
+        });
+    }
+    
+    /** 
+     * Sets the decoder used for received messages of type t.  A new message 
+     * type still needs its own constant in this enum.
+     */
+    public static void registerDecoder(DSMessageType t, DSMessageDecoder d) {
+        CODECS.register(t.typeID, t, d);
+    }
+    
+    /** Returns the registry of decoders (and their statistics). */
+    public static CodecRegistry<DSMessageType, DSMessageDecoder> getCodecRegistry() {
+        return CODECS;
+    }
 
-        return null;
+    /** Returns the DSMessageType constant associated with typeID, if any */
+    public static DSMessageType typeValToMessageType(byte typeID) {
+        return CODECS.getType(typeID);
     }
     
     /** 
@@ -46,30 +73,22 @@ public enum DSMessageType {
     public static DSMessage decode(int len, DataInput in) throws IOException {
         // parse the message header (except length which was already done)
         byte typeByte = in.readByte();
-        DSMessageType t = DSMessageType.typeValToMessageType(typeByte);
-        if(t == null)
+        CodecRegistry.Entry<DSMessageType, DSMessageDecoder> e = CODECS.get(typeByte);
+        if(e == null)
             throw new IOException("Unknown type ID: " + typeByte);
+        if(e.codec == null) {
+            e.failed();
+            throw new IOException("Unhandled type received: " + e.type.toString() + " (len=" + len + "B)");
+        }
         
-        DSMessage msg = decode(len, t, in);
-        return msg;
-    }
-     
-    /** 
-     * Constructs the object representing the received message.  The message is 
-     * known to be of length len.  The header of the message (length and type)
-     * have been read, but the remainder is still on the input stream.
-     */
-    private static DSMessage decode(int len, DSMessageType t, DataInput in) throws IOException {
-        // parse the rest of the message
-        switch(t) {
-            case PARAMS:
-                return new DSParams(in);
-            
-            case FRAME:
-                return new DSFrame(len, in);
-
-            default:
-                throw new IOException("Unhandled type received: " + t.toString() + " (len=" + len + "B)");
+        try {
+            DSMessage msg = e.codec.decode(len, e.type, in);
+            e.decoded(len);
+            return msg;
+        }
+        catch(IOException ex) {
+            e.failed();
+            throw ex;
         }
     }
 }
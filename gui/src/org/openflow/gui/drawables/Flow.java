@@ -8,6 +8,8 @@ import java.util.LinkedList;
 import java.util.Vector;
 
 import org.openflow.gui.net.protocol.FlowType;
+import org.openflow.gui.stats.PortStatsRates;
+import org.openflow.protocol.Match;
 import org.openflow.util.FlowHop;
 import org.openflow.util.Pair;
 import org.pzgui.AbstractDrawable;
@@ -45,6 +47,16 @@ public class Flow extends AbstractDrawable {
         this.type = type;
         this.flowID = flowID;
         this.path = path;
+        
+        // the flow's stats come from the first switch along its path
+        NodeWithPorts sw = null;
+        for(FlowHop h : path) {
+            if(h != null && h.node instanceof OpenFlowSwitch) {
+                sw = h.node;
+                break;
+            }
+        }
+        statsSwitch = sw;
     }
     
     /** Gets the type of this flow */
@@ -62,7 +74,54 @@ public class Flow extends AbstractDrawable {
         return path;
     }
     
-    /** whether a flow contains a particular segment */
+    /** the switch whose flow stats this flow's rates are computed from, if any */
+    private final NodeWithPorts statsSwitch;
+    
+    /** the packet and bit rates of this flow */
+    private final PortStatsRates stats = new PortStatsRates(Match.MATCH_ALL);
+    
+    /** whether counters have been received for this flow */
+    private boolean hasBaseline = false;
+    
+    /** whether rates have been computed for this flow */
+    private boolean hasStats = false;
+    
+    /** 
+     * Gets the switch whose flow stats this flow's rates are computed from, or
+     * null if the flow does not traverse a switch.
+     */
+    public NodeWithPorts getStatsSwitch() {
+        return statsSwitch;
+    }
+    
+    /** Gets the packet and bit rates of this flow */
+    public PortStatsRates getStats() {
+        return stats;
+    }
+    
+    /** Returns true if rates have been computed for this flow */
+    public boolean hasStats() {
+        return hasStats;
+    }
+    
+    /**
+     * Updates this flow's rates with the counters of its flow entry on switch
+     * dpid.  Counters from switches other than getStatsSwitch() are ignored.
+     */
+    public void updateStats(long dpid, long packetCount, long byteCount, long when) {
+        if(statsSwitch == null || statsSwitch.getID() != dpid)
+            return;
+        
+        // the first update only establishes a baseline for the rates
+        if(!hasBaseline) {
+            stats.reset(packetCount, byteCount, 0, when);
+            hasBaseline = true;
+        }
+        else {
+            stats.update(packetCount, byteCount, 0, when);
+            hasStats = true;
+        }
+    }
     
     /** whether to draw a given segment */
     private boolean shouldDrawSegment(FlowHop from, FlowHop to) {
@@ -111,6 +170,25 @@ public class Flow extends AbstractDrawable {
     /** how much to offset the points per second */
     private static final double MOVING_AMOUNT_PER_SEC = POINT_SIZE;
     
+    /** rate at which a flow with rates moves MOVING_AMOUNT_PER_SEC */
+    public static final double REFERENCE_BITS_PER_SEC = 10 * 1000 * 1000;
+    
+    /** bounds on how much a flow's rate may speed up or slow down its animation */
+    private static final double MIN_SPEEDUP = 0.25, MAX_SPEEDUP = 8.0;
+    
+    /** 
+     * Gets how much to offset the points per second: MOVING_AMOUNT_PER_SEC 
+     * scaled by the flow's rate relative to REFERENCE_BITS_PER_SEC (once its
+     * rate is known).
+     */
+    public double getMovingAmountPerSec() {
+        if(!hasStats)
+            return MOVING_AMOUNT_PER_SEC;
+        
+        double speedup = stats.getBitsPerSec() / REFERENCE_BITS_PER_SEC;
+        return MOVING_AMOUNT_PER_SEC * Math.max(MIN_SPEEDUP, Math.min(MAX_SPEEDUP, speedup));
+    }
+    
     /** offset due to the current animation, if any */
     private double movingOffset = 0.0;
     
@@ -131,7 +209,7 @@ public class Flow extends AbstractDrawable {
                 
         // determine the offset to make the line appear to be moving
         if(ANIMATE) {
-            movingOffset += Flow.MOVING_AMOUNT_PER_SEC * ((System.currentTimeMillis() - lastRedraw) / 1000.0);
+            movingOffset += getMovingAmountPerSec() * ((System.currentTimeMillis() - lastRedraw) / 1000.0);
             movingOffset %= (getPointSize() + GAP_BETWEEN_POINTS);
             lastRedraw = System.currentTimeMillis();
         }
@@ -24,12 +24,16 @@ import java.util.concurrent.ConcurrentHashMap;
 import org.openflow.gui.Options;
 import org.openflow.gui.net.BackendConnection;
 import org.openflow.gui.net.protocol.LinkType;
+import org.openflow.gui.net.protocol.OFGMessage;
 import org.openflow.gui.net.protocol.PollStart;
 import org.openflow.gui.net.protocol.PollStop;
 import org.openflow.gui.stats.LinkStats;
+import org.openflow.gui.stats.PortStatsRates;
 import org.openflow.protocol.AggregateStatsReply;
 import org.openflow.protocol.AggregateStatsRequest;
+import org.openflow.protocol.AggregateStatsSink;
 import org.openflow.protocol.Match;
+import org.openflow.util.StripedLocks;
 import org.pzgui.Constants;
 import org.pzgui.AbstractDrawable;
 import org.pzgui.StringDrawer;
@@ -71,10 +75,21 @@ public class Link extends AbstractDrawable implements Edge<NodeWithPorts> {
     }
     
     /** 
-     * Used to ensure new links are created sequentially to ensure link exists
-     * exceptions can be properly generated.
+     * Locks striped by the pair of nodes a link connects.  Links between the
+     * same two nodes are created (and removed) one at a time so that link 
+     * exists exceptions can be properly generated, while links between other
+     * nodes may be created in parallel.
      */
-    private static final Object ONE_AT_A_TIME = new Object();
+    private static final StripedLocks PAIR_LOCKS = new StripedLocks();
+    
+    /**
+     * Returns the lock which serializes creating and removing links between
+     * a and b (in either direction).  Callers may hold it across a Link's
+     * construction to make bookkeeping about the link atomic with it.
+     */
+    public static Object getPairLock(NodeWithPorts a, NodeWithPorts b) {
+        return PAIR_LOCKS.getForPair(a.getID(), b.getID());
+    }
     
     /**
      * Constructs a new link between src and dst.
@@ -88,7 +103,7 @@ public class Link extends AbstractDrawable implements Edge<NodeWithPorts> {
      * @throws LinkExistsException  thrown if the link already exists
      */
     public Link(LinkType linkType, NodeWithPorts dst, short dstPort, NodeWithPorts src, short srcPort) throws LinkExistsException {
-        synchronized(ONE_AT_A_TIME) {
+        synchronized(getPairLock(src, dst)) {
             // do not re-create existing links
             Link preExisting = src.getDirectedLinkTo(srcPort, dst, dstPort, true);
             if(preExisting != null)
@@ -134,9 +149,11 @@ public class Link extends AbstractDrawable implements Edge<NodeWithPorts> {
      * statistics associated with this link.  stopTrackingAllStats() is called
      * by this method.   
      */
-    public void disconnect(BackendConnection conn) throws IOException {
-        src.getLinks().remove(this);
-        dst.getLinks().remove(this);
+    public void disconnect(BackendConnection<OFGMessage> conn) throws IOException {
+        synchronized(getPairLock(src, dst)) {
+            src.removeLink(this);
+            dst.removeLink(this);
+        }
         
         stopTrackingAllStats(conn);
     }
@@ -679,8 +696,11 @@ public class Link extends AbstractDrawable implements Edge<NodeWithPorts> {
     /** statistics being gathered for this link */
     private final ConcurrentHashMap<Match, LinkStatsInfo> stats = new ConcurrentHashMap<Match, LinkStatsInfo>();
     
-    /** pairs a message transaction ID with the stats it is collecting */
-    private class LinkStatsInfo {
+    /** 
+     * pairs a message transaction ID with the stats it is collecting (replies
+     * to polled requests are decoded straight into it)
+     */
+    private class LinkStatsInfo implements AggregateStatsSink {
         /** transaction ID which will be used to update these statistics */
         public final int xid;
         
@@ -690,10 +710,36 @@ public class Link extends AbstractDrawable implements Edge<NodeWithPorts> {
         /** the statistics on traffic from the source and destination switch over this link */
         public final LinkStats stats;
         
+        /** whether these are the (unfiltered) link utilization stats */
+        public final boolean isUnfiltered;
+        
         public LinkStatsInfo(int xid, boolean isPolling, Match m) {
             this.xid = xid;
             this.isPolling = isPolling;
             this.stats = new LinkStats(m);
+            this.isUnfiltered = m.wildcards.isWildcardAll();
+        }
+        
+        /** returns the stats for traffic sent over the link by switch dpid, if tracked */
+        public PortStatsRates statsFrom(long dpid) {
+            if(dpid == src.getID())
+                return stats.statsSrc;
+            else if(dpid == dst.getID())
+                return stats.statsDst;
+            else
+                return null;
+        }
+        
+        /** updates the stats for whichever end of the link dpid is */
+        public void updateAggregateStats(long dpid, long packetCount, long byteCount, int flowCount, long when) {
+            PortStatsRates psr = statsFrom(dpid);
+            if(psr == null)
+                return;
+            psr.update(packetCount, byteCount, flowCount, when);
+            
+            // update the color whenever the (unfiltered) link utilization stats are updated
+            if(isUnfiltered)
+                setColorBasedOnCurrentUtilization();
         }
     }
     
@@ -713,7 +759,7 @@ public class Link extends AbstractDrawable implements Edge<NodeWithPorts> {
      * @param conn               connection to talk to the backend over
      * @throws IOException       thrown if the connection fails
      */
-    public void trackStats(Match m, BackendConnection conn) throws IOException {
+    public void trackStats(Match m, BackendConnection<OFGMessage> conn) throws IOException {
         trackStats(0, m, conn);
     }
     
@@ -725,7 +771,7 @@ public class Link extends AbstractDrawable implements Edge<NodeWithPorts> {
      * @param conn               connection to talk to the backend over
      * @throws IOException       thrown if the connection fails
      */
-    public void trackStats(int pollInterval_msec, Match m, BackendConnection conn) throws IOException {
+    public void trackStats(int pollInterval_msec, Match m, BackendConnection<OFGMessage> conn) throws IOException {
         short pollInterval = (short)(( pollInterval_msec % 100 == 0)
                                      ? pollInterval_msec / 100
                                      : pollInterval_msec / 100 + 1);
@@ -738,7 +784,9 @@ public class Link extends AbstractDrawable implements Edge<NodeWithPorts> {
         else
             conn.sendMessage(req);
         
-        trackStats(m, req.xid, isPolling);
+        LinkStatsInfo lsi = trackStatsInfo(m, req.xid, isPolling);
+        if(isPolling)
+            conn.getAggregateStatsSinks().put(req.xid, lsi);
     }
     
     /**
@@ -756,10 +804,14 @@ public class Link extends AbstractDrawable implements Edge<NodeWithPorts> {
      * @param isPolling  whether the stats are being polled with xid
      */
     public LinkStats trackStats(Match m, int xid, boolean isPolling) {
-        // remember that we are interested in these stats
+        return trackStatsInfo(m, xid, isPolling).stats;
+    }
+    
+    /** remembers that we are interested in the stats for m */
+    private LinkStatsInfo trackStatsInfo(Match m, int xid, boolean isPolling) {
         LinkStatsInfo lsi = new LinkStatsInfo(xid, isPolling, m);
         stats.put(m, lsi);
-        return lsi.stats;
+        return lsi;
     }
     
     /**
@@ -771,10 +823,12 @@ public class Link extends AbstractDrawable implements Edge<NodeWithPorts> {
      * @param conn  the connection over which to tell the backend to stop polling
      * @throws IOException  thrown if the connection fails
      */
-    public void stopTrackingStats(Match m, BackendConnection conn) throws IOException {
+    public void stopTrackingStats(Match m, BackendConnection<OFGMessage> conn) throws IOException {
         LinkStatsInfo lsi = stats.remove(m);
-        if(lsi != null && lsi.isPolling)
+        if(lsi != null && lsi.isPolling) {
+            conn.getAggregateStatsSinks().remove(lsi.xid);
             conn.sendMessage(new PollStop(lsi.xid));
+        }
     }
     
     /**
@@ -783,10 +837,13 @@ public class Link extends AbstractDrawable implements Edge<NodeWithPorts> {
      * @param conn  the connection to send POLL_STOP messages over
      * @throws IOException  thrown if the connection fails
      */
-    public void stopTrackingAllStats(BackendConnection conn) throws IOException {
-        for(LinkStatsInfo lsi : stats.values())
-            if(lsi.isPolling)
+    public void stopTrackingAllStats(BackendConnection<OFGMessage> conn) throws IOException {
+        for(LinkStatsInfo lsi : stats.values()) {
+            if(lsi.isPolling) {
+                conn.getAggregateStatsSinks().remove(lsi.xid);
                 conn.sendMessage(new PollStop(lsi.xid));
+            }
+        }
         
         stats.clear();
     }
@@ -796,16 +853,24 @@ public class Link extends AbstractDrawable implements Edge<NodeWithPorts> {
         LinkStatsInfo lsi = stats.get(m);
         if(lsi == null)
             System.err.println(this.toString() + " received stats it is not tracking: " + m.toString());
-        else {
-            if(reply.dpid == src.getID())
-                lsi.stats.statsSrc.update(reply);
-            else if(lsi.stats.statsDst != null && reply.dpid == dst.getID())
-                lsi.stats.statsDst.update(reply);
-            
-            // update the color whenever the (unfiltered) link utilization stats are updated
-            if(m.wildcards.isWildcardAll())
-                setColorBasedOnCurrentUtilization();
-        }
+        else
+            lsi.updateAggregateStats(reply.dpid, reply.packet_count, reply.byte_count, reply.flow_count, reply.timeCreated);
+    }
+    
+    /** 
+     * Updates the link utilization stats (if they are being tracked) with the
+     * counters of the port this link is connected to on switch dpid.  Only 
+     * what the switch sent out of the port is counted.  Port stats do not 
+     * count flows so the flow count is left as it was.
+     */
+    public void updatePortStats(long dpid, long txPackets, long txBytes, long when) {
+        LinkStatsInfo lsi = stats.get(Match.MATCH_ALL);
+        if(lsi == null)
+            return;
+        
+        PortStatsRates psr = lsi.statsFrom(dpid);
+        if(psr != null)
+            lsi.updateAggregateStats(dpid, txPackets, txBytes, psr.getFlowCount(), when);
     }
     
     /** 
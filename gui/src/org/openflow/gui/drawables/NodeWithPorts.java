@@ -2,11 +2,13 @@ package org.openflow.gui.drawables;
 
 import java.awt.Graphics2D;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
 
 import org.openflow.gui.Options;
 import org.openflow.gui.net.protocol.NodeType;
+import org.openflow.util.ConcurrentLongMap;
 import org.openflow.util.LongPair;
 import org.pzgui.icon.Icon;
 
@@ -23,6 +25,22 @@ public abstract class NodeWithPorts extends Node {
      */
     private final CopyOnWriteArrayList<Link> links = new CopyOnWriteArrayList<Link>();
     
+    /** read-only view of links (the list is only used for iteration) */
+    private final Collection<Link> linksView = Collections.unmodifiableList(links);
+    
+    /** 
+     * The links attached to each port of this node, keyed by port number.  
+     * A port usually has one link, but it may have more (e.g., a directed 
+     * link in each direction).  Each array is replaced rather than modified.
+     */
+    private final ConcurrentLongMap<Link[]> linksByPort = new ConcurrentLongMap<Link[]>();
+    
+    /** 
+     * the links to each neighbor of this node, keyed by the neighbor's ID
+     * (which, as in Topology, must not change while it is linked to this node)
+     */
+    private final ConcurrentLongMap<Link[]> linksByPeer = new ConcurrentLongMap<Link[]>();
+    
     public NodeWithPorts(NodeType type, String name, int x, int y, Icon icon) {
         super(name, x, y, icon);
         this.type = type;
@@ -66,31 +84,75 @@ public abstract class NodeWithPorts extends Node {
      * Adds the link to this node
      * @param l  the link to add
      */
-    void addLink(Link l) {
+    synchronized void addLink(Link l) {
         links.add(l);
+        linksByPort.put(l.getMyPort(this), with(linksByPort.get(l.getMyPort(this)), l));
+        linksByPeer.put(l.getOther(this).getID(), with(linksByPeer.get(l.getOther(this).getID()), l));
+    }
+    
+    /**
+     * Removes the link from this node.
+     * @param l  the link to remove
+     */
+    synchronized void removeLink(Link l) {
+        // remove this instance (an equal link may also be attached, e.g., a duplicate self-loop)
+        int i = 0;
+        while(i < links.size() && links.get(i) != l)
+            i += 1;
+        if(i == links.size())
+            return;
+        
+        links.remove(i);
+        unindex(linksByPort, l.getMyPort(this), l);
+        unindex(linksByPeer, l.getOther(this).getID(), l);
+    }
+    
+    /** returns a copy of ls (which may be null) with l appended */
+    private static Link[] with(Link[] ls, Link l) {
+        if(ls == null)
+            return new Link[] {l};
+        
+        Link[] ret = new Link[ls.length + 1];
+        System.arraycopy(ls, 0, ret, 0, ls.length);
+        ret[ls.length] = l;
+        return ret;
+    }
+    
+    /** removes (one instance of) l from the links index maps to key */
+    private static void unindex(ConcurrentLongMap<Link[]> index, long key, Link l) {
+        Link[] ls = index.get(key);
+        if(ls == null)
+            return;
+        
+        for(int i=0; i<ls.length; i++) {
+            if(ls[i] == l) {
+                if(ls.length == 1) {
+                    index.remove(key);
+                    return;
+                }
+                
+                Link[] ret = new Link[ls.length - 1];
+                System.arraycopy(ls, 0, ret, 0, i);
+                System.arraycopy(ls, i + 1, ret, i, ret.length - i);
+                index.put(key, ret);
+                return;
+            }
+        }
     }
     
     /** Returns whether the specified port is currently connected to a link. */
     public boolean isPortUsed(short portNum) {
-        // we could use a concurrent hash map to track which ports are used 
-        // rather than doing a linear search each time, but the number of ports
-        // and times this method is called is likely small enough to not benefit
-        // from a ConcurrentHashMap caching the results
-        for(Link l : links)
-            if(l.getMyPort(this) == portNum)
-                return true;
-        
-        return false;
+        return linksByPort.containsKey(portNum);
     }
     
-    /** returns a list of all the links on this node */
+    /** returns a (read-only) list of all the links on this node */
     public Collection<Link> getEdges() {
-        return links;
+        return linksView;
     }
     
-    /** returns a list of all the links on this node */
+    /** returns a (read-only) list of all the links on this node */
     public Collection<Link> getLinks() {
-        return links;
+        return linksView;
     }
     
     /** Returns the number of links connected to this node. */
@@ -100,27 +162,27 @@ public abstract class NodeWithPorts extends Node {
 
     /** Gets the link from this node on outPort */
     public Link getLinkFrom(short outPort) {
-        for(Link l : links)
-            if(l.getMyPort(this) == outPort)
-                return l;
-        
-        return null;
+        Link[] ls = linksByPort.get(outPort);
+        return (ls == null) ? null : ls[0];
     }
     
     /** Returns a link from this node to the requested node if such a link exists */
     public Link getLinkTo(NodeWithPorts n) {
-        for(Link l : links)
-            if(l.getOther(this) == n)
-                return l;
+        Link[] ls = linksByPeer.get(n.getID());
+        if(ls != null)
+            for(Link l : ls)
+                if(l.getOther(this) == n)
+                    return l;
             
         return null;
     }
 
     /** Returns a link from this node to the requested node if such a link exists */
     public Link getLinkTo(short myPort, NodeWithPorts n, short nPort) {
-        for(Link l : links)
-            if(l.getOther(this) == n)
-                if(l.getMyPort(this)==myPort && l.getMyPort(n)==nPort)
+        Link[] ls = linksByPort.get(myPort);
+        if(ls != null)
+            for(Link l : ls)
+                if(l.getOther(this) == n && l.getMyPort(n) == nPort)
                     return l;
             
         return null;
@@ -131,21 +193,32 @@ public abstract class NodeWithPorts extends Node {
         if(!Options.USE_DIRECTED_LINKS)
             return getLinkTo(myPort, n, nPort);
         
-        for(Link l : links)
-            if((nIsDestination && l.getDestination()==n) || (!nIsDestination && l.getSource()==n))
-                if(l.getMyPort(this)==myPort && l.getMyPort(n)==nPort)
-                    return l;
+        Link[] ls = linksByPort.get(myPort);
+        if(ls != null)
+            for(Link l : ls)
+                if((nIsDestination && l.getDestination()==n) || (!nIsDestination && l.getSource()==n))
+                    if(l.getMyPort(n) == nPort)
+                        return l;
             
         return null;
     }
     
     /** Gets a link to a neighboring OpenFlowNode with the specified datapath ID. */
     public Link getLinkTo(long dpid) {
-        for(Link l : links) {
-            NodeWithPorts o = l.getOther(this);
-            if(o!=null && o.getID()==dpid)
-                return l;
-        }
+        Link[] ls = linksByPeer.get(dpid);
+        return (ls == null) ? null : ls[0];
+    }
+    
+    /** 
+     * Gets a link to the port peerPort on the neighboring node with the 
+     * specified datapath ID.
+     */
+    public Link getLinkTo(long dpid, short peerPort) {
+        Link[] ls = linksByPeer.get(dpid);
+        if(ls != null)
+            for(Link l : ls)
+                if(l.getOtherPort(this) == peerPort)
+                    return l;
         
         return null;
     }
@@ -1,29 +1,74 @@
 package org.openflow.gui.net;
 
+import org.openflow.gui.net.protocol.Feature;
 import org.openflow.gui.net.protocol.OFGMessage;
 import org.openflow.gui.net.protocol.OFGMessageType;
 import org.openflow.gui.net.protocol.PollStart;
+import org.openflow.gui.net.protocol.PollStop;
+import org.openflow.protocol.AggregateStatsSink;
 
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
 import java.io.IOException;
-import java.net.Socket;
-import java.util.Iterator;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
 
 
 /**
- * Connects to a server instance to receive stats and send commands.
+ * Connects to a server instance to receive stats and send commands.  By 
+ * default each connection runs its own thread which does blocking reads.  If a
+ * SelectorLoop is specified, then the connection instead uses a non-blocking 
+ * channel which is serviced by the loop's thread (which may be shared by many
+ * connections).  The server is reached over TCP, a Unix domain socket, or an
+ * in-process pipe depending on how it is named (see Transport).
+ * 
  * @author David Underhill
  */
 public class BackendConnection<MSG_TYPE extends Message> extends Thread {
-    /** whether to print messages we send and receive */
+    /** whether to print messages we send and receive (slow; see MessageTrace) */
     public static final boolean PRINT_MESSAGES = false;
     
-    /** how much time to remember a request before expiring it */
-    private static final long REQUEST_LIFETIME_MSEC = 2000;
+    /** how much time to wait for a reply to a stateful request before expiring it */
+    public static final long REQUEST_LIFETIME_MSEC = 2000;
     
     /** maximum time to wait between tries to get connected */
     public static final int RETRY_WAIT_MSEC_MAX = 2 * 60 * 1000; // two minutes
     
+    /** number of bytes in the (normal) length field which prefixes every message */
+    public static final int LENGTH_FIELD_SIZE = MessageLength.SIZEOF;
+    
+    /** maximum number of messages to hold onto while the connection is down */
+    public static final int PENDING_SEND_CAPACITY = 4096;
+    
+    /** 
+     * maximum number of received messages which may be waiting to be processed
+     * when pipelined processing is enabled
+     */
+    public static final int PROCESS_RING_CAPACITY = 4096;
+    
+    /** 
+     * most echo probes which may await a reply at once; more than this means
+     * the backend is not answering them so the old ones are forgotten
+     */
+    public static final int MAX_OUTSTANDING_ECHO_PROBES = 16;
+    
+    /** whether each connection registers a ConnectionStatsMXBean */
+    public static final boolean REGISTER_MBEAN = true;
+    
+    /** the JMX domain which connections are registered in */
+    public static final String MBEAN_DOMAIN = "org.openflow.gui";
+    
     /**
      * Statistics about this connection.
      */
@@ -39,6 +84,27 @@ public class BackendConnection<MSG_TYPE extends Message> extends Thread {
 
         /** whether we are connected or disconnected */
         private boolean connected;
+        
+        /** round-trip times of echo probes (us) */
+        private final LatencyHistogram echoRTT = new LatencyHistogram();
+        
+        /** time from when a message is decoded until it has been processed (us) */
+        private final LatencyHistogram applyLag = new LatencyHistogram();
+        
+        /** bytes received from the server */
+        private final RateMeter bytesIn = new RateMeter();
+        
+        /** messages received from the server */
+        private final RateMeter messagesIn = new RateMeter();
+        
+        /** bytes sent to the server */
+        private final RateMeter bytesOut = new RateMeter();
+        
+        /** messages sent to the server */
+        private final RateMeter messagesOut = new RateMeter();
+        
+        /** counters for each type of message received */
+        private final MessageTypeStats typeStats = new MessageTypeStats();
 
         public NetStats() {
             lastUpdateTime_ms = System.currentTimeMillis();
@@ -112,13 +178,163 @@ public class BackendConnection<MSG_TYPE extends Message> extends Thread {
             timeConnected_ms = System.currentTimeMillis();
             connected = b;
         }
+        
+        /** Returns the number of messages waiting to be sent. */
+        public int getSendQueueDepth() {
+            return sendQueue.getDepth();
+        }
+        
+        /** Returns the largest number of messages which have waited to be sent at once. */
+        public int getMaxSendQueueDepth() {
+            return sendQueue.getMaxDepth();
+        }
+        
+        /** Returns the number of writes which have been used to send messages. */
+        public long getNumFlushes() {
+            return sendQueue.getNumFlushes();
+        }
+        
+        /** Returns the number of messages which have been sent. */
+        public long getNumMessagesSent() {
+            return sendQueue.getNumMessagesFlushed();
+        }
+        
+        /** Returns the average number of bytes sent per write. */
+        public double getBytesPerFlush() {
+            return sendQueue.getBytesPerFlush();
+        }
+        
+        /** Returns the number of received messages waiting to be processed. */
+        public int getProcessQueueOccupancy() {
+            return (processRing == null) ? 0 : processRing.getOccupancy();
+        }
+        
+        /** Returns the most received messages which have waited to be processed at once. */
+        public int getProcessQueueHighWaterMark() {
+            return (processRing == null) ? 0 : processRing.getHighWaterMark();
+        }
+        
+        /** Returns the number of times receiving stalled because processing fell behind. */
+        public long getNumProcessQueueStalls() {
+            return (processRing == null) ? 0 : processRing.getNumStalls();
+        }
+        
+        /** Returns the number of received messages which were never processed. */
+        public long getNumProcessQueueDrops() {
+            return (processRing == null) ? 0 : processRing.getNumDrops();
+        }
+        
+        /** Returns the number of stateful requests waiting for a reply. */
+        public int getNumRequestsInFlight() {
+            return requests.getNumInFlight();
+        }
+        
+        /** Returns the number of stateful requests which were not answered in time. */
+        public long getNumRequestTimeouts() {
+            return requests.getNumTimeouts();
+        }
+        
+        /** Returns the average time it took for stateful requests to be answered. */
+        public double getAvgRequestLatency_ms() {
+            return requests.getAvgLatency_ms();
+        }
+        
+        /** Returns the longest time it took for a stateful request to be answered. */
+        public double getMaxRequestLatency_ms() {
+            return requests.getMaxLatency_ms();
+        }
+        
+        /** Returns the number of messages waiting for the connection to come back up. */
+        public int getNumPendingSends() {
+            return pendingSends.size();
+        }
+        
+        /** Returns the number of messages which duplicated one which was already pending. */
+        public long getNumPendingSendsCollapsed() {
+            return pendingSends.getNumCollapsed();
+        }
+        
+        /** Returns the round-trip times of echo probes to the server (us). */
+        public LatencyHistogram getEchoRTTHistogram() {
+            return echoRTT;
+        }
+        
+        /** 
+         * Returns how long received messages took to be processed after they
+         * were decoded, including any time spent waiting to be processed (us).
+         */
+        public LatencyHistogram getApplyLagHistogram() {
+            return applyLag;
+        }
+        
+        /** Returns the number of bytes received per second. */
+        public double getBytesReceivedPerSec() {
+            return bytesIn.getRate();
+        }
+        
+        /** Returns the number of messages received per second. */
+        public double getMessagesReceivedPerSec() {
+            return messagesIn.getRate();
+        }
+        
+        /** Returns the number of bytes sent per second. */
+        public double getBytesSentPerSec() {
+            return bytesOut.getRate();
+        }
+        
+        /** Returns the number of messages sent per second. */
+        public double getMessagesSentPerSec() {
+            return messagesOut.getRate();
+        }
+        
+        /** Returns the total number of bytes received. */
+        public long getNumBytesReceived() {
+            return bytesIn.getTotal();
+        }
+        
+        /** Returns the total number of bytes queued to be sent. */
+        public long getNumBytesSent() {
+            return bytesOut.getTotal();
+        }
+        
+        /** Returns the counters kept for each type of message received. */
+        public MessageTypeStats getMessageTypeStats() {
+            return typeStats;
+        }
+        
+        /** notes that a message of len bytes was received */
+        void messageReceived(long len) {
+            bytesIn.mark(len);
+            messagesIn.mark(1);
+        }
+        
+        /** notes that a message of len bytes is being sent */
+        void messageSent(long len) {
+            bytesOut.mark(len);
+            messagesOut.mark(1);
+        }
     }
     
+    /** messages waiting to be sent to the server */
+    private final SendQueue sendQueue = new SendQueue();
+    
+    /** messages which were sent while the connection was down */
+    private final PendingSendBuffer<MSG_TYPE> pendingSends = new PendingSendBuffer<MSG_TYPE>(PENDING_SEND_CAPACITY);
+    
+    /** 
+     * whether the current connection is up and pendingSends has been replayed
+     * onto it (until then, sent messages are buffered so they stay in order)
+     */
+    private volatile boolean pendingSendsReplayed = false;
+    
     /** stats associated with this connection */
     private final NetStats stats = new NetStats();
     
+    /** whether Nagle's algorithm is disabled on the connection to the server */
+    private volatile boolean tcpNoDelay = true;
+    
     /** connection to the server */
-    private SocketConnection conn = null;
+    private volatile SocketConnection conn = null;
     
     /** the IP the server server lives on */
     private final String serverIP;
@@ -126,6 +342,9 @@ public class BackendConnection<MSG_TYPE extends Message> extends Thread {
     /** the port the server listens on */
     private final int serverPort;
     
+    /** how the server is reached */
+    private final Transport transport;
+    
     /** if true, then the connection should be re-initiated */
     private boolean reconnect = false;
     
@@ -138,13 +357,59 @@ public class BackendConnection<MSG_TYPE extends Message> extends Thread {
     /** whether the connection has been turned off */
     private boolean shutdown = false;
     
+    /** 
+     * whether each message is read whole into frame before being decoded (as
+     * opposed to being decoded directly off of the socket's input stream)
+     */
+    private boolean framedReceive = true;
+    
+    /** reusable buffer which holds the message currently being decoded */
+    private final FrameBuffer frame = new FrameBuffer();
+    
+    /** the loop which services this connection, if any (else a thread is used) */
+    private SelectorLoop selectorLoop = null;
+    
+    /** the non-blocking connection to the server (when a selector loop is used) */
+    private volatile NIOChannel nio = null;
+    
+    /** 
+     * whether received messages are processed by a separate thread rather than
+     * by the thread which receives them
+     */
+    private boolean pipelinedProcessing = false;
+    
+    /** 
+     * received messages and connection state changes waiting to be processed
+     * (only used when processing is pipelined)
+     */
+    private MessageRing<Object> processRing = null;
+    
+    /** time between echo probes (0 => probes are not sent) */
+    private long echoInterval_ms = 0;
+    
+    /** where sent and received messages are recorded, if anywhere */
+    private volatile WireJournal journal = null;
+    
+    /** where the headers of sent and received messages are traced, if anywhere */
+    private volatile MessageTrace trace = null;
+    
+    /** send times (ns) of echo probes awaiting a reply, keyed by transaction ID */
+    private final ConcurrentHashMap<Integer, Long> echoProbes = new ConcurrentHashMap<Integer, Long>();
+    
+    /** 
+     * bitmap of the optional features (see Feature) which both sides of the 
+     * current connection support (none until the processor negotiates them)
+     */
+    private volatile int features = 0;
+    
     /**
      * Connect to the server at the specified address and port.
      * 
      * @param mp    the processor for messages; if null, then "this" will be
      *              used as mp if it implements the MessageProcesser interface
-     * @param ip    the IP where the server lives
-     * @param port  the port the server listens on
+     * @param ip    the IP where the server lives (or "unix:PATH" or 
+     *              "pipe:NAME" to reach it via a local transport)
+     * @param port  the port the server listens on (TCP only)
      */
     public BackendConnection(MessageProcessor<MSG_TYPE> mp, String ip, int port) {
         if(mp == null && this instanceof MessageProcessor)
@@ -154,6 +419,153 @@ public class BackendConnection<MSG_TYPE extends Message> extends Thread {
         
         serverIP = ip;
         serverPort = port;  
+        transport = Transport.forServer(ip, port);
+    }
+    
+    /** Returns statistics about this connection. */
+    public NetStats getStats() {
+        return stats;
+    }
+    
+    /** 
+     * Returns whether Nagle's algorithm is disabled on the connection to the
+     * server.  Outgoing messages are already coalesced by the sender so it is
+     * disabled by default.
+     */
+    public boolean isTcpNoDelay() {
+        return tcpNoDelay;
+    }
+    
+    /** 
+     * Sets whether Nagle's algorithm is disabled on the connection to the 
+     * server.  This takes effect the next time the connection is established.
+     */
+    public void setTcpNoDelay(boolean b) {
+        tcpNoDelay = b;
+    }
+    
+    /** Returns the loop which services this connection, or null if it uses its own thread. */
+    public SelectorLoop getSelectorLoop() {
+        return selectorLoop;
+    }
+    
+    /** 
+     * Sets the loop which will service this connection.  If null, then the 
+     * connection will use its own thread.  This must be set before start() is
+     * called.
+     */
+    public void setSelectorLoop(SelectorLoop loop) {
+        selectorLoop = loop;
+    }
+    
+    /** 
+     * Returns whether received messages are processed by a separate thread
+     * (true) or by the thread which receives them (false, the default).  
+     * Connections serviced by a SelectorLoop always use a separate thread.
+     */
+    public boolean isPipelinedProcessing() {
+        return pipelinedProcessing || selectorLoop != null;
+    }
+    
+    /** 
+     * Sets whether received messages are handed to a separate thread to be 
+     * processed.  This keeps a slow processor from stalling reads from the 
+     * socket (until PROCESS_RING_CAPACITY messages are waiting).  Connection 
+     * state changes are delivered on that thread too, in order with the 
+     * messages.  This must be set before start() is called.  It is ignored 
+     * (processing is always pipelined) if a SelectorLoop is used so a slow
+     * processor cannot stall the other connections which share the loop.
+     */
+    public void setPipelinedProcessing(boolean b) {
+        pipelinedProcessing = b;
+    }
+    
+    /** Returns the journal messages are being recorded to, if any. */
+    public WireJournal getJournal() {
+        return journal;
+    }
+    
+    /** 
+     * Sets the journal which every message sent or received on this 
+     * connection is recorded to (null stops recording; the old journal is not
+     * closed).  The journal is closed when the connection shuts down.  While
+     * recording, every received message is read whole before it is decoded
+     * (as if framed receive were enabled) so that it can be recorded exactly
+     * as it arrived.
+     */
+    public void setJournal(WireJournal j) {
+        journal = j;
+    }
+    
+    /** Returns the trace messages are being traced to, if any. */
+    public MessageTrace getTrace() {
+        return trace;
+    }
+    
+    /** 
+     * Sets the trace which every message sent or received on this connection
+     * is traced to (null stops tracing; the old trace is not closed).  The 
+     * trace is closed when the connection shuts down.  While the trace is 
+     * enabled, received messages are read whole before they are decoded (as
+     * if framed receive were enabled).
+     */
+    public void setTrace(MessageTrace t) {
+        trace = t;
+    }
+    
+    /** returns the trace if there is one and it is enabled */
+    private MessageTrace getEnabledTrace() {
+        MessageTrace t = trace;
+        return (t != null && t.isEnabled()) ? t : null;
+    }
+    
+    /** Returns the time between echo probes (0 if probes are not sent). */
+    public long getEchoInterval() {
+        return echoInterval_ms;
+    }
+    
+    /** 
+     * Sets how often an ECHO_REQUEST is sent to the server to measure the 
+     * round-trip time (see NetStats.getEchoRTTHistogram()).  Replies to these
+     * probes are consumed by the connection rather than being passed to the
+     * processor.  0 (the default) disables probes.  This must be set before
+     * start() is called.
+     */
+    public void setEchoInterval(long ms) {
+        echoInterval_ms = ms;
+    }
+    
+    /**
+     * Starts the connection.  If a selector loop is being used, then no new 
+     * thread is started; the loop's thread establishes and services the 
+     * connection instead.
+     */
+    public void start() {
+        // transports which can't be selected on get their own thread
+        if(selectorLoop != null && !transport.isSelectable())
+            selectorLoop = null;
+        
+        if(isPipelinedProcessing()) {
+            processRing = new MessageRing<Object>(PROCESS_RING_CAPACITY);
+            new ProcessThread(processRing).start();
+        }
+        
+        if(echoInterval_ms > 0)
+            HashedTimerWheel.getDefault().schedule(echoProber, echoInterval_ms);
+        
+        if(REGISTER_MBEAN)
+            registerMBean();
+        
+        if(selectorLoop == null)
+            super.start();
+        else {
+            selectorLoop.execute(new Runnable() {
+                public void run() {
+                    stats.disconnected();
+                    nioConnect();
+                }
+            });
+        }
     }
     
     /**
@@ -163,20 +575,13 @@ public class BackendConnection<MSG_TYPE extends Message> extends Thread {
      * or if it fails to get connected.
      */
     public void run() {
-        // start a thread to scrub expired cached stateful requests
-        new Thread() {
-            public void run() {
-                scrubExpiredStatefulRequests();
-                try { Thread.sleep(REQUEST_LIFETIME_MSEC); }
-                catch(InterruptedException e) {}
-            }
-        };
-        
         connect();
 
         while(!done) {
             try {
-                msgProcessor.process(recvMessage());
+                MSG_TYPE msg = recvMessage();
+                if(msg != null)
+                    deliver(msg);
             } catch(IOException e) {
                 if(done)
                     break;
@@ -191,15 +596,54 @@ public class BackendConnection<MSG_TYPE extends Message> extends Thread {
             }
         }
 
-        shutdown = true;
+        // disconnect from this thread (rather than the one which called
+        // shutdown()) so it remains the only one which delivers messages
+        disconnect();
+        markShutdown();
     }
 
     /** tells the connection to shut down as soon as possible */
     public void shutdown() {
         done = true;
-        disconnect();
+        if(selectorLoop == null) {
+            if(isAlive()) {
+                // wake up the reader thread (it finishes disconnecting)
+                tryToClose(conn);
+                interrupt();
+            }
+            else
+                disconnect();
+        }
+        else {
+            selectorLoop.execute(new Runnable() {
+                public void run() {
+                    NIOChannel c = nio;
+                    if(c != null) {
+                        c.sendDisconnect();
+                        nioClose(c);
+                    }
+                    markShutdown();
+                }
+            });
+        }
     }
 
+    /** notes that the connection is off and lets the processing thread finish */
+    private void markShutdown() {
+        shutdown = true;
+        if(processRing != null)
+            processRing.close();
+        unregisterMBean();
+        
+        WireJournal j = journal;
+        if(j != null)
+            j.close();
+        
+        MessageTrace t = trace;
+        if(t != null)
+            t.close();
+    }
+    
     /** gets whether the connection has been shutdown yet */
     public boolean isShutdown() {
         return shutdown;
@@ -207,7 +651,7 @@ public class BackendConnection<MSG_TYPE extends Message> extends Thread {
     
     /** returns true if the connection to the server is currently alive */
     public boolean isConnected() {
-        return conn!=null && conn.s!=null;
+        return (conn!=null && conn.s!=null) || nio!=null;
     }
     
     /** Continuously tries to connect to the server. */
@@ -226,7 +670,7 @@ public class BackendConnection<MSG_TYPE extends Message> extends Thread {
             else
                 System.out.println("Trying to establish connection to server ...");
 
-            conn = new SocketConnection(serverIP, serverPort);
+            conn = new SocketConnection(transport, tcpNoDelay);
 
             if(conn.s == null) {
                 System.out.println("Failed to establish connections to server! (will retry in " + retry_ms/1000.0f  + " seconds)");
@@ -241,120 +685,700 @@ public class BackendConnection<MSG_TYPE extends Message> extends Thread {
         }
         while(conn==null || conn.s==null);
         
+        new SocketWriter(conn).start();
+        connectionEstablished();
+    }
+    
+    /** 
+     * Updates stats, sends messages which were buffered while the connection
+     * was down, and notifies the processor that the connection is up.
+     */
+    private void connectionEstablished() {
         System.out.println("Now connected to server");
         stats.connected();
-        msgProcessor.connectionStateChange(true);
+        replayPendingSends();
+        deliver(CONNECTED);
+    }
+    
+    /** 
+     * queues the messages which were sent while the connection was down and
+     * then lets new messages be sent directly
+     */
+    private void replayPendingSends() {
+        ArrayList<MSG_TYPE> msgs = new ArrayList<MSG_TYPE>();
+        synchronized(pendingSends) {
+            if(pendingSends.drainTo(msgs) == 0) {
+                pendingSendsReplayed = true;
+                return;
+            }
+            
+            System.out.println("Sending " + msgs.size() + " messages which were sent while disconnected");
+            for(MSG_TYPE m : msgs) {
+                try {
+                    enqueue(serializeForPeer(m));
+                    
+                    // start the clock on requests now that they're really sent
+                    if(m instanceof OFGMessage) {
+                        PendingRequest p = requests.get(((OFGMessage)m).xid);
+                        if(p != null && p.request == m)
+                            requests.start(p, REQUEST_LIFETIME_MSEC);
+                    }
+                }
+                catch(IOException e) {
+                    System.err.println("Error: unable to send buffered message " + m + ": " + e.getMessage());
+                    if(m instanceof OFGMessage)
+                        forgetStatefulRequest((OFGMessage)m);
+                }
+            }
+            pendingSendsReplayed = true;
+        }
+        
+        NIOChannel myChannel = this.nio;
+        if(myChannel != null)
+            myChannel.watchForWritable();
     }
     
     /** tells the connection to disconnect and then connect again */
     public void reconnect() {
-        this.reconnect = true;
+        if(selectorLoop == null)
+            this.reconnect = true;
+        else {
+            selectorLoop.execute(new Runnable() {
+                public void run() {
+                    NIOChannel c = nio;
+                    if(c != null)
+                        nioClose(c);
+                }
+            });
+        }
+    }
+    
+    /** 
+     * Returns whether each message is read whole into a reusable buffer and
+     * decoded from memory (true) or decoded directly off the socket (false).
+     */
+    public boolean isFramedReceive() {
+        return framedReceive;
+    }
+    
+    /** 
+     * Sets whether each message is read whole into a reusable buffer and 
+     * decoded from memory (the default) or decoded directly off the socket.
+     */
+    public void setFramedReceive(boolean b) {
+        framedReceive = b;
     }
     
-    /** returns the next message received on the connection */
+    /** 
+     * Returns the next message received on the connection.  null is returned
+     * if the message was already handled while it was decoded (or streamed),
+     * or if it could not be decoded (only possible in framed receive mode 
+     * since the stream remains aligned on message boundaries in that case).
+     */
     private MSG_TYPE recvMessage() throws IOException {
         final CountingDataInputStream in = conn.in;
         if(in == null)
             throw new IOException("connection is disconnected");
         
         long bytesReadBefore = in.getBytesRead();
-
+        boolean readWhole = framedReceive || journal != null || getEnabledTrace() != null;
+        MSG_TYPE msg = readWhole ? recvFramedMessage(in) : recvUnframedMessage(in);
+        stats.messageReceived(in.getBytesRead() - bytesReadBefore);
+        return msg;
+    }
+    
+    /** 
+     * Decodes the next message directly off of in.
+     */
+    private MSG_TYPE recvUnframedMessage(CountingDataInputStream in) throws IOException {
         // determine how long the message is
-        int len = in.readShort();
+        int len = MessageLength.read(in);
+        if(isStreamed(len)) {
+            recvStreamingMessage(len, in);
+            return null;
+        }
+        
+        // count from just after the length field as if it had been the normal size
+        long bytesReadBefore = in.getBytesRead() - LENGTH_FIELD_SIZE;
 
         // decode the message
-        MSG_TYPE msg = msgProcessor.decode(len, in);
+        long start_ns = System.nanoTime();
+        MSG_TYPE msg;
+        try {
+            msg = msgProcessor.decode(len, in);
+        }
+        catch(IOException e) {
+            stats.typeStats.recordError(null);
+            throw e;
+        }
+        Object type = (msg == null) ? null : msg.getType();
+        if(msg != null)
+            stats.typeStats.recordDecode(type, 1, len, System.nanoTime() - start_ns);
 
         // make sure we consume exactly the specified number of bytes or problems have
         long bytesRead = in.getBytesRead() - bytesReadBefore;
         if(bytesRead < len) {
+            stats.typeStats.recordError(type);
             int bytesLeftover = (int)(len - bytesRead);
             if(in.skipBytes(bytesLeftover) != bytesLeftover)
                 throw new IOException("unable to skip leftover bytes (" + bytesLeftover + "B)");
             else
-                System.err.println("Warning: " + bytesLeftover + "B leftover for message type " + msg.getType().toString());
+                System.err.println("Warning: " + bytesLeftover + "B leftover for message type " + type);
         }
         else if(bytesRead > len) {
+            stats.typeStats.recordError(type);
             long bytesOverread = bytesRead - len;
-            throw new IOException("read " + bytesOverread + "B over the specified length for message type " + msg.getType().toString());
+            throw new IOException("read " + bytesOverread + "B over the specified length for message type " + type);
         }
         
         return msg;
     }
     
-    /** next transaction ID to use */
-    private int nextXID = 1;
-    
-    /** messages which are expecting a stateful response */
-    protected ConcurrentHashMap<Integer, OFGMessage> outstandingStatefulRequests = new ConcurrentHashMap<Integer, OFGMessage>();
-    
-    /** stateful messages which are being polled by the backend for us */
-    protected ConcurrentHashMap<Integer, OFGMessage> outstandingStatefulPollRequests = new ConcurrentHashMap<Integer, OFGMessage>();
-    
     /** 
-     * Tries to send a message and sets the transaction ID of the message
-     * to the next available transaction ID.  If m is a POLL_REQUEST message, 
-     * then the internal message's transaction ID is also set.
+     * Reads the next message whole into frame and then decodes it from memory.
      */
-    public void sendMessage(MSG_TYPE m) throws IOException {
-        // get the current connection
-        SocketConnection myConn = this.conn;
-        java.io.DataOutput out = (myConn == null) ? null : myConn.out;
-        
-        // bail out if we are not connected - TODO: could try to mask this and 
-        // buffer calls to this method and send them when we get reconnected
-        if(out == null)
-            throw new IOException("connection is down");
-        
-        if(m instanceof OFGMessage)
-            sendOFGMessage((OFGMessage)m);
-        
-        m.write(out);
-        
-        if(PRINT_MESSAGES)
-            System.out.println("sent: " + m.toString());
-    }
-    
-    public void sendOFGMessage(OFGMessage m) throws IOException {
-        if(m.xid == 0)
-            m.xid = nextXID++;
+    private MSG_TYPE recvFramedMessage(CountingDataInputStream in) throws IOException {
+        // determine how long the message is and read the rest of it (unless 
+        // it will be streamed and does not need to be recorded)
+        int len = MessageLength.read(in);
+        WireJournal j = journal;
+        MessageTrace t = getEnabledTrace();
+        if(isStreamed(len) && j == null && t == null) {
+            recvStreamingMessage(len, in);
+            return null;
+        }
+        frame.fill(in, len - LENGTH_FIELD_SIZE);
+        if(j != null)
+            recordFrame(j, len);
+        if(t != null)
+            traceFrame(t, len);
         
-        if(m.isStatefulRequest())
-            outstandingStatefulRequests.put(m.xid, m);
-        else if(m.type == OFGMessageType.POLL_START) {
-            // store stateful poll requests in a different map since they do 
-            // not expire when a reply comes in
-            PollStart pollMsg = (PollStart)m;
-            if(pollMsg.msg.isStatefulRequest()) {
-                if(pollMsg.pollInterval != 0) {
-                    pollMsg.msg.xid = nextXID++;
-                    outstandingStatefulPollRequests.put(pollMsg.msg.xid, pollMsg.msg);
-                }
-                else
-                    outstandingStatefulPollRequests.remove(pollMsg.msg.xid);
-            }
+        if(isStreamed(len)) {
+            decodeStreamingFrame(len);
+            return null;
         }
+        return decodeFrame(len);
     }
     
-    /** 
-     * Returns the request sent with the specified transaction ID, if any.  The 
-     * stateful request returned will no longer be remembered. 
-     */
-    public OFGMessage popAssociatedStatefulRequest(int xid) {
-        // check the poll requests map first (more efficient if we assume must 
-        // stateful replies come from poll requests)
-        OFGMessage m = outstandingStatefulPollRequests.get(xid);
-        return (m != null) ? m : outstandingStatefulRequests.remove(xid);
+    /** records the len byte message whose body is in frame to j */
+    private void recordFrame(WireJournal j, int len) {
+        ByteBuffer b = frame.getBuffer();
+        j.record(WireJournal.Direction.RECEIVED, len, b.array(), b.position(), b.remaining());
     }
     
-    /** Remove cached stateful requests which have been cached for longer than getRequestLifetime() */
-    protected void scrubExpiredStatefulRequests() {
-        long now = System.currentTimeMillis();
-        
-        Iterator<OFGMessage> itr = outstandingStatefulRequests.values().iterator();
-        while(itr.hasNext())
-            if(now - itr.next().timeCreated() > REQUEST_LIFETIME_MSEC)
-                itr.remove();
+    /** traces the len byte message whose body is in frame to t */
+    private void traceFrame(MessageTrace t, int len) {
+        ByteBuffer b = frame.getBuffer();
+        t.record(WireJournal.Direction.RECEIVED, len, b.array(), b.position(), b.remaining());
+    }
+    
+    /** type of the messages produced by the current streaming decode (receiver only) */
+    private Object streamedType = null;
+    
+    /** number of messages produced by the current streaming decode (receiver only) */
+    private int numStreamed = 0;
+    
+    /** time spent handing off messages during the current streaming decode (receiver only) */
+    private long streamedDeliver_ns = 0;
+    
+    /** passes messages produced by a streaming decoder on to the processor */
+    private final StreamingMessageProcessor.Sink<MSG_TYPE> deliverSink = new StreamingMessageProcessor.Sink<MSG_TYPE>() {
+        public void deliver(MSG_TYPE msg) {
+            streamedType = msg.getType();
+            numStreamed += 1;
+            
+            long start_ns = System.nanoTime();
+            BackendConnection.this.deliver(msg);
+            streamedDeliver_ns += System.nanoTime() - start_ns;
+        }
+    };
+    
+    /** 
+     * Records the decoding stats for a len byte streamed message whose decode
+     * began at start_ns (time spent handing off its pieces is not counted).
+     */
+    private void streamingDecodeDone(int len, long start_ns) {
+        long decode_ns = System.nanoTime() - start_ns - streamedDeliver_ns;
+        stats.typeStats.recordDecode(streamedType, numStreamed, len, decode_ns);
+        streamedType = null;
+        numStreamed = 0;
+        streamedDeliver_ns = 0;
+    }
+    
+    /** returns true if a len byte message should be decoded by the processor's streaming decoder */
+    private boolean isStreamed(int len) {
+        return len > StreamingMessageProcessor.STREAMING_THRESHOLD && msgProcessor instanceof StreamingMessageProcessor;
+    }
+    
+    /**
+     * Decodes a len byte message directly off of in with the processor's 
+     * streaming decoder so that the pieces of the message are processed while
+     * the rest of it is still arriving.  Since the message is not buffered, a
+     * decoding error leaves the stream misaligned and so it is thrown.
+     */
+    private void recvStreamingMessage(int len, CountingDataInputStream in) throws IOException {
+        long bytesReadBefore = in.getBytesRead();
+        int bodyLen = len - LENGTH_FIELD_SIZE;
+        long start_ns = System.nanoTime();
+        try {
+            ((StreamingMessageProcessor<MSG_TYPE>)msgProcessor).decodeStreaming(len, in, deliverSink);
+        }
+        catch(IOException e) {
+            stats.typeStats.recordError(streamedType);
+            streamingDecodeDone(len, start_ns);
+            throw e;
+        }
+        Object type = streamedType;
+        streamingDecodeDone(len, start_ns);
+        
+        long bytesRead = in.getBytesRead() - bytesReadBefore;
+        if(bytesRead != bodyLen)
+            stats.typeStats.recordError(type);
+        if(bytesRead < bodyLen) {
+            int bytesLeftover = (int)(bodyLen - bytesRead);
+            if(in.skipBytes(bytesLeftover) != bytesLeftover)
+                throw new IOException("unable to skip leftover bytes (" + bytesLeftover + "B)");
+            else
+                System.err.println("Warning: " + bytesLeftover + "B leftover for streamed " + len + "B message");
+        }
+        else if(bytesRead > bodyLen)
+            throw new IOException("read " + (bytesRead - bodyLen) + "B over the specified length for streamed " + len + "B message");
+    }
+    
+    /**
+     * Decodes the len byte message in frame with the processor's streaming
+     * decoder.  Problems are reported but the next message will still be read
+     * from the right place.
+     */
+    private void decodeStreamingFrame(int len) {
+        long start_ns = System.nanoTime();
+        try {
+            ((StreamingMessageProcessor<MSG_TYPE>)msgProcessor).decodeStreaming(len, frame, deliverSink);
+        }
+        catch(IOException e) {
+            stats.typeStats.recordError(streamedType);
+            streamingDecodeDone(len, start_ns);
+            System.err.println("Error: unable to decode " + len + "B message: " + e.getMessage());
+            return;
+        }
+        Object type = streamedType;
+        streamingDecodeDone(len, start_ns);
+        
+        int bytesLeftover = frame.remaining();
+        if(bytesLeftover > 0) {
+            stats.typeStats.recordError(type);
+            System.err.println("Warning: " + bytesLeftover + "B leftover for streamed " + len + "B message");
+        }
+    }
+    
+    /**
+     * Decodes the len byte message whose body is in frame.  Problems decoding
+     * the message are reported but do not cause the connection to be reset 
+     * since the next message will still be read from the right place.
+     */
+    private MSG_TYPE decodeFrame(int len) {
+        long start_ns = System.nanoTime();
+        MSG_TYPE msg;
+        try {
+            msg = msgProcessor.decode(len, frame);
+        }
+        catch(IOException e) {
+            stats.typeStats.recordError(null);
+            System.err.println("Error: unable to decode " + len + "B message: " + e.getMessage());
+            return null;
+        }
+        Object type = (msg == null) ? null : msg.getType();
+        if(msg != null)
+            stats.typeStats.recordDecode(type, 1, len, System.nanoTime() - start_ns);
+        
+        // the whole frame has been consumed already, but let the user know if
+        // the decoder did not use all of it
+        int bytesLeftover = frame.remaining();
+        if(bytesLeftover > 0) {
+            stats.typeStats.recordError(type);
+            System.err.println("Warning: " + bytesLeftover + "B leftover for message type " + type);
+        }
+        
+        return msg;
+    }
+    
+    /** placeholder in processRing for notifying the processor of a new connection */
+    private static final Object CONNECTED = new Object();
+    
+    /** placeholder in processRing for notifying the processor of a lost connection */
+    private static final Object DISCONNECTED = new Object();
+    
+    /**
+     * Passes a received message (or CONNECTED/DISCONNECTED) to the processor,
+     * either directly or via the processing thread.  Replies to our echo 
+     * probes are consumed here.
+     */
+    private void deliver(Object o) {
+        if(o instanceof OFGMessage && isEchoProbeReply((OFGMessage)o))
+            return;
+        
+        long decoded_ns = System.nanoTime();
+        if(processRing != null)
+            processRing.put(o, decoded_ns);
+        else
+            dispatch(o, decoded_ns);
+    }
+    
+    /** 
+     * Tells the processor about o (which was decoded at decoded_ns) and notes
+     * how long it took to get here and be processed.
+     */
+    @SuppressWarnings("unchecked")
+    private void dispatch(Object o, long decoded_ns) {
+        if(o == CONNECTED)
+            msgProcessor.connectionStateChange(true);
+        else if(o == DISCONNECTED)
+            msgProcessor.connectionStateChange(false);
+        else {
+            MSG_TYPE msg = (MSG_TYPE)o;
+            long start_ns = System.nanoTime();
+            msgProcessor.process(msg);
+            long end_ns = System.nanoTime();
+            stats.typeStats.recordProcess(msg.getType(), end_ns - start_ns);
+            stats.applyLag.record((end_ns - decoded_ns) / 1000);
+        }
+    }
+    
+    /** Processes received messages handed off by the receiving thread. */
+    private class ProcessThread extends Thread {
+        /** where received messages come from */
+        private final MessageRing<Object> ring;
+        
+        public ProcessThread(MessageRing<Object> ring) {
+            super("ProcessThread:" + transport);
+            setDaemon(true);
+            this.ring = ring;
+        }
+        
+        public void run() {
+            Object o;
+            while((o = ring.take()) != null) {
+                try {
+                    dispatch(o, ring.getLastStamp());
+                }
+                catch(RuntimeException e) {
+                    // keep processing subsequent messages
+                    System.err.println("Error: failed to process " + o + ": " + e);
+                    e.printStackTrace();
+                }
+            }
+        }
+    }
+    
+    /** sends an echo probe each echoInterval_ms until the connection is shut down */
+    private final Runnable echoProber = new Runnable() {
+        public void run() {
+            if(done)
+                return;
+            
+            if(isConnected())
+                sendEchoProbe();
+            HashedTimerWheel.getDefault().schedule(this, echoInterval_ms);
+        }
+    };
+    
+    /** queues an ECHO_REQUEST and remembers when it was sent */
+    private void sendEchoProbe() {
+        if(echoProbes.size() >= MAX_OUTSTANDING_ECHO_PROBES)
+            echoProbes.clear();
+        
+        OFGMessage probe = new OFGMessage(OFGMessageType.ECHO_REQUEST, nextXID.getAndIncrement());
+        try {
+            byte[] b = serialize(probe);
+            echoProbes.put(probe.xid, System.nanoTime());
+            enqueue(b);
+        }
+        catch(IOException e) {
+            System.err.println("Error: unable to send echo probe: " + e.getMessage());
+            return;
+        }
+        
+        NIOChannel myChannel = this.nio;
+        if(myChannel != null)
+            myChannel.watchForWritable();
+    }
+    
+    /** 
+     * Returns true if m answers one of our echo probes (and records its 
+     * round-trip time).
+     */
+    private boolean isEchoProbeReply(OFGMessage m) {
+        if(m.type != OFGMessageType.ECHO_REPLY)
+            return false;
+        
+        Long sent_ns = echoProbes.remove(m.xid);
+        if(sent_ns == null)
+            return false;
+        
+        stats.echoRTT.record((System.nanoTime() - sent_ns) / 1000);
+        return true;
+    }
+    
+    /** next transaction ID to use (sender threads and the echo prober take IDs concurrently) */
+    private final AtomicInteger nextXID = new AtomicInteger(1);
+    
+    /** messages which are expecting a stateful response */
+    protected final RequestTracker requests = new RequestTracker();
+    
+    /** stateful messages which are being polled by the backend for us */
+    protected ConcurrentHashMap<Integer, OFGMessage> outstandingStatefulPollRequests = new ConcurrentHashMap<Integer, OFGMessage>();
+    
+    /** 
+     * where the counters in replies to polled aggregate stats requests go, 
+     * keyed by the transaction ID of the polled request
+     */
+    private final XidMap<AggregateStatsSink> aggregateStatsSinks = new XidMap<AggregateStatsSink>();
+    
+    /**
+     * Returns the sinks which replies to polled aggregate stats requests are
+     * decoded straight into (without creating a message), keyed by the 
+     * polled request's transaction ID.  The map is cleared when the 
+     * connection is lost.
+     */
+    public XidMap<AggregateStatsSink> getAggregateStatsSinks() {
+        return aggregateStatsSinks;
+    }
+    
+    /** 
+     * Returns the bitmap of optional features (see Feature) which both sides
+     * of the current connection support.  It is empty until setFeatures() is
+     * called and is cleared when the connection is lost.
+     */
+    public int getFeatures() {
+        return features;
+    }
+    
+    /** Returns whether both sides of the current connection support f. */
+    public boolean hasFeature(Feature f) {
+        return f.isIn(features);
+    }
+    
+    /** 
+     * Sets the optional features which both sides of the current connection 
+     * support (called by the processor once it has negotiated them).
+     */
+    public void setFeatures(int features) {
+        this.features = features;
+    }
+    
+    /** 
+     * Tries to send a message and sets the transaction ID of the message
+     * to the next available transaction ID.  If m is a POLL_REQUEST message, 
+     * then the internal message's transaction ID is also set.  The message is
+     * serialized and queued; the connection's writer sends it (along with 
+     * anything else which is queued) shortly afterward.
+     * 
+     * If the connection is down, then the message is buffered and sent once 
+     * the connection is reestablished (see bufferWhileDown()).
+     * 
+     * @throws IOException  thrown if the message cannot be sent or buffered
+     *                      (e.g., it is too long for the backend to read)
+     */
+    public void sendMessage(MSG_TYPE m) throws IOException {
+        send(m);
+    }
+    
+    /**
+     * Sends m like sendMessage() and returns a handle which is completed when
+     * the reply to m arrives (or m times out).
+     * 
+     * @return the handle, or null if m is not a stateful request
+     */
+    public PendingRequest sendRequest(MSG_TYPE m) throws IOException {
+        return send(m);
+    }
+    
+    /** sends (or buffers) m and returns its handle if it is a stateful request */
+    private PendingRequest send(MSG_TYPE m) throws IOException {
+        // get the current connection
+        SocketConnection myConn = this.conn;
+        java.io.DataOutput out = (myConn == null) ? null : myConn.out;
+        NIOChannel myChannel = this.nio;
+        
+        if(!pendingSendsReplayed || (out == null && myChannel == null)) {
+            // check again while holding the lock which replay holds so the
+            // message cannot be buffered just after the buffer was replayed,
+            // nor sent ahead of the buffered messages while they're replayed
+            synchronized(pendingSends) {
+                if(!pendingSendsReplayed || !isConnected())
+                    return bufferWhileDown(m);
+            }
+            myChannel = this.nio;
+        }
+        
+        PendingRequest p = null;
+        if(m instanceof OFGMessage)
+            p = sendOFGMessage((OFGMessage)m);
+        
+        byte[] b;
+        try {
+            b = serializeForPeer(m);
+        }
+        catch(IOException e) {
+            if(m instanceof OFGMessage)
+                forgetStatefulRequest((OFGMessage)m);
+            throw e;
+        }
+        
+        enqueue(b);
+        if(myChannel != null)
+            myChannel.watchForWritable();
+        
+        if(PRINT_MESSAGES)
+            System.out.println("sent: " + m.toString());
+        
+        return p;
+    }
+    
+    /** queues the serialized message b to be sent */
+    private void enqueue(byte[] b) {
+        sendQueue.add(b);
+        stats.messageSent(b.length);
+        
+        WireJournal j = journal;
+        if(j != null)
+            j.record(WireJournal.Direction.SENT, b);
+        
+        MessageTrace t = trace;
+        if(t != null)
+            t.record(WireJournal.Direction.SENT, b);
+    }
+    
+    /**
+     * Buffers m to be sent once the connection is reestablished.  Messages 
+     * which only make sense within the session they were sent in are dropped,
+     * as are PollStop messages (the backend stops all polling when the 
+     * connection is lost) though they do cancel any buffered PollStart which
+     * they refer to.  Transaction IDs are assigned now so the caller can match
+     * replies as usual, but requests do not start timing out until they are 
+     * actually sent.
+     */
+    private PendingRequest bufferWhileDown(MSG_TYPE m) throws IOException {
+        if(done)
+            throw new IOException("connection is down");
+        
+        OFGMessage ofg = null;
+        if(m instanceof OFGMessage) {
+            ofg = (OFGMessage)m;
+            switch(ofg.type) {
+            case POLL_STOP:
+                PollStart ps = pendingSends.removePollStart(((PollStop)ofg).xid_to_stop_polling);
+                if(ps != null)
+                    forgetStatefulRequest(ps);
+                return null;
+                
+            case DISCONNECT:
+            case ECHO_REQUEST:
+            case ECHO_REPLY:
+            case AUTH_REPLY:
+            case HELLO:
+                return null;
+            }
+        }
+        
+        PendingRequest p = (ofg == null) ? null : registerOFGMessage(ofg);
+        
+        MSG_TYPE old;
+        try {
+            old = pendingSends.add(m);
+        }
+        catch(IOException e) {
+            if(ofg != null)
+                forgetStatefulRequest(ofg);
+            throw e;
+        }
+        
+        // the older copy will never be sent so replies can't come for it
+        if(old instanceof OFGMessage)
+            forgetStatefulRequest((OFGMessage)old);
+        
+        return p;
+    }
+    
+    /** stop expecting replies to m (and to the message it polls, if any) */
+    private void forgetStatefulRequest(OFGMessage m) {
+        requests.cancel(m.xid);
+        if(m.type == OFGMessageType.POLL_START) {
+            int polledXID = ((PollStart)m).msg.xid;
+            outstandingStatefulPollRequests.remove(polledXID);
+            aggregateStatsSinks.remove(polledXID);
+        }
+    }
+    
+    /**
+     * Assigns transaction IDs to m (and to the message it polls, if any) and
+     * starts tracking it if it is a stateful request.  The request's timeout
+     * starts now.
+     * 
+     * @return the handle for m if it is a stateful request, else null
+     */
+    public PendingRequest sendOFGMessage(OFGMessage m) throws IOException {
+        PendingRequest p = registerOFGMessage(m);
+        if(p != null)
+            requests.start(p, REQUEST_LIFETIME_MSEC);
+        
+        return p;
+    }
+    
+    /**
+     * Assigns transaction IDs to m (and to the message it polls, if any) and
+     * starts tracking it if it is a stateful request, but does not start its
+     * timeout.
+     */
+    private PendingRequest registerOFGMessage(OFGMessage m) {
+        if(m.xid == 0)
+            m.xid = nextXID.getAndIncrement();
+        
+        if(m.isStatefulRequest())
+            return requests.add(m);
+        else if(m.type == OFGMessageType.POLL_START) {
+            // store stateful poll requests in a different map since they do 
+            // not expire when a reply comes in
+            PollStart pollMsg = (PollStart)m;
+            if(pollMsg.msg.isStatefulRequest()) {
+                if(pollMsg.pollInterval != 0) {
+                    pollMsg.msg.xid = nextXID.getAndIncrement();
+                    outstandingStatefulPollRequests.put(pollMsg.msg.xid, pollMsg.msg);
+                }
+                else
+                    outstandingStatefulPollRequests.remove(pollMsg.msg.xid);
+            }
+        }
+        return null;
+    }
+    
+    /** 
+     * Returns the request sent with the specified transaction ID, if any.  The 
+     * stateful request returned will no longer be remembered. 
+     */
+    public OFGMessage popAssociatedStatefulRequest(int xid) {
+        return resolveStatefulRequest(xid, null);
+    }
+    
+    /** 
+     * Returns the request which reply answers, if any.  Unless the request is
+     * being polled, its handle is completed with reply and it will no longer 
+     * be remembered.
+     */
+    public OFGMessage popAssociatedStatefulRequest(OFGMessage reply) {
+        return resolveStatefulRequest(reply.xid, reply);
+    }
+    
+    /** looks up (and resolves, unless it is polled) the request with the specified xid */
+    private OFGMessage resolveStatefulRequest(int xid, OFGMessage reply) {
+        // check the poll requests map first (more efficient if we assume must 
+        // stateful replies come from poll requests)
+        OFGMessage m = outstandingStatefulPollRequests.get(xid);
+        if(m != null)
+            return m;
+        
+        PendingRequest p = requests.resolve(xid, reply);
+        return (p == null) ? null : p.request;
     }
     
     /** closes the connection to the server */
@@ -362,21 +1386,36 @@ public class BackendConnection<MSG_TYPE extends Message> extends Thread {
         System.out.println("Disconnecting from the server");
         tryToClose(conn);
         conn = null;
+        connectionLost();
+    }
+    
+    /** updates stats, forgets outstanding requests, and notifies the processor */
+    private void connectionLost() {
+        pendingSendsReplayed = false;
         stats.disconnected();
-        outstandingStatefulRequests.clear();
+        sendQueue.clear();
+        if(done)
+            pendingSends.clear();
+        requests.cancelAll();
         outstandingStatefulPollRequests.clear();
-        msgProcessor.connectionStateChange(false);
+        aggregateStatsSinks.clear();
+        echoProbes.clear();
+        features = 0;
+        deliver(DISCONNECTED);
     }
     
     /** try to close the connection to the server */
     private static void tryToClose(SocketConnection sc) {
         if( sc != null ) {
-            Socket s = sc.s;
-            if(s != null && s.isConnected()) {
-                // tell the backend we're disconnecting
+            Transport.Stream s = sc.s;
+            if(s != null && !s.isClosed()) {
+                // tell the backend we're disconnecting (after anything the
+                // writer is in the middle of sending)
                 if(sc.out != null) {
                     try {
-                        new OFGMessage(OFGMessageType.DISCONNECT, 0).write(sc.out);
+                        synchronized(sc.out) {
+                            new OFGMessage(OFGMessageType.DISCONNECT, 0).write(sc.out);
+                        }
                     }
                     catch(IOException e) { /* ignore */ }
                 }
@@ -388,6 +1427,408 @@ public class BackendConnection<MSG_TYPE extends Message> extends Thread {
         }
     }
     
+    /** 
+     * Sends queued messages over a blocking connection.  Each connection gets
+     * its own writer which exits once that connection is closed.
+     */
+    private class SocketWriter extends Thread {
+        /** how long to wait for a message before checking whether to exit */
+        private static final long IDLE_CHECK_MSEC = 1000;
+        
+        /** the connection to write to */
+        private final SocketConnection sc;
+        
+        /** buffer which queued messages are gathered into before each write */
+        private ByteBuffer buf = ByteBuffer.allocate(SocketConnection.RECV_BUFFER_SIZE);
+        
+        public SocketWriter(SocketConnection sc) {
+            super("SocketWriter:" + transport);
+            setDaemon(true);
+            this.sc = sc;
+        }
+        
+        public void run() {
+            try {
+                while(!done && conn == sc && !sc.s.isClosed()) {
+                    // don't steal messages meant for a newer connection
+                    if(!sendQueue.await(IDLE_CHECK_MSEC) || conn != sc)
+                        continue;
+                    
+                    buf = sendQueue.drainTo(buf);
+                    synchronized(sc.out) {
+                        sc.out.write(buf.array(), 0, buf.limit());
+                    }
+                }
+            }
+            catch(InterruptedException e) {
+                /* exit */
+            }
+            catch(IOException e) {
+                // closing the socket makes the reader notice and reconnect
+                if(!done && conn == sc) {
+                    System.err.println("Network Error (send): " + e);
+                    try { sc.s.close(); } catch(IOException e2) { /* ignore */ }
+                }
+            }
+        }
+    }
+    
+    /** returns the serialized form of m */
+    private static byte[] serialize(Message m) throws IOException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        m.write(new DataOutputStream(baos));
+        return baos.toByteArray();
+    }
+    
+    /** 
+     * returns the serialized form of m, or throws an IOException if m needs an
+     * extended length field and the backend has not said it can read one
+     */
+    private byte[] serializeForPeer(Message m) throws IOException {
+        byte[] b = serialize(m);
+        if(b.length > MessageLength.MAX_SHORT_LENGTH && !hasFeature(Feature.EXTENDED_LENGTH))
+            throw new IOException(b.length + "B message is too long for a backend without extended length support: " + m);
+        
+        return b;
+    }
+    
+    
+    // ----------- Selector Loop Transport ---------- //
+    
+    /** time to wait before the next attempt to connect via the selector loop */
+    private int nioRetryMsec = 250;
+    
+    /** number of attempts to connect via the selector loop since the last success */
+    private int nioTries = 0;
+    
+    /** starts a non-blocking attempt to connect to the server (on the loop's thread) */
+    private void nioConnect() {
+        if(done) {
+            markShutdown();
+            return;
+        }
+        
+        if(nioTries++ > 0)
+            System.out.println("Retrying to establish connection to server (try #" + nioTries + ")...");
+        else
+            System.out.println("Trying to establish connection to server ...");
+        
+        SocketChannel ch = null;
+        try {
+            ch = transport.openChannel(tcpNoDelay);
+            NIOChannel c = new NIOChannel(ch);
+            c.key = selectorLoop.register(ch, SelectionKey.OP_CONNECT, c);
+            if(ch.connect(transport.getAddress()))
+                c.handleConnect(c.key);
+        }
+        catch(IOException e) {
+            System.err.println(transport + ": " + e.getMessage());
+            if(ch != null) {
+                try { ch.close(); } catch(IOException e2) { /* ignore */ }
+            }
+            nioRetryLater();
+        }
+    }
+    
+    /** schedules the next attempt to connect via the selector loop */
+    private void nioRetryLater() {
+        System.out.println("Failed to establish connections to server! (will retry in " + nioRetryMsec/1000.0f  + " seconds)");
+        selectorLoop.schedule(new Runnable() {
+            public void run() {
+                nioConnect();
+            }
+        }, nioRetryMsec);
+        nioRetryMsec = Math.min(nioRetryMsec*2, RETRY_WAIT_MSEC_MAX);
+    }
+    
+    /** called on the loop's thread when c has finished connecting */
+    private void nioConnected(NIOChannel c) {
+        if(done) {
+            c.close();
+            markShutdown();
+            return;
+        }
+        
+        nioTries = 0;
+        nioRetryMsec = 250;
+        nio = c;
+        connectionEstablished();
+    }
+    
+    /** 
+     * Closes c (on the loop's thread).  If c was the established connection,
+     * then the processor is told the connection was lost and a new connection
+     * is initiated.  Otherwise c was an attempt to connect which failed, so 
+     * another attempt is scheduled.
+     */
+    private void nioClose(NIOChannel c) {
+        c.close();
+        if(c == nio) {
+            System.out.println("Disconnecting from the server");
+            nio = null;
+            connectionLost();
+            if(!done)
+                nioConnect();
+        }
+        else if(!done)
+            nioRetryLater();
+        
+        if(done)
+            markShutdown();
+    }
+    
+    /** 
+     * The non-blocking connection to the server used when this connection is
+     * serviced by a SelectorLoop.  Except for send(), its methods are called
+     * on the loop's thread.
+     */
+    private class NIOChannel implements SelectorLoop.Handler {
+        /** the channel to the server */
+        private final SocketChannel ch;
+        
+        /** the key which registers ch with the selector loop */
+        private SelectionKey key;
+        
+        /** bytes received but not yet decoded (in write mode between reads) */
+        private ByteBuffer readBuf = ByteBuffer.allocate(SocketConnection.RECV_BUFFER_SIZE);
+        
+        /** queued messages which have been gathered but not yet fully written */
+        private ByteBuffer writeBuf = (ByteBuffer)ByteBuffer.allocate(SocketConnection.RECV_BUFFER_SIZE).limit(0);
+        
+        /** whether the loop has been asked to watch for ch to become writable */
+        private final AtomicBoolean writeRequested = new AtomicBoolean(false);
+        
+        /** the task which asks the loop to watch for ch to become writable */
+        private final Runnable watchForWritable = new Runnable() {
+            public void run() {
+                if(key.isValid())
+                    key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+            }
+        };
+        
+        public NIOChannel(SocketChannel ch) {
+            this.ch = ch;
+        }
+        
+        /** 
+         * Asks the loop to write the send queue once the channel is writable 
+         * (may be called from any thread).
+         */
+        public void watchForWritable() {
+            if(writeRequested.compareAndSet(false, true))
+                selectorLoop.execute(watchForWritable);
+        }
+        
+        /** makes a single best-effort attempt to tell the backend we're disconnecting */
+        public void sendDisconnect() {
+            try {
+                ch.write(ByteBuffer.wrap(serialize(new OFGMessage(OFGMessageType.DISCONNECT, 0))));
+            }
+            catch(IOException e) { /* ignore */ }
+        }
+        
+        /** closes the channel (which also cancels its key) */
+        public void close() {
+            try {
+                ch.close();
+            }
+            catch(IOException e) { /* ignore */ }
+        }
+        
+        public void handleConnect(SelectionKey k) throws IOException {
+            ch.finishConnect();
+            k.interestOps(SelectionKey.OP_READ);
+            nioConnected(this);
+        }
+        
+        /** reads what is available and processes each complete message */
+        public void handleRead(SelectionKey k) throws IOException {
+            if(ch.read(readBuf) < 0)
+                throw new EOFException("connection closed by the server");
+            
+            readBuf.flip();
+            int needed = 0;
+            int fieldSize;
+            while((fieldSize = MessageLength.peekFieldSize(readBuf)) > 0) {
+                int len = MessageLength.peek(readBuf);
+                int bodyLen = len - LENGTH_FIELD_SIZE;
+                if(readBuf.remaining() < fieldSize + bodyLen) {
+                    needed = fieldSize + bodyLen;
+                    break;
+                }
+                
+                readBuf.position(readBuf.position() + fieldSize);
+                frame.fill(readBuf, bodyLen);
+                stats.messageReceived(fieldSize + bodyLen);
+                WireJournal j = journal;
+                if(j != null)
+                    recordFrame(j, len);
+                MessageTrace t = trace;
+                if(t != null)
+                    traceFrame(t, len);
+                if(isStreamed(len))
+                    decodeStreamingFrame(len);
+                else {
+                    MSG_TYPE msg = decodeFrame(len);
+                    if(msg != null)
+                        deliver(msg);
+                }
+                
+                // stop if processing the message caused the channel to close
+                if(!k.isValid())
+                    return;
+            }
+            readBuf.compact();
+            
+            // make room for messages which are larger than the read buffer, 
+            // and go back to the normal size once such a message is consumed
+            if(needed > readBuf.capacity())
+                resizeReadBuf(needed);
+            else if(readBuf.capacity() > SocketConnection.RECV_BUFFER_SIZE
+                    && needed <= SocketConnection.RECV_BUFFER_SIZE
+                    && readBuf.position() <= SocketConnection.RECV_BUFFER_SIZE)
+                resizeReadBuf(SocketConnection.RECV_BUFFER_SIZE);
+        }
+        
+        /** replaces readBuf with one of the specified capacity which holds the same unread bytes */
+        private void resizeReadBuf(int capacity) {
+            ByteBuffer b = ByteBuffer.allocate(capacity);
+            readBuf.flip();
+            b.put(readBuf);
+            readBuf = b;
+        }
+        
+        /** 
+         * Writes as much of the send queue as the channel will take.  Whatever
+         * is queued is gathered into one buffer and written at once.
+         */
+        public void handleWrite(SelectionKey k) throws IOException {
+            do {
+                if(!writeBuf.hasRemaining())
+                    writeBuf = sendQueue.drainTo(writeBuf);
+                
+                ch.write(writeBuf);
+                if(writeBuf.hasRemaining())
+                    return; // wait for the channel to become writable again
+            }
+            while(!sendQueue.isEmpty());
+            
+            // nothing left to write: stop watching unless more arrived meanwhile
+            k.interestOps(k.interestOps() & ~SelectionKey.OP_WRITE);
+            writeRequested.set(false);
+            if(!sendQueue.isEmpty() && writeRequested.compareAndSet(false, true))
+                k.interestOps(k.interestOps() | SelectionKey.OP_WRITE);
+        }
+        
+        public void handleError(SelectionKey k, IOException e) {
+            if(!done && this == nio)
+                System.err.println("Network Error: " + e);
+            else if(!done)
+                System.err.println(transport + ": " + e.getMessage());
+            nioClose(this);
+        }
+    }
+    
+    
+    // ----------- JMX ---------- //
+    
+    /** used to give each connection's MBean a unique name */
+    private static final AtomicInteger nextMBeanID = new AtomicInteger(0);
+    
+    /** the name this connection's MBean is registered under, if any */
+    private ObjectName mbeanName = null;
+    
+    /** registers a ConnectionStatsMXBean for this connection with the platform MBean server */
+    private synchronized void registerMBean() {
+        try {
+            ObjectName name = new ObjectName(MBEAN_DOMAIN + ":type=BackendConnection"
+                    + ",server=" + ObjectName.quote(transport.toString())
+                    + ",id=" + nextMBeanID.getAndIncrement());
+            ManagementFactory.getPlatformMBeanServer().registerMBean(new StatsMXBean(), name);
+            mbeanName = name;
+        }
+        catch(JMException e) {
+            System.err.println("Warning: unable to register connection MBean: " + e.getMessage());
+        }
+    }
+    
+    /** unregisters this connection's MBean, if any */
+    private synchronized void unregisterMBean() {
+        if(mbeanName == null)
+            return;
+        
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(mbeanName);
+        }
+        catch(JMException e) { /* ignore */ }
+        mbeanName = null;
+    }
+    
+    /** exposes this connection's stats over JMX */
+    private class StatsMXBean implements ConnectionStatsMXBean {
+        public String getServer() {
+            return transport.toString();
+        }
+        
+        public boolean isConnected() {
+            return BackendConnection.this.isConnected();
+        }
+        
+        public Map<String, Long> getMessageCounts() {
+            return stats.typeStats.getCounts();
+        }
+        
+        public Map<String, Long> getMessageBytes() {
+            return stats.typeStats.getBytes();
+        }
+        
+        public Map<String, Long> getAvgDecodeNanos() {
+            return stats.typeStats.getAvgDecodeTimes();
+        }
+        
+        public Map<String, Long> getAvgProcessNanos() {
+            return stats.typeStats.getAvgProcessTimes();
+        }
+        
+        public Map<String, Long> getMessageErrors() {
+            return stats.typeStats.getErrors();
+        }
+        
+        public double getBytesReceivedPerSec() {
+            return stats.getBytesReceivedPerSec();
+        }
+        
+        public double getMessagesReceivedPerSec() {
+            return stats.getMessagesReceivedPerSec();
+        }
+        
+        public long getEchoRTTMedianMicros() {
+            return stats.echoRTT.getValueAtPercentile(50);
+        }
+        
+        public int getProcessQueueOccupancy() {
+            return stats.getProcessQueueOccupancy();
+        }
+        
+        public int getNumRequestsInFlight() {
+            return stats.getNumRequestsInFlight();
+        }
+        
+        public void resetMessageTypeStats() {
+            stats.typeStats.reset();
+        }
+        
+        public boolean isTraceEnabled() {
+            return getEnabledTrace() != null;
+        }
+        
+        public void setTraceEnabled(boolean b) {
+            MessageTrace t = trace;
+            if(t != null)
+                t.setEnabled(b);
+        }
+    }
+    
     /** returns the server address which this object connects to */
     public String getServerAddr() {
         return serverIP;
@@ -397,4 +1838,9 @@ public class BackendConnection<MSG_TYPE extends Message> extends Thread {
     public int getServerPort() {
         return serverPort;
     }
+    
+    /** returns the name of the server (its address and port, or its local transport) */
+    public String getServerName() {
+        return transport.toString();
+    }
 }
@@ -0,0 +1,131 @@
+package org.openflow.gui.net;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Maps the one-byte type field of a message to the message type and the codec
+ * which decodes messages of that type.  Lookups are a single array index so
+ * they are cheap enough to do for every received message.  Registration is
+ * rare and replaces the whole table so lookups never need to lock.  Simple
+ * statistics are kept for each codec.  Only decoders are registered here
+ * (each message encodes itself via write()).
+ *
+ * @param <T>  the type which identifies a kind of message (e.g., an enum)
+ * @param <C>  the codec used to decode messages
+ *
+ * @author David Underhill
+ */
+public class CodecRegistry<T, C> {
+    /** number of possible values of a one-byte type field */
+    public static final int NUM_SLOTS = 256;
+
+    /** A registered message type, its codec, and statistics about its use. */
+    public static class Entry<T, C> {
+        /** the type ID this entry is registered under */
+        public final byte typeID;
+
+        /** the message type */
+        public final T type;
+
+        /** the codec (null if messages of this type are never expected to be received) */
+        public final C codec;
+
+        /** number of messages which have been decoded */
+        private final AtomicLong numDecoded = new AtomicLong(0);
+
+        /** number of bytes which have been decoded */
+        private final AtomicLong numBytes = new AtomicLong(0);
+
+        /** number of messages which could not be decoded */
+        private final AtomicLong numErrors = new AtomicLong(0);
+
+        private Entry(byte typeID, T type, C codec) {
+            this.typeID = typeID;
+            this.type = type;
+            this.codec = codec;
+        }
+
+        /** Notes that a len byte message was decoded. */
+        public void decoded(int len) {
+            numDecoded.incrementAndGet();
+            numBytes.addAndGet(len);
+        }
+
+        /** Notes that a message could not be decoded. */
+        public void failed() {
+            numErrors.incrementAndGet();
+        }
+
+        /** Returns the number of messages which have been decoded. */
+        public long getNumDecoded() {
+            return numDecoded.get();
+        }
+
+        /** Returns the number of bytes which have been decoded. */
+        public long getNumBytes() {
+            return numBytes.get();
+        }
+
+        /** Returns the number of messages which could not be decoded. */
+        public long getNumErrors() {
+            return numErrors.get();
+        }
+
+        public String toString() {
+            return type + ": decoded=" + getNumDecoded() + " bytes=" + getNumBytes() + " errors=" + getNumErrors();
+        }
+    }
+
+    /** the registered entries, indexed by unsigned type ID */
+    private volatile Entry<T, C>[] table = newTable();
+
+    @SuppressWarnings("unchecked")
+    private static <T, C> Entry<T, C>[] newTable() {
+        return (Entry<T, C>[])new Entry[NUM_SLOTS];
+    }
+
+    /**
+     * Registers the type and codec for messages whose type field is typeID,
+     * replacing any previous registration for typeID.
+     *
+     * @param codec  the codec, or null if messages of this type are known but
+     *               never expected to be received
+     *
+     * @return the new entry
+     */
+    public synchronized Entry<T, C> register(byte typeID, T type, C codec) {
+        Entry<T, C>[] newTable = table.clone();
+        Entry<T, C> e = new Entry<T, C>(typeID, type, codec);
+        newTable[typeID & 0xFF] = e;
+        table = newTable;
+        return e;
+    }
+
+    /** Returns the entry registered for typeID, or null if there is none. */
+    public Entry<T, C> get(byte typeID) {
+        return table[typeID & 0xFF];
+    }
+
+    /** Returns the type registered for typeID, or null if there is none. */
+    public T getType(byte typeID) {
+        Entry<T, C> e = table[typeID & 0xFF];
+        return (e == null) ? null : e.type;
+    }
+
+    /** Returns the codec registered for typeID, or null if there is none. */
+    public C getCodec(byte typeID) {
+        Entry<T, C> e = table[typeID & 0xFF];
+        return (e == null) ? null : e.codec;
+    }
+
+    /** Returns the entries which have been registered (in type ID order). */
+    public List<Entry<T, C>> getEntries() {
+        ArrayList<Entry<T, C>> ret = new ArrayList<Entry<T, C>>();
+        for(Entry<T, C> e : table)
+            if(e != null)
+                ret.add(e);
+        return ret;
+    }
+}
@@ -0,0 +1,57 @@
+package org.openflow.gui.net;
+
+import java.util.Map;
+
+/**
+ * The management interface which each BackendConnection registers so its
+ * statistics can be watched with JMX tools (e.g., jconsole).  Per-type maps
+ * are keyed by message type name.
+ *
+ * @author David Underhill
+ */
+public interface ConnectionStatsMXBean {
+    /** Returns the server's address and port. */
+    public String getServer();
+
+    /** Returns whether the connection is up. */
+    public boolean isConnected();
+
+    /** Returns the number of messages of each type which have been received. */
+    public Map<String, Long> getMessageCounts();
+
+    /** Returns the number of bytes received for each message type. */
+    public Map<String, Long> getMessageBytes();
+
+    /** Returns the average time it took to decode each message type (ns). */
+    public Map<String, Long> getAvgDecodeNanos();
+
+    /** Returns the average time it took to process each message type (ns). */
+    public Map<String, Long> getAvgProcessNanos();
+
+    /** Returns the number of errors (e.g., leftover bytes) for each message type. */
+    public Map<String, Long> getMessageErrors();
+
+    /** Returns the number of bytes received per second. */
+    public double getBytesReceivedPerSec();
+
+    /** Returns the number of messages received per second. */
+    public double getMessagesReceivedPerSec();
+
+    /** Returns the median echo round-trip time (us). */
+    public long getEchoRTTMedianMicros();
+
+    /** Returns the number of received messages waiting to be processed. */
+    public int getProcessQueueOccupancy();
+
+    /** Returns the number of stateful requests waiting for a reply. */
+    public int getNumRequestsInFlight();
+
+    /** Zeroes the per-type counters. */
+    public void resetMessageTypeStats();
+
+    /** Returns whether the connection's messages are being traced. */
+    public boolean isTraceEnabled();
+
+    /** Turns the connection's message trace on or off (if it has one). */
+    public void setTraceEnabled(boolean b);
+}
@@ -0,0 +1,165 @@
+package org.openflow.gui.net;
+
+import java.io.DataInput;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * A reusable buffer which holds one received message (frame) and lets it be
+ * decoded from memory via the DataInput interface.  The number of bytes which
+ * have been consumed is simply the position of the underlying ByteBuffer, so
+ * no per-read accounting is needed.  Reading past the end of the frame causes
+ * an EOFException to be thrown rather than consuming bytes which belong to the
+ * next frame.
+ *
+ * @author David Underhill
+ */
+public class FrameBuffer implements DataInput {
+    /** initial size of the buffer (it grows as larger frames are received) */
+    public static final int DEFAULT_CAPACITY = 4096;
+
+    /** holds the bytes of the current frame */
+    private ByteBuffer buf;
+
+    /** Creates a FrameBuffer with the default initial capacity. */
+    public FrameBuffer() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /** Creates a FrameBuffer with the specified initial capacity. */
+    public FrameBuffer(int capacity) {
+        buf = ByteBuffer.allocate(capacity);
+        buf.limit(0);
+    }
+
+    /**
+     * Replaces the contents of this buffer with exactly len bytes read from in.
+     *
+     * @param in   where to read the frame from
+     * @param len  number of bytes in the frame
+     */
+    public void fill(DataInput in, int len) throws IOException {
+        ensureCapacity(len);
+        buf.clear();
+        in.readFully(buf.array(), 0, len);
+        buf.limit(len);
+    }
+
+    /**
+     * Replaces the contents of this buffer with the next len bytes from src.
+     * src's position is advanced past the copied bytes.
+     *
+     * @param src  where to copy the frame from
+     * @param len  number of bytes in the frame
+     */
+    public void fill(ByteBuffer src, int len) {
+        ensureCapacity(len);
+        buf.clear();
+        int srcLimit = src.limit();
+        src.limit(src.position() + len);
+        buf.put(src);
+        src.limit(srcLimit);
+        buf.flip();
+    }
+
+    /** Returns the buffer backing this frame (positioned at the next unread byte). */
+    public ByteBuffer getBuffer() {
+        return buf;
+    }
+
+    /** Returns the number of bytes of the frame which have been read so far. */
+    public long getBytesRead() {
+        return buf.position();
+    }
+
+    /** Returns the number of bytes of the frame which have not yet been read. */
+    public int remaining() {
+        return buf.remaining();
+    }
+
+    /** grows the buffer (discarding its contents) so it can hold len bytes */
+    private void ensureCapacity(int len) {
+        if(buf.capacity() < len)
+            buf = ByteBuffer.allocate(Math.max(len, buf.capacity() * 2));
+    }
+
+    /** throws an EOFException if fewer than n bytes remain in the frame */
+    private void need(int n) throws EOFException {
+        if(buf.remaining() < n)
+            throw new EOFException("read " + (n - buf.remaining()) + "B past the end of the frame");
+    }
+
+    public final void readFully(byte b[]) throws IOException {
+        readFully(b, 0, b.length);
+    }
+
+    public final void readFully(byte b[], int off, int len) throws IOException {
+        need(len);
+        buf.get(b, off, len);
+    }
+
+    public final int skipBytes(int n) throws IOException {
+        int ret = Math.max(0, Math.min(n, buf.remaining()));
+        buf.position(buf.position() + ret);
+        return ret;
+    }
+
+    public final boolean readBoolean() throws IOException {
+        need(1);
+        return buf.get() != 0;
+    }
+
+    public final byte readByte() throws IOException {
+        need(1);
+        return buf.get();
+    }
+
+    public final int readUnsignedByte() throws IOException {
+        need(1);
+        return buf.get() & 0xFF;
+    }
+
+    public final short readShort() throws IOException {
+        need(2);
+        return buf.getShort();
+    }
+
+    public final int readUnsignedShort() throws IOException {
+        need(2);
+        return buf.getShort() & 0xFFFF;
+    }
+
+    public final char readChar() throws IOException {
+        need(2);
+        return buf.getChar();
+    }
+
+    public final int readInt() throws IOException {
+        need(4);
+        return buf.getInt();
+    }
+
+    public final long readLong() throws IOException {
+        need(8);
+        return buf.getLong();
+    }
+
+    public final float readFloat() throws IOException {
+        need(4);
+        return buf.getFloat();
+    }
+
+    public final double readDouble() throws IOException {
+        need(8);
+        return buf.getDouble();
+    }
+
+    public final String readLine() throws IOException {
+        throw new UnsupportedOperationException("readLine() is not supported");
+    }
+
+    public final String readUTF() throws IOException {
+        throw new UnsupportedOperationException("readUTF() is not supported");
+    }
+}
@@ -0,0 +1,206 @@
+package org.openflow.gui.net;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Runs tasks after a delay using a hashed timing wheel.  Scheduling and
+ * cancelling a timeout are O(1) and each tick only looks at the timeouts which
+ * hash to the current slot, so very many timeouts (e.g., one per outstanding
+ * request) can be handled cheaply.  Timeouts fire within one tick of their
+ * deadline.  Tasks run on the wheel's thread and so should be short.
+ *
+ * @author David Underhill
+ */
+public class HashedTimerWheel extends Thread {
+    /** A scheduled task which may be cancelled. */
+    public static class Timeout {
+        /** the task to run when the timeout expires */
+        private final Runnable task;
+
+        /** when the timeout expires (ms) */
+        private final long deadline;
+
+        /** number of full turns of the wheel left before expiring */
+        private long remainingRounds;
+
+        /** whether the timeout has been cancelled or has expired */
+        private final AtomicBoolean finished = new AtomicBoolean(false);
+
+        /** the next timeout in the same slot */
+        private Timeout next;
+
+        private Timeout(Runnable task, long deadline) {
+            this.task = task;
+            this.deadline = deadline;
+        }
+
+        /**
+         * Cancels the timeout.
+         *
+         * @return true if the timeout was cancelled before it expired
+         */
+        public boolean cancel() {
+            return finished.compareAndSet(false, true);
+        }
+
+        /** Returns true if the timeout has been cancelled or has expired. */
+        public boolean isFinished() {
+            return finished.get();
+        }
+    }
+
+    /** default time between ticks */
+    public static final long DEFAULT_TICK_MSEC = 50;
+
+    /** default number of slots in the wheel */
+    public static final int DEFAULT_NUM_SLOTS = 512;
+
+    /** the wheel shared by all users which do not create their own */
+    private static HashedTimerWheel defaultWheel = null;
+
+    /** Returns the shared wheel (it is created and started on first use). */
+    public static synchronized HashedTimerWheel getDefault() {
+        if(defaultWheel == null) {
+            defaultWheel = new HashedTimerWheel(DEFAULT_TICK_MSEC, DEFAULT_NUM_SLOTS);
+            defaultWheel.start();
+        }
+        return defaultWheel;
+    }
+
+    /** time between ticks */
+    private final long tick_ms;
+
+    /** the slots of the wheel (each is a singly-linked list of timeouts) */
+    private final Timeout[] slots;
+
+    /** mask which maps a tick number to a slot (number of slots is a power of two) */
+    private final int mask;
+
+    /** timeouts which have been scheduled but not yet put in a slot */
+    private final ConcurrentLinkedQueue<Timeout> newTimeouts = new ConcurrentLinkedQueue<Timeout>();
+
+    /** when the wheel started turning */
+    private long startTime;
+
+    /** number of ticks which have been processed (only used by the wheel's thread) */
+    private long tick = 0;
+
+    /** whether the wheel should stop */
+    private volatile boolean done = false;
+
+    /**
+     * Creates a new (unstarted) wheel.
+     *
+     * @param tick_ms   time between ticks (the timeout resolution)
+     * @param numSlots  the number of slots (rounded up to a power of two)
+     */
+    public HashedTimerWheel(long tick_ms, int numSlots) {
+        super("HashedTimerWheel");
+        setDaemon(true);
+
+        int n = 1;
+        while(n < numSlots)
+            n <<= 1;
+
+        this.tick_ms = tick_ms;
+        slots = new Timeout[n];
+        mask = n - 1;
+    }
+
+    /** Runs task once delay_ms milliseconds have passed (unless cancelled). */
+    public Timeout schedule(Runnable task, long delay_ms) {
+        Timeout t = new Timeout(task, System.currentTimeMillis() + delay_ms);
+        newTimeouts.add(t);
+        return t;
+    }
+
+    /** Tells the wheel to stop (pending timeouts will not fire). */
+    public void shutdown() {
+        done = true;
+        interrupt();
+    }
+
+    public void run() {
+        startTime = System.currentTimeMillis();
+        while(!done) {
+            // sleep until the next tick is due
+            long nextTick = startTime + (tick + 1) * tick_ms;
+            long sleep_ms = nextTick - System.currentTimeMillis();
+            if(sleep_ms > 0) {
+                try {
+                    Thread.sleep(sleep_ms);
+                }
+                catch(InterruptedException e) {
+                    continue;
+                }
+            }
+
+            transferNewTimeouts();
+            expire(tick & mask);
+            tick += 1;
+        }
+    }
+
+    /** puts each newly scheduled timeout in the slot for its deadline */
+    private void transferNewTimeouts() {
+        Timeout t;
+        while((t = newTimeouts.poll()) != null) {
+            if(t.isFinished())
+                continue;
+
+            // never schedule into the past: expire on the current tick
+            long ticks = Math.max(tick, (t.deadline - startTime) / tick_ms);
+            t.remainingRounds = (ticks - tick) / slots.length;
+
+            int i = (int)(ticks & mask);
+            t.next = slots[i];
+            slots[i] = t;
+        }
+    }
+
+    /** runs timeouts in slot i which are due and drops cancelled ones */
+    private void expire(long i) {
+        int slot = (int)i;
+        Timeout prev = null;
+        Timeout t = slots[slot];
+        while(t != null) {
+            Timeout next = t.next;
+            boolean remove;
+            if(t.isFinished())
+                remove = true;
+            else if(t.remainingRounds > 0) {
+                t.remainingRounds -= 1;
+                remove = false;
+            }
+            else {
+                remove = true;
+                if(t.finished.compareAndSet(false, true))
+                    runSafely(t.task);
+            }
+
+            if(remove) {
+                if(prev == null)
+                    slots[slot] = next;
+                else
+                    prev.next = next;
+                t.next = null;
+            }
+            else
+                prev = t;
+
+            t = next;
+        }
+    }
+
+    /** runs r and reports (but otherwise ignores) any unexpected exception */
+    private void runSafely(Runnable r) {
+        try {
+            r.run();
+        }
+        catch(RuntimeException e) {
+            System.err.println("HashedTimerWheel task failed: " + e);
+            e.printStackTrace();
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package org.openflow.gui.net;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A histogram of non-negative values (e.g., latencies in microseconds) in the
+ * style of an HDR histogram.  Small values are counted exactly and larger
+ * values are counted in log-linear buckets (each power of two is split into
+ * SUB_BUCKETS equal pieces) so any value is reported to within about 3% while
+ * the whole range of a long needs only a couple thousand counters.  Recording
+ * is allocation-free and may be done concurrently with reading.
+ *
+ * @author David Underhill
+ */
+public class LatencyHistogram {
+    /** log2 of the number of buckets each power of two is split into */
+    private static final int SUB_BUCKET_BITS = 5;
+
+    /** number of buckets each power of two is split into */
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    /** values below this are each counted in their own bucket */
+    private static final int LINEAR_LIMIT = 2 * SUB_BUCKETS;
+
+    /** magnitude (index of the highest set bit) of LINEAR_LIMIT */
+    private static final int FIRST_LOG_MAGNITUDE = SUB_BUCKET_BITS + 1;
+
+    /** total number of buckets */
+    private static final int NUM_BUCKETS = LINEAR_LIMIT + (63 - FIRST_LOG_MAGNITUDE) * SUB_BUCKETS;
+
+    /** number of values recorded in each bucket */
+    private final AtomicLongArray counts = new AtomicLongArray(NUM_BUCKETS);
+
+    /** number of values recorded */
+    private final AtomicLong count = new AtomicLong(0);
+
+    /** sum of the values recorded */
+    private final AtomicLong total = new AtomicLong(0);
+
+    /** smallest value recorded */
+    private final AtomicLong min = new AtomicLong(Long.MAX_VALUE);
+
+    /** largest value recorded */
+    private final AtomicLong max = new AtomicLong(0);
+
+    /** Records value (negative values are recorded as 0). */
+    public void record(long value) {
+        if(value < 0)
+            value = 0;
+
+        counts.incrementAndGet(bucketFor(value));
+        count.incrementAndGet();
+        total.addAndGet(value);
+
+        long m;
+        while(value < (m = min.get()) && !min.compareAndSet(m, value));
+        while(value > (m = max.get()) && !max.compareAndSet(m, value));
+    }
+
+    /** Returns the number of values recorded. */
+    public long getCount() {
+        return count.get();
+    }
+
+    /** Returns the smallest value recorded (0 if none have been). */
+    public long getMin() {
+        long m = min.get();
+        return m == Long.MAX_VALUE ? 0 : m;
+    }
+
+    /** Returns the largest value recorded (0 if none have been). */
+    public long getMax() {
+        return max.get();
+    }
+
+    /** Returns the mean of the values recorded (0 if none have been). */
+    public double getMean() {
+        long n = count.get();
+        return n == 0 ? 0 : total.get() / (double)n;
+    }
+
+    /**
+     * Returns the value which pct percent of the recorded values are less than
+     * or equal to (to within the histogram's precision).
+     *
+     * @param pct  the percentile in the range [0, 100]
+     */
+    public long getValueAtPercentile(double pct) {
+        long n = count.get();
+        if(n == 0)
+            return 0;
+
+        long target = Math.max(1, (long)Math.ceil(n * Math.min(100, Math.max(0, pct)) / 100.0));
+        long seen = 0;
+        for(int i=0; i<NUM_BUCKETS; i++) {
+            seen += counts.get(i);
+            if(seen >= target)
+                return Math.min(highestValueIn(i), getMax());
+        }
+        return getMax();
+    }
+
+    /** Forgets all recorded values. */
+    public void reset() {
+        for(int i=0; i<NUM_BUCKETS; i++)
+            counts.set(i, 0);
+        count.set(0);
+        total.set(0);
+        min.set(Long.MAX_VALUE);
+        max.set(0);
+    }
+
+    /** returns the index of the bucket which value is counted in */
+    private static int bucketFor(long value) {
+        if(value < LINEAR_LIMIT)
+            return (int)value;
+
+        int magnitude = 63 - Long.numberOfLeadingZeros(value);
+        int shift = magnitude - SUB_BUCKET_BITS;
+        int sub = (int)(value >>> shift) - SUB_BUCKETS;
+        return LINEAR_LIMIT + (magnitude - FIRST_LOG_MAGNITUDE) * SUB_BUCKETS + sub;
+    }
+
+    /** returns the largest value which is counted in bucket i */
+    private static long highestValueIn(int i) {
+        if(i < LINEAR_LIMIT)
+            return i;
+
+        int k = i - LINEAR_LIMIT;
+        int shift = k / SUB_BUCKETS + FIRST_LOG_MAGNITUDE - SUB_BUCKET_BITS;
+        long lowest = (long)(SUB_BUCKETS + k % SUB_BUCKETS) << shift;
+        return lowest + (1L << shift) - 1;
+    }
+
+    public String toString() {
+        return "n=" + getCount() + " min=" + getMin() + " p50=" + getValueAtPercentile(50)
+               + " p99=" + getValueAtPercentile(99) + " max=" + getMax();
+    }
+}
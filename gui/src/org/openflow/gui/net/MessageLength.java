@@ -0,0 +1,120 @@
+package org.openflow.gui.net;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Reads and writes the length field which prefixes every message.  Normally
+ * this is an unsigned 16-bit value which includes the length field itself.  A
+ * message too long for that is sent in extended form: a 16-bit length of zero
+ * followed by a 32-bit length (which includes both fields).
+ *
+ * Lengths are always reported to decoders as if the message had a normal
+ * 16-bit length field (i.e., extended lengths are reduced by
+ * EXTENDED_LENGTH_EXTRA) so that decoders need not care which form was used.
+ *
+ * @author David Underhill
+ */
+public final class MessageLength {
+    /** number of bytes in a normal length field */
+    public static final int SIZEOF = 2;
+
+    /** number of bytes in an extended length field */
+    public static final int EXTENDED_SIZEOF = 6;
+
+    /** number of bytes an extended length field adds to a message */
+    public static final int EXTENDED_LENGTH_EXTRA = EXTENDED_SIZEOF - SIZEOF;
+
+    /** the 16-bit length value which indicates that a 32-bit length follows */
+    public static final int EXTENDED_LENGTH_MARKER = 0;
+
+    /** the longest message which can be sent with a normal length field */
+    public static final int MAX_SHORT_LENGTH = 0xFFFF;
+
+    /** the longest (normalized) message length which will be accepted */
+    public static final int MAX_LENGTH = 64 * 1024 * 1024;
+
+    private MessageLength() { /* static helpers only */ }
+
+    /**
+     * Writes the length field for a message whose length (with a normal
+     * length field) is len.  The extended form is only used if len does not
+     * fit in 16 bits.
+     */
+    public static void write(DataOutput out, int len) throws IOException {
+        if(len <= MAX_SHORT_LENGTH)
+            out.writeShort(len);
+        else {
+            out.writeShort(EXTENDED_LENGTH_MARKER);
+            out.writeInt(len + EXTENDED_LENGTH_EXTRA);
+        }
+    }
+
+    /** Returns true if a message of length len must be sent in extended form. */
+    public static boolean isExtended(int len) {
+        return len > MAX_SHORT_LENGTH;
+    }
+
+    /**
+     * Reads a length field (in either form) and returns the message's
+     * normalized length.
+     *
+     * @throws IOException  if the length is invalid
+     */
+    public static int read(DataInput in) throws IOException {
+        int len = in.readUnsignedShort();
+        if(len == EXTENDED_LENGTH_MARKER)
+            return normalizeExtended(in.readInt());
+        else
+            return validate(len);
+    }
+
+    /**
+     * Returns the number of bytes at the start of buf which make up a length
+     * field, or 0 if not enough bytes are present to tell.  buf's position is
+     * not changed.
+     */
+    public static int peekFieldSize(ByteBuffer buf) {
+        if(buf.remaining() < SIZEOF)
+            return 0;
+        else if((buf.getShort(buf.position()) & 0xFFFF) != EXTENDED_LENGTH_MARKER)
+            return SIZEOF;
+        else if(buf.remaining() < EXTENDED_SIZEOF)
+            return 0;
+        else
+            return EXTENDED_SIZEOF;
+    }
+
+    /**
+     * Returns the normalized length of the message at the start of buf.  buf
+     * must contain the complete length field (see peekFieldSize()) and its
+     * position is not changed.
+     *
+     * @throws IOException  if the length is invalid
+     */
+    public static int peek(ByteBuffer buf) throws IOException {
+        int len = buf.getShort(buf.position()) & 0xFFFF;
+        if(len == EXTENDED_LENGTH_MARKER)
+            return normalizeExtended(buf.getInt(buf.position() + SIZEOF));
+        else
+            return validate(len);
+    }
+
+    /** converts an extended length into a normalized length */
+    private static int normalizeExtended(int extLen) throws IOException {
+        if(extLen < EXTENDED_SIZEOF || extLen - EXTENDED_LENGTH_EXTRA > MAX_LENGTH)
+            throw new IOException("received a message with an invalid extended length (" + (extLen & 0xFFFFFFFFL) + "B)");
+
+        return extLen - EXTENDED_LENGTH_EXTRA;
+    }
+
+    /** makes sure len is long enough to include the length field */
+    private static int validate(int len) throws IOException {
+        if(len < SIZEOF)
+            throw new IOException("received a message with an invalid length (" + len + "B)");
+
+        return len;
+    }
+}
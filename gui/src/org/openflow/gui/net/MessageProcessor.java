@@ -16,7 +16,9 @@ public interface MessageProcessor<MSG_TYPE extends Message> {
     /** 
      * Constructs the object representing the received message.  The message is 
      * known to be of length len and len - 4 bytes representing the rest of the 
-     * message should be extracted from buf.
+     * message should be extracted from buf.  null may be returned if the 
+     * message was completely handled while it was being decoded (it is not
+     * passed to process() in that case).
      */
     public MSG_TYPE decode(int len, DataInput in) throws IOException;
     
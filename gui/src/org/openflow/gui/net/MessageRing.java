@@ -0,0 +1,231 @@
+package org.openflow.gui.net;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A bounded, lock-free queue which passes items from exactly one producer
+ * thread to exactly one consumer thread.  The producer waits (a "stall") when
+ * the ring is full rather than discarding items; items which are put after the
+ * ring has been closed are dropped.  The consumer parks while the ring is
+ * empty and is woken by the producer.  Each item may carry a timestamp (e.g.,
+ * when it was produced) which the consumer can look at after taking it.
+ *
+ * @param <T>  the type of item passed through the ring
+ *
+ * @author David Underhill
+ */
+public class MessageRing<T> {
+    /** how long the producer sleeps between checks for space while stalled */
+    private static final long STALL_PARK_NSEC = 100 * 1000;
+
+    /** holds the items (capacity is a power of two) */
+    private final Object[] slots;
+
+    /** the timestamp of the item in each slot */
+    private final long[] stamps;
+
+    /** timestamp of the item most recently removed (only used by the consumer) */
+    private long lastStamp = 0;
+
+    /** mask which maps a sequence number to its slot */
+    private final int mask;
+
+    /** sequence number of the next item to take (only written by the consumer) */
+    private final AtomicLong head = new AtomicLong(0);
+
+    /** sequence number of the next item to put (only written by the producer) */
+    private final AtomicLong tail = new AtomicLong(0);
+
+    /** the thread which is parked waiting for an item, if any */
+    private volatile Thread waitingConsumer = null;
+
+    /** whether the ring has been closed */
+    private volatile boolean closed = false;
+
+    /** most items which have been in the ring at once */
+    private volatile int highWaterMark = 0;
+
+    /** number of times the producer had to wait for space */
+    private final AtomicLong numStalls = new AtomicLong(0);
+
+    /** number of items which were discarded because the ring was closed */
+    private final AtomicLong numDrops = new AtomicLong(0);
+
+    /**
+     * Creates a ring which holds at least minCapacity items (the capacity is
+     * rounded up to a power of two).
+     */
+    public MessageRing(int minCapacity) {
+        int capacity = 1;
+        while(capacity < minCapacity)
+            capacity <<= 1;
+
+        slots = new Object[capacity];
+        stamps = new long[capacity];
+        mask = capacity - 1;
+    }
+
+    /**
+     * Adds item to the ring if there is space (producer only).
+     *
+     * @return true if the item was added
+     */
+    public boolean offer(T item) {
+        return offer(item, 0);
+    }
+
+    /**
+     * Adds item with the specified timestamp to the ring if there is space
+     * (producer only).
+     *
+     * @return true if the item was added
+     */
+    public boolean offer(T item, long stamp) {
+        long t = tail.get();
+        int occupancy = (int)(t - head.get());
+        if(occupancy >= slots.length)
+            return false;
+
+        int i = (int)t & mask;
+        slots[i] = item;
+        stamps[i] = stamp;
+        tail.set(t + 1);
+
+        if(occupancy + 1 > highWaterMark)
+            highWaterMark = occupancy + 1;
+
+        Thread c = waitingConsumer;
+        if(c != null)
+            LockSupport.unpark(c);
+
+        return true;
+    }
+
+    /**
+     * Adds item to the ring, waiting for space if the ring is full (producer
+     * only).
+     *
+     * @return true if the item was added, or false if it was dropped because
+     *         the ring has been closed
+     */
+    public boolean put(T item) {
+        return put(item, 0);
+    }
+
+    /**
+     * Adds item with the specified timestamp to the ring, waiting for space
+     * if the ring is full (producer only).
+     *
+     * @return true if the item was added, or false if it was dropped because
+     *         the ring has been closed
+     */
+    public boolean put(T item, long stamp) {
+        if(!closed && offer(item, stamp))
+            return true;
+
+        if(!closed)
+            numStalls.incrementAndGet();
+
+        while(!closed) {
+            LockSupport.parkNanos(STALL_PARK_NSEC);
+            if(offer(item, stamp))
+                return true;
+        }
+
+        numDrops.incrementAndGet();
+        return false;
+    }
+
+    /**
+     * Removes and returns the oldest item, or null if the ring is empty
+     * (consumer only).
+     */
+    @SuppressWarnings("unchecked")
+    public T poll() {
+        long h = head.get();
+        if(h == tail.get())
+            return null;
+
+        int i = (int)h & mask;
+        T item = (T)slots[i];
+        slots[i] = null;
+        lastStamp = stamps[i];
+        head.lazySet(h + 1);
+        return item;
+    }
+
+    /**
+     * Removes and returns the oldest item, waiting for one if the ring is
+     * empty (consumer only).  Items which were added before the ring was
+     * closed are still returned.
+     *
+     * @return the item, or null if the ring is closed and empty
+     */
+    public T take() {
+        T item;
+        while((item = poll()) == null) {
+            if(closed) {
+                // one last look in case an item raced with close()
+                return poll();
+            }
+
+            waitingConsumer = Thread.currentThread();
+            if(isEmpty() && !closed)
+                LockSupport.park(this);
+            waitingConsumer = null;
+        }
+        return item;
+    }
+
+    /**
+     * Returns the timestamp of the item most recently returned by poll() or
+     * take() (consumer only).
+     */
+    public long getLastStamp() {
+        return lastStamp;
+    }
+
+    /** Closes the ring: future puts are dropped and a waiting consumer is woken. */
+    public void close() {
+        closed = true;
+        Thread c = waitingConsumer;
+        if(c != null)
+            LockSupport.unpark(c);
+    }
+
+    /** Returns whether the ring has been closed. */
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /** Returns true if the ring holds no items. */
+    public boolean isEmpty() {
+        return head.get() == tail.get();
+    }
+
+    /** Returns the number of items in the ring. */
+    public int getOccupancy() {
+        return (int)(tail.get() - head.get());
+    }
+
+    /** Returns the maximum number of items the ring can hold. */
+    public int getCapacity() {
+        return slots.length;
+    }
+
+    /** Returns the most items which have been in the ring at once. */
+    public int getHighWaterMark() {
+        return highWaterMark;
+    }
+
+    /** Returns the number of times the producer had to wait for space. */
+    public long getNumStalls() {
+        return numStalls.get();
+    }
+
+    /** Returns the number of items which were discarded because the ring was closed. */
+    public long getNumDrops() {
+        return numDrops.get();
+    }
+}
@@ -0,0 +1,449 @@
+package org.openflow.gui.net;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A cheap, always-available trace of the messages sent and received on a
+ * connection.  Unlike printing each message (BackendConnection.PRINT_MESSAGES)
+ * recording a message only copies its header (and optionally the first few
+ * bytes of its body) into a lock-free ring; a background thread drains the
+ * ring to a file.  If the ring is full the record is dropped rather than
+ * holding up the connection.  Tracing can be turned on and off at runtime and
+ * each message type can be sampled (only 1 of every N recorded).
+ *
+ * The file starts with a header: a magic number (4B), a version (2B), 2
+ * reserved bytes, and the wall-clock time (ms) the trace was started (8B).
+ * Each record is when the message was recorded relative to the start of the
+ * trace (8B, ns), the direction (1B), the message's type (1B), its
+ * transaction ID (4B), its length (4B), the number of body bytes captured
+ * (2B), and then those bytes (the body starts with the type byte).  Reader
+ * reads a trace back (OpenFlowGUI --print-trace pretty-prints one).
+ *
+ * @author David Underhill
+ */
+public class MessageTrace {
+    /** identifies a trace file ("OFGT") */
+    public static final int MAGIC = 0x4F464754;
+
+    /** version of the trace format */
+    public static final short VERSION = 1;
+
+    /** number of bytes in the file header */
+    public static final int FILE_HEADER_SIZE = 16;
+
+    /** number of bytes which precede the captured bytes in each record */
+    public static final int RECORD_HEADER_SIZE = 20;
+
+    /** default number of records the ring can hold */
+    public static final int DEFAULT_CAPACITY = 8192;
+
+    /** most body bytes which may be captured for each message */
+    public static final int MAX_CAPTURE_BYTES = 0xFFFF;
+
+    /** number of distinct message type values */
+    public static final int NUM_TYPES = 256;
+
+    /** how long the draining thread sleeps when the ring is empty */
+    private static final long DRAIN_PARK_NSEC = 1000 * 1000;
+
+    /** the directions, indexed by how they are recorded */
+    private static final WireJournal.Direction[] DIRECTIONS = WireJournal.Direction.values();
+
+    /** a record in the ring (only touched by the producer which claimed it until it is published) */
+    private static class Slot {
+        long time_ns;
+        byte dir;
+        byte type;
+        int xid;
+        int len;
+        int captured;
+        final byte[] body;
+
+        Slot(int captureBytes) {
+            body = new byte[captureBytes];
+        }
+    }
+
+    /** the path of the trace file */
+    private final String path;
+
+    /** holds the records (capacity is a power of two) */
+    private final Slot[] slots;
+
+    /**
+     * sequence number each slot is ready for: a producer may fill slot i for
+     * sequence s when it equals s, and the consumer may take it once it is s+1
+     */
+    private final AtomicLongArray ready;
+
+    /** mask which maps a sequence number to its slot */
+    private final int mask;
+
+    /** sequence number of the next record to claim */
+    private final AtomicLong tail = new AtomicLong(0);
+
+    /** sequence number of the next record to drain (only used by the drainer) */
+    private long head = 0;
+
+    /** how many body bytes to capture for each message */
+    private final int captureBytes;
+
+    /** only 1 of every samplePeriod[t] messages of type t is recorded (0 for none) */
+    private final AtomicIntegerArray samplePeriod = new AtomicIntegerArray(NUM_TYPES);
+
+    /** number of messages of each type seen while tracing was enabled */
+    private final AtomicIntegerArray sampleCount = new AtomicIntegerArray(NUM_TYPES);
+
+    /** monotonic time the trace was started (ns) */
+    private final long startTime_ns;
+
+    /** where records are written (only used by the drainer) */
+    private final DataOutputStream out;
+
+    /** the thread which drains the ring to the file */
+    private final Thread drainer;
+
+    /** whether messages are being recorded */
+    private volatile boolean enabled = true;
+
+    /** whether the trace has been closed */
+    private volatile boolean closed = false;
+
+    /** number of records dropped because the ring was full */
+    private final AtomicLong numDropped = new AtomicLong(0);
+
+    /** number of records written to the file */
+    private volatile long numWritten = 0;
+
+    /** Creates a trace which captures only message headers in a ring of DEFAULT_CAPACITY. */
+    public MessageTrace(String path) throws IOException {
+        this(path, DEFAULT_CAPACITY, 0);
+    }
+
+    /**
+     * Creates a trace which writes to path and starts draining it.
+     *
+     * @param path          the file to write the trace to
+     * @param minCapacity   minimum number of records the ring holds (rounded
+     *                      up to a power of two)
+     * @param captureBytes  how many bytes of each message's body to capture
+     */
+    public MessageTrace(String path, int minCapacity, int captureBytes) throws IOException {
+        if(captureBytes < 0 || captureBytes > MAX_CAPTURE_BYTES)
+            throw new IllegalArgumentException("captureBytes must be between 0 and " + MAX_CAPTURE_BYTES);
+
+        int capacity = 1;
+        while(capacity < minCapacity)
+            capacity <<= 1;
+
+        this.path = path;
+        this.captureBytes = captureBytes;
+        slots = new Slot[capacity];
+        ready = new AtomicLongArray(capacity);
+        for(int i=0; i<capacity; i++) {
+            slots[i] = new Slot(captureBytes);
+            ready.set(i, i);
+        }
+        mask = capacity - 1;
+        for(int t=0; t<NUM_TYPES; t++)
+            samplePeriod.set(t, 1);
+
+        out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(path), 64 * 1024));
+        startTime_ns = System.nanoTime();
+        out.writeInt(MAGIC);
+        out.writeShort(VERSION);
+        out.writeShort(0);
+        out.writeLong(System.currentTimeMillis());
+
+        drainer = new Thread("MessageTrace:" + path) {
+            public void run() {
+                drain();
+            }
+        };
+        drainer.setDaemon(true);
+        drainer.start();
+    }
+
+    /** Returns the path of the trace file. */
+    public String getPath() {
+        return path;
+    }
+
+    /** Returns whether messages are being recorded. */
+    public boolean isEnabled() {
+        return enabled && !closed;
+    }
+
+    /** Sets whether messages are recorded (the trace stays open either way). */
+    public void setEnabled(boolean b) {
+        enabled = b;
+    }
+
+    /**
+     * Sets the sampling of messages of the specified type: only 1 of every
+     * period messages is recorded (1 records all of them; 0 records none).
+     */
+    public void setSampling(int type, int period) {
+        if(period < 0)
+            throw new IllegalArgumentException("period may not be negative");
+
+        samplePeriod.set(type & 0xFF, period);
+    }
+
+    /** Sets the sampling (see setSampling(int, int)) of every message type. */
+    public void setSampling(int period) {
+        for(int t=0; t<NUM_TYPES; t++)
+            setSampling(t, period);
+    }
+
+    /** Returns the number of records dropped because the ring was full. */
+    public long getNumDropped() {
+        return numDropped.get();
+    }
+
+    /** Returns the number of records written to the file so far. */
+    public long getNumWritten() {
+        return numWritten;
+    }
+
+    /**
+     * Records a message whose (normalized) length is len and whose body (the
+     * bytes after its length field) is bodyLen bytes of buf starting at off.
+     */
+    public void record(WireJournal.Direction d, int len, byte[] buf, int off, int bodyLen) {
+        if(!enabled || closed || bodyLen <= 0)
+            return;
+
+        int type = buf[off] & 0xFF;
+        int period = samplePeriod.get(type);
+        if(period == 0 || (period > 1 && sampleCount.getAndIncrement(type) % period != 0))
+            return;
+
+        // claim a slot
+        long seq;
+        Slot s;
+        while(true) {
+            seq = tail.get();
+            int i = (int)seq & mask;
+            long diff = ready.get(i) - seq;
+            if(diff == 0) {
+                if(tail.compareAndSet(seq, seq + 1)) {
+                    s = slots[i];
+                    break;
+                }
+            }
+            else if(diff < 0) {
+                // the drainer has not caught up: drop rather than wait
+                numDropped.incrementAndGet();
+                return;
+            }
+        }
+
+        s.time_ns = System.nanoTime() - startTime_ns;
+        s.dir = (byte)d.ordinal();
+        s.type = (byte)type;
+        s.xid = (bodyLen >= 5) ? ((buf[off+1] & 0xFF) << 24) | ((buf[off+2] & 0xFF) << 16)
+                                 | ((buf[off+3] & 0xFF) << 8) | (buf[off+4] & 0xFF) : 0;
+        s.len = len;
+        s.captured = Math.min(bodyLen, captureBytes);
+        System.arraycopy(buf, off, s.body, 0, s.captured);
+        ready.set((int)seq & mask, seq + 1);
+    }
+
+    /** Records a message which is already serialized (including its length field). */
+    public void record(WireJournal.Direction d, byte[] wire) {
+        if(!enabled || closed || wire.length < MessageLength.SIZEOF)
+            return;
+
+        int fieldSize = (((wire[0] & 0xFF) << 8) | (wire[1] & 0xFF)) == MessageLength.EXTENDED_LENGTH_MARKER
+                      ? MessageLength.EXTENDED_SIZEOF : MessageLength.SIZEOF;
+        int bodyLen = wire.length - fieldSize;
+        record(d, MessageLength.SIZEOF + bodyLen, wire, fieldSize, bodyLen);
+    }
+
+    /** writes records to the file until the trace is closed */
+    private void drain() {
+        try {
+            while(true) {
+                boolean wasClosed = closed;
+                int n = drainReady();
+                if(n == 0) {
+                    if(wasClosed)
+                        break;
+
+                    out.flush();
+                    LockSupport.parkNanos(DRAIN_PARK_NSEC);
+                }
+            }
+            out.close();
+        }
+        catch(IOException e) {
+            System.err.println("Error: unable to write to trace " + path + " (tracing stopped): " + e.getMessage());
+            closed = true;
+        }
+    }
+
+    /** writes the records which are ready to the file and returns how many there were */
+    private int drainReady() throws IOException {
+        int n = 0;
+        while(true) {
+            int i = (int)head & mask;
+            if(ready.get(i) != head + 1)
+                return n;
+
+            Slot s = slots[i];
+            out.writeLong(s.time_ns);
+            out.writeByte(s.dir);
+            out.writeByte(s.type);
+            out.writeInt(s.xid);
+            out.writeInt(s.len);
+            out.writeShort(s.captured);
+            out.write(s.body, 0, s.captured);
+            ready.set(i, head + slots.length);
+            head += 1;
+            numWritten += 1;
+            n += 1;
+        }
+    }
+
+    /**
+     * Stops recording, waits for the records already in the ring to be
+     * written, and closes the file.
+     */
+    public void close() {
+        if(closed)
+            return;
+
+        closed = true;
+        LockSupport.unpark(drainer);
+        try {
+            drainer.join();
+        }
+        catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /** Reads the records of a trace file in the order they were written. */
+    public static class Reader {
+        /** the trace being read */
+        private final DataInputStream in;
+
+        /** wall-clock time the trace was started (ms) */
+        private final long startTime_ms;
+
+        /** fields of the current record */
+        private long time_ns;
+        private WireJournal.Direction direction;
+        private byte type;
+        private int xid;
+        private int len;
+        private byte[] body = new byte[0];
+
+        /** Opens the trace at path and reads its header. */
+        public Reader(String path) throws IOException {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(path)));
+            try {
+                if(in.readInt() != MAGIC)
+                    throw new IOException(path + " is not a message trace");
+                if(in.readShort() != VERSION)
+                    throw new IOException(path + " has an unsupported trace version");
+
+                in.readShort();
+                startTime_ms = in.readLong();
+            }
+            catch(IOException e) {
+                in.close();
+                throw e;
+            }
+        }
+
+        /**
+         * Advances to the next record.
+         *
+         * @return false if there are no more (complete) records
+         */
+        public boolean next() throws IOException {
+            try {
+                time_ns = in.readLong();
+            }
+            catch(EOFException e) {
+                return false;
+            }
+
+            try {
+                byte dir = in.readByte();
+                if(dir < 0 || dir >= DIRECTIONS.length)
+                    throw new IOException("corrupt trace record (direction " + dir + ")");
+
+                direction = DIRECTIONS[dir];
+                type = in.readByte();
+                xid = in.readInt();
+                len = in.readInt();
+                body = new byte[in.readUnsignedShort()];
+                in.readFully(body);
+                return true;
+            }
+            catch(EOFException e) {
+                // the trace ended in the middle of a record
+                return false;
+            }
+        }
+
+        /** Returns when the current record was recorded (ns since the trace started). */
+        public long getTime_ns() {
+            return time_ns;
+        }
+
+        /** Returns the direction of the current message. */
+        public WireJournal.Direction getDirection() {
+            return direction;
+        }
+
+        /** Returns the type of the current message. */
+        public byte getType() {
+            return type;
+        }
+
+        /** Returns the transaction ID of the current message. */
+        public int getXID() {
+            return xid;
+        }
+
+        /** Returns the (normalized) length of the current message. */
+        public int getLength() {
+            return len;
+        }
+
+        /** Returns the bytes of the current message's body which were captured. */
+        public byte[] getBody() {
+            return body;
+        }
+
+        /** Returns whether the whole body of the current message was captured. */
+        public boolean isComplete() {
+            return body.length == len - MessageLength.SIZEOF;
+        }
+
+        /** Returns the wall-clock time the trace was started (ms). */
+        public long getStartTime_ms() {
+            return startTime_ms;
+        }
+
+        /** Closes the trace file. */
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+}
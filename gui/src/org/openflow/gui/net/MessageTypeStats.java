@@ -0,0 +1,155 @@
+package org.openflow.gui.net;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Lock-free counters kept for each type of message received on a connection:
+ * how many were received, how many bytes they took, how long they took to
+ * decode and process, and how many had errors (e.g., leftover or over-read
+ * bytes).  Message types are expected to be enums and are indexed by their
+ * ordinal; anything else (including failures to decode a message at all) is
+ * counted under UNKNOWN_TYPE.
+ *
+ * @author David Underhill
+ */
+public class MessageTypeStats {
+    /** most distinct message types which can be tracked */
+    public static final int MAX_TYPES = 256;
+
+    /** name reported for messages whose type could not be determined */
+    public static final String UNKNOWN_TYPE = "UNKNOWN";
+
+    /** index used for messages whose type could not be determined */
+    private static final int UNKNOWN_INDEX = MAX_TYPES - 1;
+
+    /** the type which each index corresponds to (null until first seen) */
+    private final AtomicReferenceArray<Object> types = new AtomicReferenceArray<Object>(MAX_TYPES);
+
+    /** number of messages of each type which have been decoded */
+    private final AtomicLongArray counts = new AtomicLongArray(MAX_TYPES);
+
+    /** number of bytes received for each type */
+    private final AtomicLongArray bytes = new AtomicLongArray(MAX_TYPES);
+
+    /** time spent decoding each type (ns) */
+    private final AtomicLongArray decodeTimes = new AtomicLongArray(MAX_TYPES);
+
+    /** number of messages of each type which have been processed */
+    private final AtomicLongArray processCounts = new AtomicLongArray(MAX_TYPES);
+
+    /** time spent processing each type (ns) */
+    private final AtomicLongArray processTimes = new AtomicLongArray(MAX_TYPES);
+
+    /** number of errors for each type */
+    private final AtomicLongArray errors = new AtomicLongArray(MAX_TYPES);
+
+    /** returns the index which type is counted at (and remembers its name) */
+    private int indexOf(Object type) {
+        int i = UNKNOWN_INDEX;
+        if(type instanceof Enum) {
+            int ordinal = ((Enum)type).ordinal();
+            if(ordinal < UNKNOWN_INDEX)
+                i = ordinal;
+        }
+
+        if(i != UNKNOWN_INDEX && types.get(i) == null)
+            types.compareAndSet(i, null, type);
+        return i;
+    }
+
+    /**
+     * Notes that n messages of the specified type were decoded from numBytes
+     * bytes in decode_ns nanoseconds.
+     */
+    public void recordDecode(Object type, int n, long numBytes, long decode_ns) {
+        int i = indexOf(type);
+        counts.addAndGet(i, n);
+        bytes.addAndGet(i, numBytes);
+        decodeTimes.addAndGet(i, decode_ns);
+    }
+
+    /** Notes that a message of the specified type took process_ns nanoseconds to process. */
+    public void recordProcess(Object type, long process_ns) {
+        int i = indexOf(type);
+        processCounts.incrementAndGet(i);
+        processTimes.addAndGet(i, process_ns);
+    }
+
+    /** Notes that a message of the specified type (null if unknown) had an error. */
+    public void recordError(Object type) {
+        errors.incrementAndGet(indexOf(type));
+    }
+
+    /** Returns the number of messages of each type which have been received. */
+    public Map<String, Long> getCounts() {
+        return snapshot(counts);
+    }
+
+    /** Returns the number of bytes received for each type. */
+    public Map<String, Long> getBytes() {
+        return snapshot(bytes);
+    }
+
+    /** Returns the number of errors for each type. */
+    public Map<String, Long> getErrors() {
+        return snapshot(errors);
+    }
+
+    /** Returns the average time it took to decode each type (ns). */
+    public Map<String, Long> getAvgDecodeTimes() {
+        return averages(decodeTimes, counts);
+    }
+
+    /** Returns the average time it took to process each type (ns). */
+    public Map<String, Long> getAvgProcessTimes() {
+        return averages(processTimes, processCounts);
+    }
+
+    /** Zeroes all of the counters. */
+    public void reset() {
+        for(int i=0; i<MAX_TYPES; i++) {
+            counts.set(i, 0);
+            bytes.set(i, 0);
+            decodeTimes.set(i, 0);
+            processCounts.set(i, 0);
+            processTimes.set(i, 0);
+            errors.set(i, 0);
+        }
+    }
+
+    /** returns the name of the type at index i, or null if it has not been seen */
+    private String nameOf(int i) {
+        if(i == UNKNOWN_INDEX)
+            return UNKNOWN_TYPE;
+
+        Object type = types.get(i);
+        return (type == null) ? null : type.toString();
+    }
+
+    /** returns the non-zero values in a, keyed by type name */
+    private Map<String, Long> snapshot(AtomicLongArray a) {
+        Map<String, Long> ret = new LinkedHashMap<String, Long>();
+        for(int i=0; i<MAX_TYPES; i++) {
+            long v = a.get(i);
+            String name = nameOf(i);
+            if(v != 0 && name != null)
+                ret.put(name, v);
+        }
+        return ret;
+    }
+
+    /** returns totals[i] / n[i] for each type with a non-zero n, keyed by type name */
+    private Map<String, Long> averages(AtomicLongArray totals, AtomicLongArray n) {
+        Map<String, Long> ret = new LinkedHashMap<String, Long>();
+        for(int i=0; i<MAX_TYPES; i++) {
+            long c = n.get(i);
+            String name = nameOf(i);
+            if(c != 0 && name != null)
+                ret.put(name, totals.get(i) / c);
+        }
+        return ret;
+    }
+}
@@ -0,0 +1,163 @@
+package org.openflow.gui.net;
+
+import java.util.ArrayList;
+
+import org.openflow.gui.net.protocol.OFGMessage;
+
+/**
+ * A handle to a stateful request which has been sent to the backend.  It is
+ * completed when a reply with the same transaction ID arrives, when the
+ * request times out, or when it is cancelled (e.g., because the connection was
+ * lost).  Callers may wait for completion or register a listener.
+ *
+ * @author David Underhill
+ */
+public class PendingRequest {
+    /** how a request was completed */
+    public enum Status {
+        /** still waiting for a reply */
+        PENDING,
+
+        /** a reply was received */
+        REPLIED,
+
+        /** no reply was received in time */
+        TIMED_OUT,
+
+        /** the request was abandoned (e.g., the connection was lost) */
+        CANCELLED
+    }
+
+    /** Is told when a request is completed. */
+    public interface Listener {
+        /** called (on the completing thread) once r is no longer pending */
+        public void requestCompleted(PendingRequest r);
+    }
+
+    /** the request */
+    public final OFGMessage request;
+
+    /** the current status of the request */
+    private Status status = Status.PENDING;
+
+    /** the reply, if one has been received */
+    private OFGMessage reply = null;
+
+    /** when the request was sent (ns; 0 => not yet sent) */
+    private long timeSent_ns = 0;
+
+    /** how long it took the reply to arrive (ns) */
+    private long latency_ns = -1;
+
+    /** pending timeout, if any */
+    volatile HashedTimerWheel.Timeout timeout = null;
+
+    /** listeners to tell when the request completes */
+    private ArrayList<Listener> listeners = null;
+
+    PendingRequest(OFGMessage request) {
+        this.request = request;
+    }
+
+    /** Returns the transaction ID of the request. */
+    public int getXID() {
+        return request.xid;
+    }
+
+    /** Returns the current status of the request. */
+    public synchronized Status getStatus() {
+        return status;
+    }
+
+    /** Returns true if the request is no longer pending. */
+    public synchronized boolean isDone() {
+        return status != Status.PENDING;
+    }
+
+    /** Returns the reply, or null if no reply has been received. */
+    public synchronized OFGMessage getReply() {
+        return reply;
+    }
+
+    /** Returns how long the reply took to arrive (ms), or -1 if there was no reply. */
+    public synchronized double getLatency_ms() {
+        return latency_ns < 0 ? -1 : latency_ns / 1000000.0;
+    }
+
+    /**
+     * Waits up to timeout_ms milliseconds for the request to complete.
+     *
+     * @return the reply, or null if the request timed out, was cancelled, or
+     *         is still pending
+     */
+    public synchronized OFGMessage get(long timeout_ms) throws InterruptedException {
+        long end = System.currentTimeMillis() + timeout_ms;
+        long left = timeout_ms;
+        while(status == Status.PENDING && left > 0) {
+            wait(left);
+            left = end - System.currentTimeMillis();
+        }
+        return reply;
+    }
+
+    /**
+     * Adds a listener which is told when the request completes (immediately if
+     * it has already completed).
+     */
+    public void addListener(Listener l) {
+        synchronized(this) {
+            if(status == Status.PENDING) {
+                if(listeners == null)
+                    listeners = new ArrayList<Listener>(1);
+                listeners.add(l);
+                return;
+            }
+        }
+        l.requestCompleted(this);
+    }
+
+    /** notes that the request is being sent now */
+    synchronized void sent() {
+        timeSent_ns = System.nanoTime();
+    }
+
+    /**
+     * Completes the request (unless it was already completed).
+     *
+     * @return true if this call completed the request
+     */
+    boolean complete(Status s, OFGMessage reply) {
+        ArrayList<Listener> toNotify;
+        synchronized(this) {
+            if(status != Status.PENDING)
+                return false;
+
+            status = s;
+            this.reply = reply;
+            if(s == Status.REPLIED && timeSent_ns != 0)
+                latency_ns = System.nanoTime() - timeSent_ns;
+
+            if(timeout != null)
+                timeout.cancel();
+
+            toNotify = listeners;
+            listeners = null;
+            notifyAll();
+        }
+
+        if(toNotify != null)
+            for(Listener l : toNotify)
+                l.requestCompleted(this);
+
+        return true;
+    }
+
+    /** returns the raw latency in nanoseconds (-1 if there was no reply) */
+    synchronized long getLatency_ns() {
+        return latency_ns;
+    }
+
+    public String toString() {
+        return "PendingRequest{" + getStatus() + ": " + request + "}";
+    }
+}
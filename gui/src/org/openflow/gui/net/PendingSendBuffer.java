@@ -0,0 +1,176 @@
+package org.openflow.gui.net;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+import org.openflow.gui.net.protocol.OFGMessage;
+import org.openflow.gui.net.protocol.PollStart;
+
+/**
+ * A bounded buffer of messages which were sent while the connection was down.
+ * Messages which are identical except for their transaction IDs (e.g., the
+ * same subscription or poll request made twice) are collapsed into one entry
+ * which holds the most recent copy.  Entries keep the order in which they
+ * were first added.
+ *
+ * @param <MSG_TYPE>  the type of message being buffered
+ *
+ * @author David Underhill
+ */
+public class PendingSendBuffer<MSG_TYPE extends Message> {
+    /** offset of the xid field from the end of a serialized OFGMessage's length field */
+    private static final int XID_OFFSET = 1;
+
+    /** offset of the polled message from the end of a serialized PollStart's xid field */
+    private static final int POLLED_MSG_OFFSET = 2;
+
+    /** identifies messages which are the same except for their xids */
+    private static class Key {
+        private final byte[] bytes;
+        private final int hash;
+
+        public Key(byte[] bytes) {
+            this.bytes = bytes;
+            this.hash = Arrays.hashCode(bytes);
+        }
+
+        public int hashCode() {
+            return hash;
+        }
+
+        public boolean equals(Object o) {
+            return o instanceof Key && Arrays.equals(bytes, ((Key)o).bytes);
+        }
+    }
+
+    /** the maximum number of messages which may be buffered */
+    private final int capacity;
+
+    /** buffered messages */
+    private final LinkedHashMap<Key, MSG_TYPE> pending = new LinkedHashMap<Key, MSG_TYPE>();
+
+    /** number of messages which were collapsed into an existing entry */
+    private long numCollapsed = 0;
+
+    /** Creates a buffer which holds up to capacity messages. */
+    public PendingSendBuffer(int capacity) {
+        this.capacity = capacity;
+    }
+
+    /**
+     * Buffers m.  If an identical message (ignoring xids) is already buffered,
+     * then m replaces it.
+     *
+     * @return the message m replaced, if any
+     * @throws IOException  thrown if the buffer is full
+     */
+    public synchronized MSG_TYPE add(MSG_TYPE m) throws IOException {
+        Key k = keyFor(m);
+        MSG_TYPE old = pending.get(k);
+        if(old == null && pending.size() >= capacity)
+            throw new IOException("connection is down and " + capacity + " messages are already waiting to be sent");
+
+        pending.put(k, m);
+        if(old != null)
+            numCollapsed += 1;
+
+        return old;
+    }
+
+    /**
+     * Removes the buffered PollStart whose polled message has the specified
+     * xid, if any.
+     *
+     * @return the removed PollStart, or null if there was none
+     */
+    public synchronized PollStart removePollStart(int polledXID) {
+        Iterator<MSG_TYPE> itr = pending.values().iterator();
+        while(itr.hasNext()) {
+            MSG_TYPE m = itr.next();
+            if(m instanceof PollStart && ((PollStart)m).msg.xid == polledXID) {
+                itr.remove();
+                return (PollStart)m;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Moves all of the buffered messages (in order) into out.
+     *
+     * @return the number of messages moved
+     */
+    public synchronized int drainTo(Collection<MSG_TYPE> out) {
+        int n = pending.size();
+        out.addAll(pending.values());
+        pending.clear();
+        return n;
+    }
+
+    /** Discards all buffered messages. */
+    public synchronized void clear() {
+        pending.clear();
+    }
+
+    /** Returns the number of buffered messages. */
+    public synchronized int size() {
+        return pending.size();
+    }
+
+    /** Returns the maximum number of messages which may be buffered. */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /** Returns the number of messages which were collapsed into an existing entry. */
+    public synchronized long getNumCollapsed() {
+        return numCollapsed;
+    }
+
+    /** returns the serialized form of m with its xids zeroed out */
+    private static Key keyFor(Message m) throws IOException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        m.write(new DataOutputStream(baos));
+        byte[] b = baos.toByteArray();
+
+        if(m instanceof OFGMessage) {
+            int xidOff = clearXID(b, 0);
+            if(m instanceof PollStart && xidOff > 0)
+                clearXID(b, xidOff + 4 + POLLED_MSG_OFFSET);
+        }
+
+        return new Key(b);
+    }
+
+    /**
+     * zeroes the xid of the serialized OFGMessage which starts at off in b
+     * (its length field may be in either form)
+     *
+     * @return the offset of the xid, or 0 if b is too short to hold it
+     */
+    private static int clearXID(byte[] b, int off) {
+        if(off >= b.length)
+            return 0;
+
+        ByteBuffer buf = ByteBuffer.wrap(b, off, b.length - off);
+        int fieldSize = MessageLength.peekFieldSize(buf);
+        if(fieldSize == 0)
+            return 0;
+
+        int xidOff = off + fieldSize + XID_OFFSET;
+        clearInt(b, xidOff);
+        return xidOff;
+    }
+
+    /** zeroes the four bytes starting at off (if they are within b) */
+    private static void clearInt(byte[] b, int off) {
+        for(int i=off; i<off+4 && i<b.length; i++)
+            b[i] = 0;
+    }
+}
@@ -0,0 +1,270 @@
+package org.openflow.gui.net;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.SocketAddress;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * An in-process pipe to a backend (or a test) running in the same JVM.  The
+ * backend side calls listen(name) and then accepts connections from the
+ * returned Listener; a BackendConnection to "pipe:NAME" connects to it.  Bytes
+ * are copied between the two sides in memory, so nothing goes through the
+ * kernel.  Pipes are blocking only, so a connection over one always uses its
+ * own thread even if a SelectorLoop was set.
+ *
+ * @author David Underhill
+ */
+public class PipeTransport extends Transport {
+    /** number of bytes which may be buffered in each direction of a pipe */
+    public static final int PIPE_CAPACITY = 64 * 1024;
+
+    /** the listeners which pipes may connect to, keyed by name */
+    private static final ConcurrentHashMap<String, Listener> listeners = new ConcurrentHashMap<String, Listener>();
+
+    /**
+     * Starts listening for pipe connections to name.
+     *
+     * @throws IOException  if something is already listening on name
+     */
+    public static Listener listen(String name) throws IOException {
+        Listener l = new Listener(name);
+        if(listeners.putIfAbsent(name, l) != null)
+            throw new IOException("something is already listening on " + PIPE_PREFIX + name);
+
+        return l;
+    }
+
+    /** The backend side of pipes to a name. */
+    public static class Listener {
+        private final String name;
+
+        /** connections which have not been accepted yet */
+        private final LinkedBlockingQueue<End> pending = new LinkedBlockingQueue<End>();
+
+        private volatile boolean closed = false;
+
+        /** put on pending once the listener is closed to wake up blocked accept() calls */
+        private final End wakeUp = new End(new Buffer(1), new Buffer(1));
+
+        private Listener(String name) {
+            this.name = name;
+        }
+
+        /** Waits for the next connection to this listener and returns the backend's end of it. */
+        public Stream accept() throws IOException {
+            if(closed)
+                throw new IOException("listener on " + PIPE_PREFIX + name + " is closed");
+
+            try {
+                End s = pending.take();
+                if(closed) {
+                    // s raced with close(); pass the wake-up on to the next blocked accept()
+                    s.close();
+                    pending.add(wakeUp);
+                    throw new IOException("listener on " + PIPE_PREFIX + name + " is closed");
+                }
+                return s;
+            }
+            catch(InterruptedException e) {
+                throw new InterruptedIOException("interrupted while waiting for a connection on " + PIPE_PREFIX + name);
+            }
+        }
+
+        /**
+         * Stops accepting connections.  Connections which were not accepted
+         * yet are closed; connections which were accepted are unaffected.
+         */
+        public void close() {
+            synchronized(this) {
+                closed = true;
+            }
+            listeners.remove(name, this);
+
+            // no more connections can be queued now, so close those which are
+            End s;
+            while((s = pending.poll()) != null)
+                s.close();
+
+            // wake up anyone blocked in accept()
+            wakeUp.close();
+            pending.add(wakeUp);
+        }
+
+        /** returns the client's end of a new pipe whose other end awaits accept() */
+        private synchronized Stream connect() throws IOException {
+            if(closed)
+                throw new IOException("nothing is listening on " + PIPE_PREFIX + name);
+
+            Buffer toBackend = new Buffer(PIPE_CAPACITY);
+            Buffer toClient = new Buffer(PIPE_CAPACITY);
+            pending.add(new End(toBackend, toClient));
+            return new End(toClient, toBackend);
+        }
+    }
+
+    /** name of the listener this transport connects to */
+    private final String name;
+
+    public PipeTransport(String name) {
+        this.name = name;
+    }
+
+    public Stream connect(boolean tcpNoDelay) throws IOException {
+        Listener l = listeners.get(name);
+        if(l == null)
+            throw new IOException("nothing is listening on " + PIPE_PREFIX + name);
+
+        return l.connect();
+    }
+
+    /** returns false: pipes can only be used by a connection with its own thread */
+    public boolean isSelectable() {
+        return false;
+    }
+
+    public SocketChannel openChannel(boolean tcpNoDelay) throws IOException {
+        throw new IOException(PIPE_PREFIX + name + " cannot be serviced by a selector loop");
+    }
+
+    public SocketAddress getAddress() throws IOException {
+        throw new IOException(PIPE_PREFIX + name + " has no socket address");
+    }
+
+    public String toString() {
+        return PIPE_PREFIX + name;
+    }
+
+    /**
+     * A bounded buffer which carries bytes in one direction.  Once it is
+     * closed, readers get the bytes already in it and then EOF, and writers
+     * fail.
+     */
+    private static class Buffer {
+        private final byte[] buf;
+        private int head = 0;
+        private int count = 0;
+        private boolean closed = false;
+
+        Buffer(int capacity) {
+            buf = new byte[capacity];
+        }
+
+        synchronized int read(byte[] b, int off, int len) throws IOException {
+            if(len == 0)
+                return 0;
+
+            try {
+                while(count == 0 && !closed)
+                    wait();
+            }
+            catch(InterruptedException e) {
+                throw new InterruptedIOException("interrupted while reading from a pipe");
+            }
+            if(count == 0)
+                return -1;
+
+            int n = Math.min(len, count);
+            int first = Math.min(n, buf.length - head);
+            System.arraycopy(buf, head, b, off, first);
+            System.arraycopy(buf, 0, b, off + first, n - first);
+            head = (head + n) % buf.length;
+            count -= n;
+            notifyAll();
+            return n;
+        }
+
+        synchronized void write(byte[] b, int off, int len) throws IOException {
+            try {
+                while(len > 0) {
+                    while(count == buf.length && !closed)
+                        wait();
+                    if(closed)
+                        throw new IOException("pipe closed");
+
+                    int n = Math.min(len, buf.length - count);
+                    int tail = (head + count) % buf.length;
+                    int first = Math.min(n, buf.length - tail);
+                    System.arraycopy(b, off, buf, tail, first);
+                    System.arraycopy(b, off + first, buf, 0, n - first);
+                    count += n;
+                    off += n;
+                    len -= n;
+                    notifyAll();
+                }
+            }
+            catch(InterruptedException e) {
+                throw new InterruptedIOException("interrupted while writing to a pipe");
+            }
+        }
+
+        synchronized void close() {
+            closed = true;
+            notifyAll();
+        }
+    }
+
+    /** one end of a pipe: reads from one buffer and writes to the other */
+    private static class End implements Stream {
+        private final Buffer in, out;
+        private volatile boolean closed = false;
+
+        private final InputStream is = new InputStream() {
+            private final byte[] one = new byte[1];
+
+            public int read() throws IOException {
+                return (read(one, 0, 1) < 0) ? -1 : (one[0] & 0xFF);
+            }
+
+            public int read(byte[] b, int off, int len) throws IOException {
+                return in.read(b, off, len);
+            }
+
+            public void close() {
+                End.this.close();
+            }
+        };
+
+        private final OutputStream os = new OutputStream() {
+            public void write(int b) throws IOException {
+                write(new byte[] {(byte)b}, 0, 1);
+            }
+
+            public void write(byte[] b, int off, int len) throws IOException {
+                out.write(b, off, len);
+            }
+
+            public void close() {
+                End.this.close();
+            }
+        };
+
+        End(Buffer in, Buffer out) {
+            this.in = in;
+            this.out = out;
+        }
+
+        public InputStream getInputStream() {
+            return is;
+        }
+
+        public OutputStream getOutputStream() {
+            return os;
+        }
+
+        public boolean isClosed() {
+            return closed;
+        }
+
+        /** closes both directions (the other end sees EOF once it has read what was sent) */
+        public void close() {
+            closed = true;
+            in.close();
+            out.close();
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package org.openflow.gui.net;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts events (e.g., bytes or messages) and reports how quickly they are
+ * occurring.  The rate is measured over the most recent interval of at least
+ * the meter's interval length, so it is refreshed at most once per interval
+ * no matter how often it is read.  Marking is cheap and may be done by any
+ * thread.
+ *
+ * @author David Underhill
+ */
+public class RateMeter {
+    /** default length of the interval the rate is measured over */
+    public static final long DEFAULT_INTERVAL_MSEC = 1000;
+
+    /** the number of events which have occurred */
+    private final AtomicLong total = new AtomicLong(0);
+
+    /** minimum length of the interval the rate is measured over */
+    private final long interval_ms;
+
+    /** when the current interval started */
+    private long intervalStart_ms;
+
+    /** value of total when the current interval started */
+    private long intervalStartTotal = 0;
+
+    /** the rate measured over the previous interval (events/sec) */
+    private double rate = 0;
+
+    /** Creates a meter which measures over DEFAULT_INTERVAL_MSEC intervals. */
+    public RateMeter() {
+        this(DEFAULT_INTERVAL_MSEC);
+    }
+
+    /** Creates a meter which measures over intervals of at least interval_ms. */
+    public RateMeter(long interval_ms) {
+        this.interval_ms = interval_ms;
+        intervalStart_ms = System.currentTimeMillis();
+    }
+
+    /** Notes that n events have occurred. */
+    public void mark(long n) {
+        total.addAndGet(n);
+    }
+
+    /** Returns the total number of events which have occurred. */
+    public long getTotal() {
+        return total.get();
+    }
+
+    /** Returns the number of events per second over the most recent interval. */
+    public synchronized double getRate() {
+        long now = System.currentTimeMillis();
+        long elapsed = now - intervalStart_ms;
+        if(elapsed >= interval_ms) {
+            long t = total.get();
+            rate = (t - intervalStartTotal) * 1000.0 / elapsed;
+            intervalStart_ms = now;
+            intervalStartTotal = t;
+        }
+        return rate;
+    }
+}
@@ -0,0 +1,163 @@
+package org.openflow.gui.net;
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openflow.gui.net.protocol.OFGMessage;
+
+/**
+ * Tracks stateful requests which are waiting for a reply.  Replies are matched
+ * to requests by transaction ID and requests which go unanswered for too long
+ * are timed out by a HashedTimerWheel (so no scans of all outstanding requests
+ * are ever needed).
+ *
+ * @author David Underhill
+ */
+public class RequestTracker {
+    /** requests waiting for a reply, keyed by transaction ID */
+    private final ConcurrentHashMap<Integer, PendingRequest> pending = new ConcurrentHashMap<Integer, PendingRequest>();
+
+    /** the wheel which times out requests */
+    private final HashedTimerWheel wheel;
+
+    /** number of requests which received a reply */
+    private final AtomicLong numReplied = new AtomicLong(0);
+
+    /** number of requests which timed out */
+    private final AtomicLong numTimeouts = new AtomicLong(0);
+
+    /** number of requests which were cancelled */
+    private final AtomicLong numCancelled = new AtomicLong(0);
+
+    /** sum of the latencies of all replies (ns) */
+    private final AtomicLong totalLatency_ns = new AtomicLong(0);
+
+    /** largest reply latency (ns) */
+    private volatile long maxLatency_ns = 0;
+
+    /** Creates a tracker which uses the shared timer wheel. */
+    public RequestTracker() {
+        this(HashedTimerWheel.getDefault());
+    }
+
+    /** Creates a tracker which uses the specified timer wheel. */
+    public RequestTracker(HashedTimerWheel wheel) {
+        this.wheel = wheel;
+    }
+
+    /**
+     * Starts tracking req without starting its timeout (see start()).  Any
+     * request already tracked with the same transaction ID is cancelled.
+     */
+    public PendingRequest add(OFGMessage req) {
+        PendingRequest p = new PendingRequest(req);
+        PendingRequest old = pending.put(req.xid, p);
+        if(old != null && old.complete(PendingRequest.Status.CANCELLED, null))
+            numCancelled.incrementAndGet();
+
+        return p;
+    }
+
+    /**
+     * Notes that p is being sent now and times it out if no reply arrives
+     * within timeout_ms milliseconds.
+     */
+    public void start(final PendingRequest p, long timeout_ms) {
+        p.sent();
+        p.timeout = wheel.schedule(new Runnable() {
+            public void run() {
+                if(pending.remove(p.getXID(), p) && p.complete(PendingRequest.Status.TIMED_OUT, null))
+                    numTimeouts.incrementAndGet();
+            }
+        }, timeout_ms);
+
+        // the request may have been resolved before its timeout was recorded
+        if(p.isDone())
+            p.timeout.cancel();
+    }
+
+    /** Starts tracking req and times it out after timeout_ms milliseconds. */
+    public PendingRequest track(OFGMessage req, long timeout_ms) {
+        PendingRequest p = add(req);
+        start(p, timeout_ms);
+        return p;
+    }
+
+    /** Returns the pending request with the specified transaction ID, if any. */
+    public PendingRequest get(int xid) {
+        return pending.get(xid);
+    }
+
+    /**
+     * Completes the request with the specified transaction ID with reply.
+     *
+     * @return the completed request, or null if no request was pending
+     */
+    public PendingRequest resolve(int xid, OFGMessage reply) {
+        PendingRequest p = pending.remove(xid);
+        if(p == null || !p.complete(PendingRequest.Status.REPLIED, reply))
+            return null;
+
+        numReplied.incrementAndGet();
+        long latency_ns = p.getLatency_ns();
+        if(latency_ns >= 0) {
+            totalLatency_ns.addAndGet(latency_ns);
+            if(latency_ns > maxLatency_ns)
+                maxLatency_ns = latency_ns;
+        }
+        return p;
+    }
+
+    /**
+     * Cancels the request with the specified transaction ID.
+     *
+     * @return the cancelled request, or null if no request was pending
+     */
+    public PendingRequest cancel(int xid) {
+        PendingRequest p = pending.remove(xid);
+        if(p == null || !p.complete(PendingRequest.Status.CANCELLED, null))
+            return null;
+
+        numCancelled.incrementAndGet();
+        return p;
+    }
+
+    /** Cancels every pending request. */
+    public void cancelAll() {
+        Iterator<Integer> itr = pending.keySet().iterator();
+        while(itr.hasNext())
+            cancel(itr.next());
+    }
+
+    /** Returns the number of requests waiting for a reply. */
+    public int getNumInFlight() {
+        return pending.size();
+    }
+
+    /** Returns the number of requests which received a reply. */
+    public long getNumReplied() {
+        return numReplied.get();
+    }
+
+    /** Returns the number of requests which timed out. */
+    public long getNumTimeouts() {
+        return numTimeouts.get();
+    }
+
+    /** Returns the number of requests which were cancelled. */
+    public long getNumCancelled() {
+        return numCancelled.get();
+    }
+
+    /** Returns the average time it took for replies to arrive (ms). */
+    public double getAvgLatency_ms() {
+        long n = numReplied.get();
+        return n == 0 ? 0 : totalLatency_ns.get() / (n * 1000000.0);
+    }
+
+    /** Returns the longest time it took for a reply to arrive (ms). */
+    public double getMaxLatency_ms() {
+        return maxLatency_ns / 1000000.0;
+    }
+}
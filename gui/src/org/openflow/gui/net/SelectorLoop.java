@@ -0,0 +1,230 @@
+package org.openflow.gui.net;
+
+import java.io.IOException;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.Iterator;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * A single thread which services many non-blocking connections with one
+ * java.nio Selector.  Rather than dedicating a thread to blocking reads for
+ * each connection, connections register their channel with a SelectorLoop and
+ * are called back on the loop's thread when they can connect, read, or write.
+ * Tasks may also be run on (or scheduled to run later on) the loop's thread.
+ *
+ * @author David Underhill
+ */
+public class SelectorLoop extends Thread {
+    /**
+     * Callbacks for a channel registered with a SelectorLoop.  All of these
+     * methods are called on the loop's thread.
+     */
+    public interface Handler {
+        /** called when the channel is ready to finish connecting */
+        public void handleConnect(SelectionKey key) throws IOException;
+
+        /** called when the channel has bytes to read */
+        public void handleRead(SelectionKey key) throws IOException;
+
+        /** called when the channel can be written to */
+        public void handleWrite(SelectionKey key) throws IOException;
+
+        /**
+         * called if one of the other methods throws an IOException (the key
+         * will have already been cancelled)
+         */
+        public void handleError(SelectionKey key, IOException e);
+    }
+
+    /** a task which should be run once a particular time has been reached */
+    private static class Timer implements Comparable<Timer> {
+        /** when to run the task */
+        public final long when;
+
+        /** the task to run */
+        public final Runnable task;
+
+        public Timer(long when, Runnable task) {
+            this.when = when;
+            this.task = task;
+        }
+
+        public int compareTo(Timer t) {
+            return when < t.when ? -1 : (when == t.when ? 0 : 1);
+        }
+    }
+
+    /** the loop shared by all connections which do not specify their own */
+    private static SelectorLoop defaultLoop = null;
+
+    /** Returns the shared SelectorLoop (it is created and started on first use). */
+    public static synchronized SelectorLoop getDefault() {
+        if(defaultLoop == null) {
+            try {
+                defaultLoop = new SelectorLoop();
+            }
+            catch(IOException e) {
+                throw new Error("Unable to open a selector: " + e.getMessage());
+            }
+            defaultLoop.start();
+        }
+        return defaultLoop;
+    }
+
+    /** the selector which multiplexes all of the channels */
+    private final Selector selector;
+
+    /** tasks waiting to be run on the loop's thread */
+    private final ConcurrentLinkedQueue<Runnable> tasks = new ConcurrentLinkedQueue<Runnable>();
+
+    /** tasks waiting for a particular time (only accessed by the loop's thread) */
+    private final PriorityQueue<Timer> timers = new PriorityQueue<Timer>();
+
+    /** whether the loop should stop */
+    private volatile boolean done = false;
+
+    /** Creates a new (unstarted) loop with its own Selector. */
+    public SelectorLoop() throws IOException {
+        super("SelectorLoop");
+        setDaemon(true);
+        selector = Selector.open();
+    }
+
+    /** Returns true if the caller is running on the loop's thread. */
+    public boolean inLoop() {
+        return Thread.currentThread() == this;
+    }
+
+    /** Runs r on the loop's thread as soon as possible. */
+    public void execute(Runnable r) {
+        tasks.add(r);
+        selector.wakeup();
+    }
+
+    /** Runs r on the loop's thread once delay_ms milliseconds have passed. */
+    public void schedule(final Runnable r, long delay_ms) {
+        final long when = System.currentTimeMillis() + delay_ms;
+        execute(new Runnable() {
+            public void run() {
+                timers.add(new Timer(when, r));
+            }
+        });
+    }
+
+    /**
+     * Registers ch with this loop's selector.  This must be called from the
+     * loop's thread (e.g. from a task passed to execute()).
+     *
+     * @param ch   the channel to register (must be in non-blocking mode)
+     * @param ops  the operations the handler is initially interested in
+     * @param h    the handler which will be called back about ch
+     *
+     * @return the key which represents the registration
+     */
+    public SelectionKey register(SelectableChannel ch, int ops, Handler h) throws ClosedChannelException {
+        if(!inLoop())
+            throw new IllegalStateException("channels must be registered from the loop's thread");
+
+        return ch.register(selector, ops, h);
+    }
+
+    /** Tells the loop to stop. */
+    public void shutdown() {
+        done = true;
+        selector.wakeup();
+    }
+
+    /** Waits for channels to become ready and dispatches them to their handlers. */
+    public void run() {
+        while(!done) {
+            runTasks();
+            long timeout = runTimers();
+
+            try {
+                selector.select(timeout);
+            }
+            catch(IOException e) {
+                System.err.println("SelectorLoop select failed: " + e.getMessage());
+                continue;
+            }
+
+            Iterator<SelectionKey> itr = selector.selectedKeys().iterator();
+            while(itr.hasNext()) {
+                SelectionKey key = itr.next();
+                itr.remove();
+                dispatch(key);
+            }
+        }
+
+        try {
+            selector.close();
+        }
+        catch(IOException e) { /* ignore */ }
+    }
+
+    /** runs all tasks which are waiting to be executed */
+    private void runTasks() {
+        Runnable r;
+        while((r = tasks.poll()) != null)
+            runSafely(r);
+    }
+
+    /**
+     * Runs all timers which have expired and returns how long the selector
+     * may block until the next one expires (0 => indefinitely).
+     */
+    private long runTimers() {
+        long now = System.currentTimeMillis();
+        Timer t;
+        while((t = timers.peek()) != null && t.when <= now) {
+            timers.poll();
+            runSafely(t.task);
+        }
+
+        if(t == null)
+            return 0;
+        else
+            return Math.max(1, t.when - now);
+    }
+
+    /** runs r and reports (but otherwise ignores) any unexpected exception */
+    private void runSafely(Runnable r) {
+        try {
+            r.run();
+        }
+        catch(RuntimeException e) {
+            System.err.println("SelectorLoop task failed: " + e);
+            e.printStackTrace();
+        }
+    }
+
+    /** tells the handler associated with key about whatever operations are ready */
+    private void dispatch(SelectionKey key) {
+        Handler h = (Handler)key.attachment();
+        try {
+            if(key.isValid() && key.isConnectable())
+                h.handleConnect(key);
+            if(key.isValid() && key.isReadable())
+                h.handleRead(key);
+            if(key.isValid() && key.isWritable())
+                h.handleWrite(key);
+        }
+        catch(CancelledKeyException e) {
+            // the handler closed its channel
+        }
+        catch(IOException e) {
+            key.cancel();
+            h.handleError(key, e);
+        }
+        catch(RuntimeException e) {
+            // don't let one misbehaving connection take down all of the others
+            System.err.println("SelectorLoop handler failed: " + e);
+            e.printStackTrace();
+        }
+    }
+}
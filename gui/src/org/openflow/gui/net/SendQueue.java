@@ -0,0 +1,152 @@
+package org.openflow.gui.net;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+
+/**
+ * Holds serialized messages which are waiting to be sent on a connection.  A
+ * writer drains everything which is pending into a single buffer so that many
+ * small messages (e.g., a burst of poll requests) go out in one write rather
+ * than in many tiny packets.
+ *
+ * @author David Underhill
+ */
+public class SendQueue {
+    /** serialized messages waiting to be sent, in order */
+    private ArrayList<byte[]> pending = new ArrayList<byte[]>();
+
+    /** spare list which is swapped with pending on each drain */
+    private ArrayList<byte[]> spare = new ArrayList<byte[]>();
+
+    /** number of bytes in pending */
+    private int pendingBytes = 0;
+
+    /** largest number of messages which have been waiting at once */
+    private int maxDepth = 0;
+
+    /** number of times the queue has been drained */
+    private long numFlushes = 0;
+
+    /** number of messages which have been drained */
+    private long numMessagesFlushed = 0;
+
+    /** number of bytes which have been drained */
+    private long numBytesFlushed = 0;
+
+    /**
+     * Adds a serialized message to the end of the queue and wakes up any
+     * writer waiting for something to send.
+     *
+     * @return the number of messages now waiting
+     */
+    public synchronized int add(byte[] msg) {
+        pending.add(msg);
+        pendingBytes += msg.length;
+        if(pending.size() > maxDepth)
+            maxDepth = pending.size();
+
+        if(pending.size() == 1)
+            notifyAll();
+
+        return pending.size();
+    }
+
+    /**
+     * Waits up to timeout_ms milliseconds for a message to be queued.
+     *
+     * @return true if messages are waiting to be sent
+     */
+    public synchronized boolean await(long timeout_ms) throws InterruptedException {
+        if(pending.isEmpty())
+            wait(timeout_ms);
+
+        return !pending.isEmpty();
+    }
+
+    /**
+     * Copies every pending message into buf (in order) and empties the queue.
+     * If buf is too small, a larger buffer is allocated in its place.  Only
+     * one writer may drain the queue at a time.
+     *
+     * @param buf  the buffer to gather the messages into (its contents are
+     *             discarded)
+     *
+     * @return the buffer holding the messages, flipped and ready to be written
+     */
+    public ByteBuffer drainTo(ByteBuffer buf) {
+        ArrayList<byte[]> msgs;
+        int len;
+        synchronized(this) {
+            msgs = pending;
+            len = pendingBytes;
+            pending = spare;
+            pendingBytes = 0;
+            spare = msgs;
+
+            if(len > 0) {
+                numFlushes += 1;
+                numMessagesFlushed += msgs.size();
+                numBytesFlushed += len;
+            }
+        }
+
+        // copy outside the lock so senders are not blocked (only the writer
+        // touches msgs until the next drain swaps it back in)
+        if(buf.capacity() < len)
+            buf = ByteBuffer.allocate(Math.max(len, buf.capacity() * 2));
+
+        buf.clear();
+        for(byte[] msg : msgs)
+            buf.put(msg);
+        msgs.clear();
+
+        buf.flip();
+        return buf;
+    }
+
+    /** Discards all pending messages. */
+    public synchronized void clear() {
+        pending.clear();
+        pendingBytes = 0;
+    }
+
+    /** Returns true if no messages are waiting to be sent. */
+    public synchronized boolean isEmpty() {
+        return pending.isEmpty();
+    }
+
+    /** Returns the number of messages waiting to be sent. */
+    public synchronized int getDepth() {
+        return pending.size();
+    }
+
+    /** Returns the number of bytes waiting to be sent. */
+    public synchronized int getDepthBytes() {
+        return pendingBytes;
+    }
+
+    /** Returns the largest number of messages which have been waiting at once. */
+    public synchronized int getMaxDepth() {
+        return maxDepth;
+    }
+
+    /** Returns the number of times the queue has been drained. */
+    public synchronized long getNumFlushes() {
+        return numFlushes;
+    }
+
+    /** Returns the number of messages which have been drained. */
+    public synchronized long getNumMessagesFlushed() {
+        return numMessagesFlushed;
+    }
+
+    /** Returns the number of bytes which have been drained. */
+    public synchronized long getNumBytesFlushed() {
+        return numBytesFlushed;
+    }
+
+    /** Returns the average number of bytes sent per flush. */
+    public synchronized double getBytesPerFlush() {
+        return numFlushes == 0 ? 0 : numBytesFlushed / (double)numFlushes;
+    }
+}
@@ -1,21 +1,27 @@
 package org.openflow.gui.net;
 
+import java.io.BufferedInputStream;
 import java.io.DataInput;
 import java.io.DataOutput;
 import java.io.DataOutputStream;
 import java.io.IOException;
-import java.net.Socket;
 import java.util.ArrayList;
 
 /**
  * Provides helper functions for setting up and sending and receiving binary 
- * and ASCII data over a TCP connection.
+ * and ASCII data over a connection to a server (see Transport).
  * 
  * @author David Underihll
  */
 public class SocketConnection implements DataInput, DataOutput {
-    /** the socket which connects us to the NOX server */
-    public final Socket s;
+    /** 
+     * size of the buffer in front of the socket's input stream (lets many small
+     * reads be satisfied by a single read from the socket)
+     */
+    public static final int RECV_BUFFER_SIZE = 64 * 1024;
+    
+    /** the stream which connects us to the NOX server (null if connecting failed) */
+    public final Transport.Stream s;
 
     /** output stream to write to the socket */
     public final DataOutputStream out;
@@ -30,13 +36,33 @@ public class SocketConnection implements DataInput, DataOutput {
      * @param port  the TCP port to connect on
      */
     public SocketConnection(String ip, int port) {
-        // setup socket for listening for new clients connection requests
-        Socket stmp;
+        this(ip, port, false);
+    }
+    
+    /** 
+     * Connect to the client on the specified port.
+     * 
+     * @param ip          the IP to connect to
+     * @param port        the TCP port to connect on
+     * @param tcpNoDelay  whether to disable Nagle's algorithm on the socket
+     */
+    public SocketConnection(String ip, int port, boolean tcpNoDelay) {
+        this(new Transport.Tcp(ip, port), tcpNoDelay);
+    }
+    
+    /** 
+     * Connect to the server via the specified transport.
+     * 
+     * @param t           how to reach the server
+     * @param tcpNoDelay  whether to disable Nagle's algorithm (TCP only)
+     */
+    public SocketConnection(Transport t, boolean tcpNoDelay) {
+        Transport.Stream stmp;
         try {
-            stmp = new Socket(ip, port);
+            stmp = t.connect(tcpNoDelay);
         }
         catch(IOException e) {
-            System.err.println(Integer.toString(port) + ": " + e.getMessage());
+            System.err.println(t + ": " + e.getMessage());
             s = null;
             out = null;
             in = null;
@@ -56,7 +82,7 @@ public class SocketConnection implements DataInput, DataOutput {
 
         CountingDataInputStream tmp2;
         try {
-            tmp2 = new CountingDataInputStream(s.getInputStream());
+            tmp2 = new CountingDataInputStream(new BufferedInputStream(s.getInputStream(), RECV_BUFFER_SIZE));
         } catch(IOException e) {
             System.err.println("Client Socket Setup Error: " + e.getMessage());
             tmp2 = null;
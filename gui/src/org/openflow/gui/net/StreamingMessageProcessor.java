@@ -0,0 +1,31 @@
+package org.openflow.gui.net;
+
+import java.io.DataInput;
+import java.io.IOException;
+
+/**
+ * A MessageProcessor which can decode large messages a piece at a time.  A
+ * connection whose processor implements this interface hands it messages which
+ * are longer than STREAMING_THRESHOLD via decodeStreaming() rather than
+ * decode().  The processor may then split a long list into a series of smaller
+ * messages which are each processed as soon as they are decoded, so the whole
+ * message never has to be materialized at once.
+ *
+ * @author David Underhill
+ */
+public interface StreamingMessageProcessor<MSG_TYPE extends Message> extends MessageProcessor<MSG_TYPE> {
+    /** messages longer than this many bytes are decoded with decodeStreaming() */
+    public static final int STREAMING_THRESHOLD = MessageLength.MAX_SHORT_LENGTH;
+
+    /** Receives the messages produced by decodeStreaming(). */
+    public interface Sink<MSG_TYPE> {
+        /** called with each message as soon as it has been decoded */
+        public void deliver(MSG_TYPE msg);
+    }
+
+    /**
+     * Decodes a message of length len (whose length field has already been
+     * read from in) and passes the resulting message(s) to sink in order.
+     */
+    public void decodeStreaming(int len, DataInput in, Sink<MSG_TYPE> sink) throws IOException;
+}
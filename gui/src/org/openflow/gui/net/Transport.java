@@ -0,0 +1,290 @@
+package org.openflow.gui.net;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+
+/**
+ * How a BackendConnection reaches its server.  The transport is chosen by the
+ * server identifier: "unix:PATH" is a Unix domain socket, "pipe:NAME" is an
+ * in-process pipe to a PipeTransport.Listener in the same JVM, and anything
+ * else is a host reached over TCP.  The local transports skip the TCP/IP
+ * stack (or the kernel altogether) when the backend runs on the same host.
+ *
+ * @author David Underhill
+ */
+public abstract class Transport {
+    /** prefix of server identifiers which name a Unix domain socket */
+    public static final String UNIX_PREFIX = "unix:";
+
+    /** prefix of server identifiers which name an in-process pipe */
+    public static final String PIPE_PREFIX = "pipe:";
+
+    /**
+     * Returns the transport to the specified server.
+     *
+     * @param server  a host, "unix:PATH", or "pipe:NAME"
+     * @param port    the TCP port to connect to (ignored by the local transports)
+     */
+    public static Transport forServer(String server, int port) {
+        if(server.startsWith(UNIX_PREFIX))
+            return new UnixDomain(server.substring(UNIX_PREFIX.length()));
+        else if(server.startsWith(PIPE_PREFIX))
+            return new PipeTransport(server.substring(PIPE_PREFIX.length()));
+        else
+            return new Tcp(server, port);
+    }
+
+    /** Returns whether server names a local transport (one with no port). */
+    public static boolean isLocal(String server) {
+        return server.startsWith(UNIX_PREFIX) || server.startsWith(PIPE_PREFIX);
+    }
+
+    /** A connected, blocking, bidirectional byte stream to the server. */
+    public interface Stream {
+        public InputStream getInputStream() throws IOException;
+        public OutputStream getOutputStream() throws IOException;
+
+        /** returns whether close() has been called */
+        public boolean isClosed();
+
+        /** closes the stream (blocked reads and writes on it fail) */
+        public void close() throws IOException;
+    }
+
+    /** Connects to the server and returns a blocking stream to it. */
+    public abstract Stream connect(boolean tcpNoDelay) throws IOException;
+
+    /**
+     * Returns whether this transport can be serviced by a SelectorLoop (i.e.,
+     * whether openChannel() is supported).
+     */
+    public boolean isSelectable() {
+        return true;
+    }
+
+    /**
+     * Opens a non-blocking channel to the server.  The caller connects it to
+     * getAddress().
+     */
+    public abstract SocketChannel openChannel(boolean tcpNoDelay) throws IOException;
+
+    /** Returns the address which channels from openChannel() connect to. */
+    public abstract SocketAddress getAddress() throws IOException;
+
+
+    /** Connects to a host over TCP. */
+    public static class Tcp extends Transport {
+        private final String host;
+        private final int port;
+
+        public Tcp(String host, int port) {
+            this.host = host;
+            this.port = port;
+        }
+
+        public Stream connect(boolean tcpNoDelay) throws IOException {
+            final Socket s = new Socket(host, port);
+            try {
+                s.setTcpNoDelay(tcpNoDelay);
+            }
+            catch(IOException e) {
+                s.close();
+                throw e;
+            }
+
+            return new Stream() {
+                public InputStream getInputStream() throws IOException {
+                    return s.getInputStream();
+                }
+
+                public OutputStream getOutputStream() throws IOException {
+                    return s.getOutputStream();
+                }
+
+                public boolean isClosed() {
+                    return s.isClosed();
+                }
+
+                public void close() throws IOException {
+                    s.close();
+                }
+            };
+        }
+
+        public SocketChannel openChannel(boolean tcpNoDelay) throws IOException {
+            SocketChannel ch = SocketChannel.open();
+            try {
+                ch.configureBlocking(false);
+                ch.socket().setTcpNoDelay(tcpNoDelay);
+            }
+            catch(IOException e) {
+                ch.close();
+                throw e;
+            }
+            return ch;
+        }
+
+        public SocketAddress getAddress() {
+            return new InetSocketAddress(host, port);
+        }
+
+        public String toString() {
+            return host + ":" + port;
+        }
+    }
+
+
+    /**
+     * Connects to a Unix domain socket.  These are only supported by Java 16
+     * and later, so the classes involved are looked up when they are first
+     * used rather than being linked against.
+     */
+    public static class UnixDomain extends Transport {
+        private final String path;
+
+        public UnixDomain(String path) {
+            this.path = path;
+        }
+
+        public Stream connect(boolean tcpNoDelay) throws IOException {
+            final SocketChannel ch = open();
+            try {
+                ch.connect(getAddress());
+            }
+            catch(IOException e) {
+                ch.close();
+                throw e;
+            }
+            return new ChannelStream(ch);
+        }
+
+        public SocketChannel openChannel(boolean tcpNoDelay) throws IOException {
+            SocketChannel ch = open();
+            try {
+                ch.configureBlocking(false);
+            }
+            catch(IOException e) {
+                ch.close();
+                throw e;
+            }
+            return ch;
+        }
+
+        /** opens a (blocking) Unix domain socket channel */
+        private static SocketChannel open() throws IOException {
+            try {
+                Class<?> family = Class.forName("java.net.StandardProtocolFamily");
+                Object unix = family.getField("UNIX").get(null);
+                Class<?> protocolFamily = Class.forName("java.net.ProtocolFamily");
+                return (SocketChannel)SocketChannel.class.getMethod("open", protocolFamily).invoke(null, unix);
+            }
+            catch(InvocationTargetException e) {
+                throw asIOException(e);
+            }
+            catch(Exception e) {
+                throw new IOException("Unix domain sockets require Java 16 or later: " + e);
+            }
+        }
+
+        public SocketAddress getAddress() throws IOException {
+            try {
+                Class<?> c = Class.forName("java.net.UnixDomainSocketAddress");
+                return (SocketAddress)c.getMethod("of", String.class).invoke(null, path);
+            }
+            catch(InvocationTargetException e) {
+                throw asIOException(e);
+            }
+            catch(Exception e) {
+                throw new IOException("Unix domain sockets require Java 16 or later: " + e);
+            }
+        }
+
+        /** returns the exception thrown by a reflectively invoked method as an IOException */
+        private static IOException asIOException(InvocationTargetException e) {
+            Throwable t = e.getCause();
+            if(t instanceof IOException)
+                return (IOException)t;
+
+            IOException ret = new IOException(String.valueOf(t));
+            ret.initCause(t);
+            return ret;
+        }
+
+        public String toString() {
+            return UNIX_PREFIX + path;
+        }
+    }
+
+
+    /**
+     * A blocking SocketChannel as a Stream.  The channel is read and written
+     * directly (rather than via Channels.newInputStream() and friends, which
+     * serialize reads and writes on some JVMs) so one thread may block on a
+     * read while another writes.
+     */
+    static class ChannelStream implements Stream {
+        private final SocketChannel ch;
+
+        private final InputStream in = new InputStream() {
+            private final byte[] one = new byte[1];
+
+            public int read() throws IOException {
+                return (read(one, 0, 1) < 0) ? -1 : (one[0] & 0xFF);
+            }
+
+            public int read(byte[] b, int off, int len) throws IOException {
+                if(len == 0)
+                    return 0;
+
+                return ch.read(ByteBuffer.wrap(b, off, len));
+            }
+
+            public void close() throws IOException {
+                ch.close();
+            }
+        };
+
+        private final OutputStream out = new OutputStream() {
+            public void write(int b) throws IOException {
+                write(new byte[] {(byte)b}, 0, 1);
+            }
+
+            public void write(byte[] b, int off, int len) throws IOException {
+                ByteBuffer buf = ByteBuffer.wrap(b, off, len);
+                while(buf.hasRemaining())
+                    ch.write(buf);
+            }
+
+            public void close() throws IOException {
+                ch.close();
+            }
+        };
+
+        ChannelStream(SocketChannel ch) {
+            this.ch = ch;
+        }
+
+        public InputStream getInputStream() {
+            return in;
+        }
+
+        public OutputStream getOutputStream() {
+            return out;
+        }
+
+        public boolean isClosed() {
+            return !ch.isOpen();
+        }
+
+        public void close() throws IOException {
+            ch.close();
+        }
+    }
+}
@@ -0,0 +1,341 @@
+package org.openflow.gui.net;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Records the raw messages sent and received on a connection so that they can
+ * be replayed later (see WireJournalReplayer).  Records are appended to a
+ * series of memory-mapped segment files so that recording a message is just a
+ * copy into memory.  When a segment fills up, a new one is started.
+ *
+ * Each segment is named PREFIX.NNNNN.ofgj and starts with a header: a magic
+ * number (4B), a version (2B), 2 reserved bytes, the segment number (4B), 4
+ * reserved bytes, and the wall-clock time (ms) the journal was started (8B).
+ * Each record is the length of the message (4B), when the message was
+ * recorded relative to the start of the journal (8B, ns), the direction
+ * (1B), and the message itself exactly as it appeared on the wire.  A record
+ * length of 0 marks the end of a segment.
+ *
+ * @author David Underhill
+ */
+public class WireJournal {
+    /** which way a recorded message was traveling */
+    public enum Direction {
+        /** the message was received from the server */
+        RECEIVED,
+
+        /** the message was sent to the server */
+        SENT
+    }
+
+    /** the directions, indexed by how they are recorded */
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    /** identifies a journal segment ("OFGJ") */
+    public static final int MAGIC = 0x4F46474A;
+
+    /** version of the journal format */
+    public static final short VERSION = 1;
+
+    /** number of bytes in a segment's header */
+    public static final int SEGMENT_HEADER_SIZE = 24;
+
+    /** number of bytes which precede each recorded message */
+    public static final int RECORD_HEADER_SIZE = 13;
+
+    /** default size of each segment */
+    public static final int DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+
+    /** extension of segment files */
+    public static final String SEGMENT_EXTENSION = ".ofgj";
+
+    /** Returns the name of segment n of the journal with the specified prefix. */
+    public static String getSegmentName(String pathPrefix, int n) {
+        return pathPrefix + "." + String.format("%05d", n) + SEGMENT_EXTENSION;
+    }
+
+    /** the path (less the segment suffix) of the journal's files */
+    private final String pathPrefix;
+
+    /** how big each segment is */
+    private final int segmentSize;
+
+    /** wall-clock time the journal was started (ms) */
+    private final long startTime_ms;
+
+    /** monotonic time the journal was started (ns) */
+    private final long startTime_ns;
+
+    /** the file backing the current segment */
+    private RandomAccessFile file = null;
+
+    /** the current segment (positioned where the next record goes) */
+    private MappedByteBuffer segment = null;
+
+    /** number of the current segment */
+    private int segmentNum = -1;
+
+    /** number of messages recorded */
+    private long numRecords = 0;
+
+    /** number of message bytes recorded */
+    private long numBytes = 0;
+
+    /** whether the journal has been closed (or failed) */
+    private boolean closed = false;
+
+    /**
+     * Creates a journal whose segments are named PREFIX.NNNNN.ofgj and hold up
+     * to DEFAULT_SEGMENT_SIZE bytes.
+     */
+    public WireJournal(String pathPrefix) throws IOException {
+        this(pathPrefix, DEFAULT_SEGMENT_SIZE);
+    }
+
+    /**
+     * Creates a journal whose segments are named PREFIX.NNNNN.ofgj and hold up
+     * to segmentSize bytes (a message which is bigger than that gets a segment
+     * of its own).
+     */
+    public WireJournal(String pathPrefix, int segmentSize) throws IOException {
+        this.pathPrefix = pathPrefix;
+        this.segmentSize = segmentSize;
+        startTime_ms = System.currentTimeMillis();
+        startTime_ns = System.nanoTime();
+        startSegment(segmentSize);
+    }
+
+    /** Returns the path (less the segment suffix) of the journal's files. */
+    public String getPathPrefix() {
+        return pathPrefix;
+    }
+
+    /** Returns the number of messages recorded so far. */
+    public synchronized long getNumRecords() {
+        return numRecords;
+    }
+
+    /** Returns the number of message bytes recorded so far. */
+    public synchronized long getNumBytes() {
+        return numBytes;
+    }
+
+    /**
+     * Records a message whose (normalized) length is len and whose body (the
+     * bytes after its length field) is bodyLen bytes of body starting at off.
+     */
+    public synchronized void record(Direction d, int len, byte[] body, int off, int bodyLen) {
+        int fieldSize = MessageLength.isExtended(len) ? MessageLength.EXTENDED_SIZEOF : MessageLength.SIZEOF;
+        if(!startRecord(d, fieldSize + bodyLen))
+            return;
+
+        if(fieldSize == MessageLength.SIZEOF)
+            segment.putShort((short)len);
+        else {
+            segment.putShort((short)MessageLength.EXTENDED_LENGTH_MARKER);
+            segment.putInt(len + MessageLength.EXTENDED_LENGTH_EXTRA);
+        }
+        segment.put(body, off, bodyLen);
+    }
+
+    /** Records a message which is already serialized (including its length field). */
+    public synchronized void record(Direction d, byte[] wire) {
+        if(startRecord(d, wire.length))
+            segment.put(wire);
+    }
+
+    /**
+     * Makes sure there is room for a wireLen byte message and writes its
+     * record header.
+     *
+     * @return false if the journal is closed
+     */
+    private boolean startRecord(Direction d, int wireLen) {
+        if(closed)
+            return false;
+
+        int needed = RECORD_HEADER_SIZE + wireLen;
+        if(segment.remaining() < needed + 4) {
+            try {
+                endSegment();
+                startSegment(Math.max(segmentSize, SEGMENT_HEADER_SIZE + needed + 4));
+            }
+            catch(IOException e) {
+                System.err.println("Error: unable to start a new journal segment (journaling stopped): " + e.getMessage());
+                close();
+                return false;
+            }
+        }
+
+        segment.putInt(wireLen);
+        segment.putLong(System.nanoTime() - startTime_ns);
+        segment.put((byte)d.ordinal());
+        numRecords += 1;
+        numBytes += wireLen;
+        return true;
+    }
+
+    /** maps a new segment of the specified size and writes its header */
+    private void startSegment(int size) throws IOException {
+        segmentNum += 1;
+        file = new RandomAccessFile(getSegmentName(pathPrefix, segmentNum), "rw");
+        file.setLength(0);
+        segment = file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+        segment.putInt(MAGIC);
+        segment.putShort(VERSION);
+        segment.putShort((short)0);
+        segment.putInt(segmentNum);
+        segment.putInt(0);
+        segment.putLong(startTime_ms);
+    }
+
+    /** marks the end of the current segment and trims its file to what was used */
+    private void endSegment() {
+        if(segment == null)
+            return;
+
+        int used = segment.position();
+        if(segment.remaining() >= 4)
+            segment.putInt(0);
+        segment.force();
+        try {
+            file.setLength(Math.min(segment.capacity(), used + 4));
+            file.close();
+        }
+        catch(IOException e) { /* the unused part of the segment stays zeroed */ }
+        segment = null;
+        file = null;
+    }
+
+    /** Stops recording and finishes the current segment. */
+    public synchronized void close() {
+        if(closed)
+            return;
+
+        closed = true;
+        endSegment();
+    }
+
+    /** Returns true if the journal is no longer recording. */
+    public synchronized boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Reads the records of a journal, one segment at a time, in the order they
+     * were recorded.
+     */
+    public static class Reader {
+        /** the path (less the segment suffix) of the journal's files */
+        private final String pathPrefix;
+
+        /** number of the segment being read */
+        private int segmentNum = -1;
+
+        /** the segment being read */
+        private ByteBuffer segment = null;
+
+        /** wall-clock time the journal was started (ms) */
+        private long startTime_ms = 0;
+
+        /** direction of the current record */
+        private Direction direction;
+
+        /** when the current record was recorded (ns since the journal started) */
+        private long time_ns;
+
+        /** the message in the current record */
+        private ByteBuffer message;
+
+        /** Creates a reader for the journal whose segments are named PREFIX.NNNNN.ofgj. */
+        public Reader(String pathPrefix) throws IOException {
+            this.pathPrefix = pathPrefix;
+            if(!nextSegment())
+                throw new IOException("no journal found at " + getSegmentName(pathPrefix, 0));
+        }
+
+        /**
+         * Advances to the next record.
+         *
+         * @return false if there are no more records
+         */
+        public boolean next() throws IOException {
+            while(segment != null) {
+                if(segment.remaining() >= RECORD_HEADER_SIZE) {
+                    int len = segment.getInt();
+                    if(len > 0) {
+                        time_ns = segment.getLong();
+                        byte dir = segment.get();
+                        if(dir < 0 || dir >= DIRECTIONS.length || len > segment.remaining())
+                            throw new IOException("corrupt journal record in " + getSegmentName(pathPrefix, segmentNum));
+
+                        direction = DIRECTIONS[dir];
+                        message = segment.slice();
+                        message.limit(len);
+                        segment.position(segment.position() + len);
+                        return true;
+                    }
+                }
+
+                if(!nextSegment())
+                    segment = null;
+            }
+            return false;
+        }
+
+        /** Returns the direction of the current record. */
+        public Direction getDirection() {
+            return direction;
+        }
+
+        /** Returns when the current record was recorded (ns since the journal started). */
+        public long getTime_ns() {
+            return time_ns;
+        }
+
+        /**
+         * Returns the message in the current record exactly as it appeared on
+         * the wire (including its length field).
+         */
+        public ByteBuffer getMessage() {
+            return message;
+        }
+
+        /** Returns the wall-clock time the journal was started (ms). */
+        public long getStartTime_ms() {
+            return startTime_ms;
+        }
+
+        /** maps the next segment, if there is one */
+        private boolean nextSegment() throws IOException {
+            File f = new File(getSegmentName(pathPrefix, segmentNum + 1));
+            if(!f.exists())
+                return false;
+
+            segmentNum += 1;
+            RandomAccessFile raf = new RandomAccessFile(f, "r");
+            try {
+                segment = raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, raf.length());
+            }
+            finally {
+                raf.close();
+            }
+
+            if(segment.remaining() < SEGMENT_HEADER_SIZE || segment.getInt() != MAGIC)
+                throw new IOException(f + " is not a journal segment");
+            if(segment.getShort() != VERSION)
+                throw new IOException(f + " has an unsupported journal version");
+
+            segment.getShort();
+            segment.getInt();
+            segment.getInt();
+            startTime_ms = segment.getLong();
+            return true;
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package org.openflow.gui.net;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Feeds the messages received in a WireJournal back through a
+ * MessageProcessor, as if they were arriving from the server again.  Messages
+ * can be replayed at the speed they were originally received, N times faster,
+ * or as fast as possible (useful for load testing the processor offline).
+ * Messages which were sent to the server are skipped, and the processor is not
+ * told about connection state changes.
+ *
+ * @author David Underhill
+ */
+public class WireJournalReplayer<MSG_TYPE extends Message> extends Thread {
+    /** speed which replays messages as fast as possible */
+    public static final double MAX_SPEED = Double.POSITIVE_INFINITY;
+
+    /** the journal to replay */
+    private final String pathPrefix;
+
+    /** what the replayed messages are passed to */
+    private final MessageProcessor<MSG_TYPE> msgProcessor;
+
+    /** how many times faster than real-time to replay */
+    private final double speed;
+
+    /** holds the message being decoded */
+    private final FrameBuffer frame = new FrameBuffer();
+
+    /** number of messages which have been replayed */
+    private volatile long numReplayed = 0;
+
+    /** whether the replay should stop */
+    private volatile boolean done = false;
+
+    /** passes messages produced by a streaming decoder on to the processor */
+    private final StreamingMessageProcessor.Sink<MSG_TYPE> processSink = new StreamingMessageProcessor.Sink<MSG_TYPE>() {
+        public void deliver(MSG_TYPE msg) {
+            msgProcessor.process(msg);
+        }
+    };
+
+    /**
+     * Creates a replayer (call start() to begin).
+     *
+     * @param pathPrefix  the journal to replay (see WireJournal)
+     * @param mp          the processor to pass replayed messages to
+     * @param speed       how many times faster than real-time to replay
+     *                    (MAX_SPEED, or any non-positive value, replays as
+     *                    fast as possible)
+     */
+    public WireJournalReplayer(String pathPrefix, MessageProcessor<MSG_TYPE> mp, double speed) {
+        super("WireJournalReplayer:" + pathPrefix);
+        this.pathPrefix = pathPrefix;
+        this.msgProcessor = mp;
+        this.speed = (speed <= 0) ? MAX_SPEED : speed;
+    }
+
+    /** Returns the number of messages which have been replayed. */
+    public long getNumReplayed() {
+        return numReplayed;
+    }
+
+    /** Tells the replay to stop as soon as possible. */
+    public void shutdown() {
+        done = true;
+        interrupt();
+    }
+
+    public void run() {
+        long start_ns = System.nanoTime();
+        try {
+            WireJournal.Reader r = new WireJournal.Reader(pathPrefix);
+            long firstRecord_ns = -1;
+            while(!done && r.next()) {
+                if(r.getDirection() != WireJournal.Direction.RECEIVED)
+                    continue;
+
+                // wait until it is time to replay this message
+                if(firstRecord_ns < 0)
+                    firstRecord_ns = r.getTime_ns();
+                else if(speed != MAX_SPEED)
+                    waitUntil(start_ns + (long)((r.getTime_ns() - firstRecord_ns) / speed));
+
+                replay(r.getMessage());
+            }
+        }
+        catch(IOException e) {
+            System.err.println("Error: unable to replay journal " + pathPrefix + ": " + e.getMessage());
+        }
+
+        System.out.println("Replayed " + numReplayed + " messages from " + pathPrefix + " in "
+                           + (System.nanoTime() - start_ns) / 1000000 + "ms");
+    }
+
+    /** parks until System.nanoTime() reaches deadline_ns (or the replay is stopped) */
+    private void waitUntil(long deadline_ns) {
+        long left;
+        while(!done && (left = deadline_ns - System.nanoTime()) > 0)
+            LockSupport.parkNanos(left);
+    }
+
+    /** decodes and processes the message in wire (which includes its length field) */
+    @SuppressWarnings("unchecked")
+    private void replay(ByteBuffer wire) throws IOException {
+        int fieldSize = MessageLength.peekFieldSize(wire);
+        if(fieldSize == 0)
+            throw new IOException("truncated message in journal");
+
+        int len = MessageLength.peek(wire);
+        if(wire.remaining() != fieldSize + len - MessageLength.SIZEOF)
+            throw new IOException("journal record length does not match its message's length");
+        wire.position(wire.position() + fieldSize);
+        frame.fill(wire, len - MessageLength.SIZEOF);
+
+        try {
+            if(len > StreamingMessageProcessor.STREAMING_THRESHOLD && msgProcessor instanceof StreamingMessageProcessor)
+                ((StreamingMessageProcessor<MSG_TYPE>)msgProcessor).decodeStreaming(len, frame, processSink);
+            else {
+                MSG_TYPE msg = msgProcessor.decode(len, frame);
+                if(msg != null)
+                    msgProcessor.process(msg);
+            }
+        }
+        catch(IOException e) {
+            System.err.println("Error: unable to decode replayed " + len + "B message: " + e.getMessage());
+        }
+        numReplayed += 1;
+    }
+}
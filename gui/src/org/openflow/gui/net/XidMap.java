@@ -0,0 +1,143 @@
+package org.openflow.gui.net;
+
+/**
+ * Maps transaction IDs to values without boxing the IDs, so lookups do not
+ * allocate (unlike a Map<Integer, V>).  Entries are kept in an open-addressed
+ * table.  Transaction ID 0 means "no transaction" and cannot be used as a key.
+ * All methods are synchronized.
+ *
+ * @param <V>  the type of the values
+ *
+ * @author David Underhill
+ */
+public class XidMap<V> {
+    /** initial number of slots in the table (always a power of two) */
+    public static final int DEFAULT_CAPACITY = 64;
+
+    /** the key in each slot (0 if the slot is empty) */
+    private int[] keys;
+
+    /** the value in each slot */
+    private Object[] values;
+
+    /** number of entries in the table */
+    private int size = 0;
+
+    /** Creates an empty map. */
+    public XidMap() {
+        keys = new int[DEFAULT_CAPACITY];
+        values = new Object[DEFAULT_CAPACITY];
+    }
+
+    /** returns the slot where xid's probe sequence starts */
+    private static int slotOf(int xid, int mask) {
+        int h = xid * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    /** returns the slot which holds xid, or -1 if it is not in the map */
+    private int find(int xid) {
+        int mask = keys.length - 1;
+        for(int i=slotOf(xid, mask); keys[i]!=0; i=(i+1)&mask)
+            if(keys[i] == xid)
+                return i;
+
+        return -1;
+    }
+
+    /** Returns the value mapped to xid, or null if there is none. */
+    @SuppressWarnings("unchecked")
+    public synchronized V get(int xid) {
+        int i = (xid == 0) ? -1 : find(xid);
+        return (i < 0) ? null : (V)values[i];
+    }
+
+    /**
+     * Maps xid to v (replacing any previous value).
+     *
+     * @return the previous value mapped to xid, if any
+     */
+    @SuppressWarnings("unchecked")
+    public synchronized V put(int xid, V v) {
+        if(xid == 0)
+            throw new IllegalArgumentException("transaction ID 0 cannot be mapped");
+
+        int i = find(xid);
+        if(i >= 0) {
+            V old = (V)values[i];
+            values[i] = v;
+            return old;
+        }
+
+        if(2 * (size + 1) > keys.length)
+            resize(keys.length * 2);
+
+        insert(xid, v);
+        size += 1;
+        return null;
+    }
+
+    /** puts xid in the first free slot of its probe sequence */
+    private void insert(int xid, Object v) {
+        int mask = keys.length - 1;
+        int i = slotOf(xid, mask);
+        while(keys[i] != 0)
+            i = (i + 1) & mask;
+
+        keys[i] = xid;
+        values[i] = v;
+    }
+
+    /** rehashes the entries into a table with the specified number of slots */
+    private void resize(int capacity) {
+        int[] oldKeys = keys;
+        Object[] oldValues = values;
+        keys = new int[capacity];
+        values = new Object[capacity];
+        for(int i=0; i<oldKeys.length; i++)
+            if(oldKeys[i] != 0)
+                insert(oldKeys[i], oldValues[i]);
+    }
+
+    /**
+     * Removes the mapping for xid.
+     *
+     * @return the value which was mapped to xid, if any
+     */
+    @SuppressWarnings("unchecked")
+    public synchronized V remove(int xid) {
+        int i = (xid == 0) ? -1 : find(xid);
+        if(i < 0)
+            return null;
+
+        V old = (V)values[i];
+        size -= 1;
+
+        // shift later entries in the probe sequence back to fill the hole
+        int mask = keys.length - 1;
+        int hole = i;
+        for(int j=(i+1)&mask; keys[j]!=0; j=(j+1)&mask) {
+            int home = slotOf(keys[j], mask);
+            if(((j - home) & mask) >= ((j - hole) & mask)) {
+                keys[hole] = keys[j];
+                values[hole] = values[j];
+                hole = j;
+            }
+        }
+        keys[hole] = 0;
+        values[hole] = null;
+        return old;
+    }
+
+    /** Returns the number of entries in the map. */
+    public synchronized int size() {
+        return size;
+    }
+
+    /** Removes every entry. */
+    public synchronized void clear() {
+        keys = new int[DEFAULT_CAPACITY];
+        values = new Object[DEFAULT_CAPACITY];
+        size = 0;
+    }
+}
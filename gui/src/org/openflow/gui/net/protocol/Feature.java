@@ -0,0 +1,79 @@
+package org.openflow.gui.net.protocol;
+
+/**
+ * Enumerates the optional protocol features which the GUI and the backend may
+ * each support.  Each side advertises the features it supports as a bitmap in
+ * its HELLO message, and a feature is only used if both sides support it.
+ * Backends which predate HELLO support none of them.
+ *
+ * @author David Underhill
+ */
+public enum Feature {
+    /** messages longer than 0xFFFF bytes may be sent with an extended length field */
+    EXTENDED_LENGTH(0x00000001),
+
+    /** the initial topology may be requested as a TOPOLOGY_SNAPSHOT */
+    TOPOLOGY_SNAPSHOT(0x00000002),
+
+    /** port stats may be requested (and polled) for all ports of a switch at once */
+    PORT_STATS(0x00000004),
+
+    /** flow stats may be requested (and polled), with each entry's cookie set to its flow's ID */
+    FLOW_STATS(0x00000008),
+
+    ;
+
+    /** the bit which represents this feature in a feature bitmap */
+    private final int bit;
+
+    private Feature(int bit) {
+        this.bit = bit;
+    }
+
+    /** returns the bit which represents this feature in a feature bitmap */
+    public int getBit() {
+        return bit;
+    }
+
+    /** returns whether this feature is in the specified feature bitmap */
+    public boolean isIn(int features) {
+        return (features & bit) != 0;
+    }
+
+    /** the constants of this enum (values() makes a new copy each call) */
+    private static final Feature[] VALUES = values();
+
+    /** bitmap of every feature this implementation supports */
+    public static final int SUPPORTED = toBitmap(VALUES);
+
+    /** returns the bitmap which contains the specified features */
+    public static int toBitmap(Feature... fs) {
+        int features = 0;
+        for(Feature f : fs)
+            features |= f.bit;
+
+        return features;
+    }
+
+    /** returns a description of the features in the specified bitmap */
+    public static String toString(int features) {
+        StringBuilder sb = new StringBuilder();
+        for(Feature f : VALUES) {
+            if(f.isIn(features)) {
+                if(sb.length() > 0)
+                    sb.append(',');
+                sb.append(f.name());
+                features &= ~f.bit;
+            }
+        }
+
+        // note bits for features this implementation does not know about
+        if(features != 0) {
+            if(sb.length() > 0)
+                sb.append(',');
+            sb.append("0x").append(Integer.toHexString(features));
+        }
+
+        return (sb.length() == 0) ? "none" : sb.toString();
+    }
+}
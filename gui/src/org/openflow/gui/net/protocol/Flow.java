@@ -4,6 +4,8 @@ import java.io.DataOutput;
 import java.io.IOException;
 import java.util.Collection;
 
+import org.openflow.gui.net.protocol.codec.FlowCodec;
+
 /**
  * Structure to describe a flow.
  * 
@@ -52,7 +54,7 @@ public class Flow {
     
     /** This returns the length of Flow */
     public int length() {
-        return 10 + path.length * FlowHop.SIZEOF;
+        return FlowCodec.SIZEOF + path.length * FlowHop.SIZEOF;
     }
     
     public void write(DataOutput out) throws IOException {
@@ -68,10 +70,12 @@ public class Flow {
     }
     
     public String toString() {
-        String ret = "Flow:" + type.toString() + ":" + id + ":" + srcNode + ":" + srcPort + "{";
+        StringBuilder ret = new StringBuilder("Flow:").append(type.toString()).append(':').append(id)
+                                .append(':').append(srcNode).append(':').append(srcPort).append('{');
         for(FlowHop e : path)
-            ret += e.toString() + ", ";
+            ret.append(e.toString()).append(", ");
         
-        return ret.substring(0, ret.length()-1) + "}:" + dstNode + ":" + dstPort;
+        ret.setLength(ret.length() - 1);
+        return ret.append("}:").append(dstNode).append(':').append(dstPort).toString();
     }
 }
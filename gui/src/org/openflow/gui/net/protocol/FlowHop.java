@@ -3,13 +3,15 @@ package org.openflow.gui.net.protocol;
 import java.io.DataOutput;
 import java.io.IOException;
 
+import org.openflow.gui.net.protocol.codec.FlowHopCodec;
+
 /**
  * A hop that a flow goes through.
  * 
  * @author David Underhill
  */
 public class FlowHop {
-    public static final int SIZEOF = Node.SIZEOF + 2;
+    public static final int SIZEOF = FlowHopCodec.SIZEOF;
     
     /** the incoming port */
     public final short inport;
@@ -23,12 +23,15 @@ public enum FlowType {
         return typeID;
     }
 
+    /** the constants of this enum (values() makes a new copy each call) */
+    private static final FlowType[] VALUES = values();
+
     /** 
      * Returns the FlowType constant associated with typeID, if any or
      * UNKOWN if no type is matched.
      */
     public static FlowType typeValToMessageType(short typeID) {
-        for(FlowType t : FlowType.values())
+        for(FlowType t : VALUES)
             if(t.getTypeID() == typeID)
                 return t;
 
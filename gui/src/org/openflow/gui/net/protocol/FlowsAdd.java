@@ -2,6 +2,7 @@ package org.openflow.gui.net.protocol;
 
 import java.io.DataInput;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 
 /**
  * Flow(s) added message.
@@ -17,6 +18,10 @@ public class FlowsAdd extends FlowsList {
         super(OFGMessageType.FLOWS_ADD, xid, flows);
     }
     
+    public FlowsAdd(int xid, ByteBuffer body) throws IOException {
+        super(OFGMessageType.FLOWS_ADD, xid, body);
+    }
+    
     public FlowsAdd(final int len, final int xid, final DataInput in) throws IOException {
         super(len, OFGMessageType.FLOWS_ADD, xid, in);
     }
@@ -2,6 +2,7 @@ package org.openflow.gui.net.protocol;
 
 import java.io.DataInput;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 
 /**
  * Flow(s) deleted message.
@@ -17,6 +18,10 @@ public class FlowsDel extends FlowsList {
         super(OFGMessageType.FLOWS_DELETE, xid, flows);
     }
     
+    public FlowsDel(int xid, ByteBuffer body) throws IOException {
+        super(OFGMessageType.FLOWS_DELETE, xid, body);
+    }
+    
     public FlowsDel(final int len, final int xid, final DataInput in) throws IOException {
         super(len, OFGMessageType.FLOWS_DELETE, xid, in);
     }
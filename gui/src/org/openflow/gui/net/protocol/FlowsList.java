@@ -3,14 +3,31 @@ package org.openflow.gui.net.protocol;
 import java.io.DataInput;
 import java.io.DataOutput;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import org.openflow.gui.net.protocol.codec.FlowCodec;
+import org.openflow.gui.net.protocol.codec.FlowHopCodec;
 
 /**
- * A list of flows.
+ * A list of flows.  A received list is kept in its wire format and its
+ * entries are read in place by index, so no Flow or FlowHop objects are
+ * created unless getFlows() is called.
  * 
  * @author David Underhill
  */
 public abstract class FlowsList extends OFGMessage {
-    public Flow[] flows;
+    /** the flows (built on demand if this list was received) */
+    private Flow[] flows;
+    
+    /**
+     * the received list (# of flows followed by the flows) in wire format
+     * (null if built from Flow objects)
+     */
+    private final ByteBuffer body;
+    
+    /** where each flow starts in body (null if built from Flow objects) */
+    private final int[] offsets;
     
     public FlowsList(OFGMessageType t, final Flow[] flows) {
         this(t, 0, flows);
@@ -19,63 +36,256 @@ public abstract class FlowsList extends OFGMessage {
     public FlowsList(OFGMessageType t, int xid, final Flow[] flows) {
         super(t, xid);
         this.flows = flows;
+        this.body = null;
+        this.offsets = null;
     }
     
-    public FlowsList(final int len, final OFGMessageType t, final int xid, final DataInput in) throws IOException {
+    /**
+     * Constructs a list from the wire format list (# of flows followed by the
+     * flows) between body's position and limit.
+     */
+    public FlowsList(OFGMessageType t, int xid, ByteBuffer body) throws IOException {
         super(t, xid);
-        int left = len - super.length();
+        this.flows = null;
+        this.body = body.slice();
+        
+        int left = this.body.remaining();
         if(left < 4)
             throw new IOException("Body of flows has a bad length (not enough bytes for # of flows field): " + left + "B left, need >=4B");
         
-        // read in the flows
-        flows = new Flow[in.readInt()];
-        for(int flowOn=0; flowOn<flows.length; flowOn++) { 
-            if(left < 32)
-                throw new IOException("Body of flows has a bad length (not enough for a flow length): " + left + "B left, need >=32B");
+        // find where each flow starts
+        int n = this.body.getInt(0);
+        if(n < 0)
+            throw new IOException("Body of flows has a bad # of flows: " + n);
+        
+        offsets = new int[n];
+        int off = 4;
+        for(int i=0; i<n; i++) {
+            if(left - off < FlowCodec.SIZEOF)
+                throw new IOException("Body of flows has a bad length (not enough for a flow length): " + (left - off) + "B left, need >=" + FlowCodec.SIZEOF + "B");
             
-            short type = in.readShort();
-            int id = in.readInt();
-            Node srcNode = new Node(in);
-            short srcPort = in.readShort();
-            Node dstNode = new Node(in);
-            short dstPort = in.readShort();
-            short pathLen = in.readShort();
-            if(left < pathLen * (2 + Node.SIZEOF + 2))
+            offsets[i] = off;
+            int pathLen = FlowCodec.getPathLen(this.body, off);
+            off += FlowCodec.SIZEOF + pathLen * FlowHopCodec.SIZEOF;
+            if(pathLen < 0 || off > left)
                 throw new IOException("Body of flows has a bad length (not enough for a flow)");
+        }
+        
+        if(off != left)
+            throw new IOException("Body of flows has " + (left - off) + " extra bytes");
+    }
+    
+    public FlowsList(final int len, final OFGMessageType t, final int xid, final DataInput in) throws IOException {
+        this(t, xid, readList(len, in));
+    }
+    
+    /** reads the list of flows in a len byte message whose header has been read */
+    private static ByteBuffer readList(int len, DataInput in) throws IOException {
+        int left = len - OFGMessage.SIZEOF;
+        if(left < 4)
+            throw new IOException("Body of flows has a bad length (not enough bytes for # of flows field): " + left + "B left, need >=4B");
+        
+        return readFlows(in.readInt(), left - 4, in);
+    }
+    
+    /**
+     * Reads n flows from in into a new buffer which holds a wire format list
+     * (# of flows followed by the flows).  Exactly the bytes of the n flows
+     * are read.
+     *
+     * @param n     the number of flows to read
+     * @param left  the number of bytes left in the message
+     * @param in    where to read the flows from
+     */
+    static ByteBuffer readFlows(int n, int left, DataInput in) throws IOException {
+        if(n < 0)
+            throw new IOException("Body of flows has a bad # of flows: " + n);
+        if(n > left / FlowCodec.SIZEOF)
+            throw new IOException("Body of flows has a bad length (not enough for " + n + " flows): " + left + "B left");
+        
+        byte[] buf = new byte[4 + n * FlowCodec.SIZEOF];
+        ByteBuffer.wrap(buf).putInt(n);
+        int used = 4;
+        for(int i=0; i<n; i++) {
+            if(left < FlowCodec.SIZEOF)
+                throw new IOException("Body of flows has a bad length (not enough for a flow length): " + left + "B left, need >=" + FlowCodec.SIZEOF + "B");
+            
+            buf = ensureCapacity(buf, used + FlowCodec.SIZEOF);
+            in.readFully(buf, used, FlowCodec.SIZEOF);
+            int pathLen = (short)(((buf[used + FlowCodec.OFFSET_PATH_LEN] & 0xFF) << 8) | (buf[used + FlowCodec.OFFSET_PATH_LEN + 1] & 0xFF));
+            used += FlowCodec.SIZEOF;
+            left -= FlowCodec.SIZEOF;
             
-            FlowHop[] path = new FlowHop[pathLen];
-            for(int i=0; i<pathLen; i++)
-                path[i] = new FlowHop(in.readShort(), new Node(in), in.readShort());
+            int pathBytes = pathLen * FlowHopCodec.SIZEOF;
+            if(pathLen < 0 || left < pathBytes)
+                throw new IOException("Body of flows has a bad length (not enough for a flow)");
             
-            Flow f = new Flow(FlowType.typeValToMessageType(type), id, srcNode, srcPort, dstNode, dstPort, path);
-            flows[flowOn] = f;
-            left -= f.length();
+            buf = ensureCapacity(buf, used + pathBytes);
+            in.readFully(buf, used, pathBytes);
+            used += pathBytes;
+            left -= pathBytes;
+        }
+        
+        return ByteBuffer.wrap(buf, 0, used);
+    }
+    
+    /** returns buf or a bigger copy of it which can hold at least len bytes */
+    private static byte[] ensureCapacity(byte[] buf, int len) {
+        if(buf.length >= len)
+            return buf;
+        else
+            return Arrays.copyOf(buf, Math.max(len, buf.length * 2));
+    }
+    
+    /** Returns the number of flows in the list. */
+    public int size() {
+        return (body == null) ? flows.length : offsets.length;
+    }
+    
+    /** Returns the type of flow i. */
+    public FlowType getFlowType(int i) {
+        if(body == null)
+            return flows[i].type;
+        else
+            return FlowType.typeValToMessageType(FlowCodec.getType(body, offsets[i]));
+    }
+    
+    /** Returns the ID of flow i. */
+    public int getFlowID(int i) {
+        if(body == null)
+            return flows[i].id;
+        else
+            return FlowCodec.getId(body, offsets[i]);
+    }
+    
+    /** Returns the ID of the source node of flow i. */
+    public long getSrcID(int i) {
+        if(body == null)
+            return flows[i].srcNode.id;
+        else
+            return FlowCodec.getSrcId(body, offsets[i]);
+    }
+    
+    /** Returns the source port of flow i. */
+    public short getSrcPort(int i) {
+        if(body == null)
+            return flows[i].srcPort;
+        else
+            return FlowCodec.getSrcPort(body, offsets[i]);
+    }
+    
+    /** Returns the ID of the destination node of flow i. */
+    public long getDstID(int i) {
+        if(body == null)
+            return flows[i].dstNode.id;
+        else
+            return FlowCodec.getDstId(body, offsets[i]);
+    }
+    
+    /** Returns the destination port of flow i. */
+    public short getDstPort(int i) {
+        if(body == null)
+            return flows[i].dstPort;
+        else
+            return FlowCodec.getDstPort(body, offsets[i]);
+    }
+    
+    /** Returns the number of hops in the path of flow i. */
+    public int getPathLength(int i) {
+        if(body == null)
+            return flows[i].path.length;
+        else
+            return FlowCodec.getPathLen(body, offsets[i]);
+    }
+    
+    /** Returns the ID of the node at hop h of flow i. */
+    public long getHopID(int i, int h) {
+        if(body == null)
+            return flows[i].path[h].node.id;
+        else
+            return FlowHopCodec.getNodeId(body, hopOffset(i, h));
+    }
+    
+    /** Returns the input port of hop h of flow i. */
+    public short getHopInport(int i, int h) {
+        if(body == null)
+            return flows[i].path[h].inport;
+        else
+            return FlowHopCodec.getInport(body, hopOffset(i, h));
+    }
+    
+    /** Returns the output port of hop h of flow i. */
+    public short getHopOutport(int i, int h) {
+        if(body == null)
+            return flows[i].path[h].outport;
+        else
+            return FlowHopCodec.getOutport(body, hopOffset(i, h));
+    }
+    
+    /** returns where hop h of flow i starts in body */
+    private int hopOffset(int i, int h) {
+        return offsets[i] + FlowCodec.SIZEOF + h * FlowHopCodec.SIZEOF;
+    }
+    
+    /** returns the node whose type and ID are typeID and id */
+    private static Node node(short typeID, long id) {
+        return new Node(NodeType.typeValToMessageType(typeID), id);
+    }
+    
+    /** Returns the flows in the list (creating them if the list was received). */
+    public Flow[] getFlows() {
+        if(flows == null) {
+            Flow[] ret = new Flow[offsets.length];
+            for(int i=0; i<ret.length; i++) {
+                FlowHop[] path = new FlowHop[getPathLength(i)];
+                for(int h=0; h<path.length; h++) {
+                    int off = hopOffset(i, h);
+                    path[h] = new FlowHop(getHopInport(i, h),
+                                          node(FlowHopCodec.getNodeType(body, off), getHopID(i, h)),
+                                          getHopOutport(i, h));
+                }
+                
+                int off = offsets[i];
+                ret[i] = new Flow(getFlowType(i), getFlowID(i),
+                                  node(FlowCodec.getSrcType(body, off), getSrcID(i)), getSrcPort(i),
+                                  node(FlowCodec.getDstType(body, off), getDstID(i)), getDstPort(i),
+                                  path);
+            }
+            flows = ret;
         }
+        return flows;
     }
     
     public int length() {
-        int len = super.length();
+        if(body != null)
+            return super.length() + body.limit();
+        
+        int len = super.length() + 4;
         for(Flow f : flows)
             len += f.length();
         return len;
     }
     
     public void write(DataOutput out) throws IOException {
-        super.write(out); 
-        for(Flow f : flows)
-            f.write(out);
+        super.write(out);
+        if(body != null)
+            out.write(body.array(), body.arrayOffset(), body.limit());
+        else {
+            out.writeInt(flows.length);
+            for(Flow f : flows)
+                f.write(out);
+        }
     }
     
     public String toString() {
-        String strFlows;
-        if(flows.length > 0)
-            strFlows = flows[0].toString();
-        else
-            strFlows = "";
-        
-        for(int i=1; i<flows.length; i++)
-            strFlows += ", " + flows[i].toString();
+        Flow[] flows = getFlows();
+        StringBuilder strFlows = new StringBuilder(super.toString()).append(TSSEP);
+        for(int i=0; i<flows.length; i++) {
+            if(i > 0)
+                strFlows.append(", ");
+            strFlows.append(flows[i].toString());
+        }
         
-        return super.toString() + TSSEP + strFlows;
+        return strFlows.toString();
     }
 }
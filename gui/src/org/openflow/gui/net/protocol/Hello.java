@@ -0,0 +1,82 @@
+package org.openflow.gui.net.protocol;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+import org.openflow.gui.net.protocol.codec.HelloCodec;
+
+/**
+ * Tells the other side which protocol version and optional features (see
+ * Feature) the sender supports.  The GUI sends one when it connects and the
+ * backend replies with one of its own (with the same transaction ID).  The
+ * body is the version (2B) followed by the feature bitmap (4B); anything
+ * after that is ignored so later versions may add fields.
+ *
+ * @author David Underhill
+ */
+public class Hello extends OFGMessage {
+    /** the version of the protocol this implementation speaks */
+    public static final short VERSION = 1;
+
+    /** number of bytes in the body */
+    public static final int BODY_SIZEOF = HelloCodec.SIZEOF;
+
+    /** the protocol version the sender speaks */
+    public final short version;
+
+    /** bitmap of the features the sender supports */
+    public final int features;
+
+    /** Creates a HELLO which advertises every feature this implementation supports. */
+    public Hello() {
+        this(VERSION, Feature.SUPPORTED);
+    }
+
+    public Hello(short version, int features) {
+        super(OFGMessageType.HELLO, 0);
+        this.version = version;
+        this.features = features;
+    }
+
+    /** Reads a HELLO whose length is len (including the header) from in. */
+    public Hello(final int len, final int xid, final DataInput in) throws IOException {
+        super(OFGMessageType.HELLO, xid);
+
+        int left = len - OFGMessage.SIZEOF - BODY_SIZEOF;
+        if(left < 0)
+            throw new IOException("Body of hello is too short: " + (len - OFGMessage.SIZEOF) + "B (need >=" + BODY_SIZEOF + "B)");
+
+        version = in.readShort();
+        features = in.readInt();
+        if(in.skipBytes(left) != left)
+            throw new IOException("unable to skip the last " + left + " bytes of a hello");
+    }
+
+    /** returns whether the sender supports f */
+    public boolean supports(Feature f) {
+        return f.isIn(features);
+    }
+
+    /** a HELLO sent by the GUI expects a HELLO in reply */
+    public boolean isStatefulRequest() {
+        return true;
+    }
+
+    public boolean isStatefulReply() {
+        return true;
+    }
+
+    public int length() {
+        return super.length() + BODY_SIZEOF;
+    }
+
+    public void write(DataOutput out) throws IOException {
+        super.write(out);
+        HelloCodec.write(out, version, features);
+    }
+
+    public String toString() {
+        return super.toString() + TSSEP + "version=" + version + " features=" + Feature.toString(features);
+    }
+}
@@ -4,13 +4,15 @@ import java.io.DataInput;
 import java.io.DataOutput;
 import java.io.IOException;
 
+import org.openflow.gui.net.protocol.codec.LinkCodec;
+
 /**
  * Structure to specify a link.
  * 
  * @author David Underhill
  */
 public class Link {
-    public static final int SIZEOF = 2 + 2 * (Node.SIZEOF + 2);
+    public static final int SIZEOF = LinkCodec.SIZEOF;
 
     /** type of the link */
     public final LinkType linkType;
@@ -4,13 +4,15 @@ import java.io.DataInput;
 import java.io.DataOutput;
 import java.io.IOException;
 
+import org.openflow.gui.net.protocol.codec.LinkSpecCodec;
+
 /**
  * Structure to specify a link and its capacity.
  * 
  * @author David Underhill
  */
 public class LinkSpec extends Link {
-    public static final int SIZEOF = Link.SIZEOF + 8;
+    public static final int SIZEOF = LinkSpecCodec.SIZEOF;
     
     public final long capacity_bps;
     
@@ -19,6 +21,11 @@ public class LinkSpec extends Link {
         this.capacity_bps = in.readLong();
     }
     
+    public LinkSpec(LinkType linkType, Node srcNode, short srcPort, Node dstNode, short dstPort, long capacity_bps) {
+        super(linkType, srcNode, srcPort, dstNode, dstPort);
+        this.capacity_bps = capacity_bps;
+    }
+    
     public void write(DataOutput out) throws IOException {
         super.write(out);
         out.writeLong(capacity_bps);
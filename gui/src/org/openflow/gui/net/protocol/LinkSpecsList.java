@@ -3,14 +3,26 @@ package org.openflow.gui.net.protocol;
 import java.io.DataInput;
 import java.io.DataOutput;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import org.openflow.gui.net.protocol.codec.LinkSpecCodec;
 
 /**
- * A list of link specs.
+ * A list of link specs.  A received list is kept in its wire format and its
+ * entries are read in place by index, so no LinkSpec objects are created
+ * unless getLinks() is called.
  * 
  * @author David Underhill
  */
 public abstract class LinkSpecsList extends OFGMessage {
-    public LinkSpec[] links;
+    /** the links (built on demand if this list was received) */
+    private LinkSpec[] links;
+    
+    /** the received entries in wire format (null if built from LinkSpec objects) */
+    private final ByteBuffer body;
+    
+    /** number of links in the list */
+    private final int size;
     
     public LinkSpecsList(OFGMessageType t, final LinkSpec[] links) {
         this(t, 0, links);
@@ -19,46 +31,125 @@ public abstract class LinkSpecsList extends OFGMessage {
     public LinkSpecsList(OFGMessageType t, int xid, final LinkSpec[] links) {
         super(t, xid);
         this.links = links;
+        this.body = null;
+        this.size = links.length;
     }
     
-    public LinkSpecsList(final int len, final OFGMessageType t, final int xid, final DataInput in) throws IOException {
+    /**
+     * Constructs a list whose entries are the wire format link specs between
+     * body's position and limit.
+     */
+    public LinkSpecsList(OFGMessageType t, int xid, ByteBuffer body) throws IOException {
         super(t, xid);
         
         // make sure the number of bytes leftover makes sense
-        int left = len - super.length();
+        int left = body.remaining();
         if(left % LinkSpec.SIZEOF != 0) {
             throw new IOException("Body of link specs list is not a multiple of " + LinkSpec.SIZEOF + " (length of body is " + left + " bytes)");
         }
         
-        // read in the DPIDs
-        int index = 0;
-        links = new LinkSpec[left / LinkSpec.SIZEOF];
-        while(left >= LinkSpec.SIZEOF) {
-            left -= LinkSpec.SIZEOF;
-            links[index++] = new LinkSpec(in);
+        this.links = null;
+        this.body = body.slice();
+        this.size = left / LinkSpec.SIZEOF;
+    }
+    
+    public LinkSpecsList(final int len, final OFGMessageType t, final int xid, final DataInput in) throws IOException {
+        this(t, xid, readBody(len - OFGMessage.SIZEOF, in));
+    }
+    
+    /** Returns the number of links in the list. */
+    public int size() {
+        return size;
+    }
+    
+    /** Returns the type of link i. */
+    public LinkType getLinkType(int i) {
+        if(body == null)
+            return links[i].linkType;
+        else
+            return LinkType.typeValToMessageType(LinkSpecCodec.getType(body, i * LinkSpecCodec.SIZEOF));
+    }
+    
+    /** Returns the ID of the source node of link i. */
+    public long getSrcID(int i) {
+        if(body == null)
+            return links[i].srcNode.id;
+        else
+            return LinkSpecCodec.getSrcId(body, i * LinkSpecCodec.SIZEOF);
+    }
+    
+    /** Returns the source port of link i. */
+    public short getSrcPort(int i) {
+        if(body == null)
+            return links[i].srcPort;
+        else
+            return LinkSpecCodec.getSrcPort(body, i * LinkSpecCodec.SIZEOF);
+    }
+    
+    /** Returns the ID of the destination node of link i. */
+    public long getDstID(int i) {
+        if(body == null)
+            return links[i].dstNode.id;
+        else
+            return LinkSpecCodec.getDstId(body, i * LinkSpecCodec.SIZEOF);
+    }
+    
+    /** Returns the destination port of link i. */
+    public short getDstPort(int i) {
+        if(body == null)
+            return links[i].dstPort;
+        else
+            return LinkSpecCodec.getDstPort(body, i * LinkSpecCodec.SIZEOF);
+    }
+    
+    /** Returns the capacity of link i (bps). */
+    public long getCapacity(int i) {
+        if(body == null)
+            return links[i].capacity_bps;
+        else
+            return LinkSpecCodec.getCapacity(body, i * LinkSpecCodec.SIZEOF);
+    }
+    
+    /** Returns the links in the list (creating them if the list was received). */
+    public LinkSpec[] getLinks() {
+        if(links == null) {
+            LinkSpec[] ret = new LinkSpec[size];
+            for(int i=0; i<size; i++) {
+                int off = i * LinkSpecCodec.SIZEOF;
+                ret[i] = new LinkSpec(getLinkType(i),
+                                      new Node(NodeType.typeValToMessageType(LinkSpecCodec.getSrcType(body, off)), getSrcID(i)),
+                                      getSrcPort(i),
+                                      new Node(NodeType.typeValToMessageType(LinkSpecCodec.getDstType(body, off)), getDstID(i)),
+                                      getDstPort(i),
+                                      getCapacity(i));
+            }
+            links = ret;
         }
+        return links;
     }
     
     public int length() {
-        return super.length() + links.length * LinkSpec.SIZEOF;
+        return super.length() + size * LinkSpec.SIZEOF;
     }
     
     public void write(DataOutput out) throws IOException {
-        super.write(out); 
-        for(LinkSpec l : links)
-            l.write(out);
+        super.write(out);
+        if(body != null)
+            out.write(body.array(), body.arrayOffset(), body.limit());
+        else
+            for(LinkSpec l : links)
+                l.write(out);
     }
     
     public String toString() {
-        String strLinks;
-        if(links.length > 0)
-            strLinks = links[0].toString();
-        else
-            strLinks = "";
-        
-        for(int i=1; i<links.length; i++)
-            strLinks += ", " + links[i].toString();
+        LinkSpec[] links = getLinks();
+        StringBuilder strLinks = new StringBuilder(super.toString()).append(TSSEP);
+        for(int i=0; i<links.length; i++) {
+            if(i > 0)
+                strLinks.append(", ");
+            strLinks.append(links[i].toString());
+        }
         
-        return super.toString() + TSSEP + strLinks;
+        return strLinks.toString();
     }
 }
@@ -32,12 +32,15 @@ public enum LinkType {
         return typeID;
     }
 
+    /** the constants of this enum (values() makes a new copy each call) */
+    private static final LinkType[] VALUES = values();
+
     /** 
      * Returns the LinkType constant associated with typeID, if any or
      * UNKOWN if no type is matched.
      */
     public static LinkType typeValToMessageType(short typeID) {
-        for(LinkType t : LinkType.values())
+        for(LinkType t : VALUES)
             if(t.getTypeID() == typeID)
                 return t;
 
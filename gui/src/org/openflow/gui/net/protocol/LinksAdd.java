@@ -2,6 +2,7 @@ package org.openflow.gui.net.protocol;
 
 import java.io.DataInput;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 
 /**
  * Link(s) added message.
@@ -17,6 +18,10 @@ public class LinksAdd extends LinkSpecsList {
         super(OFGMessageType.LINKS_ADD, xid, links);
     }
     
+    public LinksAdd(int xid, ByteBuffer body) throws IOException {
+        super(OFGMessageType.LINKS_ADD, xid, body);
+    }
+    
     public LinksAdd(final int len, final int xid, final DataInput in) throws IOException {
         super(len, OFGMessageType.LINKS_ADD, xid, in);
     }
@@ -50,15 +50,13 @@ public abstract class LinksList extends OFGMessage {
     }
     
     public String toString() {
-        String strLinks;
-        if(links.length > 0)
-            strLinks = links[0].toString();
-        else
-            strLinks = "";
-        
-        for(int i=1; i<links.length; i++)
-            strLinks += ", " + links[i].toString();
+        StringBuilder strLinks = new StringBuilder(super.toString()).append(TSSEP);
+        for(int i=0; i<links.length; i++) {
+            if(i > 0)
+                strLinks.append(", ");
+            strLinks.append(links[i].toString());
+        }
         
-        return super.toString() + TSSEP + strLinks;
+        return strLinks.toString();
     }
 }
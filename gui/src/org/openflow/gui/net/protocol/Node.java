@@ -4,6 +4,7 @@ import java.io.DataInput;
 import java.io.DataOutput;
 import java.io.IOException;
 
+import org.openflow.gui.net.protocol.codec.NodeCodec;
 import org.openflow.util.string.DPIDUtil;
 
 /**
@@ -12,7 +13,7 @@ import org.openflow.util.string.DPIDUtil;
  * @author David Underhill
  */
 public class Node {
-    public static final int SIZEOF = 10;
+    public static final int SIZEOF = NodeCodec.SIZEOF;
 
     /** type of the node */
     public final NodeType nodeType;
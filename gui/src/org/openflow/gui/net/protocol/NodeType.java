@@ -35,12 +35,15 @@ public enum NodeType {
         return typeID;
     }
 
+    /** the constants of this enum (values() makes a new copy each call) */
+    private static final NodeType[] VALUES = values();
+
     /** 
      * Returns the NodeType constant associated with typeID, if any or
      * UNKOWN if no type is matched.
      */
     public static NodeType typeValToMessageType(short typeID) {
-        for(NodeType t : NodeType.values())
+        for(NodeType t : VALUES)
             if(t.getTypeID() == typeID)
                 return t;
 
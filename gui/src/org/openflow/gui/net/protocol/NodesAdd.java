@@ -2,6 +2,7 @@ package org.openflow.gui.net.protocol;
 
 import java.io.DataInput;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 
 /**
  * Node(s) added message.
@@ -17,6 +18,10 @@ public class NodesAdd extends NodesList {
         super(OFGMessageType.NODES_ADD, xid, nodes);
     }
     
+    public NodesAdd(int xid, ByteBuffer body) throws IOException {
+        super(OFGMessageType.NODES_ADD, xid, body);
+    }
+    
     public NodesAdd(final int len, final int xid, final DataInput in) throws IOException {
         super(len, OFGMessageType.NODES_ADD, xid, in);
     }
@@ -2,6 +2,7 @@ package org.openflow.gui.net.protocol;
 
 import java.io.DataInput;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 
 /**
  * Switch(es) deleted message.
@@ -17,6 +18,10 @@ public class NodesDel extends NodesList {
         super(OFGMessageType.NODES_DELETE, xid, nodes);
     }
     
+    public NodesDel(int xid, ByteBuffer body) throws IOException {
+        super(OFGMessageType.NODES_DELETE, xid, body);
+    }
+    
     public NodesDel(final int len, final int xid, final DataInput in) throws IOException {
         super(len, OFGMessageType.NODES_DELETE, xid, in);
     }
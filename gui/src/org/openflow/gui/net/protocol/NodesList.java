@@ -3,14 +3,26 @@ package org.openflow.gui.net.protocol;
 import java.io.DataInput;
 import java.io.DataOutput;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import org.openflow.gui.net.protocol.codec.NodeCodec;
 
 /**
- * A list of nodes.
+ * A list of nodes.  A received list is kept in its wire format and its
+ * entries are read in place by index, so no Node objects are created unless
+ * getNodes() is called.
  * 
  * @author David Underhill
  */
 public abstract class NodesList extends OFGMessage {
-    public final Node[] nodes;
+    /** the nodes (built on demand if this list was received) */
+    private Node[] nodes;
+    
+    /** the received entries in wire format (null if built from Node objects) */
+    private final ByteBuffer body;
+    
+    /** number of nodes in the list */
+    private final int size;
     
     public NodesList(OFGMessageType t, final Node[] nodes) {
         this(t, 0, nodes);
@@ -19,48 +31,88 @@ public abstract class NodesList extends OFGMessage {
     public NodesList(OFGMessageType t, int xid, final Node[] nodes) {
         super(t, xid);
         this.nodes = nodes;
+        this.body = null;
+        this.size = nodes.length;
     }
     
-    public NodesList(final int len, final OFGMessageType t, final int xid, final DataInput in) throws IOException {
+    /**
+     * Constructs a list whose entries are the wire format nodes between
+     * body's position and limit.
+     */
+    public NodesList(OFGMessageType t, int xid, ByteBuffer body) throws IOException {
         super(t, xid);
         
         // make sure the number of bytes leftover makes sense
-        int left = len - super.length();
+        int left = body.remaining();
         if(left % Node.SIZEOF != 0) {
-            throw new IOException("Body of switch list is not a multiple of " + 
-                                  Node.SIZEOF + 
+            throw new IOException("Body of switch list is not a multiple of " +
+                                  Node.SIZEOF +
                                   " (length of body is " + left + " bytes)");
         }
         
-        // read in the DPIDs
-        int index = 0;
-        nodes = new Node[left / Node.SIZEOF];
-        while(left >= Node.SIZEOF) {
-            left -= Node.SIZEOF;
-            nodes[index++] = new Node(in);
+        this.nodes = null;
+        this.body = body.slice();
+        this.size = left / Node.SIZEOF;
+    }
+    
+    public NodesList(final int len, final OFGMessageType t, final int xid, final DataInput in) throws IOException {
+        this(t, xid, readBody(len - OFGMessage.SIZEOF, in));
+    }
+    
+    /** Returns the number of nodes in the list. */
+    public int size() {
+        return size;
+    }
+    
+    /** Returns the type of node i. */
+    public NodeType getNodeType(int i) {
+        if(body == null)
+            return nodes[i].nodeType;
+        else
+            return NodeType.typeValToMessageType(NodeCodec.getType(body, i * NodeCodec.SIZEOF));
+    }
+    
+    /** Returns the ID of node i. */
+    public long getNodeID(int i) {
+        if(body == null)
+            return nodes[i].id;
+        else
+            return NodeCodec.getId(body, i * NodeCodec.SIZEOF);
+    }
+    
+    /** Returns the nodes in the list (creating them if the list was received). */
+    public Node[] getNodes() {
+        if(nodes == null) {
+            Node[] ret = new Node[size];
+            for(int i=0; i<size; i++)
+                ret[i] = new Node(getNodeType(i), getNodeID(i));
+            nodes = ret;
         }
+        return nodes;
     }
     
     public int length() {
-        return super.length() + nodes.length * Node.SIZEOF;
+        return super.length() + size * Node.SIZEOF;
     }
     
     public void write(DataOutput out) throws IOException {
         super.write(out);
-        for(Node n : nodes)
-            n.write(out);
+        if(body != null)
+            out.write(body.array(), body.arrayOffset(), body.limit());
+        else
+            for(Node n : nodes)
+                n.write(out);
     }
     
     public String toString() {
-        String ret;
-        if(nodes.length > 0)
-            ret = nodes[0].toString();
-        else
-            ret = "";
-        
-        for(int i=1; i<nodes.length; i++)
-            ret += ", " + nodes[i].toString();
+        Node[] nodes = getNodes();
+        StringBuilder ret = new StringBuilder(super.toString()).append(TSSEP);
+        for(int i=0; i<nodes.length; i++) {
+            if(i > 0)
+                ret.append(", ");
+            ret.append(nodes[i].toString());
+        }
         
-        return super.toString() + TSSEP + ret;
+        return ret.toString();
     }
 }
@@ -1,8 +1,10 @@
 package org.openflow.gui.net.protocol;
 
 import java.io.*;
+import java.nio.ByteBuffer;
 
 import org.openflow.gui.net.Message;
+import org.openflow.gui.net.MessageLength;
 
 /**
  * Header for OpenFlow GUI protocol messages.
@@ -53,11 +55,24 @@ public class OFGMessage implements Message<OFGMessageType> {
     
     /** sends the message over the specified output stream */
     public void write(DataOutput out) throws IOException {
-        out.writeShort(length());
+        MessageLength.write(out, length());
         out.writeByte(type.getTypeID());
         out.writeInt(xid);
     }
 
+    /** 
+     * Reads the next n bytes of a message body from in into a new buffer so
+     * the body can be read in place after the frame it came from is reused.
+     */
+    protected static ByteBuffer readBody(int n, DataInput in) throws IOException {
+        if(n < 0)
+            throw new IOException("Body has a bad length: " + n + "B");
+        
+        byte[] body = new byte[n];
+        in.readFully(body);
+        return ByteBuffer.wrap(body);
+    }
+    
     /** Gets the time this message was created in this application */
     public long timeCreated() {
         return timeCreated;
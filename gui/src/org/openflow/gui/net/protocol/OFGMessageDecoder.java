@@ -0,0 +1,19 @@
+package org.openflow.gui.net.protocol;
+
+import java.io.DataInput;
+import java.io.IOException;
+
+/**
+ * Decodes the body of one type of OFG message.  Decoders are registered with
+ * OFGMessageType.registerDecoder().
+ * 
+ * @author David Underhill
+ */
+public interface OFGMessageDecoder {
+    /**
+     * Constructs the object representing a received message of type t.  The
+     * message is known to be of length len.  Its header (length, type, and
+     * transaction ID) has been read, but the remainder is still on in.
+     */
+    public OFGMessage decode(int len, OFGMessageType t, int xid, DataInput in) throws IOException;
+}
@@ -2,8 +2,14 @@ package org.openflow.gui.net.protocol;
 
 import java.io.DataInput;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 
+import org.openflow.gui.net.CodecRegistry;
+import org.openflow.gui.net.StreamingMessageProcessor;
+import org.openflow.gui.net.XidMap;
 import org.openflow.gui.net.protocol.auth.*;
+import org.openflow.protocol.AggregateStatsSink;
+import org.openflow.protocol.FlowStatsSink;
 import org.openflow.protocol.StatsType;
 
 /**
@@ -30,6 +36,9 @@ public enum OFGMessageType {
     /** Information about whether a user has been authenticated */
     AUTH_STATUS((byte)0x05),
     
+    /** Protocol version and supported optional features (see Hello) */
+    HELLO((byte)0x06),
+    
     /** Tell the backend to start polling a message */
     POLL_START((byte)0x0E),
     
@@ -63,6 +72,12 @@ public enum OFGMessageType {
     /** List of flows to delete. */
     FLOWS_DELETE((byte)0x18),
     
+    /** Query for a snapshot of the whole topology */
+    TOPOLOGY_REQUEST((byte)0x19),
+    
+    /** Compressed snapshot of all nodes and links (see TopologySnapshot) */
+    TOPOLOGY_SNAPSHOT((byte)0x1A),
+    
     /**
      * Statistics request.  Body is book_stat_message, with osr_body as defined 
      * in OpenFlow for ofp_stats_request.
@@ -90,13 +105,97 @@ public enum OFGMessageType {
         return typeID;
     }
 
+    /** maps each type ID to its type and decoder */
+    private static final CodecRegistry<OFGMessageType, OFGMessageDecoder> CODECS = new CodecRegistry<OFGMessageType, OFGMessageDecoder>();
+    
+    static {
+        // every type is known but only those sent by the backend are decoded
+        for(OFGMessageType t : values())
+            CODECS.register(t.typeID, t, null);
+        
+        registerDecoder(AUTH_REQUEST, new OFGMessageDecoder() {
+            public OFGMessage decode(int len, OFGMessageType t, int xid, DataInput in) throws IOException {
+                return new AuthRequest(len, xid, in);
+            }
+        });
+        registerDecoder(AUTH_STATUS, new OFGMessageDecoder() {
+            public OFGMessage decode(int len, OFGMessageType t, int xid, DataInput in) throws IOException {
+                return new AuthStatus(len, xid, in);
+            }
+        });
+        registerDecoder(HELLO, new OFGMessageDecoder() {
+            public OFGMessage decode(int len, OFGMessageType t, int xid, DataInput in) throws IOException {
+                return new Hello(len, xid, in);
+            }
+        });
+        registerDecoder(NODES_ADD, new OFGMessageDecoder() {
+            public OFGMessage decode(int len, OFGMessageType t, int xid, DataInput in) throws IOException {
+                return new NodesAdd(len, xid, in);
+            }
+        });
+        registerDecoder(NODES_DELETE, new OFGMessageDecoder() {
+            public OFGMessage decode(int len, OFGMessageType t, int xid, DataInput in) throws IOException {
+                return new NodesDel(len, xid, in);
+            }
+        });
+        registerDecoder(LINKS_ADD, new OFGMessageDecoder() {
+            public OFGMessage decode(int len, OFGMessageType t, int xid, DataInput in) throws IOException {
+                return new LinksAdd(len, xid, in);
+            }
+        });
+        registerDecoder(LINKS_DELETE, new OFGMessageDecoder() {
+            public OFGMessage decode(int len, OFGMessageType t, int xid, DataInput in) throws IOException {
+                return new LinksDel(len, xid, in);
+            }
+        });
+        registerDecoder(FLOWS_ADD, new OFGMessageDecoder() {
+            public OFGMessage decode(int len, OFGMessageType t, int xid, DataInput in) throws IOException {
+                return new FlowsAdd(len, xid, in);
+            }
+        });
+        registerDecoder(FLOWS_DELETE, new OFGMessageDecoder() {
+            public OFGMessage decode(int len, OFGMessageType t, int xid, DataInput in) throws IOException {
+                return new FlowsDel(len, xid, in);
+            }
+        });
+        registerDecoder(TOPOLOGY_SNAPSHOT, new OFGMessageDecoder() {
+            public OFGMessage decode(int len, OFGMessageType t, int xid, DataInput in) throws IOException {
+                return new TopologySnapshot(len, xid, in);
+            }
+        });
+        registerDecoder(STAT_REPLY, new OFGMessageDecoder() {
+            public OFGMessage decode(int len, OFGMessageType t, int xid, DataInput in) throws IOException {
+                return StatsType.decode(len, t, xid, in);
+            }
+        });
+        
+        OFGMessageDecoder headerOnly = new OFGMessageDecoder() {
+            public OFGMessage decode(int len, OFGMessageType t, int xid, DataInput in) throws IOException {
+                return new OFGMessage(t, xid);
+            }
+        };
+        registerDecoder(ECHO_REQUEST, headerOnly);
+        registerDecoder(ECHO_REPLY, headerOnly);
+    }
+    
+    /** 
+     * Sets the decoder used for received messages of type t (null if messages
+     * of type t are not expected to be received).  This replaces how an 
+     * existing type is decoded; a new message type still needs its own 
+     * constant in this enum (OFGMessage identifies its type by constant).
+     */
+    public static void registerDecoder(OFGMessageType t, OFGMessageDecoder d) {
+        CODECS.register(t.typeID, t, d);
+    }
+    
+    /** Returns the registry of decoders (and their statistics). */
+    public static CodecRegistry<OFGMessageType, OFGMessageDecoder> getCodecRegistry() {
+        return CODECS;
+    }
+
     /** Returns the OFGMessageType constant associated with typeID, if any */
     public static OFGMessageType typeValToMessageType(byte typeID) {
-        for(OFGMessageType t : OFGMessageType.values())
-            if(t.getTypeID() == typeID)
-                return t;
-
-        return null;
+        return CODECS.getType(typeID);
     }
     
     /** 
@@ -105,70 +204,212 @@ public enum OFGMessageType {
      * message should be extracted from buf.
      */
     public static OFGMessage decode(int len, DataInput in) throws IOException {
+        return decode(len, in, null);
+    }
+    
+    /**
+     * Decodes the received message like decode(len, in) except that when an
+     * aggregate stats reply's transaction ID is mapped to a sink in aggSinks,
+     * the reply's counters are passed straight to that sink and no message is
+     * created.
+     * 
+     * @return the decoded message, or null if it was passed to a sink
+     */
+    public static OFGMessage decode(int len, DataInput in, XidMap<? extends AggregateStatsSink> aggSinks) throws IOException {
+        return decode(len, in, aggSinks, null);
+    }
+    
+    /**
+     * Decodes the received message like decode(len, in, aggSinks) except that
+     * the entries of a flow stats reply are streamed into flowSink (if it is
+     * not null) as they are read and no message is created.
+     * 
+     * @return the decoded message, or null if it was passed to a sink
+     */
+    public static OFGMessage decode(int len, DataInput in, XidMap<? extends AggregateStatsSink> aggSinks, FlowStatsSink flowSink) throws IOException {
         // parse the message header (except length which was already done)
         byte typeByte = in.readByte();
-        OFGMessageType t = OFGMessageType.typeValToMessageType(typeByte);
-        if(t == null)
+        CodecRegistry.Entry<OFGMessageType, OFGMessageDecoder> e = CODECS.get(typeByte);
+        if(e == null)
             throw new IOException("Unknown type ID: " + typeByte);
         
         int xid = in.readInt();
-        OFGMessage msg = decode(len, t, xid, in);
-        msg.xid = xid;
+        OFGMessage msg = decode(len, e, xid, in, aggSinks, flowSink);
+        if(msg != null)
+            msg.xid = xid;
         return msg;
     }
-     
+    
     /** 
-     * Constructs the object representing the received message.  The message is 
-     * known to be of length len.  The header of the message (length, type,
-     * and transaction ID) have been read, but the remainder is still on the 
-     * input stream.
+     * decodes the body of a message whose header has been read, passing stats 
+     * replies to a sink when there is one for them
      */
-    private static OFGMessage decode(int len, OFGMessageType t, int xid, DataInput in) throws IOException {
-        // parse the rest of the message
+    private static OFGMessage decode(int len, CodecRegistry.Entry<OFGMessageType, OFGMessageDecoder> e, int xid, DataInput in,
+                                     XidMap<? extends AggregateStatsSink> aggSinks, FlowStatsSink flowSink) throws IOException {
+        AggregateStatsSink aggSink = (aggSinks == null || e.type != STAT_REPLY) ? null : aggSinks.get(xid);
+        if(e.type != STAT_REPLY || (aggSink == null && flowSink == null))
+            return decode(len, e, xid, in);
+        
+        OFGMessage msg;
+        try {
+            msg = StatsType.decode(len, e.type, xid, in, aggSink, flowSink);
+        }
+        catch(IOException ex) {
+            e.failed();
+            throw ex;
+        }
+        e.decoded(len);
+        return msg;
+    }
+     
+    /** maximum number of list entries in each message produced by decodeStreaming() */
+    public static final int STREAMING_CHUNK_SIZE = 1024;
+    
+    /**
+     * Decodes the received message like decode() but splits long lists of 
+     * nodes, links, or flows into a series of messages of the same type with
+     * up to STREAMING_CHUNK_SIZE entries each.  Each of these is passed to 
+     * sink as soon as it has been read.  Other messages are decoded whole.
+     */
+    public static void decodeStreaming(int len, DataInput in, StreamingMessageProcessor.Sink<OFGMessage> sink) throws IOException {
+        decodeStreaming(len, in, sink, null);
+    }
+    
+    /**
+     * Decodes the received message like decodeStreaming(len, in, sink) except
+     * that the entries of a flow stats reply are streamed into flowSink (if it
+     * is not null) as they are read rather than being delivered to sink.
+     */
+    public static void decodeStreaming(int len, DataInput in, StreamingMessageProcessor.Sink<OFGMessage> sink, FlowStatsSink flowSink) throws IOException {
+        // parse the message header (except length which was already done)
+        byte typeByte = in.readByte();
+        CodecRegistry.Entry<OFGMessageType, OFGMessageDecoder> e = CODECS.get(typeByte);
+        if(e == null)
+            throw new IOException("Unknown type ID: " + typeByte);
+        
+        int xid = in.readInt();
+        boolean streamed;
+        try {
+            streamed = streamList(len, e.type, xid, in, sink);
+        }
+        catch(IOException ex) {
+            e.failed();
+            throw ex;
+        }
+        
+        if(streamed)
+            e.decoded(len);
+        else {
+            OFGMessage msg = decode(len, e, xid, in, null, flowSink);
+            if(msg != null) {
+                msg.xid = xid;
+                sink.deliver(msg);
+            }
+        }
+    }
+    
+    /**
+     * Reads the list in a message of type t in chunks and passes each chunk to
+     * sink (see decodeStreaming()).
+     * 
+     * @return false if t is not a list message (nothing is read in this case)
+     */
+    private static boolean streamList(int len, OFGMessageType t, int xid, DataInput in, StreamingMessageProcessor.Sink<OFGMessage> sink) throws IOException {
+        int left = len - OFGMessage.SIZEOF;
         switch(t) {
-            case AUTH_REQUEST:
-                return new AuthRequest(len, xid, in);
+            case NODES_ADD:
+            case NODES_DELETE: {
+                int n = countEntries(left, Node.SIZEOF, "switch list");
+                do {
+                    int count = Math.min(n, STREAMING_CHUNK_SIZE);
+                    ByteBuffer body = OFGMessage.readBody(count * Node.SIZEOF, in);
+                    
+                    n -= count;
+                    sink.deliver(t==NODES_ADD ? new NodesAdd(xid, body) : new NodesDel(xid, body));
+                }
+                while(n > 0);
+                return true;
+            }
             
-            case AUTH_STATUS:
-                return new AuthStatus(len, xid, in);
+            case LINKS_ADD: {
+                int n = countEntries(left, LinkSpec.SIZEOF, "link specs list");
+                do {
+                    int count = Math.min(n, STREAMING_CHUNK_SIZE);
+                    ByteBuffer body = OFGMessage.readBody(count * LinkSpec.SIZEOF, in);
+                    
+                    n -= count;
+                    sink.deliver(new LinksAdd(xid, body));
+                }
+                while(n > 0);
+                return true;
+            }
+            
+            case LINKS_DELETE: {
+                int n = countEntries(left, Link.SIZEOF, "links list");
+                do {
+                    Link[] links = new Link[Math.min(n, STREAMING_CHUNK_SIZE)];
+                    for(int i=0; i<links.length; i++)
+                        links[i] = new Link(in);
+                    
+                    n -= links.length;
+                    sink.deliver(new LinksDel(xid, links));
+                }
+                while(n > 0);
+                return true;
+            }
             
-            case NODES_ADD:
-                return new NodesAdd(len, xid, in);
-                
-            case NODES_DELETE:
-                return new NodesDel(len, xid, in);
-                
-            case LINKS_ADD:
-                return new LinksAdd(len, xid, in);
-                
-            case LINKS_DELETE:
-                return new LinksDel(len, xid, in);
-                
             case FLOWS_ADD:
-                return new FlowsAdd(len, xid, in);
+            case FLOWS_DELETE: {
+                if(left < 4)
+                    throw new IOException("Body of flows has a bad length (not enough bytes for # of flows field): " + left + "B left, need >=4B");
                 
-            case FLOWS_DELETE:
-                return new FlowsDel(len, xid, in);
+                int n = in.readInt();
+                left -= 4;
+                do {
+                    int count = Math.min(n, STREAMING_CHUNK_SIZE);
+                    ByteBuffer body = FlowsList.readFlows(count, left, in);
+                    left -= body.remaining() - 4;
+                    
+                    n -= count;
+                    sink.deliver(t==FLOWS_ADD ? new FlowsAdd(xid, body) : new FlowsDel(xid, body));
+                }
+                while(n > 0);
+                return true;
+            }
             
-            case STAT_REPLY:
-                return StatsType.decode(len, t, xid, in);
-
-            case ECHO_REQUEST:
-            case ECHO_REPLY:
-                return new OFGMessage(t, xid);
-                
-            case DISCONNECT:
-            case AUTH_REPLY:
-            case POLL_START:
-            case POLL_STOP:
-            case NODES_REQUEST:
-            case LINKS_REQUEST:
-            case FLOWS_REQUEST:
-            case STAT_REQUEST:
-                throw new IOException("Received unexpected message type: " + t.toString() + " (len=" + len + "B)");
-                
             default:
-                throw new IOException("Unhandled type received: " + t.toString() + " (len=" + len + "B)");
+                return false;
+        }
+    }
+    
+    /** returns the number of sizeof byte entries in a left byte list body */
+    private static int countEntries(int left, int sizeof, String what) throws IOException {
+        if(left % sizeof != 0)
+            throw new IOException("Body of " + what + " is not a multiple of " + sizeof + " (length of body is " + left + " bytes)");
+        
+        return left / sizeof;
+    }
+    
+    /** 
+     * Constructs the object representing the received message with e's 
+     * decoder.  The message is known to be of length len.  The header of the
+     * message (length, type, and transaction ID) have been read, but the 
+     * remainder is still on the input stream.
+     */
+    private static OFGMessage decode(int len, CodecRegistry.Entry<OFGMessageType, OFGMessageDecoder> e, int xid, DataInput in) throws IOException {
+        if(e.codec == null) {
+            e.failed();
+            throw new IOException("Received unexpected message type: " + e.type.toString() + " (len=" + len + "B)");
+        }
+        
+        try {
+            OFGMessage msg = e.codec.decode(len, e.type, xid, in);
+            e.decoded(len);
+            return msg;
+        }
+        catch(IOException ex) {
+            e.failed();
+            throw ex;
         }
     }
 }
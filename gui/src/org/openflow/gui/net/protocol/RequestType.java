@@ -28,12 +28,15 @@ public enum RequestType {
         return typeID;
     }
 
+    /** the constants of this enum (values() makes a new copy each call) */
+    private static final RequestType[] VALUES = values();
+
     /** 
      * Returns the RequestType constant associated with typeID, if any or
      * UNKOWN if no type is matched.
      */
     public static RequestType typeValToMessageType(byte typeID) {
-        for(RequestType t : RequestType.values())
+        for(RequestType t : VALUES)
             if(t.getTypeID() == typeID)
                 return t;
 
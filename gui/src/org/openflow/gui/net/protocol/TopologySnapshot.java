@@ -0,0 +1,353 @@
+package org.openflow.gui.net.protocol;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * All of the nodes and links in a topology (with the links' capacities) in a
+ * single message.  The body is the length of the uncompressed body (4B)
+ * followed by the deflate-compressed body.  The uncompressed body is the
+ * number of nodes (4B), each node's type (2B) and the difference between its
+ * ID and the previous node's ID (a varint; nodes are sorted by ID), the number
+ * of links (4B), and each link's type (2B), source node index (varint),
+ * source port (2B), destination node index (varint), destination port (2B),
+ * and capacity (8B).  A varint is 7 bits per byte, least significant first,
+ * with the high bit set on all but the last byte.
+ *
+ * @author David Underhill
+ */
+public class TopologySnapshot extends OFGMessage {
+    /** number of bytes in the body which precede the compressed body */
+    public static final int HEADER_SIZEOF = 4;
+
+    /** largest uncompressed body which will be accepted */
+    public static final int MAX_UNCOMPRESSED_LENGTH = 256 * 1024 * 1024;
+
+    /** most bytes deflate can expand each compressed byte into */
+    public static final int MAX_DEFLATE_RATIO = 1032;
+
+    /** the type of each node */
+    private final NodeType[] nodeTypes;
+
+    /** the ID of each node (in ascending order) */
+    private final long[] nodeIDs;
+
+    /** the type of each link */
+    private final LinkType[] linkTypes;
+
+    /** index of each link's source node */
+    private final int[] srcIndices;
+
+    /** port number on each link's source node */
+    private final short[] srcPorts;
+
+    /** index of each link's destination node */
+    private final int[] dstIndices;
+
+    /** port number on each link's destination node */
+    private final short[] dstPorts;
+
+    /** capacity of each link (bps) */
+    private final long[] capacities;
+
+    /** the compressed body (built on demand if this snapshot was not received) */
+    private byte[] compressed;
+
+    /** length of the uncompressed body */
+    private int uncompressedLength;
+
+    /**
+     * Creates a snapshot of the specified nodes and links.  Every link must be
+     * between nodes in nodes.
+     */
+    public TopologySnapshot(int xid, Node[] nodes, LinkSpec[] links) {
+        super(OFGMessageType.TOPOLOGY_SNAPSHOT, xid);
+
+        Node[] sorted = nodes.clone();
+        Arrays.sort(sorted, new Comparator<Node>() {
+            public int compare(Node a, Node b) {
+                return (a.id < b.id) ? -1 : ((a.id == b.id) ? 0 : 1);
+            }
+        });
+
+        nodeTypes = new NodeType[sorted.length];
+        nodeIDs = new long[sorted.length];
+        HashMap<Long, Integer> indices = new HashMap<Long, Integer>();
+        for(int i=0; i<sorted.length; i++) {
+            nodeTypes[i] = sorted[i].nodeType;
+            nodeIDs[i] = sorted[i].id;
+            indices.put(sorted[i].id, i);
+        }
+
+        linkTypes = new LinkType[links.length];
+        srcIndices = new int[links.length];
+        srcPorts = new short[links.length];
+        dstIndices = new int[links.length];
+        dstPorts = new short[links.length];
+        capacities = new long[links.length];
+        for(int i=0; i<links.length; i++) {
+            Integer src = indices.get(links[i].srcNode.id);
+            Integer dst = indices.get(links[i].dstNode.id);
+            if(src == null || dst == null)
+                throw new IllegalArgumentException("link is not between nodes in the snapshot: " + links[i]);
+
+            linkTypes[i] = links[i].linkType;
+            srcIndices[i] = src;
+            srcPorts[i] = links[i].srcPort;
+            dstIndices[i] = dst;
+            dstPorts[i] = links[i].dstPort;
+            capacities[i] = links[i].capacity_bps;
+        }
+    }
+
+    /** Reads a snapshot whose length is len (including the header) from in. */
+    public TopologySnapshot(final int len, final int xid, final DataInput in) throws IOException {
+        super(OFGMessageType.TOPOLOGY_SNAPSHOT, xid);
+
+        int compressedLength = len - OFGMessage.SIZEOF - HEADER_SIZEOF;
+        if(compressedLength < 0)
+            throw new IOException("Body of topology snapshot is too short: " + (len - OFGMessage.SIZEOF) + "B (need >=" + HEADER_SIZEOF + "B)");
+
+        uncompressedLength = in.readInt();
+        if(uncompressedLength < 0 || uncompressedLength > MAX_UNCOMPRESSED_LENGTH
+           || uncompressedLength > (long)compressedLength * MAX_DEFLATE_RATIO)
+            throw new IOException("Topology snapshot has a bad uncompressed length: " + uncompressedLength + "B (compressed body is " + compressedLength + "B)");
+
+        compressed = new byte[compressedLength];
+        in.readFully(compressed);
+
+        // decompress the body
+        byte[] raw = new byte[uncompressedLength];
+        byte[] extra = new byte[1];
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(compressed);
+            int n = 0;
+            while(!inflater.finished()) {
+                // once raw is full, keep going only to check the stream's trailer
+                int got = (n < raw.length) ? inflater.inflate(raw, n, raw.length - n) : inflater.inflate(extra);
+                if(n == raw.length && got > 0)
+                    throw new IOException("Topology snapshot decompressed to more than " + raw.length + "B");
+                
+                n += got;
+                if(got == 0 && (inflater.needsInput() || inflater.needsDictionary()))
+                    throw new IOException("Topology snapshot is truncated (decompressed to " + n + "B of " + raw.length + "B)");
+            }
+            if(n != raw.length)
+                throw new IOException("Topology snapshot decompressed to " + n + "B but should be " + raw.length + "B");
+        }
+        catch(DataFormatException e) {
+            throw new IOException("Topology snapshot is not validly compressed: " + e.getMessage());
+        }
+        finally {
+            inflater.end();
+        }
+
+        // parse the uncompressed body
+        ByteBuffer buf = ByteBuffer.wrap(raw);
+        try {
+            int numNodes = readCount(buf, 2 + 1);
+            nodeTypes = new NodeType[numNodes];
+            nodeIDs = new long[numNodes];
+            long id = 0;
+            for(int i=0; i<numNodes; i++) {
+                nodeTypes[i] = NodeType.typeValToMessageType(buf.getShort());
+                id += readVarLong(buf);
+                nodeIDs[i] = id;
+            }
+
+            int numLinks = readCount(buf, 2 + 1 + 2 + 1 + 2 + 8);
+            linkTypes = new LinkType[numLinks];
+            srcIndices = new int[numLinks];
+            srcPorts = new short[numLinks];
+            dstIndices = new int[numLinks];
+            dstPorts = new short[numLinks];
+            capacities = new long[numLinks];
+            for(int i=0; i<numLinks; i++) {
+                linkTypes[i] = LinkType.typeValToMessageType(buf.getShort());
+                srcIndices[i] = readNodeIndex(buf, numNodes);
+                srcPorts[i] = buf.getShort();
+                dstIndices[i] = readNodeIndex(buf, numNodes);
+                dstPorts[i] = buf.getShort();
+                capacities[i] = buf.getLong();
+            }
+        }
+        catch(BufferUnderflowException e) {
+            throw new IOException("Topology snapshot body is truncated");
+        }
+
+        if(buf.hasRemaining())
+            throw new IOException("Topology snapshot body has " + buf.remaining() + "B of extra data");
+    }
+
+    /** reads a count of entries which are each at least minEntrySize bytes */
+    private static int readCount(ByteBuffer buf, int minEntrySize) throws IOException {
+        int n = buf.getInt();
+        if(n < 0 || n > buf.remaining() / minEntrySize)
+            throw new IOException("Topology snapshot has a bad entry count: " + n);
+        return n;
+    }
+
+    /** reads a node index and makes sure it refers to one of the numNodes nodes */
+    private static int readNodeIndex(ByteBuffer buf, int numNodes) throws IOException {
+        long i = readVarLong(buf);
+        if(i < 0 || i >= numNodes)
+            throw new IOException("Topology snapshot link refers to a bad node index: " + i);
+        return (int)i;
+    }
+
+    /** reads a varint */
+    private static long readVarLong(ByteBuffer buf) throws IOException {
+        long v = 0;
+        for(int shift=0; shift<64; shift+=7) {
+            byte b = buf.get();
+            v |= (long)(b & 0x7F) << shift;
+            if(b >= 0)
+                return v;
+        }
+        throw new IOException("Topology snapshot has a malformed varint");
+    }
+
+    /** writes v as a varint */
+    private static void writeVarLong(DataOutput out, long v) throws IOException {
+        while((v & ~0x7FL) != 0) {
+            out.writeByte((int)((v & 0x7F) | 0x80));
+            v >>>= 7;
+        }
+        out.writeByte((int)v);
+    }
+
+    /** Returns the number of nodes in the snapshot. */
+    public int getNumNodes() {
+        return nodeIDs.length;
+    }
+
+    /** Returns the type of node i. */
+    public NodeType getNodeType(int i) {
+        return nodeTypes[i];
+    }
+
+    /** Returns the ID of node i. */
+    public long getNodeID(int i) {
+        return nodeIDs[i];
+    }
+
+    /** Returns the number of links in the snapshot. */
+    public int getNumLinks() {
+        return linkTypes.length;
+    }
+
+    /** Returns the type of link i. */
+    public LinkType getLinkType(int i) {
+        return linkTypes[i];
+    }
+
+    /** Returns the index of link i's source node. */
+    public int getSrcIndex(int i) {
+        return srcIndices[i];
+    }
+
+    /** Returns the ID of link i's source node. */
+    public long getSrcID(int i) {
+        return nodeIDs[srcIndices[i]];
+    }
+
+    /** Returns the port number on link i's source node. */
+    public short getSrcPort(int i) {
+        return srcPorts[i];
+    }
+
+    /** Returns the index of link i's destination node. */
+    public int getDstIndex(int i) {
+        return dstIndices[i];
+    }
+
+    /** Returns the ID of link i's destination node. */
+    public long getDstID(int i) {
+        return nodeIDs[dstIndices[i]];
+    }
+
+    /** Returns the port number on link i's destination node. */
+    public short getDstPort(int i) {
+        return dstPorts[i];
+    }
+
+    /** Returns the capacity of link i (bps). */
+    public long getCapacity(int i) {
+        return capacities[i];
+    }
+
+    /** builds the compressed body if it has not been built yet */
+    private byte[] getCompressed() {
+        if(compressed != null)
+            return compressed;
+
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeInt(nodeIDs.length);
+            long prev = 0;
+            for(int i=0; i<nodeIDs.length; i++) {
+                out.writeShort(nodeTypes[i].getTypeID());
+                writeVarLong(out, nodeIDs[i] - prev);
+                prev = nodeIDs[i];
+            }
+
+            out.writeInt(linkTypes.length);
+            for(int i=0; i<linkTypes.length; i++) {
+                out.writeShort(linkTypes[i].getTypeID());
+                writeVarLong(out, srcIndices[i]);
+                out.writeShort(srcPorts[i]);
+                writeVarLong(out, dstIndices[i]);
+                out.writeShort(dstPorts[i]);
+                out.writeLong(capacities[i]);
+            }
+            out.flush();
+
+            byte[] raw = bytes.toByteArray();
+            uncompressedLength = raw.length;
+
+            Deflater deflater = new Deflater();
+            deflater.setInput(raw);
+            deflater.finish();
+            ByteArrayOutputStream deflated = new ByteArrayOutputStream(raw.length / 4 + 64);
+            byte[] chunk = new byte[8192];
+            while(!deflater.finished())
+                deflated.write(chunk, 0, deflater.deflate(chunk));
+            deflater.end();
+
+            compressed = deflated.toByteArray();
+            return compressed;
+        }
+        catch(IOException e) {
+            throw new Error("unable to build a topology snapshot in memory: " + e.getMessage());
+        }
+    }
+
+    public int length() {
+        return super.length() + HEADER_SIZEOF + getCompressed().length;
+    }
+
+    public void write(DataOutput out) throws IOException {
+        byte[] body = getCompressed();
+        super.write(out);
+        out.writeInt(uncompressedLength);
+        out.write(body);
+    }
+
+    public String toString() {
+        return super.toString() + TSSEP + "#nodes=" + nodeIDs.length + " #links=" + linkTypes.length
+                                        + " (" + getCompressed().length + "B compressed from " + uncompressedLength + "B)";
+    }
+}
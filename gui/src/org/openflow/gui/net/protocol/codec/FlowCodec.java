@@ -0,0 +1,127 @@
+package org.openflow.gui.net.protocol.codec;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Wire format of a Flow (a flow and its path).
+ * The path entries (see FlowHopCodec) follow (path_len of them).
+ * Offsets are relative to the start of the Flow.
+ *
+ * Generated from ofg.schema by CodecGenerator; do not edit.
+ *
+ * @author David Underhill
+ */
+public final class FlowCodec {
+    /** number of bytes before the path entries */
+    public static final int SIZEOF = 32;
+
+    /** offset of the type field */
+    public static final int OFFSET_TYPE = 0;
+
+    /** offset of the id field */
+    public static final int OFFSET_ID = 2;
+
+    /** offset of the src_type field */
+    public static final int OFFSET_SRC_TYPE = 6;
+
+    /** offset of the src_id field */
+    public static final int OFFSET_SRC_ID = 8;
+
+    /** offset of the src_port field */
+    public static final int OFFSET_SRC_PORT = 16;
+
+    /** offset of the dst_type field */
+    public static final int OFFSET_DST_TYPE = 18;
+
+    /** offset of the dst_id field */
+    public static final int OFFSET_DST_ID = 20;
+
+    /** offset of the dst_port field */
+    public static final int OFFSET_DST_PORT = 28;
+
+    /** offset of the path_len field */
+    public static final int OFFSET_PATH_LEN = 30;
+
+    /** offset of the first path entry */
+    public static final int OFFSET_PATH = SIZEOF;
+
+    private FlowCodec() { /* static helpers only */ }
+
+    /** Returns the type field of the Flow at off in b. */
+    public static short getType(ByteBuffer b, int off) {
+        return b.getShort(off + OFFSET_TYPE);
+    }
+
+    /** Returns the id field of the Flow at off in b. */
+    public static int getId(ByteBuffer b, int off) {
+        return b.getInt(off + OFFSET_ID);
+    }
+
+    /** Returns the src_type field of the Flow at off in b. */
+    public static short getSrcType(ByteBuffer b, int off) {
+        return b.getShort(off + OFFSET_SRC_TYPE);
+    }
+
+    /** Returns the src_id field of the Flow at off in b. */
+    public static long getSrcId(ByteBuffer b, int off) {
+        return b.getLong(off + OFFSET_SRC_ID);
+    }
+
+    /** Returns the src_port field of the Flow at off in b. */
+    public static short getSrcPort(ByteBuffer b, int off) {
+        return b.getShort(off + OFFSET_SRC_PORT);
+    }
+
+    /** Returns the dst_type field of the Flow at off in b. */
+    public static short getDstType(ByteBuffer b, int off) {
+        return b.getShort(off + OFFSET_DST_TYPE);
+    }
+
+    /** Returns the dst_id field of the Flow at off in b. */
+    public static long getDstId(ByteBuffer b, int off) {
+        return b.getLong(off + OFFSET_DST_ID);
+    }
+
+    /** Returns the dst_port field of the Flow at off in b. */
+    public static short getDstPort(ByteBuffer b, int off) {
+        return b.getShort(off + OFFSET_DST_PORT);
+    }
+
+    /** Returns the path_len field of the Flow at off in b. */
+    public static short getPathLen(ByteBuffer b, int off) {
+        return b.getShort(off + OFFSET_PATH_LEN);
+    }
+
+    /** Returns the number of bytes in the Flow at off in b (including its path). */
+    public static int sizeOf(ByteBuffer b, int off) {
+        return SIZEOF + getPathLen(b, off) * FlowHopCodec.SIZEOF;
+    }
+
+    /** Writes the fixed fields of a Flow (the path entries must be written after them). */
+    public static void write(DataOutput out, short type, int id, short srcType, long srcId, short srcPort, short dstType, long dstId, short dstPort, short pathLen) throws IOException {
+        out.writeShort(type);
+        out.writeInt(id);
+        out.writeShort(srcType);
+        out.writeLong(srcId);
+        out.writeShort(srcPort);
+        out.writeShort(dstType);
+        out.writeLong(dstId);
+        out.writeShort(dstPort);
+        out.writeShort(pathLen);
+    }
+
+    /** Puts the fixed fields of a Flow at off in b. */
+    public static void put(ByteBuffer b, int off, short type, int id, short srcType, long srcId, short srcPort, short dstType, long dstId, short dstPort, short pathLen) {
+        b.putShort(off + OFFSET_TYPE, type);
+        b.putInt(off + OFFSET_ID, id);
+        b.putShort(off + OFFSET_SRC_TYPE, srcType);
+        b.putLong(off + OFFSET_SRC_ID, srcId);
+        b.putShort(off + OFFSET_SRC_PORT, srcPort);
+        b.putShort(off + OFFSET_DST_TYPE, dstType);
+        b.putLong(off + OFFSET_DST_ID, dstId);
+        b.putShort(off + OFFSET_DST_PORT, dstPort);
+        b.putShort(off + OFFSET_PATH_LEN, pathLen);
+    }
+}
@@ -0,0 +1,68 @@
+package org.openflow.gui.net.protocol.codec;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Wire format of a FlowHop (a hop on a flow's path).
+ * Offsets are relative to the start of the FlowHop.
+ *
+ * Generated from ofg.schema by CodecGenerator; do not edit.
+ *
+ * @author David Underhill
+ */
+public final class FlowHopCodec {
+    /** size of a FlowHop in bytes */
+    public static final int SIZEOF = 14;
+
+    /** offset of the inport field */
+    public static final int OFFSET_INPORT = 0;
+
+    /** offset of the node_type field */
+    public static final int OFFSET_NODE_TYPE = 2;
+
+    /** offset of the node_id field */
+    public static final int OFFSET_NODE_ID = 4;
+
+    /** offset of the outport field */
+    public static final int OFFSET_OUTPORT = 12;
+
+    private FlowHopCodec() { /* static helpers only */ }
+
+    /** Returns the inport field of the FlowHop at off in b. */
+    public static short getInport(ByteBuffer b, int off) {
+        return b.getShort(off + OFFSET_INPORT);
+    }
+
+    /** Returns the node_type field of the FlowHop at off in b. */
+    public static short getNodeType(ByteBuffer b, int off) {
+        return b.getShort(off + OFFSET_NODE_TYPE);
+    }
+
+    /** Returns the node_id field of the FlowHop at off in b. */
+    public static long getNodeId(ByteBuffer b, int off) {
+        return b.getLong(off + OFFSET_NODE_ID);
+    }
+
+    /** Returns the outport field of the FlowHop at off in b. */
+    public static short getOutport(ByteBuffer b, int off) {
+        return b.getShort(off + OFFSET_OUTPORT);
+    }
+
+    /** Writes the fields of a FlowHop. */
+    public static void write(DataOutput out, short inport, short nodeType, long nodeId, short outport) throws IOException {
+        out.writeShort(inport);
+        out.writeShort(nodeType);
+        out.writeLong(nodeId);
+        out.writeShort(outport);
+    }
+
+    /** Puts the fields of a FlowHop at off in b. */
+    public static void put(ByteBuffer b, int off, short inport, short nodeType, long nodeId, short outport) {
+        b.putShort(off + OFFSET_INPORT, inport);
+        b.putShort(off + OFFSET_NODE_TYPE, nodeType);
+        b.putLong(off + OFFSET_NODE_ID, nodeId);
+        b.putShort(off + OFFSET_OUTPORT, outport);
+    }
+}
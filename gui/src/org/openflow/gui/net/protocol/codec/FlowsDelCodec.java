@@ -0,0 +1,54 @@
+package org.openflow.gui.net.protocol.codec;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Wire format of the body of a FlowsDel message (flows which were deleted).
+ * The flows entries (see FlowCodec) follow (count of them).
+ * Offsets are relative to the start of the body.
+ *
+ * Generated from ofg.schema by CodecGenerator; do not edit.
+ *
+ * @author David Underhill
+ */
+public final class FlowsDelCodec {
+    /** type ID of FlowsDel messages */
+    public static final byte TYPE_ID = 0x18;
+
+    /** number of bytes before the flows entries */
+    public static final int SIZEOF = 4;
+
+    /** offset of the count field */
+    public static final int OFFSET_COUNT = 0;
+
+    /** offset of the first flows entry */
+    public static final int OFFSET_FLOWS = SIZEOF;
+
+    private FlowsDelCodec() { /* static helpers only */ }
+
+    /** Returns the count field of the FlowsDel at off in b. */
+    public static int getCount(ByteBuffer b, int off) {
+        return b.getInt(off + OFFSET_COUNT);
+    }
+
+    /** Returns the number of bytes in the FlowsDel at off in b (including its flows). */
+    public static int sizeOf(ByteBuffer b, int off) {
+        int n = getCount(b, off);
+        int len = SIZEOF;
+        for(int i=0; i<n; i++)
+            len += FlowCodec.sizeOf(b, off + len);
+        return len;
+    }
+
+    /** Writes the fixed fields of a FlowsDel (the flows entries must be written after them). */
+    public static void write(DataOutput out, int count) throws IOException {
+        out.writeInt(count);
+    }
+
+    /** Puts the fixed fields of a FlowsDel at off in b. */
+    public static void put(ByteBuffer b, int off, int count) {
+        b.putInt(off + OFFSET_COUNT, count);
+    }
+}
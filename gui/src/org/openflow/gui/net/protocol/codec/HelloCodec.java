@@ -0,0 +1,51 @@
+package org.openflow.gui.net.protocol.codec;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Wire format of the body of a Hello message (protocol version and supported optional features).
+ * Offsets are relative to the start of the body.
+ *
+ * Generated from ofg.schema by CodecGenerator; do not edit.
+ *
+ * @author David Underhill
+ */
+public final class HelloCodec {
+    /** type ID of Hello messages */
+    public static final byte TYPE_ID = 0x06;
+
+    /** size of a Hello in bytes */
+    public static final int SIZEOF = 6;
+
+    /** offset of the version field */
+    public static final int OFFSET_VERSION = 0;
+
+    /** offset of the features field */
+    public static final int OFFSET_FEATURES = 2;
+
+    private HelloCodec() { /* static helpers only */ }
+
+    /** Returns the version field of the Hello at off in b. */
+    public static short getVersion(ByteBuffer b, int off) {
+        return b.getShort(off + OFFSET_VERSION);
+    }
+
+    /** Returns the features field of the Hello at off in b. */
+    public static int getFeatures(ByteBuffer b, int off) {
+        return b.getInt(off + OFFSET_FEATURES);
+    }
+
+    /** Writes the fields of a Hello. */
+    public static void write(DataOutput out, short version, int features) throws IOException {
+        out.writeShort(version);
+        out.writeInt(features);
+    }
+
+    /** Puts the fields of a Hello at off in b. */
+    public static void put(ByteBuffer b, int off, short version, int features) {
+        b.putShort(off + OFFSET_VERSION, version);
+        b.putInt(off + OFFSET_FEATURES, features);
+    }
+}
@@ -0,0 +1,108 @@
+package org.openflow.gui.net.protocol.codec;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Wire format of a LinkSpec (a link and its capacity).
+ * Offsets are relative to the start of the LinkSpec.
+ *
+ * Generated from ofg.schema by CodecGenerator; do not edit.
+ *
+ * @author David Underhill
+ */
+public final class LinkSpecCodec {
+    /** size of a LinkSpec in bytes */
+    public static final int SIZEOF = 34;
+
+    /** offset of the type field */
+    public static final int OFFSET_TYPE = 0;
+
+    /** offset of the src_type field */
+    public static final int OFFSET_SRC_TYPE = 2;
+
+    /** offset of the src_id field */
+    public static final int OFFSET_SRC_ID = 4;
+
+    /** offset of the src_port field */
+    public static final int OFFSET_SRC_PORT = 12;
+
+    /** offset of the dst_type field */
+    public static final int OFFSET_DST_TYPE = 14;
+
+    /** offset of the dst_id field */
+    public static final int OFFSET_DST_ID = 16;
+
+    /** offset of the dst_port field */
+    public static final int OFFSET_DST_PORT = 24;
+
+    /** offset of the capacity field */
+    public static final int OFFSET_CAPACITY = 26;
+
+    private LinkSpecCodec() { /* static helpers only */ }
+
+    /** Returns the type field of the LinkSpec at off in b. */
+    public static short getType(ByteBuffer b, int off) {
+        return b.getShort(off + OFFSET_TYPE);
+    }
+
+    /** Returns the src_type field of the LinkSpec at off in b. */
+    public static short getSrcType(ByteBuffer b, int off) {
+        return b.getShort(off + OFFSET_SRC_TYPE);
+    }
+
+    /** Returns the src_id field of the LinkSpec at off in b. */
+    public static long getSrcId(ByteBuffer b, int off) {
+        return b.getLong(off + OFFSET_SRC_ID);
+    }
+
+    /** Returns the src_port field of the LinkSpec at off in b. */
+    public static short getSrcPort(ByteBuffer b, int off) {
+        return b.getShort(off + OFFSET_SRC_PORT);
+    }
+
+    /** Returns the dst_type field of the LinkSpec at off in b. */
+    public static short getDstType(ByteBuffer b, int off) {
+        return b.getShort(off + OFFSET_DST_TYPE);
+    }
+
+    /** Returns the dst_id field of the LinkSpec at off in b. */
+    public static long getDstId(ByteBuffer b, int off) {
+        return b.getLong(off + OFFSET_DST_ID);
+    }
+
+    /** Returns the dst_port field of the LinkSpec at off in b. */
+    public static short getDstPort(ByteBuffer b, int off) {
+        return b.getShort(off + OFFSET_DST_PORT);
+    }
+
+    /** Returns the capacity field of the LinkSpec at off in b. */
+    public static long getCapacity(ByteBuffer b, int off) {
+        return b.getLong(off + OFFSET_CAPACITY);
+    }
+
+    /** Writes the fields of a LinkSpec. */
+    public static void write(DataOutput out, short type, short srcType, long srcId, short srcPort, short dstType, long dstId, short dstPort, long capacity) throws IOException {
+        out.writeShort(type);
+        out.writeShort(srcType);
+        out.writeLong(srcId);
+        out.writeShort(srcPort);
+        out.writeShort(dstType);
+        out.writeLong(dstId);
+        out.writeShort(dstPort);
+        out.writeLong(capacity);
+    }
+
+    /** Puts the fields of a LinkSpec at off in b. */
+    public static void put(ByteBuffer b, int off, short type, short srcType, long srcId, short srcPort, short dstType, long dstId, short dstPort, long capacity) {
+        b.putShort(off + OFFSET_TYPE, type);
+        b.putShort(off + OFFSET_SRC_TYPE, srcType);
+        b.putLong(off + OFFSET_SRC_ID, srcId);
+        b.putShort(off + OFFSET_SRC_PORT, srcPort);
+        b.putShort(off + OFFSET_DST_TYPE, dstType);
+        b.putLong(off + OFFSET_DST_ID, dstId);
+        b.putShort(off + OFFSET_DST_PORT, dstPort);
+        b.putLong(off + OFFSET_CAPACITY, capacity);
+    }
+}
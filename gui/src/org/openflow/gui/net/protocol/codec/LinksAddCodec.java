@@ -0,0 +1,47 @@
+package org.openflow.gui.net.protocol.codec;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Wire format of the body of a LinksAdd message (links which were added).
+ * The links entries (see LinkSpecCodec) fill the rest of the body.
+ * Offsets are relative to the start of the body.
+ *
+ * Generated from ofg.schema by CodecGenerator; do not edit.
+ *
+ * @author David Underhill
+ */
+public final class LinksAddCodec {
+    /** type ID of LinksAdd messages */
+    public static final byte TYPE_ID = 0x14;
+
+    /** number of bytes before the links entries */
+    public static final int SIZEOF = 0;
+
+    /** offset of the first links entry */
+    public static final int OFFSET_LINKS = SIZEOF;
+
+    private LinksAddCodec() { /* static helpers only */ }
+
+    /**
+     * Returns the number of links entries in a len byte LinksAdd body.
+     *
+     * @throws IOException  if len is not a valid length for a LinksAdd body
+     */
+    public static int count(int len) throws IOException {
+        int left = len - SIZEOF;
+        if(left < 0 || left % LinkSpecCodec.SIZEOF != 0)
+            throw new IOException("Body of LinksAdd is not 0B plus a multiple of " + LinkSpecCodec.SIZEOF + "B (length of body is " + len + " bytes)");
+        return left / LinkSpecCodec.SIZEOF;
+    }
+
+    /** Writes the fixed fields of a LinksAdd (the links entries must be written after them). */
+    public static void write(DataOutput out) throws IOException {
+    }
+
+    /** Puts the fixed fields of a LinksAdd at off in b. */
+    public static void put(ByteBuffer b, int off) {
+    }
+}
@@ -0,0 +1,47 @@
+package org.openflow.gui.net.protocol.codec;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Wire format of the body of a LinksDel message (links which were deleted).
+ * The links entries (see LinkCodec) fill the rest of the body.
+ * Offsets are relative to the start of the body.
+ *
+ * Generated from ofg.schema by CodecGenerator; do not edit.
+ *
+ * @author David Underhill
+ */
+public final class LinksDelCodec {
+    /** type ID of LinksDel messages */
+    public static final byte TYPE_ID = 0x15;
+
+    /** number of bytes before the links entries */
+    public static final int SIZEOF = 0;
+
+    /** offset of the first links entry */
+    public static final int OFFSET_LINKS = SIZEOF;
+
+    private LinksDelCodec() { /* static helpers only */ }
+
+    /**
+     * Returns the number of links entries in a len byte LinksDel body.
+     *
+     * @throws IOException  if len is not a valid length for a LinksDel body
+     */
+    public static int count(int len) throws IOException {
+        int left = len - SIZEOF;
+        if(left < 0 || left % LinkCodec.SIZEOF != 0)
+            throw new IOException("Body of LinksDel is not 0B plus a multiple of " + LinkCodec.SIZEOF + "B (length of body is " + len + " bytes)");
+        return left / LinkCodec.SIZEOF;
+    }
+
+    /** Writes the fixed fields of a LinksDel (the links entries must be written after them). */
+    public static void write(DataOutput out) throws IOException {
+    }
+
+    /** Puts the fixed fields of a LinksDel at off in b. */
+    public static void put(ByteBuffer b, int off) {
+    }
+}
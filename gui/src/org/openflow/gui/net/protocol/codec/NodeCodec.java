@@ -0,0 +1,48 @@
+package org.openflow.gui.net.protocol.codec;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Wire format of a Node (a node (switch, host, ...)).
+ * Offsets are relative to the start of the Node.
+ *
+ * Generated from ofg.schema by CodecGenerator; do not edit.
+ *
+ * @author David Underhill
+ */
+public final class NodeCodec {
+    /** size of a Node in bytes */
+    public static final int SIZEOF = 10;
+
+    /** offset of the type field */
+    public static final int OFFSET_TYPE = 0;
+
+    /** offset of the id field */
+    public static final int OFFSET_ID = 2;
+
+    private NodeCodec() { /* static helpers only */ }
+
+    /** Returns the type field of the Node at off in b. */
+    public static short getType(ByteBuffer b, int off) {
+        return b.getShort(off + OFFSET_TYPE);
+    }
+
+    /** Returns the id field of the Node at off in b. */
+    public static long getId(ByteBuffer b, int off) {
+        return b.getLong(off + OFFSET_ID);
+    }
+
+    /** Writes the fields of a Node. */
+    public static void write(DataOutput out, short type, long id) throws IOException {
+        out.writeShort(type);
+        out.writeLong(id);
+    }
+
+    /** Puts the fields of a Node at off in b. */
+    public static void put(ByteBuffer b, int off, short type, long id) {
+        b.putShort(off + OFFSET_TYPE, type);
+        b.putLong(off + OFFSET_ID, id);
+    }
+}
@@ -0,0 +1,47 @@
+package org.openflow.gui.net.protocol.codec;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Wire format of the body of a NodesDel message (nodes which were deleted).
+ * The nodes entries (see NodeCodec) fill the rest of the body.
+ * Offsets are relative to the start of the body.
+ *
+ * Generated from ofg.schema by CodecGenerator; do not edit.
+ *
+ * @author David Underhill
+ */
+public final class NodesDelCodec {
+    /** type ID of NodesDel messages */
+    public static final byte TYPE_ID = 0x12;
+
+    /** number of bytes before the nodes entries */
+    public static final int SIZEOF = 0;
+
+    /** offset of the first nodes entry */
+    public static final int OFFSET_NODES = SIZEOF;
+
+    private NodesDelCodec() { /* static helpers only */ }
+
+    /**
+     * Returns the number of nodes entries in a len byte NodesDel body.
+     *
+     * @throws IOException  if len is not a valid length for a NodesDel body
+     */
+    public static int count(int len) throws IOException {
+        int left = len - SIZEOF;
+        if(left < 0 || left % NodeCodec.SIZEOF != 0)
+            throw new IOException("Body of NodesDel is not 0B plus a multiple of " + NodeCodec.SIZEOF + "B (length of body is " + len + " bytes)");
+        return left / NodeCodec.SIZEOF;
+    }
+
+    /** Writes the fixed fields of a NodesDel (the nodes entries must be written after them). */
+    public static void write(DataOutput out) throws IOException {
+    }
+
+    /** Puts the fixed fields of a NodesDel at off in b. */
+    public static void put(ByteBuffer b, int off) {
+    }
+}
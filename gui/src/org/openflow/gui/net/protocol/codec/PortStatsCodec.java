@@ -0,0 +1,164 @@
+package org.openflow.gui.net.protocol.codec;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Wire format of a PortStats (the counters of one port (ofp_port_stats)).
+ * Offsets are relative to the start of the PortStats.
+ *
+ * Generated from ofg.schema by CodecGenerator; do not edit.
+ *
+ * @author David Underhill
+ */
+public final class PortStatsCodec {
+    /** size of a PortStats in bytes */
+    public static final int SIZEOF = 104;
+
+    /** offset of the port_no field */
+    public static final int OFFSET_PORT_NO = 0;
+
+    /** offset of the rx_packets field */
+    public static final int OFFSET_RX_PACKETS = 8;
+
+    /** offset of the tx_packets field */
+    public static final int OFFSET_TX_PACKETS = 16;
+
+    /** offset of the rx_bytes field */
+    public static final int OFFSET_RX_BYTES = 24;
+
+    /** offset of the tx_bytes field */
+    public static final int OFFSET_TX_BYTES = 32;
+
+    /** offset of the rx_dropped field */
+    public static final int OFFSET_RX_DROPPED = 40;
+
+    /** offset of the tx_dropped field */
+    public static final int OFFSET_TX_DROPPED = 48;
+
+    /** offset of the rx_errors field */
+    public static final int OFFSET_RX_ERRORS = 56;
+
+    /** offset of the tx_errors field */
+    public static final int OFFSET_TX_ERRORS = 64;
+
+    /** offset of the rx_frame_err field */
+    public static final int OFFSET_RX_FRAME_ERR = 72;
+
+    /** offset of the rx_over_err field */
+    public static final int OFFSET_RX_OVER_ERR = 80;
+
+    /** offset of the rx_crc_err field */
+    public static final int OFFSET_RX_CRC_ERR = 88;
+
+    /** offset of the collisions field */
+    public static final int OFFSET_COLLISIONS = 96;
+
+    /** zeros for pad fields */
+    private static final byte[] PAD = new byte[6];
+
+    private PortStatsCodec() { /* static helpers only */ }
+
+    /** Returns the port_no field of the PortStats at off in b. */
+    public static short getPortNo(ByteBuffer b, int off) {
+        return b.getShort(off + OFFSET_PORT_NO);
+    }
+
+    /** Returns the rx_packets field of the PortStats at off in b. */
+    public static long getRxPackets(ByteBuffer b, int off) {
+        return b.getLong(off + OFFSET_RX_PACKETS);
+    }
+
+    /** Returns the tx_packets field of the PortStats at off in b. */
+    public static long getTxPackets(ByteBuffer b, int off) {
+        return b.getLong(off + OFFSET_TX_PACKETS);
+    }
+
+    /** Returns the rx_bytes field of the PortStats at off in b. */
+    public static long getRxBytes(ByteBuffer b, int off) {
+        return b.getLong(off + OFFSET_RX_BYTES);
+    }
+
+    /** Returns the tx_bytes field of the PortStats at off in b. */
+    public static long getTxBytes(ByteBuffer b, int off) {
+        return b.getLong(off + OFFSET_TX_BYTES);
+    }
+
+    /** Returns the rx_dropped field of the PortStats at off in b. */
+    public static long getRxDropped(ByteBuffer b, int off) {
+        return b.getLong(off + OFFSET_RX_DROPPED);
+    }
+
+    /** Returns the tx_dropped field of the PortStats at off in b. */
+    public static long getTxDropped(ByteBuffer b, int off) {
+        return b.getLong(off + OFFSET_TX_DROPPED);
+    }
+
+    /** Returns the rx_errors field of the PortStats at off in b. */
+    public static long getRxErrors(ByteBuffer b, int off) {
+        return b.getLong(off + OFFSET_RX_ERRORS);
+    }
+
+    /** Returns the tx_errors field of the PortStats at off in b. */
+    public static long getTxErrors(ByteBuffer b, int off) {
+        return b.getLong(off + OFFSET_TX_ERRORS);
+    }
+
+    /** Returns the rx_frame_err field of the PortStats at off in b. */
+    public static long getRxFrameErr(ByteBuffer b, int off) {
+        return b.getLong(off + OFFSET_RX_FRAME_ERR);
+    }
+
+    /** Returns the rx_over_err field of the PortStats at off in b. */
+    public static long getRxOverErr(ByteBuffer b, int off) {
+        return b.getLong(off + OFFSET_RX_OVER_ERR);
+    }
+
+    /** Returns the rx_crc_err field of the PortStats at off in b. */
+    public static long getRxCrcErr(ByteBuffer b, int off) {
+        return b.getLong(off + OFFSET_RX_CRC_ERR);
+    }
+
+    /** Returns the collisions field of the PortStats at off in b. */
+    public static long getCollisions(ByteBuffer b, int off) {
+        return b.getLong(off + OFFSET_COLLISIONS);
+    }
+
+    /** Writes the fields of a PortStats. */
+    public static void write(DataOutput out, short portNo, long rxPackets, long txPackets, long rxBytes, long txBytes, long rxDropped, long txDropped, long rxErrors, long txErrors, long rxFrameErr, long rxOverErr, long rxCrcErr, long collisions) throws IOException {
+        out.writeShort(portNo);
+        out.write(PAD, 0, 6);
+        out.writeLong(rxPackets);
+        out.writeLong(txPackets);
+        out.writeLong(rxBytes);
+        out.writeLong(txBytes);
+        out.writeLong(rxDropped);
+        out.writeLong(txDropped);
+        out.writeLong(rxErrors);
+        out.writeLong(txErrors);
+        out.writeLong(rxFrameErr);
+        out.writeLong(rxOverErr);
+        out.writeLong(rxCrcErr);
+        out.writeLong(collisions);
+    }
+
+    /** Puts the fields of a PortStats at off in b. */
+    public static void put(ByteBuffer b, int off, short portNo, long rxPackets, long txPackets, long rxBytes, long txBytes, long rxDropped, long txDropped, long rxErrors, long txErrors, long rxFrameErr, long rxOverErr, long rxCrcErr, long collisions) {
+        b.putShort(off + OFFSET_PORT_NO, portNo);
+        b.putLong(off + OFFSET_RX_PACKETS, rxPackets);
+        b.putLong(off + OFFSET_TX_PACKETS, txPackets);
+        b.putLong(off + OFFSET_RX_BYTES, rxBytes);
+        b.putLong(off + OFFSET_TX_BYTES, txBytes);
+        b.putLong(off + OFFSET_RX_DROPPED, rxDropped);
+        b.putLong(off + OFFSET_TX_DROPPED, txDropped);
+        b.putLong(off + OFFSET_RX_ERRORS, rxErrors);
+        b.putLong(off + OFFSET_TX_ERRORS, txErrors);
+        b.putLong(off + OFFSET_RX_FRAME_ERR, rxFrameErr);
+        b.putLong(off + OFFSET_RX_OVER_ERR, rxOverErr);
+        b.putLong(off + OFFSET_RX_CRC_ERR, rxCrcErr);
+        b.putLong(off + OFFSET_COLLISIONS, collisions);
+        for(int i=0; i<6; i++)
+            b.put(off + 2 + i, (byte)0);
+    }
+}
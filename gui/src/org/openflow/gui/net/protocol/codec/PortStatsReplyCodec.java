@@ -0,0 +1,80 @@
+package org.openflow.gui.net.protocol.codec;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Wire format of the body of a PortStatsReply message (the counters of some or all of a switch's ports).
+ * The ports entries (see PortStatsCodec) fill the rest of the body.
+ * Offsets are relative to the start of the body.
+ *
+ * Generated from ofg.schema by CodecGenerator; do not edit.
+ *
+ * @author David Underhill
+ */
+public final class PortStatsReplyCodec {
+    /** type ID of PortStatsReply messages */
+    public static final byte TYPE_ID = 0x21;
+
+    /** number of bytes before the ports entries */
+    public static final int SIZEOF = 12;
+
+    /** value of the stats_type field */
+    public static final short STATS_TYPE = (short)4;
+
+    /** offset of the dpid field */
+    public static final int OFFSET_DPID = 0;
+
+    /** offset of the stats_type field */
+    public static final int OFFSET_STATS_TYPE = 8;
+
+    /** offset of the flags field */
+    public static final int OFFSET_FLAGS = 10;
+
+    /** offset of the first ports entry */
+    public static final int OFFSET_PORTS = SIZEOF;
+
+    private PortStatsReplyCodec() { /* static helpers only */ }
+
+    /** Returns the dpid field of the PortStatsReply at off in b. */
+    public static long getDpid(ByteBuffer b, int off) {
+        return b.getLong(off + OFFSET_DPID);
+    }
+
+    /** Returns the stats_type field of the PortStatsReply at off in b. */
+    public static short getStatsType(ByteBuffer b, int off) {
+        return b.getShort(off + OFFSET_STATS_TYPE);
+    }
+
+    /** Returns the flags field of the PortStatsReply at off in b. */
+    public static short getFlags(ByteBuffer b, int off) {
+        return b.getShort(off + OFFSET_FLAGS);
+    }
+
+    /**
+     * Returns the number of ports entries in a len byte PortStatsReply body.
+     *
+     * @throws IOException  if len is not a valid length for a PortStatsReply body
+     */
+    public static int count(int len) throws IOException {
+        int left = len - SIZEOF;
+        if(left < 0 || left % PortStatsCodec.SIZEOF != 0)
+            throw new IOException("Body of PortStatsReply is not 12B plus a multiple of " + PortStatsCodec.SIZEOF + "B (length of body is " + len + " bytes)");
+        return left / PortStatsCodec.SIZEOF;
+    }
+
+    /** Writes the fixed fields of a PortStatsReply (the ports entries must be written after them). */
+    public static void write(DataOutput out, long dpid, short flags) throws IOException {
+        out.writeLong(dpid);
+        out.writeShort(STATS_TYPE);
+        out.writeShort(flags);
+    }
+
+    /** Puts the fixed fields of a PortStatsReply at off in b. */
+    public static void put(ByteBuffer b, int off, long dpid, short flags) {
+        b.putLong(off + OFFSET_DPID, dpid);
+        b.putShort(off + OFFSET_STATS_TYPE, STATS_TYPE);
+        b.putShort(off + OFFSET_FLAGS, flags);
+    }
+}
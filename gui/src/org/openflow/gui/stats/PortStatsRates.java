@@ -71,6 +71,17 @@ public class PortStatsRates extends PortStats {
         this.flowsPerSec = flowsPerSec;
     }
 
+    /** 
+     * set the statistics to the specified values without computing rates from
+     * them (e.g., when the counters are first seen) and clear the rates
+     */
+    public void reset(long packetCount, long byteCount, int flowCount, long when) {
+        packetsPerSec = 0;
+        bitsPerSec = 0;
+        flowsPerSec = 0;
+        super.update(packetCount, byteCount, flowCount, when);
+    }
+    
     /** update the statistics with the specified values and recompute rates */
     public void update(long packetCount, long byteCount, int flowCount, long when) {
         double pDiff = packetCount - numPackets;
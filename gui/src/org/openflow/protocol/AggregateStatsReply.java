@@ -45,6 +45,18 @@ public class AggregateStatsReply extends StatsHeader {
         in.readInt(); /* 4B pad */
     }
     
+    /** 
+     * Reads the body of an aggregate stats reply from the switch with the
+     * specified DPID and passes its counters to sink.
+     */
+    public static void decodeInto(long dpid, DataInput in, AggregateStatsSink sink) throws IOException {
+        long packetCount = in.readLong();
+        long byteCount = in.readLong();
+        int flowCount = in.readInt();
+        in.readInt(); /* 4B pad */
+        sink.updateAggregateStats(dpid, packetCount, byteCount, flowCount, System.currentTimeMillis());
+    }
+    
     /** returns true because this message is part of a stateful exchange */
     public boolean isStatefulReply() {
         return true;
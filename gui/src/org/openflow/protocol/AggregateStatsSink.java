@@ -0,0 +1,20 @@
+package org.openflow.protocol;
+
+/**
+ * Something which can take the counters from an aggregate stats reply
+ * directly, without an AggregateStatsReply being created for them.
+ *
+ * @author David Underhill
+ */
+public interface AggregateStatsSink {
+    /**
+     * Called with the counters from an aggregate stats reply.
+     *
+     * @param dpid         the switch the stats are from
+     * @param packetCount  number of packets in flows
+     * @param byteCount    number of bytes in flows
+     * @param flowCount    number of flows
+     * @param when         when the reply was received (ms)
+     */
+    public void updateAggregateStats(long dpid, long packetCount, long byteCount, int flowCount, long when);
+}
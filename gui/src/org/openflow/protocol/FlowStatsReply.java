@@ -0,0 +1,172 @@
+package org.openflow.protocol;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import org.openflow.gui.net.protocol.StatsHeader;
+
+/**
+ * A reply with the statistics of individual flow entries.  The body is kept 
+ * in its wire format (a series of variable length ofp_flow_stats) and each 
+ * entry's fields are read from it in place by index.  Large replies can
+ * instead be streamed entry by entry into a FlowStatsSink with decodeInto().
+ * 
+ * @author David Underhill
+ */
+public class FlowStatsReply extends StatsHeader {
+    /** size of the stats for one flow entry, not including its actions */
+    public static final int FLOW_STATS_SIZEOF = 88;
+    
+    /** offsets of the fields in a flow entry's stats */
+    private static final int OFFSET_LENGTH = 0, OFFSET_TABLE_ID = 2, OFFSET_MATCH = 4,
+                             OFFSET_DURATION_SEC = 44, OFFSET_PRIORITY = 52, 
+                             OFFSET_COOKIE = 64, OFFSET_PACKET_COUNT = 72, OFFSET_BYTE_COUNT = 80;
+    
+    /** number of bytes between the end of the match and the cookie */
+    private static final int BYTES_BEFORE_COOKIE = OFFSET_COOKIE - (OFFSET_MATCH + Match.SIZEOF);
+    
+    /** the stats for each flow entry in wire format */
+    private final ByteBuffer body;
+    
+    /** offset of each flow entry's stats in body */
+    private final int[] offsets;
+    
+    /** 
+     * Create a flow stats reply from the switch with the specified DPID and
+     * flags and read the bodyLen bytes of flow stats from in.
+     */
+    public FlowStatsReply(long dpid, StatsFlag flags, int bodyLen, DataInput in) throws IOException {
+        super(StatsHeader.REPLY,
+              dpid,
+              StatsType.FLOW,
+              flags);
+        
+        if(bodyLen < 0)
+            throw new IOException("Body of flow stats reply has a negative length (" + bodyLen + " bytes)");
+        
+        byte[] b = new byte[bodyLen];
+        in.readFully(b);
+        body = ByteBuffer.wrap(b);
+        
+        // find where each entry starts
+        int n = 0;
+        int[] offs = new int[bodyLen / FLOW_STATS_SIZEOF];
+        for(int off=0; off<bodyLen; ) {
+            int len = (bodyLen - off >= 2) ? body.getShort(off + OFFSET_LENGTH) & 0xFFFF : 0;
+            checkEntryLength(len, bodyLen - off);
+            offs[n++] = off;
+            off += len;
+        }
+        
+        offsets = new int[n];
+        System.arraycopy(offs, 0, offsets, 0, n);
+    }
+    
+    /** throws an IOException unless len is a valid length for an entry with left bytes remaining */
+    private static void checkEntryLength(int len, int left) throws IOException {
+        if(len < FLOW_STATS_SIZEOF || len > left)
+            throw new IOException("Invalid flow stats entry length " + len + " (" + left + " bytes left in the reply)");
+    }
+    
+    /** 
+     * Reads the bodyLen bytes of flow stats in a reply from the switch with
+     * the specified DPID and passes the counters of each entry to sink as it 
+     * is read.  Matches and actions are skipped, so nothing is allocated per
+     * entry.
+     */
+    public static void decodeInto(long dpid, int bodyLen, DataInput in, FlowStatsSink sink) throws IOException {
+        long when = System.currentTimeMillis();
+        int left = bodyLen;
+        while(left > 0) {
+            int len = (left >= 2) ? in.readUnsignedShort() : 0;
+            checkEntryLength(len, left);
+            
+            skipFully(in, OFFSET_MATCH - 2 + Match.SIZEOF + BYTES_BEFORE_COOKIE);
+            long cookie = in.readLong();
+            long packetCount = in.readLong();
+            long byteCount = in.readLong();
+            skipFully(in, len - FLOW_STATS_SIZEOF); /* actions */
+            
+            sink.updateFlowStats(dpid, cookie, packetCount, byteCount, when);
+            left -= len;
+        }
+    }
+    
+    /** skips exactly n bytes of in */
+    private static void skipFully(DataInput in, int n) throws IOException {
+        if(in.skipBytes(n) != n)
+            throw new IOException("unable to skip " + n + " bytes of a flow stats entry");
+    }
+    
+    /** returns true because this message is part of a stateful exchange */
+    public boolean isStatefulReply() {
+        return true;
+    }
+    
+    /** Returns the number of flow entries in the reply. */
+    public int getNumFlows() {
+        return offsets.length;
+    }
+    
+    /** Returns the ID of the table flow entry i is in. */
+    public byte getTableID(int i) {
+        return body.get(offsets[i] + OFFSET_TABLE_ID);
+    }
+    
+    /** Returns the match of flow entry i (a new Match is created each call). */
+    public Match getMatch(int i) throws IOException {
+        return new Match(new DataInputStream(new ByteArrayInputStream(body.array(), offsets[i] + OFFSET_MATCH, Match.SIZEOF)));
+    }
+    
+    /** Returns how long flow entry i has been alive (seconds). */
+    public long getDurationSec(int i) {
+        return body.getInt(offsets[i] + OFFSET_DURATION_SEC) & 0xFFFFFFFFL;
+    }
+    
+    /** Returns the priority of flow entry i. */
+    public int getPriority(int i) {
+        return body.getShort(offsets[i] + OFFSET_PRIORITY) & 0xFFFF;
+    }
+    
+    /** Returns the cookie of flow entry i. */
+    public long getCookie(int i) {
+        return body.getLong(offsets[i] + OFFSET_COOKIE);
+    }
+    
+    /** Returns the number of packets matched by flow entry i. */
+    public long getPacketCount(int i) {
+        return body.getLong(offsets[i] + OFFSET_PACKET_COUNT);
+    }
+    
+    /** Returns the number of bytes matched by flow entry i. */
+    public long getByteCount(int i) {
+        return body.getLong(offsets[i] + OFFSET_BYTE_COUNT);
+    }
+    
+    /** Passes the counters of each flow entry in this reply to sink. */
+    public void updateSink(FlowStatsSink sink) {
+        for(int i=0; i<offsets.length; i++)
+            sink.updateFlowStats(dpid, getCookie(i), getPacketCount(i), getByteCount(i), timeCreated);
+    }
+    
+    /** total length of this message in bytes */
+    public int length() {
+        return super.length() + body.capacity();
+    }
+    
+    public void write(DataOutput out) throws IOException {
+        super.write(out);
+        out.write(body.array(), 0, body.capacity());
+    }
+    
+    public String toString() {
+        String ret = super.toString() + TSSEP + "#flows=" + offsets.length;
+        for(int i=0; i<offsets.length; i++)
+            ret += " cookie" + getCookie(i) + "{" + getPacketCount(i) + "pkts/" + getByteCount(i) + "B}";
+        return ret;
+    }
+}
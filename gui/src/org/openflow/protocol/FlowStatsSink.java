@@ -0,0 +1,20 @@
+package org.openflow.protocol;
+
+/**
+ * Something which can take the counters of each flow entry in a flow stats
+ * reply as they are decoded, without a FlowStatsReply being created for them.
+ * 
+ * @author David Underhill
+ */
+public interface FlowStatsSink {
+    /**
+     * Called with the counters of one flow entry from a flow stats reply.
+     * 
+     * @param dpid         the switch the stats are from
+     * @param cookie       the entry's opaque cookie (the ID of the flow it belongs to)
+     * @param packetCount  number of packets matched by the entry
+     * @param byteCount    number of bytes matched by the entry
+     * @param when         when the reply was received (ms)
+     */
+    public void updateFlowStats(long dpid, long cookie, long packetCount, long byteCount, long when);
+}
@@ -0,0 +1,148 @@
+package org.openflow.protocol;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import org.openflow.gui.net.protocol.StatsHeader;
+import org.openflow.gui.net.protocol.codec.PortStatsCodec;
+
+/**
+ * A reply with the statistics of some or all of a switch's ports.  The body 
+ * is kept in its wire format (an array of ofp_port_stats) and each port's
+ * counters are read from it in place by index.
+ * 
+ * @author David Underhill
+ */
+public class PortStatsReply extends StatsHeader {
+    /** size of the stats for one port */
+    public static final int PORT_STATS_SIZEOF = PortStatsCodec.SIZEOF;
+    
+    /** the stats for each port in wire format */
+    private final ByteBuffer body;
+    
+    /** number of ports in the reply */
+    private final int numPorts;
+    
+    /** 
+     * Create a port stats reply from the switch with the specified DPID and
+     * flags and read the bodyLen byte array of port stats from in.
+     */
+    public PortStatsReply(long dpid, StatsFlag flags, int bodyLen, DataInput in) throws IOException {
+        super(StatsHeader.REPLY,
+              dpid,
+              StatsType.PORT,
+              flags);
+        
+        if(bodyLen < 0 || bodyLen % PORT_STATS_SIZEOF != 0)
+            throw new IOException("Body of port stats reply is not a multiple of " + PORT_STATS_SIZEOF + " (length of body is " + bodyLen + " bytes)");
+        
+        byte[] b = new byte[bodyLen];
+        in.readFully(b);
+        body = ByteBuffer.wrap(b);
+        numPorts = bodyLen / PORT_STATS_SIZEOF;
+    }
+    
+    /** returns true because this message is part of a stateful exchange */
+    public boolean isStatefulReply() {
+        return true;
+    }
+    
+    /** Returns the number of ports in the reply. */
+    public int getNumPorts() {
+        return numPorts;
+    }
+    
+    /** Returns the index of the stats for the specified port, or -1 if they are not in the reply. */
+    public int indexOfPort(short portNo) {
+        for(int i=0; i<numPorts; i++)
+            if(getPortNo(i) == portNo)
+                return i;
+        
+        return -1;
+    }
+    
+    /** Returns the port number of port i. */
+    public short getPortNo(int i) {
+        return PortStatsCodec.getPortNo(body, i * PORT_STATS_SIZEOF);
+    }
+    
+    /** Returns the number of packets received on port i. */
+    public long getRxPackets(int i) {
+        return PortStatsCodec.getRxPackets(body, i * PORT_STATS_SIZEOF);
+    }
+    
+    /** Returns the number of packets sent out of port i. */
+    public long getTxPackets(int i) {
+        return PortStatsCodec.getTxPackets(body, i * PORT_STATS_SIZEOF);
+    }
+    
+    /** Returns the number of bytes received on port i. */
+    public long getRxBytes(int i) {
+        return PortStatsCodec.getRxBytes(body, i * PORT_STATS_SIZEOF);
+    }
+    
+    /** Returns the number of bytes sent out of port i. */
+    public long getTxBytes(int i) {
+        return PortStatsCodec.getTxBytes(body, i * PORT_STATS_SIZEOF);
+    }
+    
+    /** Returns the number of packets dropped by port i's receiver. */
+    public long getRxDropped(int i) {
+        return PortStatsCodec.getRxDropped(body, i * PORT_STATS_SIZEOF);
+    }
+    
+    /** Returns the number of packets dropped by port i's transmitter. */
+    public long getTxDropped(int i) {
+        return PortStatsCodec.getTxDropped(body, i * PORT_STATS_SIZEOF);
+    }
+    
+    /** Returns the number of receive errors on port i. */
+    public long getRxErrors(int i) {
+        return PortStatsCodec.getRxErrors(body, i * PORT_STATS_SIZEOF);
+    }
+    
+    /** Returns the number of transmit errors on port i. */
+    public long getTxErrors(int i) {
+        return PortStatsCodec.getTxErrors(body, i * PORT_STATS_SIZEOF);
+    }
+    
+    /** Returns the number of frame alignment errors on port i. */
+    public long getRxFrameErrors(int i) {
+        return PortStatsCodec.getRxFrameErr(body, i * PORT_STATS_SIZEOF);
+    }
+    
+    /** Returns the number of packets with receiver overrun on port i. */
+    public long getRxOverErrors(int i) {
+        return PortStatsCodec.getRxOverErr(body, i * PORT_STATS_SIZEOF);
+    }
+    
+    /** Returns the number of CRC errors on port i. */
+    public long getRxCRCErrors(int i) {
+        return PortStatsCodec.getRxCrcErr(body, i * PORT_STATS_SIZEOF);
+    }
+    
+    /** Returns the number of collisions on port i. */
+    public long getCollisions(int i) {
+        return PortStatsCodec.getCollisions(body, i * PORT_STATS_SIZEOF);
+    }
+    
+    /** total length of this message in bytes */
+    public int length() {
+        return super.length() + numPorts * PORT_STATS_SIZEOF;
+    }
+    
+    public void write(DataOutput out) throws IOException {
+        super.write(out);
+        out.write(body.array(), 0, numPorts * PORT_STATS_SIZEOF);
+    }
+    
+    public String toString() {
+        String ret = super.toString() + TSSEP + "#ports=" + numPorts;
+        for(int i=0; i<numPorts; i++)
+            ret += " port" + getPortNo(i) + "{rx=" + getRxPackets(i) + "pkts/" + getRxBytes(i) + "B"
+                                        + " tx=" + getTxPackets(i) + "pkts/" + getTxBytes(i) + "B}";
+        return ret;
+    }
+}
@@ -0,0 +1,70 @@
+package org.openflow.protocol;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+import org.openflow.gui.net.protocol.StatsHeader;
+
+/**
+ * A request for the statistics of one or all of a switch's ports.
+ * 
+ * @author David Underhill
+ */
+public class PortStatsRequest extends StatsHeader {
+    /** port number which asks for the stats of every port */
+    public static final short OFPP_NONE = (short)0xFFFF;
+    
+    /** the port to get stats for, or OFPP_NONE for all ports */
+    public short portNo;
+    
+    /** Create a request for the stats of every port on the switch with this DPID. */
+    public PortStatsRequest(long dpid) {
+        this(dpid, OFPP_NONE);
+    }
+    
+    /** Create a request for the stats of the specified port on the switch with this DPID. */
+    public PortStatsRequest(long dpid, short portNo) {
+        super(StatsHeader.REQUEST,
+              dpid,
+              StatsType.PORT,
+              StatsFlag.NONE);
+        
+        this.portNo = portNo;
+    }
+    
+    /** 
+     * Create a port stats request for the switch with the specified DPID and
+     * flags and read the request from the receive buffer.
+     */
+    public PortStatsRequest(long dpid, StatsFlag flags, DataInput in) throws IOException {
+        super(StatsHeader.REQUEST,
+              dpid,
+              StatsType.PORT,
+              flags);
+        
+        portNo = in.readShort();
+        in.skipBytes(6); /* 6B of pad */
+    }
+    
+    /** returns true because this message is part of a stateful exchange */
+    public boolean isStatefulRequest() {
+        return true;
+    }
+    
+    /** total length of this message in bytes */
+    public int length() {
+        return super.length() + 8;
+    }
+    
+    public void write(DataOutput out) throws IOException {
+        super.write(out);
+        out.writeShort(portNo);
+        out.writeShort(0); // pad
+        out.writeInt(0);   // pad
+    }
+    
+    public String toString() {
+        return super.toString() + TSSEP + "port=" + (portNo == OFPP_NONE ? "all" : Short.toString(portNo));
+    }
+}
@@ -22,9 +22,12 @@ public enum StatsFlag {
         return typeID;
     }
 
+    /** the constants of this enum (values() makes a new copy each call) */
+    private static final StatsFlag[] VALUES = values();
+
     /** Returns the OFGMessageType constant associated with typeID, if any */
     public static StatsFlag typeValToStatsFlag(short typeID) {
-        for(StatsFlag t : StatsFlag.values())
+        for(StatsFlag t : VALUES)
             if(t.getTypeID() == typeID)
                 return t;
 
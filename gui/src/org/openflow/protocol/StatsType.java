@@ -3,6 +3,7 @@ package org.openflow.protocol;
 import java.io.DataInput;
 import java.io.IOException;
 
+import org.openflow.gui.net.protocol.OFGMessage;
 import org.openflow.gui.net.protocol.OFGMessageType;
 import org.openflow.gui.net.protocol.StatsHeader;
 
@@ -43,25 +44,57 @@ public enum StatsType {
         return typeID;
     }
 
+    /** the constants of this enum (values() makes a new copy each call) */
+    private static final StatsType[] VALUES = values();
+
     /** Returns the OFGMessageType constant associated with typeID, if any */
     public static StatsType typeValToStatsType(short typeID) {
-        for(StatsType t : StatsType.values())
+        for(StatsType t : VALUES)
             if(t.getTypeID() == typeID)
                 return t;
 
         return null;
     }
     
+    /** number of bytes in the stats header (DPID, stats type, and flags) */
+    private static final int STATS_HEADER_SIZEOF = 12;
+    
     /**
      * Constructs the object representing the received message.  The message is 
      * known to be of length len and len - OFGMessage.SIZEOF bytes representing
      * the rest of the message should be extracted from buf.
      */
     public static StatsHeader decode(int len, OFGMessageType t, int xid, DataInput in) throws IOException {
+        return decode(len, t, xid, in, null);
+    }
+    
+    /**
+     * Decodes the received message like decode() except that the counters in
+     * an aggregate stats reply are passed straight to aggSink (if it is not 
+     * null) rather than being returned in a new AggregateStatsReply.
+     * 
+     * @return the decoded message, or null if it was passed to aggSink
+     */
+    public static StatsHeader decode(int len, OFGMessageType t, int xid, DataInput in, AggregateStatsSink aggSink) throws IOException {
+        return decode(len, t, xid, in, aggSink, null);
+    }
+    
+    /**
+     * Decodes the received message like decode(len, t, xid, in, aggSink) 
+     * except that the entries of a flow stats reply are passed to flowSink
+     * (if it is not null) as they are read rather than being returned in a 
+     * new FlowStatsReply.
+     * 
+     * @return the decoded message, or null if it was passed to a sink
+     */
+    public static StatsHeader decode(int len, OFGMessageType t, int xid, DataInput in, AggregateStatsSink aggSink, FlowStatsSink flowSink) throws IOException {
         if(t != OFGMessageType.STAT_REPLY)
             throw new IOException("StatsType.decode was unexpectedly asked to decode type " + t.toString());
         
         // parse the stats header
+        if(len - OFGMessage.SIZEOF < STATS_HEADER_SIZEOF)
+            throw new IOException("Body of stats reply is too short: " + (len - OFGMessage.SIZEOF) + "B (need >=" + STATS_HEADER_SIZEOF + "B)");
+        
         long dpid = in.readLong();
         
         short statsTypeVal = in.readShort();
@@ -76,8 +109,22 @@ public enum StatsType {
             case DESC:
                 return new SwitchDescriptionStats(dpid, flags, in);
 
+            case FLOW:
+                if(flowSink == null)
+                    return new FlowStatsReply(dpid, flags, len - OFGMessage.SIZEOF - STATS_HEADER_SIZEOF, in);
+                
+                FlowStatsReply.decodeInto(dpid, len - OFGMessage.SIZEOF - STATS_HEADER_SIZEOF, in, flowSink);
+                return null;
+            
+            case PORT:
+                return new PortStatsReply(dpid, flags, len - OFGMessage.SIZEOF - STATS_HEADER_SIZEOF, in);
+                
             case AGGREGATE:
-                return new AggregateStatsReply(dpid, flags, in);
+                if(aggSink == null)
+                    return new AggregateStatsReply(dpid, flags, in);
+                
+                AggregateStatsReply.decodeInto(dpid, in, aggSink);
+                return null;
             
             default:
                 throw new IOException("Unhandled stats type received: " + type.toString());
@@ -0,0 +1,273 @@
+package org.openflow.util;
+
+import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A map from primitive long keys (e.g., datapath IDs) to objects which may be
+ * read by many threads at once.  Keys are stored in an open-addressed table
+ * (linear probing) so looking one up neither boxes it into a Long nor chases
+ * per-entry hash nodes.  Reads never lock; writes are serialized on the map.
+ * Null values are not allowed.
+ *
+ * A slot's key never changes once it is set (a removed entry leaves a marker
+ * behind until the table is rebuilt), so a reader which sees a slot's value
+ * also sees the right key for it.
+ *
+ * @param <V>  the type of value held in the map
+ *
+ * @author David Underhill
+ */
+public class ConcurrentLongMap<V> {
+    /** default number of slots in a new map */
+    public static final int DEFAULT_CAPACITY = 16;
+
+    /** the table is rebuilt when more than this fraction of its slots are used */
+    public static final float LOAD_FACTOR = 0.5f;
+
+    /** value of a slot whose entry was removed */
+    private static final Object REMOVED = new Object();
+
+    /** the slots of the map */
+    private static final class Table {
+        /** the key in each slot (set before the slot's value is) */
+        final long[] keys;
+
+        /** the value in each slot (null if the slot has never been used) */
+        final AtomicReferenceArray<Object> vals;
+
+        /** maps a hash to a slot */
+        final int mask;
+
+        /** number of slots which may be used before the table is rebuilt */
+        final int threshold;
+
+        Table(int capacity) {
+            keys = new long[capacity];
+            vals = new AtomicReferenceArray<Object>(capacity);
+            mask = capacity - 1;
+            threshold = Math.max(1, (int)(capacity * LOAD_FACTOR));
+        }
+    }
+
+    /** the current table (replaced whole when it is rebuilt) */
+    private volatile Table table;
+
+    /** number of entries in the map */
+    private volatile int size = 0;
+
+    /** number of slots in the current table which have a key (including removed ones) */
+    private int used = 0;
+
+    /** Creates an empty map with DEFAULT_CAPACITY slots. */
+    public ConcurrentLongMap() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /** Creates an empty map which can hold expectedSize entries before it grows. */
+    public ConcurrentLongMap(int expectedSize) {
+        table = new Table(capacityFor(expectedSize));
+    }
+
+    /** returns the number of slots needed to hold n entries */
+    private static int capacityFor(int n) {
+        int capacity = 2;
+        while(capacity * LOAD_FACTOR < n)
+            capacity <<= 1;
+
+        return capacity;
+    }
+
+    /** spreads the bits of key so that sequential keys do not cluster */
+    private static int hash(long key) {
+        key = (key ^ (key >>> 30)) * 0xBF58476D1CE4E5B9L;
+        key = (key ^ (key >>> 27)) * 0x94D049BB133111EBL;
+        return (int)(key ^ (key >>> 31));
+    }
+
+    /** returns the slot key is in, or -1 if it is not in t */
+    private static int find(Table t, long key) {
+        int i = hash(key) & t.mask;
+        while(true) {
+            Object v = t.vals.get(i);
+            if(v == null)
+                return -1;
+            if(t.keys[i] == key)
+                return i;
+
+            i = (i + 1) & t.mask;
+        }
+    }
+
+    /** Returns the value mapped to key, or null if there is none. */
+    @SuppressWarnings("unchecked")
+    public V get(long key) {
+        Table t = table;
+        int i = find(t, key);
+        if(i < 0)
+            return null;
+
+        Object v = t.vals.get(i);
+        return (v == REMOVED) ? null : (V)v;
+    }
+
+    /** Returns true if key is mapped to a value. */
+    public boolean containsKey(long key) {
+        return get(key) != null;
+    }
+
+    /** Returns the number of entries in the map. */
+    public int size() {
+        return size;
+    }
+
+    /** Returns true if the map has no entries. */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Maps key to value.
+     *
+     * @return the value key was previously mapped to, or null
+     */
+    public synchronized V put(long key, V value) {
+        return put(key, value, false);
+    }
+
+    /**
+     * Maps key to value unless it is already mapped to something.
+     *
+     * @return the value key is already mapped to, or null if value was added
+     */
+    public synchronized V putIfAbsent(long key, V value) {
+        return put(key, value, true);
+    }
+
+    /** maps key to value (unless onlyIfAbsent and it is mapped) and returns the old value */
+    @SuppressWarnings("unchecked")
+    private V put(long key, V value, boolean onlyIfAbsent) {
+        if(value == null)
+            throw new NullPointerException("null values are not allowed");
+
+        Table t = table;
+        int i = find(t, key);
+        if(i >= 0) {
+            Object old = t.vals.get(i);
+            if(old != REMOVED) {
+                if(!onlyIfAbsent)
+                    t.vals.set(i, value);
+                return (V)old;
+            }
+
+            // reuse the slot this key was removed from
+            t.vals.set(i, value);
+            size += 1;
+            return null;
+        }
+
+        if(used + 1 > t.threshold)
+            t = rebuild(size + 1);
+
+        i = hash(key) & t.mask;
+        while(t.vals.get(i) != null)
+            i = (i + 1) & t.mask;
+
+        t.keys[i] = key;
+        t.vals.set(i, value);
+        used += 1;
+        size += 1;
+        return null;
+    }
+
+    /**
+     * Removes the entry for key.
+     *
+     * @return the value key was mapped to, or null if it was not in the map
+     */
+    @SuppressWarnings("unchecked")
+    public synchronized V remove(long key) {
+        Table t = table;
+        int i = find(t, key);
+        if(i < 0)
+            return null;
+
+        Object old = t.vals.get(i);
+        if(old == REMOVED)
+            return null;
+
+        t.vals.set(i, REMOVED);
+        size -= 1;
+        return (V)old;
+    }
+
+    /** Removes every entry. */
+    public synchronized void clear() {
+        table = new Table(DEFAULT_CAPACITY);
+        used = 0;
+        size = 0;
+    }
+
+    /**
+     * copies the entries into a new table big enough for n entries (dropping
+     * removed slots) and publishes it
+     */
+    private Table rebuild(int n) {
+        Table old = table;
+        Table t = new Table(capacityFor(n));
+        for(int j=0; j<old.keys.length; j++) {
+            Object v = old.vals.get(j);
+            if(v == null || v == REMOVED)
+                continue;
+
+            int i = hash(old.keys[j]) & t.mask;
+            while(t.vals.get(i) != null)
+                i = (i + 1) & t.mask;
+
+            t.keys[i] = old.keys[j];
+            t.vals.set(i, v);
+        }
+
+        used = size;
+        table = t;
+        return t;
+    }
+
+    /** Returns the keys in the map (a snapshot which may miss concurrent changes). */
+    public long[] keys() {
+        Table t = table;
+        long[] ret = new long[size];
+        int n = 0;
+        for(int i=0; i<t.keys.length; i++) {
+            Object v = t.vals.get(i);
+            if(v != null && v != REMOVED) {
+                if(n == ret.length) {
+                    long[] bigger = new long[ret.length * 2 + 1];
+                    System.arraycopy(ret, 0, bigger, 0, n);
+                    ret = bigger;
+                }
+                ret[n++] = t.keys[i];
+            }
+        }
+
+        if(n == ret.length)
+            return ret;
+
+        long[] exact = new long[n];
+        System.arraycopy(ret, 0, exact, 0, n);
+        return exact;
+    }
+
+    /** Returns the values in the map (a snapshot which may miss concurrent changes). */
+    @SuppressWarnings("unchecked")
+    public ArrayList<V> values() {
+        Table t = table;
+        ArrayList<V> ret = new ArrayList<V>(size);
+        for(int i=0; i<t.keys.length; i++) {
+            Object v = t.vals.get(i);
+            if(v != null && v != REMOVED)
+                ret.add((V)v);
+        }
+        return ret;
+    }
+}
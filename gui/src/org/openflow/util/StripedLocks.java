@@ -0,0 +1,49 @@
+package org.openflow.util;
+
+/**
+ * A fixed set of locks which keys are spread across.  Operations on the same
+ * key always synchronize on the same lock, while operations on different keys
+ * usually do not contend (unlike a single global lock).
+ *
+ * @author David Underhill
+ */
+public class StripedLocks {
+    /** default number of locks */
+    public static final int DEFAULT_STRIPES = 256;
+
+    /** the locks (the number of them is a power of two) */
+    private final Object[] locks;
+
+    /** maps a hash to a lock */
+    private final int mask;
+
+    /** Creates DEFAULT_STRIPES locks. */
+    public StripedLocks() {
+        this(DEFAULT_STRIPES);
+    }
+
+    /** Creates at least minStripes locks (rounded up to a power of two). */
+    public StripedLocks(int minStripes) {
+        int n = 1;
+        while(n < minStripes)
+            n <<= 1;
+
+        locks = new Object[n];
+        for(int i=0; i<n; i++)
+            locks[i] = new Object();
+        mask = n - 1;
+    }
+
+    /** Returns the lock for key. */
+    public Object get(long key) {
+        key = (key ^ (key >>> 33)) * 0xFF51AFD7ED558CCDL;
+        key ^= key >>> 33;
+        return locks[(int)key & mask];
+    }
+
+    /** Returns the lock for the unordered pair of keys a and b (so (a,b) and (b,a) share a lock). */
+    public Object getForPair(long a, long b) {
+        LongPair p = new LongPair(a, b);
+        return get(p.a * 31 + p.b);
+    }
+}
@@ -7,18 +7,21 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.ListIterator;
 import java.util.Set;
 import java.util.TreeSet;
 import java.util.Vector;
-import java.util.concurrent.ConcurrentHashMap;
 
 import org.ho.yaml.YamlConfig;
 import org.ho.yaml.wrapper.DelayedCreationBeanWrapper;
 import org.ho.yaml.wrapper.ObjectWrapper;
 import org.ho.yaml.wrapper.WrapperFactory;
 
+import org.openflow.util.ConcurrentLongMap;
 import org.openflow.util.string.DPIDUtil;
 
 import org.pzgui.icon.Icon;
@@ -162,6 +165,9 @@ public class PZManager extends Thread {
 
     /** Entities to draw on the GUIs */
     private Vector<Drawable> drawables = new Vector<Drawable>();
+    
+    /** the same entities as drawables (so membership checks are not scans) */
+    private HashSet<Drawable> drawableSet = new HashSet<Drawable>();
 
     /** the order in which certain types of objects should be drawn (last=front) */
     private LinkedList<Class> classDrawOrder = new LinkedList<Class>();
@@ -172,18 +178,54 @@ public class PZManager extends Thread {
      */
     public synchronized void addDrawable(Drawable d) {
         // only draw each entity once
-        if(drawables.contains(d))
+        if(!drawableSet.add(d))
             return;
         
         setLayoutableInfo(d);
-
+        drawables.insertElementAt(d, getInsertionIndex(d.getClass()));
+    }
+    
+    /**
+     * Adds many new entities to draw on the GUI.  This is equivalent to 
+     * calling addDrawable() on each of them in order, except that the lock is
+     * only acquired once and the z-order is only searched once per class.
+     * 
+     * @param ds  the entities to start drawing
+     * @return the entities which were not already being drawn
+     */
+    public synchronized List<Drawable> addDrawables(Collection<? extends Drawable> ds) {
+        ArrayList<Drawable> added = new ArrayList<Drawable>(ds.size());
+        LinkedHashMap<Class, ArrayList<Drawable>> byClass = new LinkedHashMap<Class, ArrayList<Drawable>>();
+        for(Drawable d : ds) {
+            if(!drawableSet.add(d))
+                continue;
+            
+            setLayoutableInfo(d);
+            added.add(d);
+            ArrayList<Drawable> sameClass = byClass.get(d.getClass());
+            if(sameClass == null) {
+                sameClass = new ArrayList<Drawable>();
+                byClass.put(d.getClass(), sameClass);
+            }
+            sameClass.add(d);
+        }
+        
+        // entities of the same class are inserted consecutively in the same spot
+        for(ArrayList<Drawable> sameClass : byClass.values())
+            drawables.addAll(getInsertionIndex(sameClass.get(0).getClass()), sameClass);
+        
+        return added;
+    }
+    
+    /** returns where a new entity of class cls goes in the z-order */
+    private int getInsertionIndex(Class cls) {
         // determine which objects e should be drawn on top of
         boolean found = false;
         LinkedList<Class> mustDrawOnTopOf = new LinkedList<Class>();
         for(Class c : classDrawOrder) {
             if(found)
                 mustDrawOnTopOf.add(c);
-            else if(c == d.getClass())
+            else if(c == cls)
                 found = true;
         }
         
@@ -202,14 +244,12 @@ public class PZManager extends Thread {
             }
 
             // add it here if it was ok
-            if(here) {
-                drawables.insertElementAt(d, i + 1);
-                return;
-            }
+            if(here)
+                return i + 1;
         }
 
         // add to the front since it must be before everything else in drawables
-        drawables.insertElementAt(d, 0);
+        return 0;
     }
 
     /**
@@ -217,7 +257,34 @@ public class PZManager extends Thread {
      * @param d  the entity to stop drawing
      */
     public synchronized void removeDrawable(Drawable d) {
-        drawables.remove(d);
+        if(drawableSet.remove(d))
+            drawables.remove(d);
+    }
+    
+    /**
+     * Stops drawing many entities.  This is equivalent to calling 
+     * removeDrawable() on each of them except that the lock is only acquired
+     * once and the drawables are only traversed once.
+     * 
+     * @param ds  the entities to stop drawing
+     * @return the entities which were being drawn
+     */
+    public synchronized List<Drawable> removeDrawables(Collection<? extends Drawable> ds) {
+        ArrayList<Drawable> removed = new ArrayList<Drawable>(ds.size());
+        for(Drawable d : ds)
+            if(drawableSet.remove(d))
+                removed.add(d);
+        
+        if(!removed.isEmpty()) {
+            // keep everything which is still in the set (removing the rest in one pass)
+            Vector<Drawable> kept = new Vector<Drawable>(drawables.size());
+            for(Drawable d : drawables)
+                if(drawableSet.contains(d))
+                    kept.add(d);
+            drawables = kept;
+        }
+        
+        return removed;
     }
 
     /**
@@ -237,6 +304,7 @@ public class PZManager extends Thread {
         // re-sort drawables based on the new ordering
         Vector<Drawable> oldDrawables = drawables;
         drawables = new Vector<Drawable>();
+        drawableSet = new HashSet<Drawable>();
         for(Drawable d : oldDrawables)
             addDrawable(d);
     }
@@ -374,7 +442,7 @@ public class PZManager extends Thread {
     }
     
     /** where layout positions from a file is saved */
-    protected ConcurrentHashMap<Long, LayoutableInfo> layoutablePositions = new ConcurrentHashMap<Long, LayoutableInfo>();
+    protected ConcurrentLongMap<LayoutableInfo> layoutablePositions = new ConcurrentLongMap<LayoutableInfo>();
     
     /** name of the last config file used */
     private String lastConfigFilename = "";
@@ -688,6 +756,13 @@ public class PZManager extends Thread {
         
         // back to the original view
         resetGraphicsView(gfx, offset, zoom);
+        
+        // draw overlays on top of everything else
+        if(overlaysVisible) {
+            int y = 0;
+            for(PZOverlay o : overlays)
+                y = o.drawOverlay(gfx, window, y);
+        }
     }
     
     /** 
@@ -709,6 +784,36 @@ public class PZManager extends Thread {
     }
 
 
+    // ------- Overlays ------- //
+    // ************************ //
+    
+    /** things drawn on top of the scene in window coordinates */
+    private final LinkedList<PZOverlay> overlays = new LinkedList<PZOverlay>();
+    
+    /** whether overlays are drawn */
+    private boolean overlaysVisible = false;
+    
+    /** Adds an overlay to be drawn below any existing overlays. */
+    public synchronized void addOverlay(PZOverlay o) {
+        overlays.add(o);
+    }
+    
+    /** Removes an overlay. */
+    public synchronized void removeOverlay(PZOverlay o) {
+        overlays.remove(o);
+    }
+    
+    /** Returns whether overlays are drawn. */
+    public synchronized boolean isOverlaysVisible() {
+        return overlaysVisible;
+    }
+    
+    /** Sets whether overlays are drawn (they are hidden by default). */
+    public synchronized void setOverlaysVisible(boolean b) {
+        overlaysVisible = b;
+    }
+
+
     // ------- Scene refresh rate ------- //
     // ********************************** //
 
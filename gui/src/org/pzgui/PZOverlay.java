@@ -0,0 +1,19 @@
+package org.pzgui;
+
+import java.awt.Graphics2D;
+
+/**
+ * Something drawn on top of a window's scene in window coordinates (i.e., it
+ * does not move or scale when the view is panned or zoomed).  Overlays are
+ * stacked from the top of the window downward in the order they were added.
+ *
+ * @author David Underhill
+ */
+public interface PZOverlay {
+    /**
+     * Draws the overlay with its top edge at y.
+     *
+     * @return the y coordinate just below what was drawn
+     */
+    public int drawOverlay(Graphics2D gfx, PZWindow window, int y);
+}
@@ -114,6 +114,7 @@ public class PZWindowEventListener implements ComponentListener,
      *   Ctrl+O: load layout positions from a file
      *   Ctrl+S: save layout positions to a file
      *   V: calls window.restView()
+     *   O: shows or hides overlays
      *   Escape: terminates the program
      *   Page Up: Take a screenshot
      */
@@ -135,6 +136,10 @@ public class PZWindowEventListener implements ComponentListener,
             window.resetView();
             manager.displayIcon("<V> Reset View!", 2000);
         }
+        else if(e.getKeyCode() == KeyEvent.VK_O) {
+            manager.setOverlaysVisible(!manager.isOverlaysVisible());
+            manager.displayIcon("<O> Overlays " + (manager.isOverlaysVisible() ? "On" : "Off"), 2000);
+        }
         else if(e.getKeyCode() == KeyEvent.VK_ESCAPE) {
             manager.exit(0);
         }
@@ -151,7 +156,8 @@ public class PZWindowEventListener implements ComponentListener,
                                "    escape             = exit\n" +
                                "    ctrl + O           = load a layout from a Yaml file\n" +
                                "    ctrl + S           = save the current layout to a Yaml file\n" +
-                               "    v                  = reset the view to the default\n");
+                               "    v                  = reset the view to the default\n" +
+                               "    o                  = show/hide overlays\n");
         }
     }
 
@@ -2,6 +2,9 @@ package org.pzgui.layout;
 
 import java.awt.Dimension;
 import java.awt.geom.Point2D;
+import java.util.Collection;
+import java.util.List;
+
 import org.pzgui.Drawable;
 import org.pzgui.PZWindow;
 
@@ -68,6 +71,46 @@ public class PZLayoutManager extends org.pzgui.PZManager {
         }
     }
     
+    /** Adds the entities like addDrawable() but updates the graph once for the batch. */
+    public synchronized List<Drawable> addDrawables(Collection<? extends Drawable> ds) {
+        List<Drawable> added = super.addDrawables(ds);
+        for(Drawable d : added)
+            if(d instanceof AbstractLayoutable) {
+                AbstractLayoutable al = (AbstractLayoutable)d;
+                if(!layoutablePositions.containsKey(al.getID()))
+                    al.setPos((int)(Math.random()*1024), (int)(Math.random()*768));
+            }
+        
+        // add every vertex before any edge so edges between new vertices can be added
+        for(Drawable d : added)
+            if(d instanceof Vertex)
+                graph.addVertex((Vertex)d);
+        
+        for(Drawable d : added)
+            if(d instanceof Vertex)
+                for(Object o : ((Vertex)d).getEdges()) {
+                    Edge e = (Edge)o;
+                    graph.addEdge(e, e.getSource(), e.getDestination());
+                }
+        
+        return added;
+    }
+    
+    /** Removes the entities like removeDrawable() but updates the graph once for the batch. */
+    public synchronized List<Drawable> removeDrawables(Collection<? extends Drawable> ds) {
+        List<Drawable> removed = super.removeDrawables(ds);
+        for(Drawable d : removed)
+            if(d instanceof Vertex) {
+                Vertex v = (Vertex)d;
+                graph.removeVertex(v);
+                
+                for(Object o : v.getEdges())
+                    graph.removeEdge((Edge)o); 
+            }
+        
+        return removed;
+    }
+    
     /**
      * Update the position of vertices after each redraw and advance the 
      * layout engine if it is an incremental layout engine.